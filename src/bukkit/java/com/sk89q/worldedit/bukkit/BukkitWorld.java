@@ -31,10 +31,12 @@
 import com.sk89q.worldedit.blocks.LazyBlock;
 import com.sk89q.worldedit.bukkit.adapter.BukkitImplAdapter;
 import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.TreeGenerator;
 import com.sk89q.worldedit.world.biome.BaseBiome;
 import com.sk89q.worldedit.world.registry.WorldData;
+import org.bukkit.Chunk;
 import org.bukkit.Effect;
 import org.bukkit.Material;
 import org.bukkit.TreeType;
@@ -423,6 +425,33 @@ public boolean setBlock(Vector position, BaseBlock block, boolean notifyAndLight
         }
     }
 
+    @Override
+    public int setBlocks(BlockBatch batch, boolean notifyAndLight) throws WorldEditException {
+        // The adapters don't have a batch method yet, so each block is set
+        // on its own, but the chunk is only looked up once
+        BukkitImplAdapter adapter = WorldEditPlugin.getInstance().getBukkitImplAdapter();
+        World world = getWorld();
+        Chunk chunk = world.getChunkAt(batch.getChunkX(), batch.getChunkZ());
+        int changed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            BaseBlock block = batch.getBlock(i);
+            if (block == null) {
+                continue;
+            }
+            Block bukkitBlock = chunk.getBlock(batch.getX(i) & 15, batch.getY(i), batch.getZ(i) & 15);
+            boolean result;
+            if (adapter != null) {
+                result = adapter.setBlock(bukkitBlock.getLocation(), block, notifyAndLight);
+            } else {
+                result = bukkitBlock.setTypeIdAndData(block.getType(), (byte) block.getData(), notifyAndLight);
+            }
+            if (result) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
     @SuppressWarnings("deprecation")
     @Override
     public BaseBlock getLazyBlock(Vector position) {
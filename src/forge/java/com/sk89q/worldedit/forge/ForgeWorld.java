@@ -30,6 +30,7 @@
 import com.sk89q.worldedit.blocks.LazyBlock;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.internal.Constants;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.Location;
@@ -123,9 +124,41 @@ public boolean setBlock(Vector position, BaseBlock block, boolean notifyAndLight
         int x = position.getBlockX();
         int y = position.getBlockY();
         int z = position.getBlockZ();
+        Chunk chunk = world.getChunkFromChunkCoords(x >> 4, z >> 4);
+        return setBlock(world, chunk, x, y, z, block, notifyAndLight);
+    }
+
+    @Override
+    public int setBlocks(BlockBatch batch, boolean notifyAndLight) throws WorldEditException {
+        checkNotNull(batch);
+
+        World world = getWorldChecked();
+        Chunk chunk = world.getChunkFromChunkCoords(batch.getChunkX(), batch.getChunkZ());
+        int changed = 0;
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (setBlock(world, chunk, batch.getX(i), batch.getY(i), batch.getZ(i), batch.getBlock(i), notifyAndLight)) {
+                changed++;
+            }
+        }
+
+        return changed;
+    }
 
+    /**
+     * Set a block in the given chunk.
+     *
+     * @param world the world
+     * @param chunk the chunk that contains the position
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @param block the block
+     * @param notifyAndLight true to to notify and light
+     * @return true if the block was successfully set
+     */
+    private boolean setBlock(World world, Chunk chunk, int x, int y, int z, BaseBlock block, boolean notifyAndLight) {
         // First set the block
-        Chunk chunk = world.getChunkFromChunkCoords(x >> 4, z >> 4);
         int previousId = 0;
 
         if (notifyAndLight) {
@@ -140,7 +173,7 @@ public boolean setBlock(Vector position, BaseBlock block, boolean notifyAndLight
             if (tag != null) {
                 NBTTagCompound nativeTag = NBTConverter.toNative(tag);
                 nativeTag.setString("id", block.getNbtId());
-                TileEntityUtils.setTileEntity(getWorld(), position, nativeTag);
+                TileEntityUtils.setTileEntity(world, new Vector(x, y, z), nativeTag);
             }
         }
 
@@ -199,6 +232,13 @@ public boolean setBiome(Vector2D position, BaseBiome biome) {
         return false;
     }
 
+    @Override
+    public void checkLoadedChunk(Vector position) {
+        checkNotNull(position);
+        // Loads or generates the chunk if it isn't loaded yet
+        getWorld().getChunkFromBlockCoords(position.getBlockX(), position.getBlockZ());
+    }
+
     @Override
     public void dropItem(Vector position, BaseItemStack item) {
         checkNotNull(position);
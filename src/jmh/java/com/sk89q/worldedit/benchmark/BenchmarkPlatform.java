@@ -0,0 +1,126 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.sk89q.worldedit.LocalConfiguration;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.entity.Player;
+import com.sk89q.worldedit.event.platform.PlatformReadyEvent;
+import com.sk89q.worldedit.extension.platform.AbstractPlatform;
+import com.sk89q.worldedit.extension.platform.Capability;
+import com.sk89q.worldedit.extension.platform.Preference;
+import com.sk89q.worldedit.util.command.Dispatcher;
+import com.sk89q.worldedit.world.World;
+
+import javax.annotation.Nullable;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A platform that only provides the default configuration, so that edit
+ * sessions can be created outside of a server.
+ */
+final class BenchmarkPlatform extends AbstractPlatform {
+
+    private static boolean installed;
+
+    private final LocalConfiguration configuration = new LocalConfiguration() {
+        @Override
+        public void load() {
+        }
+    };
+
+    private BenchmarkPlatform() {
+    }
+
+    /**
+     * Register a benchmark platform with WorldEdit if one has not been
+     * registered yet.
+     */
+    static synchronized void install() {
+        if (!installed) {
+            WorldEdit.getInstance().getPlatformManager().register(new BenchmarkPlatform());
+            WorldEdit.getInstance().getEventBus().post(new PlatformReadyEvent());
+            installed = true;
+        }
+    }
+
+    @Override
+    public int resolveItem(String name) {
+        return 0;
+    }
+
+    @Override
+    public boolean isValidMobType(String type) {
+        return false;
+    }
+
+    @Override
+    public void reload() {
+    }
+
+    @Nullable
+    @Override
+    public Player matchPlayer(Player player) {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public World matchWorld(World world) {
+        return world;
+    }
+
+    @Override
+    public void registerCommands(Dispatcher dispatcher) {
+    }
+
+    @Override
+    public void registerGameHooks() {
+    }
+
+    @Override
+    public LocalConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public String getVersion() {
+        return "benchmark";
+    }
+
+    @Override
+    public String getPlatformName() {
+        return "Benchmark";
+    }
+
+    @Override
+    public String getPlatformVersion() {
+        return "benchmark";
+    }
+
+    @Override
+    public Map<Capability, Preference> getCapabilities() {
+        Map<Capability, Preference> capabilities = new EnumMap<Capability, Preference>(Capability.class);
+        capabilities.put(Capability.CONFIGURATION, Preference.PREFER_OTHERS);
+        return capabilities;
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.function.block.Counter;
+import com.sk89q.worldedit.function.mask.RegionMask;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.function.visitor.RecursiveVisitor;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.EllipsoidRegion;
+import com.sk89q.worldedit.regions.Region;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a flood fill with {@link RecursiveVisitor}, the search behind
+ * //fill, //drain and the flood fill brushes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BreadthFirstSearchBenchmark {
+
+    @Param({ "cuboid", "ellipsoid" })
+    public String shape;
+
+    @Param({ "16", "32" })
+    public int radius;
+
+    private Region region;
+    private Vector origin;
+
+    @Setup
+    public void setUp() {
+        origin = new Vector(0, 64, 0);
+        Vector size = new Vector(radius, radius, radius);
+        if (shape.equals("cuboid")) {
+            region = new CuboidRegion(origin.subtract(size), origin.add(size));
+        } else {
+            region = new EllipsoidRegion(origin, size);
+        }
+    }
+
+    @Benchmark
+    public int fill() {
+        Counter counter = new Counter();
+        RecursiveVisitor visitor = new RecursiveVisitor(new RegionMask(region), counter);
+        visitor.visit(origin);
+        Operations.completeBlindly(visitor);
+        return counter.getCount();
+    }
+
+}
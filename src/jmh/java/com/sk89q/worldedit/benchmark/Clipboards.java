@@ -0,0 +1,64 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.regions.CuboidRegion;
+
+/**
+ * Builds clipboards with varied, partly rotatable contents for benchmarks.
+ */
+final class Clipboards {
+
+    private static final int[] MATERIALS = {
+            BlockID.AIR, BlockID.AIR, BlockID.STONE, BlockID.DIRT,
+            BlockID.LOG, BlockID.WOODEN_STAIRS, BlockID.TORCH, BlockID.GLASS
+    };
+
+    private Clipboards() {
+    }
+
+    /**
+     * Create a clipboard of the given size with its origin at its minimum
+     * point.
+     *
+     * @param width the size along the X and Z axes
+     * @param height the size along the Y axis
+     * @return a new clipboard
+     * @throws WorldEditException thrown if the clipboard can't be filled
+     */
+    static BlockArrayClipboard create(int width, int height) throws WorldEditException {
+        CuboidRegion region = new CuboidRegion(new Vector(0, 0, 0), new Vector(width - 1, height - 1, width - 1));
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(region);
+        clipboard.setOrigin(region.getMinimumPoint());
+        int i = 0;
+        for (Vector position : region) {
+            int type = MATERIALS[(i * 31 + (i >> 7)) % MATERIALS.length];
+            clipboard.setBlock(position, new BaseBlock(type, i & 3));
+            i++;
+        }
+        return clipboard;
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.function.mask.BlockMask;
+import com.sk89q.worldedit.patterns.SingleBlockPattern;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link EditSession#setBlocks(Region, com.sk89q.worldedit.patterns.Pattern)}
+ * and {@link EditSession#replaceBlocks(Region, com.sk89q.worldedit.function.mask.Mask, com.sk89q.worldedit.patterns.Pattern)}
+ * through the full extent chain, including history and reordering.
+ *
+ * <p>Each invocation swaps the region between stone and dirt so that every
+ * block is really changed.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EditSessionBenchmark {
+
+    private static final BaseBlock STONE = new BaseBlock(BlockID.STONE);
+    private static final BaseBlock DIRT = new BaseBlock(BlockID.DIRT);
+
+    @Param({ "32", "64" })
+    public int size;
+
+    private MemoryWorld world;
+    private Region region;
+    private boolean stone;
+
+    @Setup
+    public void setUp() throws MaxChangedBlocksException {
+        BenchmarkPlatform.install();
+        world = new MemoryWorld();
+        region = new CuboidRegion(world, new Vector(0, 0, 0), new Vector(size - 1, size - 1, size - 1));
+        EditSession editSession = createEditSession();
+        editSession.setBlocks(region, STONE);
+        editSession.flushQueue();
+        stone = true;
+    }
+
+    @Benchmark
+    public int setBlocks() throws MaxChangedBlocksException {
+        EditSession editSession = createEditSession();
+        int changed = editSession.setBlocks(region, new SingleBlockPattern(swap()));
+        editSession.flushQueue();
+        return changed;
+    }
+
+    @Benchmark
+    public int replaceBlocks() throws MaxChangedBlocksException {
+        EditSession editSession = createEditSession();
+        BlockMask mask = new BlockMask(editSession, stone ? STONE : DIRT);
+        int changed = editSession.replaceBlocks(region, mask, new SingleBlockPattern(swap()));
+        editSession.flushQueue();
+        return changed;
+    }
+
+    private BaseBlock swap() {
+        stone = !stone;
+        return stone ? STONE : DIRT;
+    }
+
+    private EditSession createEditSession() {
+        return WorldEdit.getInstance().getEditSessionFactory().getEditSession(world, -1);
+    }
+
+}
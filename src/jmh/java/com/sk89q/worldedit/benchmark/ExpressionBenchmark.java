@@ -0,0 +1,85 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.internal.expression.ExpressionException;
+import com.sk89q.worldedit.internal.expression.runtime.EvaluationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures evaluation of a typical //generate expression over a
+ * 32x32x32 grid, both interpreted and compiled to bytecode.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    private static final int SIZE = 32;
+
+    @Param({ "false", "true" })
+    public boolean compiled;
+
+    @Param({ "x*x + y*y + z*z < 0.8", "sin(x * 4) * cos(z * 4) > y && abs(x) < 0.9" })
+    public String source;
+
+    private Expression expression;
+
+    @Setup
+    public void setUp() throws ExpressionException {
+        Expression.setCompilerEnabled(compiled);
+        expression = Expression.compile(source, "x", "y", "z");
+        expression.optimize();
+    }
+
+    @Benchmark
+    public double evaluate() throws EvaluationException {
+        double sum = 0;
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                for (int z = 0; z < SIZE; z++) {
+                    sum += expression.evaluate(scale(x), scale(y), scale(z));
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static double scale(int value) {
+        return value * 2.0 / (SIZE - 1) - 1;
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.sk89q.worldedit.math.convolution.GaussianKernel;
+import com.sk89q.worldedit.math.convolution.HeightMapFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.Kernel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures three //smooth iterations over a 256x256 height map with the
+ * full 2D kernel and with its separable form on one and several threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HeightMapFilterBenchmark {
+
+    private static final int SIZE = 256;
+
+    @Param({ "2d", "separable", "parallel" })
+    public String mode;
+
+    private HeightMapFilter filter;
+    private int[] data;
+
+    @Setup
+    public void setUp() {
+        GaussianKernel kernel = new GaussianKernel(5, 1.0);
+        if (mode.equals("2d")) {
+            filter = new HeightMapFilter(new Kernel(kernel.getWidth(), kernel.getHeight(), kernel.getKernelData(null)));
+        } else {
+            filter = new HeightMapFilter(kernel);
+            if (mode.equals("parallel")) {
+                filter.setThreads(Runtime.getRuntime().availableProcessors());
+            }
+        }
+
+        Random random = new Random(0);
+        data = new int[SIZE * SIZE];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = 60 + random.nextInt(20);
+        }
+    }
+
+    @Benchmark
+    public int[] smooth() {
+        return filter.filter(data, SIZE, SIZE, 3);
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.function.mask.BlockMask;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.Masks;
+import com.sk89q.worldedit.function.pattern.BlockPattern;
+import com.sk89q.worldedit.function.pattern.RandomPattern;
+import com.sk89q.worldedit.regions.Region;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures block mask tests, with and without {@link Masks#compile(Mask)},
+ * and random pattern application over a clipboard of mixed blocks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MaskPatternBenchmark {
+
+    @Param({ "64" })
+    public int size;
+
+    private Region region;
+    private Mask mask;
+    private Mask compiledMask;
+    private RandomPattern pattern;
+
+    @Setup
+    public void setUp() throws WorldEditException {
+        BlockArrayClipboard clipboard = Clipboards.create(size, 16);
+        region = clipboard.getRegion();
+
+        mask = new BlockMask(clipboard,
+                new BaseBlock(BlockID.STONE), new BaseBlock(BlockID.DIRT), new BaseBlock(BlockID.LOG, -1));
+        compiledMask = Masks.compile(mask);
+
+        pattern = new RandomPattern();
+        pattern.add(new BlockPattern(new BaseBlock(BlockID.STONE)), 0.5);
+        pattern.add(new BlockPattern(new BaseBlock(BlockID.COBBLESTONE)), 0.3);
+        pattern.add(new BlockPattern(new BaseBlock(BlockID.MOSSY_COBBLESTONE)), 0.2);
+    }
+
+    @Benchmark
+    public int testMask() {
+        return test(mask);
+    }
+
+    @Benchmark
+    public int testCompiledMask() {
+        return test(compiledMask);
+    }
+
+    @Benchmark
+    public int applyRandomPattern() {
+        int sum = 0;
+        for (Vector position : region) {
+            sum += pattern.apply(position).getType();
+        }
+        return sum;
+    }
+
+    private int test(Mask mask) {
+        int matched = 0;
+        for (Vector position : region) {
+            if (mask.test(position)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.world.NullWorld;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A world that keeps its blocks in memory so that benchmarks can measure
+ * WorldEdit itself rather than a platform.
+ *
+ * <p>Blocks are stored as packed {@code id << 4 | data} values in one
+ * array per chunk column. Tile entity data is not kept.</p>
+ */
+class MemoryWorld extends NullWorld {
+
+    private static final int HEIGHT = 256;
+
+    private final Map<Long, char[]> columns = new HashMap<Long, char[]>();
+
+    @Override
+    public String getName() {
+        return "memory";
+    }
+
+    @Override
+    public boolean setBlock(Vector position, BaseBlock block, boolean notifyAndLight) throws WorldEditException {
+        int y = position.getBlockY();
+        if (y < 0 || y >= HEIGHT) {
+            return false;
+        }
+
+        int x = position.getBlockX();
+        int z = position.getBlockZ();
+        char[] column = getColumn(x, z, true);
+        int index = index(x, y, z);
+        char value = (char) (block.getType() << 4 | block.getData());
+        if (column[index] == value) {
+            return false;
+        }
+        column[index] = value;
+        return true;
+    }
+
+    @Override
+    public BaseBlock getBlock(Vector position) {
+        return getLazyBlock(position);
+    }
+
+    @Override
+    public BaseBlock getLazyBlock(Vector position) {
+        int y = position.getBlockY();
+        int x = position.getBlockX();
+        int z = position.getBlockZ();
+        char[] column = y >= 0 && y < HEIGHT ? getColumn(x, z, false) : null;
+        if (column == null) {
+            return new BaseBlock(0);
+        }
+        char value = column[index(x, y, z)];
+        return new BaseBlock(value >> 4, value & 0xF);
+    }
+
+    /**
+     * Get the number of chunk columns that have been written to.
+     *
+     * @return the number of columns
+     */
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    private char[] getColumn(int x, int z, boolean create) {
+        Long key = (long) (x >> 4) << 32 | ((z >> 4) & 0xFFFFFFFFL);
+        char[] column = columns.get(key);
+        if (column == null && create) {
+            column = new char[16 * 16 * HEIGHT];
+            columns.put(key, column);
+        }
+        return column;
+    }
+
+    private static int index(int x, int y, int z) {
+        return y << 8 | (z & 15) << 4 | (x & 15);
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.sk89q.jnbt.ByteArrayTag;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.IntTag;
+import com.sk89q.jnbt.ListTag;
+import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NBTOutputStream;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures raw NBT serialization of a schematic-like tag tree, without
+ * compression.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NBTBenchmark {
+
+    @Param({ "1000" })
+    public int tileEntities;
+
+    private CompoundTag tag;
+    private byte[] data;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Tag> entities = new ArrayList<Tag>();
+        for (int i = 0; i < tileEntities; i++) {
+            Map<String, Tag> values = new HashMap<String, Tag>();
+            values.put("id", new StringTag("id", "Chest"));
+            values.put("x", new IntTag("x", i));
+            values.put("y", new IntTag("y", 64));
+            values.put("z", new IntTag("z", -i));
+            entities.add(new CompoundTag("", values));
+        }
+
+        Map<String, Tag> values = new HashMap<String, Tag>();
+        values.put("Blocks", new ByteArrayTag("Blocks", new byte[64 * 64 * 64]));
+        values.put("Data", new ByteArrayTag("Data", new byte[64 * 64 * 64]));
+        values.put("TileEntities", new ListTag("TileEntities", CompoundTag.class, entities));
+        tag = new CompoundTag("Schematic", values);
+        data = write().toByteArray();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NBTOutputStream stream = new NBTOutputStream(out);
+        stream.writeTag(tag);
+        stream.close();
+        return out;
+    }
+
+    @Benchmark
+    public Tag read() throws IOException {
+        NBTInputStream stream = new NBTInputStream(new ByteArrayInputStream(data));
+        return stream.readTag();
+    }
+
+}
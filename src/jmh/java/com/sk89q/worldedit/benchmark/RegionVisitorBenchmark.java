@@ -0,0 +1,106 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.function.block.Counter;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.function.visitor.RegionVisitor;
+import com.sk89q.worldedit.regions.ConvexPolyhedralRegion;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.EllipsoidRegion;
+import com.sk89q.worldedit.regions.Polygonal2DRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how quickly a {@link RegionVisitor} walks each region shape.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RegionVisitorBenchmark {
+
+    private static final int RADIUS = 32;
+
+    @Param({ "cuboid", "ellipsoid", "cylinder", "polygon", "convex" })
+    public String shape;
+
+    private Region region;
+
+    @Setup
+    public void setUp() {
+        region = createRegion(shape);
+    }
+
+    @Benchmark
+    public int visit() {
+        Counter counter = new Counter();
+        Operations.completeBlindly(new RegionVisitor(region, counter));
+        return counter.getCount();
+    }
+
+    private static Region createRegion(String shape) {
+        Vector center = new Vector(0, 64, 0);
+        if (shape.equals("cuboid")) {
+            return new CuboidRegion(center.subtract(RADIUS, RADIUS, RADIUS), center.add(RADIUS, RADIUS, RADIUS));
+        } else if (shape.equals("ellipsoid")) {
+            return new EllipsoidRegion(center, new Vector(RADIUS, RADIUS, RADIUS));
+        } else if (shape.equals("cylinder")) {
+            return new CylinderRegion(center, new Vector2D(RADIUS, RADIUS), 64 - RADIUS, 64 + RADIUS);
+        } else if (shape.equals("polygon")) {
+            return new Polygonal2DRegion((World) null, Arrays.asList(
+                    new BlockVector2D(-RADIUS, -RADIUS),
+                    new BlockVector2D(RADIUS, -RADIUS / 2),
+                    new BlockVector2D(RADIUS / 2, RADIUS),
+                    new BlockVector2D(-RADIUS, RADIUS / 2)), 64 - RADIUS, 64 + RADIUS);
+        } else if (shape.equals("convex")) {
+            ConvexPolyhedralRegion region = new ConvexPolyhedralRegion((World) null);
+            region.addVertex(center.add(0, RADIUS, 0));
+            region.addVertex(center.add(-RADIUS, -RADIUS, -RADIUS));
+            region.addVertex(center.add(RADIUS, -RADIUS, -RADIUS));
+            region.addVertex(center.add(0, -RADIUS, RADIUS));
+            return region;
+        } else {
+            throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+    }
+
+}
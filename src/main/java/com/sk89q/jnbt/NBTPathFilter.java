@@ -0,0 +1,102 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.jnbt;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Selects the parts of an NBT tree that a {@link NBTStreamReader} should
+ * return, skipping everything else.
+ *
+ * <p>Paths are dot-separated tag names starting below the root tag, such as
+ * {@code Level.Sections.Blocks}. Elements of a list do not have names and
+ * are not part of the path, so {@code Level.Sections.Blocks} selects the
+ * {@code Blocks} array of every section in the {@code Sections} list.
+ * When a path selects a compound or list, everything below it is
+ * selected as well.</p>
+ */
+public class NBTPathFilter {
+
+    /**
+     * The element is not selected and can be skipped.
+     */
+    static final int SKIP = 0;
+
+    /**
+     * The element is not selected itself, but some of its children may be.
+     */
+    static final int DESCEND = 1;
+
+    /**
+     * The element and all of its children are selected.
+     */
+    static final int INCLUDE = 2;
+
+    private final String[][] paths;
+
+    /**
+     * Create a new filter.
+     *
+     * @param paths a list of dot-separated paths
+     */
+    public NBTPathFilter(String... paths) {
+        checkNotNull(paths);
+        this.paths = new String[paths.length][];
+        for (int i = 0; i < paths.length; i++) {
+            checkNotNull(paths[i]);
+            checkArgument(!paths[i].isEmpty(), "empty path");
+            this.paths[i] = paths[i].split("\\.");
+        }
+    }
+
+    /**
+     * Test the path of an element.
+     *
+     * @param path the names of the enclosing tags, starting below the root
+     * @param length the number of names in {@code path} to use
+     * @param name the name of the element
+     * @return one of {@link #SKIP}, {@link #DESCEND} or {@link #INCLUDE}
+     */
+    int test(String[] path, int length, String name) {
+        int result = SKIP;
+        for (String[] filter : paths) {
+            if (filter.length <= length) {
+                // A parent is already included when the filter is shorter
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < length; i++) {
+                if (!filter[i].equals(path[i])) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches && filter[length].equals(name)) {
+                if (filter.length == length + 1) {
+                    return INCLUDE;
+                }
+                result = DESCEND;
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,681 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.jnbt;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Reads <strong>NBT</strong> streams one element at a time, without
+ * building the whole tag tree.
+ *
+ * <p>Call {@link #next()} to move to the next element. Compounds and lists
+ * produce a start and an end event, while all other tags produce a single
+ * {@link Event#VALUE} event whose payload can be read with one of the
+ * {@code get} methods. Payloads that are not read, and subtrees passed to
+ * {@link #skip()}, are skipped without being allocated. If a
+ * {@link NBTPathFilter} is given, elements that it does not select are
+ * skipped in the same way and never returned.</p>
+ */
+public final class NBTStreamReader implements Closeable {
+
+    /**
+     * The kinds of elements returned by {@link #next()}.
+     */
+    public enum Event {
+        START_COMPOUND,
+        END_COMPOUND,
+        START_LIST,
+        END_LIST,
+        VALUE,
+        END_DOCUMENT
+    }
+
+    private final DataInputStream is;
+    @Nullable
+    private final NBTPathFilter filter;
+
+    // One frame per open compound or list
+    private int depth = -1;
+    private int[] frameTypes = new int[16];
+    private int[] frameChildTypes = new int[16];
+    private int[] frameRemaining = new int[16];
+    private boolean[] frameIncluded = new boolean[16];
+    private boolean[] framePushedName = new boolean[16];
+
+    // The names of the enclosing tags, excluding the root and list elements
+    private String[] path = new String[16];
+    private int pathLength = 0;
+
+    private boolean started = false;
+    private Event event;
+    private int type;
+    @Nullable
+    private String name;
+    private boolean payloadPending = false;
+    private int arrayRemaining = 0;
+
+    /**
+     * Create a new reader that returns every element.
+     *
+     * @param is the input stream
+     */
+    public NBTStreamReader(InputStream is) {
+        this(is, null);
+    }
+
+    /**
+     * Create a new reader.
+     *
+     * @param is the input stream
+     * @param filter a filter selecting the elements to return, or null for all
+     */
+    public NBTStreamReader(InputStream is, @Nullable NBTPathFilter filter) {
+        checkNotNull(is);
+        this.is = is instanceof DataInputStream ? (DataInputStream) is : new DataInputStream(is);
+        this.filter = filter;
+    }
+
+    /**
+     * Move to the next element.
+     *
+     * @return the kind of element
+     * @throws IOException if an I/O error occurs or the data is invalid
+     */
+    public Event next() throws IOException {
+        if (payloadPending) {
+            payloadPending = false;
+            skipPayload(type);
+        }
+        skipArrayRemainder();
+
+        while (true) {
+            int childType;
+            String childName;
+
+            if (!started) {
+                started = true;
+                childType = is.readByte() & 0xFF;
+                if (childType == NBTConstants.TYPE_END) {
+                    throw new IOException("TAG_End found without a TAG_Compound/TAG_List tag preceding it.");
+                }
+                childName = readName();
+            } else if (depth < 0) {
+                return setEvent(Event.END_DOCUMENT, NBTConstants.TYPE_END, null);
+            } else if (frameTypes[depth] == NBTConstants.TYPE_COMPOUND) {
+                childType = is.readByte() & 0xFF;
+                if (childType == NBTConstants.TYPE_END) {
+                    pop();
+                    return setEvent(Event.END_COMPOUND, NBTConstants.TYPE_COMPOUND, null);
+                }
+                childName = readName();
+            } else {
+                if (frameRemaining[depth] <= 0) {
+                    pop();
+                    return setEvent(Event.END_LIST, NBTConstants.TYPE_LIST, null);
+                }
+                frameRemaining[depth]--;
+                childType = frameChildTypes[depth];
+                childName = null;
+            }
+
+            int listType = NBTConstants.TYPE_END;
+            int listLength = 0;
+            if (childType == NBTConstants.TYPE_LIST) {
+                listType = is.readByte() & 0xFF;
+                listLength = is.readInt();
+            }
+
+            int match = accept(childType, childName);
+            if (match == NBTPathFilter.SKIP) {
+                if (childType == NBTConstants.TYPE_LIST) {
+                    skipList(listType, listLength);
+                } else {
+                    skipPayload(childType);
+                }
+                continue;
+            }
+
+            boolean included = match == NBTPathFilter.INCLUDE;
+            switch (childType) {
+            case NBTConstants.TYPE_COMPOUND:
+                push(NBTConstants.TYPE_COMPOUND, childName, included, NBTConstants.TYPE_END, 0);
+                return setEvent(Event.START_COMPOUND, childType, childName);
+            case NBTConstants.TYPE_LIST:
+                push(NBTConstants.TYPE_LIST, childName, included, listType, listLength);
+                return setEvent(Event.START_LIST, childType, childName);
+            default:
+                if (childType > NBTConstants.TYPE_INT_ARRAY) {
+                    throw new IOException("Invalid tag type: " + childType + ".");
+                }
+                payloadPending = true;
+                return setEvent(Event.VALUE, childType, childName);
+            }
+        }
+    }
+
+    /**
+     * Get the kind of the current element.
+     *
+     * @return the event, or null if {@link #next()} has not been called
+     */
+    @Nullable
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * Get the tag type of the current element, as one of the type
+     * constants in {@link NBTConstants}.
+     *
+     * @return the tag type
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * Get the name of the current element.
+     *
+     * @return the name, or null for list elements and end events
+     */
+    @Nullable
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of compounds and lists that are currently open.
+     *
+     * @return the depth
+     */
+    public int getDepth() {
+        return depth + 1;
+    }
+
+    /**
+     * Get the element type of the list that was just started.
+     *
+     * @return the element type
+     */
+    public int getListType() {
+        checkState(event == Event.START_LIST, "not at the start of a list");
+        return frameChildTypes[depth];
+    }
+
+    /**
+     * Get the number of elements of the list that was just started.
+     * Elements that are removed by the filter are included in the count.
+     *
+     * @return the number of elements
+     */
+    public int getListLength() {
+        checkState(event == Event.START_LIST, "not at the start of a list");
+        return frameRemaining[depth];
+    }
+
+    /**
+     * Skip the current element. For a compound or list that has just
+     * started, the rest of it is skipped and the next call to
+     * {@link #next()} returns the element that follows it.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void skip() throws IOException {
+        skipArrayRemainder();
+        if (payloadPending) {
+            payloadPending = false;
+            skipPayload(type);
+        } else if (event == Event.START_COMPOUND) {
+            while (true) {
+                int childType = is.readByte() & 0xFF;
+                if (childType == NBTConstants.TYPE_END) {
+                    break;
+                }
+                skipName();
+                skipPayload(childType);
+            }
+            pop();
+        } else if (event == Event.START_LIST) {
+            skipList(frameChildTypes[depth], frameRemaining[depth]);
+            pop();
+        }
+    }
+
+    /**
+     * Read the value of the current byte tag.
+     *
+     * @return the value
+     * @throws IOException if an I/O error occurs
+     */
+    public byte getByte() throws IOException {
+        consume(NBTConstants.TYPE_BYTE);
+        return is.readByte();
+    }
+
+    /**
+     * Read the value of the current short tag.
+     *
+     * @return the value
+     * @throws IOException if an I/O error occurs
+     */
+    public short getShort() throws IOException {
+        consume(NBTConstants.TYPE_SHORT);
+        return is.readShort();
+    }
+
+    /**
+     * Read the value of the current int tag.
+     *
+     * @return the value
+     * @throws IOException if an I/O error occurs
+     */
+    public int getInt() throws IOException {
+        consume(NBTConstants.TYPE_INT);
+        return is.readInt();
+    }
+
+    /**
+     * Read the value of the current long tag.
+     *
+     * @return the value
+     * @throws IOException if an I/O error occurs
+     */
+    public long getLong() throws IOException {
+        consume(NBTConstants.TYPE_LONG);
+        return is.readLong();
+    }
+
+    /**
+     * Read the value of the current float tag.
+     *
+     * @return the value
+     * @throws IOException if an I/O error occurs
+     */
+    public float getFloat() throws IOException {
+        consume(NBTConstants.TYPE_FLOAT);
+        return is.readFloat();
+    }
+
+    /**
+     * Read the value of the current double tag.
+     *
+     * @return the value
+     * @throws IOException if an I/O error occurs
+     */
+    public double getDouble() throws IOException {
+        consume(NBTConstants.TYPE_DOUBLE);
+        return is.readDouble();
+    }
+
+    /**
+     * Read the value of the current string tag.
+     *
+     * @return the value
+     * @throws IOException if an I/O error occurs
+     */
+    public String getString() throws IOException {
+        consume(NBTConstants.TYPE_STRING);
+        byte[] bytes = new byte[is.readUnsignedShort()];
+        is.readFully(bytes);
+        return new String(bytes, NBTConstants.CHARSET);
+    }
+
+    /**
+     * Read the value of the current byte array tag.
+     *
+     * @return the value
+     * @throws IOException if an I/O error occurs
+     */
+    public byte[] getByteArray() throws IOException {
+        consume(NBTConstants.TYPE_BYTE_ARRAY);
+        byte[] bytes = new byte[readLength()];
+        is.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Read the current byte array into an existing array, which avoids
+     * allocating when the length is known in advance.
+     *
+     * @param dest the destination, which must be exactly as long as the array
+     * @throws IOException if an I/O error occurs or the length differs
+     */
+    public void getByteArray(byte[] dest) throws IOException {
+        checkNotNull(dest);
+        consume(NBTConstants.TYPE_BYTE_ARRAY);
+        int length = readLength();
+        if (length != dest.length) {
+            skipFully(length);
+            throw new IOException("Expected a byte array of length " + dest.length + "; got " + length);
+        }
+        is.readFully(dest);
+    }
+
+    /**
+     * Start reading the current byte array tag in parts with
+     * {@link #readByteArray(byte[], int, int)}, so that large arrays do not
+     * have to be held in memory at once. Any part that is not read is
+     * skipped by the next call to {@link #next()}.
+     *
+     * @return the length of the array
+     * @throws IOException if an I/O error occurs
+     */
+    public int startByteArray() throws IOException {
+        consume(NBTConstants.TYPE_BYTE_ARRAY);
+        arrayRemaining = readLength();
+        return arrayRemaining;
+    }
+
+    /**
+     * Read the next part of a byte array started with
+     * {@link #startByteArray()}.
+     *
+     * @param dest the destination
+     * @param off the offset in the destination
+     * @param len the number of bytes to read
+     * @throws IOException if an I/O error occurs or fewer than {@code len}
+     *                     bytes of the array remain
+     */
+    public void readByteArray(byte[] dest, int off, int len) throws IOException {
+        checkNotNull(dest);
+        if (len > arrayRemaining) {
+            throw new EOFException("Only " + arrayRemaining + " bytes of the array remain; " + len + " requested");
+        }
+        is.readFully(dest, off, len);
+        arrayRemaining -= len;
+    }
+
+    /**
+     * Read the value of the current int array tag.
+     *
+     * @return the value
+     * @throws IOException if an I/O error occurs
+     */
+    public int[] getIntArray() throws IOException {
+        consume(NBTConstants.TYPE_INT_ARRAY);
+        int[] data = new int[readLength()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = is.readInt();
+        }
+        return data;
+    }
+
+    /**
+     * Read the current element, and everything below it that passes the
+     * filter, as a tag.
+     *
+     * <p>When called at the start of a compound or list, the reader is left
+     * after its end, as if {@link #skip()} had been called.</p>
+     *
+     * @return the tag
+     * @throws IOException if an I/O error occurs
+     */
+    public Tag readTag() throws IOException {
+        String tagName = name == null ? "" : name;
+
+        switch (event) {
+        case VALUE:
+            return readValue(tagName);
+        case START_COMPOUND:
+            Map<String, Tag> tagMap = new HashMap<String, Tag>();
+            while (next() != Event.END_COMPOUND) {
+                Tag tag = readTag();
+                tagMap.put(tag.getName(), tag);
+            }
+            return new CompoundTag(tagName, tagMap);
+        case START_LIST:
+            int listType = frameChildTypes[depth];
+            List<Tag> tagList = new ArrayList<Tag>();
+            while (next() != Event.END_LIST) {
+                tagList.add(readTag());
+            }
+            return new ListTag(tagName, NBTUtils.getTypeClass(listType), tagList);
+        default:
+            throw new IllegalStateException("Not at the start of a tag: " + event);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        is.close();
+    }
+
+    private Tag readValue(String tagName) throws IOException {
+        switch (type) {
+        case NBTConstants.TYPE_BYTE:
+            return new ByteTag(tagName, getByte());
+        case NBTConstants.TYPE_SHORT:
+            return new ShortTag(tagName, getShort());
+        case NBTConstants.TYPE_INT:
+            return new IntTag(tagName, getInt());
+        case NBTConstants.TYPE_LONG:
+            return new LongTag(tagName, getLong());
+        case NBTConstants.TYPE_FLOAT:
+            return new FloatTag(tagName, getFloat());
+        case NBTConstants.TYPE_DOUBLE:
+            return new DoubleTag(tagName, getDouble());
+        case NBTConstants.TYPE_BYTE_ARRAY:
+            return new ByteArrayTag(tagName, getByteArray());
+        case NBTConstants.TYPE_STRING:
+            return new StringTag(tagName, getString());
+        case NBTConstants.TYPE_INT_ARRAY:
+            return new IntArrayTag(tagName, getIntArray());
+        default:
+            throw new IOException("Invalid tag type: " + type + ".");
+        }
+    }
+
+    private Event setEvent(Event event, int type, @Nullable String name) {
+        this.event = event;
+        this.type = type;
+        this.name = name;
+        return event;
+    }
+
+    private void consume(int expectedType) {
+        checkState(payloadPending, "the current element has no unread value");
+        if (type != expectedType) {
+            throw new IllegalStateException("Expected a tag of type " + NBTUtils.getTypeName(NBTUtils.getTypeClass(expectedType))
+                    + " but the current tag is " + NBTUtils.getTypeName(NBTUtils.getTypeClass(type)));
+        }
+        payloadPending = false;
+    }
+
+    private int accept(int childType, @Nullable String childName) {
+        if (filter == null || (depth >= 0 && frameIncluded[depth])) {
+            return NBTPathFilter.INCLUDE;
+        }
+
+        int match;
+        if (depth < 0 || childName == null) {
+            // The root and list elements share the path of their parent
+            match = NBTPathFilter.DESCEND;
+        } else {
+            match = filter.test(path, pathLength, childName);
+        }
+
+        if (match == NBTPathFilter.DESCEND) {
+            // Only containers can hold a selected element. Lists are kept
+            // whatever their element type, because empty lists are written
+            // as lists of TAG_End and readers still expect them to exist
+            boolean container = childType == NBTConstants.TYPE_COMPOUND || childType == NBTConstants.TYPE_LIST;
+            if (!container) {
+                return NBTPathFilter.SKIP;
+            }
+        }
+
+        return match;
+    }
+
+    private void push(int frameType, @Nullable String frameName, boolean included, int childType, int remaining) {
+        depth++;
+        if (depth == frameTypes.length) {
+            int size = depth * 2;
+            frameTypes = Arrays.copyOf(frameTypes, size);
+            frameChildTypes = Arrays.copyOf(frameChildTypes, size);
+            frameRemaining = Arrays.copyOf(frameRemaining, size);
+            frameIncluded = Arrays.copyOf(frameIncluded, size);
+            framePushedName = Arrays.copyOf(framePushedName, size);
+        }
+        frameTypes[depth] = frameType;
+        frameChildTypes[depth] = childType;
+        frameRemaining[depth] = remaining;
+        frameIncluded[depth] = included;
+
+        // The root tag's name is not part of paths
+        boolean pushName = depth > 0 && frameName != null;
+        framePushedName[depth] = pushName;
+        if (pushName) {
+            if (pathLength == path.length) {
+                path = Arrays.copyOf(path, pathLength * 2);
+            }
+            path[pathLength++] = frameName;
+        }
+    }
+
+    private void pop() {
+        if (framePushedName[depth]) {
+            path[--pathLength] = null;
+        }
+        depth--;
+    }
+
+    private String readName() throws IOException {
+        byte[] bytes = new byte[is.readUnsignedShort()];
+        is.readFully(bytes);
+        return new String(bytes, NBTConstants.CHARSET);
+    }
+
+    private void skipName() throws IOException {
+        skipFully(is.readUnsignedShort());
+    }
+
+    private void skipArrayRemainder() throws IOException {
+        if (arrayRemaining > 0) {
+            skipFully(arrayRemaining);
+            arrayRemaining = 0;
+        }
+    }
+
+    private int readLength() throws IOException {
+        int length = is.readInt();
+        if (length < 0) {
+            throw new IOException("Negative array length: " + length);
+        }
+        return length;
+    }
+
+    private void skipPayload(int type) throws IOException {
+        switch (type) {
+        case NBTConstants.TYPE_BYTE:
+            skipFully(1);
+            break;
+        case NBTConstants.TYPE_SHORT:
+            skipFully(2);
+            break;
+        case NBTConstants.TYPE_INT:
+        case NBTConstants.TYPE_FLOAT:
+            skipFully(4);
+            break;
+        case NBTConstants.TYPE_LONG:
+        case NBTConstants.TYPE_DOUBLE:
+            skipFully(8);
+            break;
+        case NBTConstants.TYPE_BYTE_ARRAY:
+            skipFully(readLength());
+            break;
+        case NBTConstants.TYPE_STRING:
+            skipFully(is.readUnsignedShort());
+            break;
+        case NBTConstants.TYPE_LIST:
+            int listType = is.readByte() & 0xFF;
+            skipList(listType, is.readInt());
+            break;
+        case NBTConstants.TYPE_COMPOUND:
+            while (true) {
+                int childType = is.readByte() & 0xFF;
+                if (childType == NBTConstants.TYPE_END) {
+                    break;
+                }
+                skipName();
+                skipPayload(childType);
+            }
+            break;
+        case NBTConstants.TYPE_INT_ARRAY:
+            skipFully(4L * readLength());
+            break;
+        default:
+            throw new IOException("Invalid tag type: " + type + ".");
+        }
+    }
+
+    private void skipList(int listType, int length) throws IOException {
+        switch (listType) {
+        case NBTConstants.TYPE_END:
+            break;
+        case NBTConstants.TYPE_BYTE:
+            skipFully(length);
+            break;
+        case NBTConstants.TYPE_SHORT:
+            skipFully(2L * length);
+            break;
+        case NBTConstants.TYPE_INT:
+        case NBTConstants.TYPE_FLOAT:
+            skipFully(4L * length);
+            break;
+        case NBTConstants.TYPE_LONG:
+        case NBTConstants.TYPE_DOUBLE:
+            skipFully(8L * length);
+            break;
+        default:
+            for (int i = 0; i < length; i++) {
+                skipPayload(listType);
+            }
+        }
+    }
+
+    private void skipFully(long n) throws IOException {
+        while (n > 0) {
+            int skipped = is.skipBytes((int) Math.min(n, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                // skipBytes() may stop early without being at the end
+                if (is.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+}
@@ -19,31 +19,36 @@
 
 package com.sk89q.worldedit;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.blocks.BlockType;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.event.extent.EditSessionEvent;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.extent.ChangeSetExtent;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.extent.MaskingExtent;
 import com.sk89q.worldedit.extent.NullExtent;
 import com.sk89q.worldedit.extent.buffer.ForgetfulExtentBuffer;
-import com.sk89q.worldedit.extent.cache.LastAccessExtentCache;
+import com.sk89q.worldedit.extent.cache.SectionCacheExtent;
 import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.extent.inventory.BlockBagExtent;
+import com.sk89q.worldedit.extent.metric.TimingExtent;
 import com.sk89q.worldedit.extent.reorder.MultiStageReorder;
 import com.sk89q.worldedit.extent.validation.BlockChangeLimiter;
 import com.sk89q.worldedit.extent.validation.DataValidatorExtent;
 import com.sk89q.worldedit.extent.world.BlockQuirkExtent;
 import com.sk89q.worldedit.extent.world.ChunkLoadingExtent;
+import com.sk89q.worldedit.extent.world.DeferredApplyExtent;
 import com.sk89q.worldedit.extent.world.FastModeExtent;
 import com.sk89q.worldedit.extent.world.SurvivalModeExtent;
 import com.sk89q.worldedit.function.GroundFunction;
 import com.sk89q.worldedit.function.RegionMaskingFilter;
+import com.sk89q.worldedit.function.block.BlockDistribution;
 import com.sk89q.worldedit.function.block.BlockReplace;
-import com.sk89q.worldedit.function.block.Counter;
+import com.sk89q.worldedit.function.block.ColumnGravity;
 import com.sk89q.worldedit.function.block.Naturalizer;
 import com.sk89q.worldedit.function.generator.GardenPatchGenerator;
 import com.sk89q.worldedit.function.mask.*;
@@ -52,9 +57,9 @@
 import com.sk89q.worldedit.function.pattern.Patterns;
 import com.sk89q.worldedit.function.util.RegionOffset;
 import com.sk89q.worldedit.function.visitor.*;
+import com.sk89q.worldedit.function.visitor.FlatRegionVisitor;
 import com.sk89q.worldedit.history.UndoContext;
 import com.sk89q.worldedit.history.change.BlockChange;
-import com.sk89q.worldedit.history.changeset.BlockOptimizedHistory;
 import com.sk89q.worldedit.history.changeset.ChangeSet;
 import com.sk89q.worldedit.internal.expression.Expression;
 import com.sk89q.worldedit.internal.expression.ExpressionException;
@@ -70,10 +75,12 @@
 import com.sk89q.worldedit.regions.shape.ArbitraryBiomeShape;
 import com.sk89q.worldedit.regions.shape.ArbitraryShape;
 import com.sk89q.worldedit.regions.shape.RegionShape;
+import com.sk89q.worldedit.regions.shape.SlabEvaluator;
 import com.sk89q.worldedit.regions.shape.WorldEditExpressionEnvironment;
 import com.sk89q.worldedit.util.*;
 import com.sk89q.worldedit.util.collection.DoubleArrayList;
 import com.sk89q.worldedit.util.eventbus.EventBus;
+import com.sk89q.worldedit.util.metrics.EditMetrics;
 import com.sk89q.worldedit.world.NullWorld;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.biome.BaseBiome;
@@ -112,20 +119,23 @@ public enum Stage {
 
     @SuppressWarnings("ProtectedField")
     protected final World world;
-    private final ChangeSet changeSet = new BlockOptimizedHistory();
+    private final ChangeSet changeSet;
 
     private @Nullable FastModeExtent fastModeExtent;
     private final SurvivalModeExtent survivalExtent;
     private @Nullable ChunkLoadingExtent chunkLoadingExtent;
-    private @Nullable LastAccessExtentCache cacheExtent;
+    private @Nullable SectionCacheExtent cacheExtent;
     private @Nullable BlockQuirkExtent quirkExtent;
     private @Nullable DataValidatorExtent validator;
     private final BlockBagExtent blockBagExtent;
+    private final DeferredApplyExtent deferredExtent;
     private final MultiStageReorder reorderExtent;
     private @Nullable ChangeSetExtent changeSetExtent;
     private final MaskingExtent maskingExtent;
     private final BlockChangeLimiter changeLimiter;
 
+    private final @Nullable EditMetrics metrics;
+
     private final Extent bypassReorderHistory;
     private final Extent bypassHistory;
     private final Extent bypassNone;
@@ -169,42 +179,84 @@ public EditSession(LocalWorld world, int maxBlocks, @Nullable BlockBag blockBag)
      * @param event the event to call with the extent
      */
     EditSession(EventBus eventBus, World world, int maxBlocks, @Nullable BlockBag blockBag, EditSessionEvent event) {
+        this(eventBus, world, maxBlocks, blockBag, event, WorldEdit.getInstance().getSessionManager().createChangeSet(event.getActor()));
+    }
+
+    /**
+     * Construct the object with a maximum number of blocks, a block bag
+     * and the change set to record history to.
+     *
+     * @param eventBus the event bus
+     * @param world the world
+     * @param maxBlocks the maximum number of blocks that can be changed, or -1 to use no limit
+     * @param blockBag an optional {@link BlockBag} to use, otherwise null
+     * @param event the event to call with the extent
+     * @param changeSet the change set
+     */
+    EditSession(EventBus eventBus, World world, int maxBlocks, @Nullable BlockBag blockBag, EditSessionEvent event, ChangeSet changeSet) {
         checkNotNull(eventBus);
         checkArgument(maxBlocks >= -1, "maxBlocks >= -1 required");
         checkNotNull(event);
+        checkNotNull(changeSet);
 
         this.world = world;
+        this.changeSet = changeSet;
 
         if (world != null) {
             Extent extent;
 
+            // Every layer is timed separately if metrics are enabled
+            this.metrics = WorldEdit.getInstance().getPlatformManager().getMetrics().isEnabled() ? new EditMetrics() : null;
+
             // This extents are ALWAYS used
             extent = fastModeExtent = new FastModeExtent(world, false);
+            extent = measure(extent, "world");
             extent = survivalExtent = new SurvivalModeExtent(extent, world);
+            extent = measure(extent, "survival");
             extent = quirkExtent = new BlockQuirkExtent(extent, world);
+            extent = measure(extent, "quirks");
             extent = chunkLoadingExtent = new ChunkLoadingExtent(extent, world);
-            extent = cacheExtent = new LastAccessExtentCache(extent);
+            chunkLoadingExtent.setPreloadAhead(WorldEdit.getInstance().getConfiguration().chunkPreloadAhead);
+            extent = measure(extent, "chunk loading");
+            extent = cacheExtent = new SectionCacheExtent(extent);
+            extent = measure(extent, "cache");
             extent = wrapExtent(extent, eventBus, event, Stage.BEFORE_CHANGE);
+            extent = measure(extent, "before change handlers");
             extent = validator = new DataValidatorExtent(extent, world);
+            extent = measure(extent, "validation");
             extent = blockBagExtent = new BlockBagExtent(extent, blockBag);
+            extent = measure(extent, "block bag");
+
+            // Everything below here may be applied on the main thread
+            extent = deferredExtent = new DeferredApplyExtent(extent);
+            Extent blockBagLayer = extent;
 
             // This extent can be skipped by calling rawSetBlock()
             extent = reorderExtent = new MultiStageReorder(extent, false);
+            extent = measure(extent, "reorder");
+            Extent reorderLayer = extent;
             extent = wrapExtent(extent, eventBus, event, Stage.BEFORE_REORDER);
+            extent = measure(extent, "before reorder handlers");
 
             // These extents can be skipped by calling smartSetBlock()
             extent = changeSetExtent = new ChangeSetExtent(extent, changeSet);
+            extent = measure(extent, "history");
             extent = maskingExtent = new MaskingExtent(extent, Masks.alwaysTrue());
+            extent = measure(extent, "mask");
             extent = changeLimiter = new BlockChangeLimiter(extent, maxBlocks);
+            extent = measure(extent, "change limit");
             extent = wrapExtent(extent, eventBus, event, Stage.BEFORE_HISTORY);
+            extent = measure(extent, "before history handlers");
 
-            this.bypassReorderHistory = blockBagExtent;
-            this.bypassHistory = reorderExtent;
+            this.bypassReorderHistory = blockBagLayer;
+            this.bypassHistory = reorderLayer;
             this.bypassNone = extent;
         } else {
+            this.metrics = null;
             Extent extent = new NullExtent();
             extent = survivalExtent = new SurvivalModeExtent(extent, NullWorld.getInstance());
             extent = blockBagExtent = new BlockBagExtent(extent, blockBag);
+            extent = deferredExtent = new DeferredApplyExtent(extent);
             extent = reorderExtent = new MultiStageReorder(extent, false);
             extent = maskingExtent = new MaskingExtent(extent, Masks.alwaysTrue());
             extent = changeLimiter = new BlockChangeLimiter(extent, maxBlocks);
@@ -214,6 +266,17 @@ public EditSession(LocalWorld world, int maxBlocks, @Nullable BlockBag blockBag)
         }
     }
 
+    /**
+     * Time the calls that are made into an extent, if metrics are enabled.
+     *
+     * @param extent the extent
+     * @param layer the name of the layer that the extent forms
+     * @return the extent to use
+     */
+    private Extent measure(Extent extent, String layer) {
+        return metrics != null ? new TimingExtent(extent, metrics.addLayer(layer)) : extent;
+    }
+
     private Extent wrapExtent(Extent extent, EventBus eventBus, EditSessionEvent event, Stage stage) {
         event = event.clone(stage);
         event.setExtent(extent);
@@ -303,7 +366,7 @@ public void setMask(Mask mask) {
         if (mask == null) {
             maskingExtent.setMask(Masks.alwaysTrue());
         } else {
-            maskingExtent.setMask(mask);
+            maskingExtent.setMask(Masks.compile(mask));
         }
     }
 
@@ -331,6 +394,67 @@ public SurvivalModeExtent getSurvivalExtent() {
         return survivalExtent;
     }
 
+    /**
+     * Get the {@link DeferredApplyExtent}, which can have the changes made
+     * with this edit session computed on one thread and applied to the
+     * world on another.
+     *
+     * @return the deferred apply extent
+     */
+    public DeferredApplyExtent getDeferredExtent() {
+        return deferredExtent;
+    }
+
+    /**
+     * Get the metrics of this edit session's extents.
+     *
+     * @return the metrics, or null if metrics were not enabled when this
+     *         edit session was created
+     */
+    public @Nullable EditMetrics getMetrics() {
+        if (metrics != null && chunkLoadingExtent != null) {
+            metrics.setChunks(chunkLoadingExtent.getChunkCount());
+        }
+        return metrics;
+    }
+
+    /**
+     * Announce the region that the next operation will change, so that
+     * its chunks are loaded ahead of the changes.
+     *
+     * <p>The chunks are loaded by the scheduler that changes are deferred
+     * to (see {@link #getDeferredExtent()}), so nothing happens if changes
+     * are not deferred or chunk preloading is disabled.</p>
+     *
+     * @param region the region
+     */
+    public void preloadChunks(Region region) {
+        checkNotNull(region);
+        OperationScheduler scheduler = deferredExtent.getScheduler();
+        if (chunkLoadingExtent != null && scheduler != null) {
+            chunkLoadingExtent.preload(region, scheduler);
+        }
+    }
+
+    /**
+     * Announce the chunks that the next operation will change, in the
+     * order that it will change them, so that they are loaded ahead of
+     * the changes.
+     *
+     * <p>Nothing happens if changes are not deferred or chunk preloading
+     * is disabled.</p>
+     *
+     * @param chunks the chunks
+     * @see #preloadChunks(Region)
+     */
+    public void preloadChunks(Iterable<? extends Vector2D> chunks) {
+        checkNotNull(chunks);
+        OperationScheduler scheduler = deferredExtent.getScheduler();
+        if (chunkLoadingExtent != null && scheduler != null) {
+            chunkLoadingExtent.preload(chunks, scheduler);
+        }
+    }
+
     /**
      * Set whether fast mode is enabled.
      *
@@ -408,11 +532,17 @@ public boolean setBiome(Vector2D position, BaseBiome biome) {
 
     @Override
     public BaseBlock getLazyBlock(Vector position) {
+        if (deferredExtent.isDeferred()) {
+            return deferredExtent.getLazyBlock(position);
+        }
         return world.getLazyBlock(position);
     }
 
     @Override
     public BaseBlock getBlock(Vector position) {
+        if (deferredExtent.isDeferred()) {
+            return deferredExtent.getBlock(position);
+        }
         return world.getBlock(position);
     }
 
@@ -425,6 +555,9 @@ public BaseBlock getBlock(Vector position) {
      */
     @Deprecated
     public int getBlockType(Vector position) {
+        if (deferredExtent.isDeferred()) {
+            return deferredExtent.getBlock(position).getType();
+        }
         return world.getBlockType(position);
     }
 
@@ -437,6 +570,9 @@ public int getBlockType(Vector position) {
      */
     @Deprecated
     public int getBlockData(Vector position) {
+        if (deferredExtent.isDeferred()) {
+            return deferredExtent.getBlock(position).getData();
+        }
         return world.getBlockData(position);
     }
 
@@ -476,10 +612,13 @@ public int getHighestTerrainBlock(int x, int z, int minY, int maxY) {
      * @return height of highest block found or 'minY'
      */
     public int getHighestTerrainBlock(int x, int z, int minY, int maxY, boolean naturalOnly) {
+        // Columns are often probed more than once, such as by brushes, so
+        // go through this session's section cache
+        Extent extent = deferredExtent.isDeferred() ? deferredExtent : cacheExtent != null ? cacheExtent : world;
         for (int y = maxY; y >= minY; --y) {
-            Vector pt = new Vector(x, y, z);
-            int id = getBlockType(pt);
-            int data = getBlockData(pt);
+            BaseBlock block = extent.getLazyBlock(new Vector(x, y, z));
+            int id = block.getType();
+            int data = block.getData();
             if (naturalOnly ? BlockType.isNaturalTerrainBlock(id, data) : !BlockType.canPassThrough(id, data)) {
                 return y;
             }
@@ -510,6 +649,28 @@ public boolean setBlock(Vector position, BaseBlock block, Stage stage) throws Wo
         throw new RuntimeException("New enum entry added that is unhandled here");
     }
 
+    /**
+     * Set a batch of blocks within one chunk section, bypassing the
+     * extents before the given stage.
+     *
+     * @param batch the batch of changes
+     * @param stage the level
+     * @return the number of blocks that probably changed
+     * @throws WorldEditException thrown on a set error
+     */
+    public int setBlocks(BlockBatch batch, Stage stage) throws WorldEditException {
+        switch (stage) {
+            case BEFORE_HISTORY:
+                return bypassNone.setBlocks(batch);
+            case BEFORE_CHANGE:
+                return bypassHistory.setBlocks(batch);
+            case BEFORE_REORDER:
+                return bypassReorderHistory.setBlocks(batch);
+        }
+
+        throw new RuntimeException("New enum entry added that is unhandled here");
+    }
+
     /**
      * Set a block, bypassing both history and block re-ordering.
      *
@@ -551,6 +712,17 @@ public boolean setBlock(Vector position, BaseBlock block) throws MaxChangedBlock
         }
     }
 
+    @Override
+    public int setBlocks(BlockBatch batch) throws MaxChangedBlocksException {
+        try {
+            return setBlocks(batch, Stage.BEFORE_HISTORY);
+        } catch (MaxChangedBlocksException e) {
+            throw e;
+        } catch (WorldEditException e) {
+            throw new RuntimeException("Unexpected exception", e);
+        }
+    }
+
     /**
      * Sets the block at a position, subject to both history and block re-ordering.
      *
@@ -719,12 +891,7 @@ public int countBlock(Region region, Set<Integer> searchIDs) {
      * @return the number of blocks that matched the pattern
      */
     public int countBlocks(Region region, Set<BaseBlock> searchBlocks) {
-        FuzzyBlockMask mask = new FuzzyBlockMask(this, searchBlocks);
-        Counter count = new Counter();
-        RegionMaskingFilter filter = new RegionMaskingFilter(mask, count);
-        RegionVisitor visitor = new RegionVisitor(region, filter);
-        Operations.completeBlindly(visitor); // We can't throw exceptions, nor do we expect any
-        return count.getCount();
+        return countDistribution(region).getCount(searchBlocks);
     }
 
     /**
@@ -885,8 +1052,14 @@ public int setBlocks(Region region, Pattern pattern) throws MaxChangedBlocksExce
         checkNotNull(region);
         checkNotNull(pattern);
 
-        BlockReplace replace = new BlockReplace(this, Patterns.wrap(pattern));
-        RegionVisitor visitor = new RegionVisitor(region, replace);
+        com.sk89q.worldedit.function.pattern.Pattern wrapped;
+        if (pattern instanceof SingleBlockPattern) {
+            wrapped = new BlockPattern(((SingleBlockPattern) pattern).getBlock());
+        } else {
+            wrapped = Patterns.wrap(pattern);
+        }
+
+        BatchedRegionVisitor visitor = new BatchedRegionVisitor(region, this, wrapped);
         Operations.completeLegacy(visitor);
         return visitor.getAffected();
     }
@@ -939,7 +1112,7 @@ public int replaceBlocks(Region region, Mask mask, Pattern pattern) throws MaxCh
         checkNotNull(pattern);
 
         BlockReplace replace = new BlockReplace(this, Patterns.wrap(pattern));
-        RegionMaskingFilter filter = new RegionMaskingFilter(mask, replace);
+        RegionMaskingFilter filter = new RegionMaskingFilter(Masks.compile(mask), replace);
         RegionVisitor visitor = new RegionVisitor(region, filter);
         Operations.completeLegacy(visitor);
         return visitor.getAffected();
@@ -1146,6 +1319,23 @@ public int naturalizeCuboidBlocks(Region region) throws MaxChangedBlocksExceptio
         return naturalizer.getAffected();
     }
 
+    /**
+     * Let the blocks in the given region (as if it were a cuboid) fall down
+     * until they rest on the bottom of the region or on another block.
+     *
+     * @param region the region to affect
+     * @return number of blocks affected
+     * @throws MaxChangedBlocksException thrown if too many blocks are changed
+     */
+    public int dropCuboidBlocks(Region region) throws MaxChangedBlocksException {
+        checkNotNull(region);
+
+        ColumnGravity gravity = new ColumnGravity(this, minimumBlockY(region), maximumBlockY(region));
+        FlatRegionVisitor visitor = new FlatRegionVisitor(asFlatRegion(region), gravity);
+        Operations.completeLegacy(visitor);
+        return gravity.getAffected();
+    }
+
     /**
      * Stack a cuboid region.
      *
@@ -1830,55 +2020,7 @@ public int makeForest(Vector basePosition, int size, double density, TreeGenerat
      * @return the results
      */
     public List<Countable<Integer>> getBlockDistribution(Region region) {
-        List<Countable<Integer>> distribution = new ArrayList<Countable<Integer>>();
-        Map<Integer, Countable<Integer>> map = new HashMap<Integer, Countable<Integer>>();
-
-        if (region instanceof CuboidRegion) {
-            // Doing this for speed
-            Vector min = region.getMinimumPoint();
-            Vector max = region.getMaximumPoint();
-
-            int minX = min.getBlockX();
-            int minY = min.getBlockY();
-            int minZ = min.getBlockZ();
-            int maxX = max.getBlockX();
-            int maxY = max.getBlockY();
-            int maxZ = max.getBlockZ();
-
-            for (int x = minX; x <= maxX; ++x) {
-                for (int y = minY; y <= maxY; ++y) {
-                    for (int z = minZ; z <= maxZ; ++z) {
-                        Vector pt = new Vector(x, y, z);
-
-                        int id = getBlockType(pt);
-
-                        if (map.containsKey(id)) {
-                            map.get(id).increment();
-                        } else {
-                            Countable<Integer> c = new Countable<Integer>(id, 1);
-                            map.put(id, c);
-                            distribution.add(c);
-                        }
-                    }
-                }
-            }
-        } else {
-            for (Vector pt : region) {
-                int id = getBlockType(pt);
-
-                if (map.containsKey(id)) {
-                    map.get(id).increment();
-                } else {
-                    Countable<Integer> c = new Countable<Integer>(id, 1);
-                    map.put(id, c);
-                }
-            }
-        }
-
-        Collections.sort(distribution);
-        // Collections.reverse(distribution);
-
-        return distribution;
+        return countDistribution(region).getDistribution();
     }
 
     /**
@@ -1887,57 +2029,20 @@ public List<Countable<Integer>> getBlockDistribution(Region region) {
      * @param region a region
      * @return the results
      */
-    // TODO reduce code duplication - probably during ops-redux
     public List<Countable<BaseBlock>> getBlockDistributionWithData(Region region) {
-        List<Countable<BaseBlock>> distribution = new ArrayList<Countable<BaseBlock>>();
-        Map<BaseBlock, Countable<BaseBlock>> map = new HashMap<BaseBlock, Countable<BaseBlock>>();
-
-        if (region instanceof CuboidRegion) {
-            // Doing this for speed
-            Vector min = region.getMinimumPoint();
-            Vector max = region.getMaximumPoint();
-
-            int minX = min.getBlockX();
-            int minY = min.getBlockY();
-            int minZ = min.getBlockZ();
-            int maxX = max.getBlockX();
-            int maxY = max.getBlockY();
-            int maxZ = max.getBlockZ();
-
-            for (int x = minX; x <= maxX; ++x) {
-                for (int y = minY; y <= maxY; ++y) {
-                    for (int z = minZ; z <= maxZ; ++z) {
-                        Vector pt = new Vector(x, y, z);
-
-                        BaseBlock blk = new BaseBlock(getBlockType(pt), getBlockData(pt));
-
-                        if (map.containsKey(blk)) {
-                            map.get(blk).increment();
-                        } else {
-                            Countable<BaseBlock> c = new Countable<BaseBlock>(blk, 1);
-                            map.put(blk, c);
-                            distribution.add(c);
-                        }
-                    }
-                }
-            }
-        } else {
-            for (Vector pt : region) {
-                BaseBlock blk = new BaseBlock(getBlockType(pt), getBlockData(pt));
-
-                if (map.containsKey(blk)) {
-                    map.get(blk).increment();
-                } else {
-                    Countable<BaseBlock> c = new Countable<BaseBlock>(blk, 1);
-                    map.put(blk, c);
-                }
-            }
-        }
-
-        Collections.sort(distribution);
-        // Collections.reverse(distribution);
+        return countDistribution(region).getDistributionWithData();
+    }
 
-        return distribution;
+    /**
+     * Count the blocks inside a region on the current thread.
+     *
+     * @param region a region
+     * @return the counted blocks
+     */
+    private BlockDistribution countDistribution(Region region) {
+        DistributionVisitor visitor = new DistributionVisitor(region, this, MoreExecutors.sameThreadExecutor());
+        Operations.completeBlindly(visitor); // We can't throw exceptions, nor do we expect any
+        return visitor.getDistribution();
     }
 
     public int makeShape(final Region region, final Vector zero, final Vector unit, final Pattern pattern, final String expressionString, final boolean hollow) throws ExpressionException, MaxChangedBlocksException {
@@ -1947,6 +2052,11 @@ public int makeShape(final Region region, final Vector zero, final Vector unit,
         final RValue typeVariable = expression.getVariable("type", false);
         final RValue dataVariable = expression.getVariable("data", false);
 
+        final int threads = getExpressionThreads();
+        if (!hollow && threads > 1 && expression.isParallelizable()) {
+            return makeShapeInParallel(region, zero, unit, pattern, expressionString, threads);
+        }
+
         final WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(this, unit, zero);
         expression.setEnvironment(environment);
 
@@ -1973,6 +2083,61 @@ protected BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial)
         return shape.generate(this, pattern, hollow);
     }
 
+    /**
+     * Generate a filled shape by evaluating slabs of the region on worker
+     * threads with separate expression instances.
+     */
+    private int makeShapeInParallel(final Region region, final Vector zero, final Vector unit, final Pattern pattern, final String expressionString, int threads) throws ExpressionException, MaxChangedBlocksException {
+        final int[] affected = new int[1];
+
+        new SlabEvaluator<BaseBlock>(threads).evaluate(region, new SlabEvaluator.EvaluatorFactory<BaseBlock>() {
+            @Override
+            public SlabEvaluator.Evaluator<BaseBlock> create() throws ExpressionException {
+                final Expression expression = Expression.compile(expressionString, "x", "y", "z", "type", "data");
+                expression.optimize();
+
+                final RValue typeVariable = expression.getVariable("type", false);
+                final RValue dataVariable = expression.getVariable("data", false);
+
+                final WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(EditSession.this, unit, zero);
+                expression.setEnvironment(environment);
+
+                return new SlabEvaluator.Evaluator<BaseBlock>() {
+                    @Override
+                    public BaseBlock evaluate(BlockVector position) {
+                        final BaseBlock defaultMaterial;
+                        synchronized (pattern) {
+                            defaultMaterial = pattern.next(position);
+                        }
+
+                        environment.setCurrentBlock(position);
+                        final Vector scaled = position.subtract(zero).divide(unit);
+
+                        try {
+                            if (expression.evaluate(scaled.getX(), scaled.getY(), scaled.getZ(), defaultMaterial.getType(), defaultMaterial.getData()) <= 0) {
+                                return null;
+                            }
+
+                            return new BaseBlock((int) typeVariable.getValue(), (int) dataVariable.getValue());
+                        } catch (Exception e) {
+                            log.log(Level.WARNING, "Failed to create shape", e);
+                            return null;
+                        }
+                    }
+                };
+            }
+        }, new SlabEvaluator.Receiver<BaseBlock>() {
+            @Override
+            public void receive(BlockVector position, BaseBlock material) throws MaxChangedBlocksException {
+                if (setBlock(position, material)) {
+                    ++affected[0];
+                }
+            }
+        });
+
+        return affected[0];
+    }
+
     public int deformRegion(final Region region, final Vector zero, final Vector unit, final String expressionString) throws ExpressionException, MaxChangedBlocksException {
         final Expression expression = Expression.compile(expressionString, "x", "y", "z");
         expression.optimize();
@@ -1986,21 +2151,54 @@ public int deformRegion(final Region region, final Vector zero, final Vector uni
 
         final DoubleArrayList<BlockVector, BaseBlock> queue = new DoubleArrayList<BlockVector, BaseBlock>(false);
 
-        for (BlockVector position : region) {
-            // offset, scale
-            final Vector scaled = position.subtract(zero).divide(unit);
+        final int threads = getExpressionThreads();
+        if (threads > 1 && expression.isParallelizable()) {
+            // Only the transform is evaluated on worker threads, the world is read here
+            new SlabEvaluator<BlockVector>(threads).evaluate(region, new SlabEvaluator.EvaluatorFactory<BlockVector>() {
+                @Override
+                public SlabEvaluator.Evaluator<BlockVector> create() throws ExpressionException {
+                    final Expression expression = Expression.compile(expressionString, "x", "y", "z");
+                    expression.optimize();
+
+                    final RValue x = expression.getVariable("x", false);
+                    final RValue y = expression.getVariable("y", false);
+                    final RValue z = expression.getVariable("z", false);
+
+                    final WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(EditSession.this, unit, zero);
+                    expression.setEnvironment(environment);
+
+                    return new SlabEvaluator.Evaluator<BlockVector>() {
+                        @Override
+                        public BlockVector evaluate(BlockVector position) throws ExpressionException {
+                            final Vector scaled = position.subtract(zero).divide(unit);
+                            expression.evaluate(scaled.getX(), scaled.getY(), scaled.getZ());
+                            return environment.toWorld(x.getValue(), y.getValue(), z.getValue());
+                        }
+                    };
+                }
+            }, new SlabEvaluator.Receiver<BlockVector>() {
+                @Override
+                public void receive(BlockVector position, BlockVector sourcePosition) {
+                    queue.put(position, new BaseBlock(getBlockType(sourcePosition), getBlockData(sourcePosition)));
+                }
+            });
+        } else {
+            for (BlockVector position : region) {
+                // offset, scale
+                final Vector scaled = position.subtract(zero).divide(unit);
 
-            // transform
-            expression.evaluate(scaled.getX(), scaled.getY(), scaled.getZ());
+                // transform
+                expression.evaluate(scaled.getX(), scaled.getY(), scaled.getZ());
 
-            final BlockVector sourcePosition = environment.toWorld(x.getValue(), y.getValue(), z.getValue());
+                final BlockVector sourcePosition = environment.toWorld(x.getValue(), y.getValue(), z.getValue());
 
-            // read block from world
-            // TODO: use getBlock here once the reflection is out of the way
-            final BaseBlock material = new BaseBlock(world.getBlockType(sourcePosition), world.getBlockData(sourcePosition));
+                // read block from world
+                // TODO: use getBlock here once the reflection is out of the way
+                final BaseBlock material = new BaseBlock(getBlockType(sourcePosition), getBlockData(sourcePosition));
 
-            // queue operation
-            queue.put(position, material);
+                // queue operation
+                queue.put(position, material);
+            }
         }
 
         int affected = 0;
@@ -2017,6 +2215,16 @@ public int deformRegion(final Region region, final Vector zero, final Vector uni
         return affected;
     }
 
+    /**
+     * Get the number of threads to evaluate expressions with.
+     *
+     * @return the number of threads, where 1 means no worker threads
+     */
+    private static int getExpressionThreads() {
+        int threads = WorldEdit.getInstance().getConfiguration().expressionThreads;
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
     /**
      * Hollows out the region (Semi-well-defined for non-cuboid selections).
      *
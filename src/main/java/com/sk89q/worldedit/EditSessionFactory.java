@@ -22,6 +22,7 @@
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.event.extent.EditSessionEvent;
 import com.sk89q.worldedit.extent.inventory.BlockBag;
+import com.sk89q.worldedit.history.changeset.PackedBlockHistory;
 import com.sk89q.worldedit.util.eventbus.EventBus;
 import com.sk89q.worldedit.world.World;
 
@@ -137,6 +138,21 @@ public EditSession getEditSession(World world, int maxBlocks, BlockBag blockBag,
     // Methods being deprecated
     // ------------------------------------------------------------------------
 
+    /**
+     * Construct an edit session that keeps its history in memory, for
+     * changes that are not remembered, such as those made by an undo
+     * or a redo.
+     *
+     * @param world the world
+     * @param maxBlocks the maximum number of blocks that can be changed, or -1 to use no limit
+     * @param blockBag an optional {@link BlockBag} to use, otherwise null
+     * @param player the player that the {@link EditSession} is for
+     * @return an instance
+     */
+    public EditSession getUnrememberedEditSession(World world, int maxBlocks, BlockBag blockBag, Player player) {
+        return getEditSession(world, maxBlocks, blockBag, player);
+    }
+
     /**
      * Construct an edit session.
      *
@@ -230,5 +246,10 @@ public EditSession getEditSession(World world, int maxBlocks, BlockBag blockBag,
             return new EditSession(eventBus, world, maxBlocks, blockBag, new EditSessionEvent(world, player, maxBlocks, null));
         }
 
+        @Override
+        public EditSession getUnrememberedEditSession(World world, int maxBlocks, BlockBag blockBag, Player player) {
+            return new EditSession(eventBus, world, maxBlocks, blockBag, new EditSessionEvent(world, player, maxBlocks, null), new PackedBlockHistory());
+        }
+
     }
 }
@@ -24,6 +24,7 @@
 import com.sk89q.worldedit.world.snapshot.SnapshotRepository;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -77,6 +78,15 @@ public abstract class LocalConfiguration {
                 // Doors also have this effect, but are not disallowed.
             };
 
+    // Commands that only change blocks through their edit session and so
+    // are safe to compute off the main thread
+    protected static final String[] defaultAsyncCommands = new String[] {
+            "set", "replace", "overlay", "walls", "faces", "outline", "center",
+            "naturalize", "fall", "smooth", "hollow", "line", "curve", "move", "stack",
+            "generate", "deform", "sphere", "hsphere", "cyl", "hcyl", "pyramid", "hpyramid",
+            "paste", "restore"
+            };
+
     public boolean profile = false;
     public Set<Integer> disallowedBlocks = new HashSet<Integer>();
     public int defaultChangeLimit = -1;
@@ -104,6 +114,16 @@ public abstract class LocalConfiguration {
     public int navigationWand = ItemID.COMPASS;
     public int navigationWandMaxDistance = 50;
     public int scriptTimeout = 3000;
+    public int operationTickTime = 25;
+    public int operationTickBlocks = -1;
+    public int expressionThreads = 0;
+    public int snapshotThreads = 0;
+    public int filterThreads = 0;
+    public int chunkPreloadAhead = 32;
+    public int commandThreads = 0;
+    public Set<String> asyncCommands = new HashSet<String>(Arrays.asList(defaultAsyncCommands));
+    public int historySpillThreshold = 100000;
+    public boolean offHeapClipboards = false;
     public Set<Integer> allowedDataCycleBlocks = new HashSet<Integer>();
     public String saveDir = "schematics";
     public String scriptsDir = "craftscripts";
@@ -33,6 +33,7 @@
 import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.mask.Masks;
+import com.sk89q.worldedit.history.changeset.ChangeSet;
 import com.sk89q.worldedit.internal.cui.CUIEvent;
 import com.sk89q.worldedit.internal.cui.CUIRegion;
 import com.sk89q.worldedit.internal.cui.SelectionShapeEvent;
@@ -46,12 +47,16 @@
 import com.sk89q.worldedit.world.snapshot.Snapshot;
 
 import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -62,6 +67,8 @@ public class LocalSession {
 
     public transient static int MAX_HISTORY_SIZE = 15;
 
+    private static final Logger log = Logger.getLogger(LocalSession.class.getCanonicalName());
+
     // Non-session related fields
     private transient LocalConfiguration config;
     private transient final AtomicBoolean dirty = new AtomicBoolean();
@@ -69,6 +76,7 @@ public class LocalSession {
     // Session related
     private transient RegionSelector selector = new CuboidRegionSelector();
     private transient boolean placeAtPos1 = false;
+    // Commands run in the background remember their edit from a worker thread
     private transient LinkedList<EditSession> history = new LinkedList<EditSession>();
     private transient int historyPointer = 0;
     private transient ClipboardHolder clipboard;
@@ -175,7 +183,10 @@ public void setTimezone(TimeZone timezone) {
     /**
      * Clear history.
      */
-    public void clearHistory() {
+    public synchronized void clearHistory() {
+        for (EditSession editSession : history) {
+            dispose(editSession);
+        }
         history.clear();
         historyPointer = 0;
     }
@@ -186,7 +197,7 @@ public void clearHistory() {
      *
      * @param editSession the edit session
      */
-    public void remember(EditSession editSession) {
+    public synchronized void remember(EditSession editSession) {
         checkNotNull(editSession);
 
         // Don't store anything if no changes were made
@@ -194,15 +205,32 @@ public void remember(EditSession editSession) {
 
         // Destroy any sessions after this undo point
         while (historyPointer < history.size()) {
-            history.remove(historyPointer);
+            dispose(history.remove(historyPointer));
         }
         history.add(editSession);
         while (history.size() > MAX_HISTORY_SIZE) {
-            history.remove(0);
+            dispose(history.remove(0));
         }
         historyPointer = history.size();
     }
 
+    /**
+     * Release any resources, such as history files, held by an edit
+     * session that has been dropped from the history.
+     *
+     * @param editSession the edit session
+     */
+    private static void dispose(EditSession editSession) {
+        ChangeSet changeSet = editSession.getChangeSet();
+        if (changeSet instanceof Closeable) {
+            try {
+                ((Closeable) changeSet).close();
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Failed to release history", e);
+            }
+        }
+    }
+
     /**
      * Performs an undo.
      *
@@ -221,16 +249,18 @@ public EditSession undo(@Nullable BlockBag newBlockBag, LocalPlayer player) {
      * @param player the player
      * @return whether anything was undone
      */
-    public EditSession undo(@Nullable BlockBag newBlockBag, Player player) {
+    public synchronized EditSession undo(@Nullable BlockBag newBlockBag, Player player) {
         checkNotNull(player);
         --historyPointer;
         if (historyPointer >= 0) {
             EditSession editSession = history.get(historyPointer);
             EditSession newEditSession = WorldEdit.getInstance().getEditSessionFactory()
-                    .getEditSession(editSession.getWorld(), -1, newBlockBag, player);
+                    .getUnrememberedEditSession(editSession.getWorld(), -1, newBlockBag, player);
             newEditSession.enableQueue();
             newEditSession.setFastMode(fastMode);
             editSession.undo(newEditSession);
+            // The changes made by the undo itself are not kept
+            dispose(newEditSession);
             return editSession;
         } else {
             historyPointer = 0;
@@ -256,15 +286,17 @@ public EditSession redo(@Nullable BlockBag newBlockBag, LocalPlayer player) {
      * @param player the player
      * @return whether anything was redone
      */
-    public EditSession redo(@Nullable BlockBag newBlockBag, Player player) {
+    public synchronized EditSession redo(@Nullable BlockBag newBlockBag, Player player) {
         checkNotNull(player);
         if (historyPointer < history.size()) {
             EditSession editSession = history.get(historyPointer);
             EditSession newEditSession = WorldEdit.getInstance().getEditSessionFactory()
-                    .getEditSession(editSession.getWorld(), -1, newBlockBag, player);
+                    .getUnrememberedEditSession(editSession.getWorld(), -1, newBlockBag, player);
             newEditSession.enableQueue();
             newEditSession.setFastMode(fastMode);
             editSession.redo(newEditSession);
+            // The changes made by the redo itself are not kept
+            dispose(newEditSession);
             ++historyPointer;
             return editSession;
         }
@@ -29,12 +29,11 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.extension.platform.Actor;
-import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.PaletteClipboard;
 import com.sk89q.worldedit.function.block.BlockReplace;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.operation.ForwardExtentCopy;
-import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.Operations;
 import com.sk89q.worldedit.function.pattern.Pattern;
 import com.sk89q.worldedit.internal.annotation.Direction;
@@ -44,6 +43,7 @@
 import com.sk89q.worldedit.regions.RegionSelector;
 import com.sk89q.worldedit.regions.selector.CuboidRegionSelector;
 import com.sk89q.worldedit.session.ClipboardHolder;
+import com.sk89q.worldedit.session.PasteBuilder;
 import com.sk89q.worldedit.util.command.binding.Switch;
 import com.sk89q.worldedit.util.command.parametric.Optional;
 
@@ -85,7 +85,7 @@ public void copy(Player player, LocalSession session, EditSession editSession,
                      @Selection Region region, @Switch('e') boolean copyEntities,
                      @Switch('m') Mask mask) throws WorldEditException {
 
-        BlockArrayClipboard clipboard = new BlockArrayClipboard(region);
+        PaletteClipboard clipboard = new PaletteClipboard(region, worldEdit.getConfiguration().offHeapClipboards);
         clipboard.setOrigin(session.getPlacementPosition(player));
         ForwardExtentCopy copy = new ForwardExtentCopy(editSession, region, clipboard, region.getMinimumPoint());
         if (mask != null) {
@@ -116,7 +116,7 @@ public void cut(Player player, LocalSession session, EditSession editSession,
                     @Selection Region region, @Optional("air") Pattern leavePattern, @Switch('e') boolean copyEntities,
                     @Switch('m') Mask mask) throws WorldEditException {
 
-        BlockArrayClipboard clipboard = new BlockArrayClipboard(region);
+        PaletteClipboard clipboard = new PaletteClipboard(region, worldEdit.getConfiguration().offHeapClipboards);
         clipboard.setOrigin(session.getPlacementPosition(player));
         ForwardExtentCopy copy = new ForwardExtentCopy(editSession, region, clipboard, region.getMinimumPoint());
         copy.setSourceFunction(new BlockReplace(editSession, leavePattern));
@@ -154,12 +154,12 @@ public void paste(Player player, LocalSession session, EditSession editSession,
         Region region = clipboard.getRegion();
 
         Vector to = atOrigin ? clipboard.getOrigin() : session.getPlacementPosition(player);
-        Operation operation = holder
+        PasteBuilder paste = holder
                 .createPaste(editSession, editSession.getWorld().getWorldData())
                 .to(to)
-                .ignoreAirBlocks(ignoreAirBlocks)
-                .build();
-        Operations.completeLegacy(operation);
+                .ignoreAirBlocks(ignoreAirBlocks);
+        editSession.preloadChunks(paste.getTargetRegion());
+        Operations.completeLegacy(paste.build());
 
         if (selectPasted) {
             Vector max = to.add(region.getMaximumPoint().subtract(region.getMinimumPoint()));
@@ -142,6 +142,22 @@ public void togglePlace(Player player, LocalSession session, EditSession editSes
         }
     }
 
+    @Command(
+        aliases = { "/cancel" },
+        usage = "",
+        desc = "Cancel the operation that is running in the background",
+        min = 0,
+        max = 0
+    )
+    @CommandPermissions("worldedit.cancel")
+    public void cancel(Player player, LocalSession session) throws WorldEditException {
+        if (worldEdit.getPlatformManager().getCommandManager().cancelAsyncCommand(session)) {
+            player.print("Operation cancelled.");
+        } else {
+            player.printError("You have no operation running.");
+        }
+    }
+
     @Command(
         aliases = { "/searchitem", "/l", "/search", "searchitem" },
         usage = "<query>",
@@ -218,6 +218,23 @@ public void naturalize(Player player, EditSession editSession, @Selection Region
         player.print(affected + " block(s) have been made to look more natural.");
     }
 
+    @Command(
+        aliases = { "/fall" },
+        usage = "",
+        desc = "Let the blocks in the selection fall down",
+        help =
+            "Lets every block in the selection fall down until it rests\n" +
+            "on the bottom of the selection or on another block.",
+        min = 0,
+        max = 0
+    )
+    @CommandPermissions("worldedit.region.fall")
+    @Logging(REGION)
+    public void fall(Player player, EditSession editSession, @Selection Region region) throws WorldEditException {
+        int affected = editSession.dropCuboidBlocks(region);
+        player.print(affected + " block(s) have fallen.");
+    }
+
     @Command(
         aliases = { "/walls" },
         usage = "<block>",
@@ -262,6 +279,8 @@ public void faces(Player player, EditSession editSession, @Selection Region regi
     public void smooth(Player player, EditSession editSession, @Selection Region region, @Optional("1") int iterations, @Switch('n') boolean affectNatural) throws WorldEditException {
         HeightMap heightMap = new HeightMap(editSession, region, affectNatural);
         HeightMapFilter filter = new HeightMapFilter(new GaussianKernel(5, 1.0));
+        int threads = worldEdit.getConfiguration().filterThreads;
+        filter.setThreads(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
         int affected = heightMap.applyFilter(filter, iterations);
         player.print("Terrain's height map smoothed. " + affected + " block(s) changed.");
 
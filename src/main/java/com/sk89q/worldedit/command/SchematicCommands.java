@@ -19,27 +19,36 @@
 
 package com.sk89q.worldedit.command;
 
+import com.google.common.io.Files;
 import com.sk89q.minecraft.util.commands.Command;
 import com.sk89q.minecraft.util.commands.CommandContext;
 import com.sk89q.minecraft.util.commands.CommandException;
 import com.sk89q.minecraft.util.commands.CommandPermissions;
+import com.sk89q.minecraft.util.commands.Logging;
 import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.io.file.FilenameException;
 import com.sk89q.worldedit.util.io.file.FilenameResolutionException;
 import com.sk89q.worldedit.LocalConfiguration;
 import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.extension.platform.Actor;
-import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.PaletteClipboard;
 import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormat;
 import com.sk89q.worldedit.extent.clipboard.io.ClipboardReader;
 import com.sk89q.worldedit.extent.clipboard.io.ClipboardWriter;
+import com.sk89q.worldedit.extent.clipboard.io.SchematicReader;
+import com.sk89q.worldedit.extent.clipboard.io.StreamingSchematicReader;
 import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.math.transform.Identity;
 import com.sk89q.worldedit.math.transform.Transform;
 import com.sk89q.worldedit.session.ClipboardHolder;
+import com.sk89q.worldedit.util.command.binding.Switch;
 import com.sk89q.worldedit.util.io.Closer;
 import com.sk89q.worldedit.util.command.parametric.Optional;
 import com.sk89q.worldedit.world.registry.WorldData;
@@ -57,6 +66,7 @@
 import java.util.logging.Logger;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.sk89q.minecraft.util.commands.Logging.LogMode.PLACEMENT;
 
 /**
  * Commands that work with schematic files.
@@ -111,6 +121,9 @@ public void load(Player player, LocalSession session, @Optional("schematic") Str
                 FileInputStream fis = closer.register(new FileInputStream(f));
                 BufferedInputStream bis = closer.register(new BufferedInputStream(fis));
                 ClipboardReader reader = format.getReader(bis);
+                if (reader instanceof SchematicReader) {
+                    ((SchematicReader) reader).setOffHeap(config.offHeapClipboards);
+                }
 
                 WorldData worldData = player.getWorld().getWorldData();
                 Clipboard clipboard = reader.read(player.getWorld().getWorldData());
@@ -130,6 +143,56 @@ public void load(Player player, LocalSession session, @Optional("schematic") Str
         }
     }
 
+    @Command(
+            aliases = { "paste" },
+            usage = "<filename>",
+            flags = "ao",
+            desc = "Paste a schematic directly from its file",
+            help = "Pastes a .schematic file a few layers at a time without loading\n" +
+                   "it into your clipboard, so that very large schematics can be pasted.\n" +
+                   "Flags:\n" +
+                   "  -a skips air blocks\n" +
+                   "  -o pastes at the original position",
+            min = 1,
+            max = 1
+    )
+    @CommandPermissions({ "worldedit.schematic.paste" })
+    @Logging(PLACEMENT)
+    public void paste(Player player, LocalSession session, EditSession editSession, String filename,
+                      @Switch('a') boolean ignoreAirBlocks, @Switch('o') boolean atOrigin) throws WorldEditException {
+        LocalConfiguration config = worldEdit.getConfiguration();
+
+        File dir = worldEdit.getWorkingDirectoryFile(config.saveDir);
+        File f = worldEdit.getSafeOpenFile(player, dir, filename, "schematic", "schematic");
+
+        if (!f.exists()) {
+            player.printError("Schematic " + filename + " does not exist!");
+            return;
+        }
+
+        try {
+            String filePath = f.getCanonicalPath();
+            String dirPath = dir.getCanonicalPath();
+
+            if (!filePath.substring(0, dirPath.length()).equals(dirPath)) {
+                player.printError("Schematic could not read or it does not exist.");
+            } else {
+                StreamingSchematicReader reader = new StreamingSchematicReader(Files.newInputStreamSupplier(f));
+                Vector to = atOrigin ? reader.getOrigin() : session.getPlacementPosition(player);
+                Region region = reader.getRegion();
+                Vector offset = to.subtract(reader.getOrigin());
+                editSession.preloadChunks(new CuboidRegion(region.getMinimumPoint().add(offset), region.getMaximumPoint().add(offset)));
+                reader.paste(editSession, editSession.getWorld().getWorldData(), new Identity(), to, ignoreAirBlocks);
+
+                log.info(player.getName() + " pasted " + filePath);
+                player.print(filename + " has been pasted at " + to);
+            }
+        } catch (IOException e) {
+            player.printError("Schematic could not read or it does not exist: " + e.getMessage());
+            log.log(Level.WARNING, "Failed to paste a schematic", e);
+        }
+    }
+
     @Command(
             aliases = { "save" },
             usage = "[<format>] <filename>",
@@ -157,7 +220,7 @@ public void save(Player player, LocalSession session, @Optional("schematic") Str
         // If we have a transform, bake it into the copy
         if (!transform.isIdentity()) {
             FlattenedClipboardTransform result = FlattenedClipboardTransform.transform(clipboard, transform, holder.getWorldData());
-            target = new BlockArrayClipboard(result.getTransformedRegion());
+            target = new PaletteClipboard(result.getTransformedRegion(), config.offHeapClipboards);
             target.setOrigin(clipboard.getOrigin());
             Operations.completeLegacy(result.copyTo(target));
         } else {
@@ -20,6 +20,10 @@
 package com.sk89q.worldedit.command;
 
 import com.google.common.base.Optional;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sk89q.minecraft.util.commands.Command;
 import com.sk89q.minecraft.util.commands.CommandContext;
 import com.sk89q.minecraft.util.commands.CommandException;
@@ -36,6 +40,11 @@
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.extension.platform.permission.ActorSelectorLimits;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.function.block.BlockDistribution;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.function.visitor.DistributionVisitor;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.regions.RegionOperationException;
 import com.sk89q.worldedit.regions.RegionSelector;
@@ -57,8 +66,12 @@
 import com.sk89q.worldedit.world.storage.ChunkStore;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static com.sk89q.minecraft.util.commands.Logging.LogMode.POSITION;
 import static com.sk89q.minecraft.util.commands.Logging.LogMode.REGION;
@@ -628,21 +641,29 @@ public void size(Player player, LocalSession session, EditSession editSession, C
         max = 1
     )
     @CommandPermissions("worldedit.analysis.count")
-    public void count(Player player, LocalSession session, EditSession editSession, CommandContext args) throws WorldEditException {
+    public void count(final Player player, LocalSession session, EditSession editSession, CommandContext args) throws WorldEditException {
 
         boolean useData = args.hasFlag('d');
         if (args.getString(0).contains(":")) {
             useData = true; //override d flag, if they specified data they want it
         }
+
+        final Set<BaseBlock> searchBlocks;
         if (useData) {
-            Set<BaseBlock> searchBlocks = we.getBlocks(player, args.getString(0), true);
-            int count = editSession.countBlocks(session.getSelection(player.getWorld()), searchBlocks);
-            player.print("Counted: " + count);
+            searchBlocks = we.getBlocks(player, args.getString(0), true);
         } else {
-            Set<Integer> searchIDs = we.getBlockIDs(player, args.getString(0), true);
-            int count = editSession.countBlock(session.getSelection(player.getWorld()), searchIDs);
-            player.print("Counted: " + count);
+            searchBlocks = new HashSet<BaseBlock>();
+            for (int id : we.getBlockIDs(player, args.getString(0), true)) {
+                searchBlocks.add(new BaseBlock(id, -1));
+            }
         }
+
+        countBlocks(player, session.getSelection(player.getWorld()), new DistributionHandler() {
+            @Override
+            void handle(BlockDistribution distribution) {
+                player.print("Counted: " + distribution.getCount(searchBlocks));
+            }
+        });
     }
 
     @Command(
@@ -658,27 +679,58 @@ public void count(Player player, LocalSession session, EditSession editSession,
         max = 0
     )
     @CommandPermissions("worldedit.analysis.distr")
-    public void distr(Player player, LocalSession session, EditSession editSession, CommandContext args) throws WorldEditException, CommandException {
+    public void distr(final Player player, LocalSession session, EditSession editSession, CommandContext args) throws WorldEditException, CommandException {
 
-        int size;
-        boolean useData = args.hasFlag('d');
-        List<Countable<Integer>> distribution = null;
-        List<Countable<BaseBlock>> distributionData = null;
+        final boolean useData = args.hasFlag('d');
 
         if (args.hasFlag('c')) {
-            // TODO: Update for new clipboard
-            throw new CommandException("Needs to be re-written again");
+            Clipboard clipboard = session.getClipboard().getClipboard();
+            DistributionVisitor visitor = new DistributionVisitor(clipboard.getRegion(), clipboard, MoreExecutors.sameThreadExecutor());
+            Operations.completeLegacy(visitor);
+            printDistribution(player, visitor.getDistribution(), useData);
         } else {
-            if (useData) {
-                distributionData = editSession.getBlockDistributionWithData(session.getSelection(player.getWorld()));
-            } else {
-                distribution = editSession.getBlockDistribution(session.getSelection(player.getWorld()));
-            }
-            size = session.getSelection(player.getWorld()).getArea();
+            countBlocks(player, session.getSelection(player.getWorld()), new DistributionHandler() {
+                @Override
+                void handle(BlockDistribution distribution) {
+                    printDistribution(player, distribution, useData);
+                }
+            });
         }
+    }
+
+    /**
+     * Count the blocks of a region over the next ticks, reading chunk
+     * sections on the main thread and counting them on a worker thread.
+     * Players are told about the progress of counts that take a while.
+     *
+     * @param player the player
+     * @param region the region
+     * @param handler the handler to call on the main thread with the result
+     */
+    private void countBlocks(final Player player, Region region, final DistributionHandler handler) {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final DistributionVisitor visitor = new DistributionVisitor(region.clone(), player.getWorld(), executor);
+
+        ListenableFuture<Operation> future = we.getPlatformManager().getOperationScheduler().submit(new ProgressReporter(player, visitor));
+        Futures.addCallback(future, new FutureCallback<Operation>() {
+            @Override
+            public void onSuccess(Operation result) {
+                executor.shutdown();
+                handler.handle(visitor.getDistribution());
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                executor.shutdownNow();
+                player.printError("Failed to count blocks: " + t.getMessage());
+            }
+        });
+    }
+
+    private static void printDistribution(Player player, BlockDistribution distribution, boolean useData) {
+        long size = distribution.getTotal();
 
-        if ((useData && distributionData.size() <= 0)
-                || (!useData && distribution.size() <= 0)) {  // *Should* always be false
+        if (size <= 0) { // *Should* always be false
             player.printError("No blocks counted.");
             return;
         }
@@ -686,7 +738,7 @@ public void distr(Player player, LocalSession session, EditSession editSession,
         player.print("# total blocks: " + size);
 
         if (useData) {
-            for (Countable<BaseBlock> c : distributionData) {
+            for (Countable<BaseBlock> c : distribution.getDistributionWithData()) {
                 String name = BlockType.fromID(c.getID().getId()).getName();
                 String str = String.format("%-7s (%.3f%%) %s #%d:%d",
                         String.valueOf(c.getAmount()),
@@ -696,7 +748,7 @@ public void distr(Player player, LocalSession session, EditSession editSession,
                 player.print(str);
             }
         } else {
-            for (Countable<Integer> c : distribution) {
+            for (Countable<Integer> c : distribution.getDistribution()) {
                 BlockType block = BlockType.fromID(c.getID());
                 String str = String.format("%-7s (%.3f%%) %s #%d",
                         String.valueOf(c.getAmount()),
@@ -707,6 +759,49 @@ public void distr(Player player, LocalSession session, EditSession editSession,
         }
     }
 
+    /**
+     * Receives the result of {@link #countBlocks(Player, Region, DistributionHandler)}.
+     */
+    private static abstract class DistributionHandler {
+        abstract void handle(BlockDistribution distribution);
+    }
+
+    /**
+     * Tells a player how far a count has come every few seconds.
+     */
+    private static class ProgressReporter implements Operation {
+        private static final long INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+        private final Player player;
+        private final DistributionVisitor visitor;
+        private long lastReport = System.currentTimeMillis();
+
+        private ProgressReporter(Player player, DistributionVisitor visitor) {
+            this.player = player;
+            this.visitor = visitor;
+        }
+
+        @Override
+        public Operation resume(RunContext run) throws WorldEditException {
+            if (visitor.resume(run) == null) {
+                return null;
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastReport >= INTERVAL) {
+                player.print(String.format("Counting blocks... %.0f%%", visitor.getProgress() * 100));
+                lastReport = now;
+            }
+
+            return this;
+        }
+
+        @Override
+        public void cancel() {
+            visitor.cancel();
+        }
+    }
+
     @Command(
         aliases = { "/sel", ";", "/desel", "/deselect" },
         flags = "d",
@@ -126,6 +126,8 @@ public void restore(Player player, LocalSession session, EditSession editSession
         try {
             // Restore snapshot
             SnapshotRestore restore = new SnapshotRestore(chunkStore, editSession, region);
+            int threads = config.snapshotThreads;
+            restore.setThreads(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
             //player.print(restore.getChunksAffected() + " chunk(s) will be loaded.");
 
             restore.restore();
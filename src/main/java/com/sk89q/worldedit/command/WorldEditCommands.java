@@ -21,6 +21,7 @@
 
 import com.sk89q.minecraft.util.commands.Command;
 import com.sk89q.minecraft.util.commands.CommandContext;
+import com.sk89q.minecraft.util.commands.CommandException;
 import com.sk89q.minecraft.util.commands.CommandPermissions;
 import com.sk89q.worldedit.*;
 import com.sk89q.worldedit.entity.Player;
@@ -29,6 +30,7 @@
 import com.sk89q.worldedit.extension.platform.Capability;
 import com.sk89q.worldedit.extension.platform.Platform;
 import com.sk89q.worldedit.extension.platform.PlatformManager;
+import com.sk89q.worldedit.util.metrics.MetricsRegistry;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -83,6 +85,59 @@ public void reload(Actor actor) throws WorldEditException {
         actor.print("Configuration reloaded!");
     }
 
+    @Command(
+        aliases = { "perf" },
+        usage = "[on|off|reset]",
+        desc = "Show where edits spend their time",
+        help =
+            "Shows the time spent in each layer that edits pass through,\n" +
+            "and the time, blocks and memory used by each command.\n" +
+            "Use 'on' or 'off' to start or stop collecting metrics,\n" +
+            "and 'reset' to forget the metrics collected so far.",
+        min = 0,
+        max = 1
+    )
+    @CommandPermissions("worldedit.perf")
+    public void perf(Actor actor, CommandContext args) throws WorldEditException, CommandException {
+        MetricsRegistry metrics = we.getPlatformManager().getMetrics();
+
+        if (args.argsLength() > 0) {
+            String action = args.getString(0);
+            if (action.equalsIgnoreCase("on")) {
+                metrics.setEnabled(true);
+                actor.print("Collecting metrics for new edits.");
+            } else if (action.equalsIgnoreCase("off")) {
+                metrics.setEnabled(false);
+                actor.print("No longer collecting metrics.");
+            } else if (action.equalsIgnoreCase("reset")) {
+                metrics.reset();
+                actor.print("Metrics reset.");
+            } else {
+                throw new CommandException("Unknown action '" + action + "'; use on, off or reset.");
+            }
+            return;
+        }
+
+        if (!metrics.isEnabled() && metrics.getCommandCount() == 0) {
+            actor.printError("No metrics have been collected. Use /we perf on to start collecting them.");
+            return;
+        }
+
+        actor.printDebug("----------- Layers (world first; time spent in the layer itself) -----------");
+        for (String line : metrics.getLayerReport()) {
+            actor.printDebug(line);
+        }
+
+        actor.printDebug("----------- Commands -----------");
+        for (String line : metrics.getCommandReport()) {
+            actor.printDebug(line);
+        }
+
+        if (!metrics.isEnabled()) {
+            actor.print("Metrics are not being collected at the moment.");
+        }
+    }
+
     @Command(
         aliases = { "cui" },
         usage = "",
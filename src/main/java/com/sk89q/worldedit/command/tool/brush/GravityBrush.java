@@ -22,11 +22,11 @@
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.Vector;
-import com.sk89q.worldedit.blocks.BaseBlock;
-import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.function.block.ColumnGravity;
+import com.sk89q.worldedit.function.operation.Operations;
 import com.sk89q.worldedit.function.pattern.Pattern;
-
-import java.util.*;
+import com.sk89q.worldedit.function.visitor.FlatRegionVisitor;
+import com.sk89q.worldedit.regions.CuboidRegion;
 
 public class GravityBrush implements Brush {
 
@@ -38,30 +38,17 @@ public GravityBrush(boolean fullHeight) {
 
     @Override
     public void build(EditSession editSession, Vector position, Pattern pattern, double size) throws MaxChangedBlocksException {
-        final BaseBlock air = new BaseBlock(BlockID.AIR, 0);
-        final double startY = fullHeight ? editSession.getWorld().getMaxY() : position.getBlockY() + size;
-        for (double x = position.getBlockX() + size; x > position.getBlockX() - size; --x) {
-            for (double z = position.getBlockZ() + size; z > position.getBlockZ() - size; --z) {
-                double y = startY;
-                final List<BaseBlock> blockTypes = new ArrayList<BaseBlock>();
-                for (; y > position.getBlockY() - size; --y) {
-                    final Vector pt = new Vector(x, y, z);
-                    final BaseBlock block = editSession.getBlock(pt);
-                    if (!block.isAir()) {
-                        blockTypes.add(block);
-                        editSession.setBlock(pt, air);
-                    }
-                }
-                Vector pt = new Vector(x, y, z);
-                Collections.reverse(blockTypes);
-                for (int i = 0; i < blockTypes.size();) {
-                    if (editSession.getBlock(pt).getType() == BlockID.AIR) {
-                        editSession.setBlock(pt, blockTypes.get(i++));
-                    }
-                    pt = pt.add(0, 1, 0);
-                }
-            }
+        int maxWorldY = editSession.getWorld().getMaxY();
+        int minY = Math.max(0, (int) Math.floor(position.getBlockY() - size));
+        int maxY = fullHeight ? maxWorldY : Math.min(maxWorldY, (int) Math.floor(position.getBlockY() + size));
+        if (minY > maxY) {
+            return;
         }
+
+        Vector min = new Vector(Math.floor(position.getBlockX() - size) + 1, minY, Math.floor(position.getBlockZ() - size) + 1);
+        Vector max = new Vector(Math.floor(position.getBlockX() + size), maxY, Math.floor(position.getBlockZ() + size));
+        ColumnGravity gravity = new ColumnGravity(editSession, minY, maxY);
+        Operations.completeLegacy(new FlatRegionVisitor(new CuboidRegion(min, max), gravity));
     }
 
 }
@@ -0,0 +1,230 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extension.platform;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.world.DeferredApplyExtent;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.OperationScheduler;
+import com.sk89q.worldedit.function.operation.RunContext;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A command that runs on a worker thread while the changes that it makes
+ * are applied on the main thread by an {@link OperationScheduler}.
+ *
+ * <p>The edit session created for the command is attached with
+ * {@link #attach(EditSession)}, which defers its changes with its
+ * {@link DeferredApplyExtent}. Until the command has finished, the actor
+ * is told about its progress every few seconds.</p>
+ *
+ * <p>This class is primarily for internal usage.</p>
+ */
+public final class AsyncCommand {
+
+    private static final long REPORT_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+    private final Actor actor;
+    private final OperationScheduler scheduler;
+    private volatile @Nullable EditSession editSession;
+    private volatile @Nullable ListenableFuture<Operation> application;
+    private @Nullable Thread thread;
+    private volatile boolean cancelled;
+    private volatile boolean done;
+
+    /**
+     * Create a new instance.
+     *
+     * @param actor the actor running the command
+     * @param scheduler the scheduler that applies changes
+     */
+    AsyncCommand(Actor actor, OperationScheduler scheduler) {
+        checkNotNull(actor);
+        checkNotNull(scheduler);
+        this.actor = actor;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Have the changes made with the given edit session, which must have
+     * been created for this command, applied on the main thread.
+     *
+     * @param editSession the edit session
+     */
+    public void attach(EditSession editSession) {
+        checkNotNull(editSession);
+        checkState(this.editSession == null, "An edit session is already attached");
+        DeferredApplyExtent extent = editSession.getDeferredExtent();
+        application = extent.deferTo(scheduler);
+        this.editSession = editSession;
+        if (cancelled) {
+            extent.cancel();
+        }
+    }
+
+    /**
+     * Get whether the command has been cancelled.
+     *
+     * @return true if cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancel the command. Changes that have already been applied stay in
+     * the world.
+     *
+     * <p>This may be called from any thread.</p>
+     */
+    public void cancel() {
+        cancelled = true;
+
+        EditSession editSession = this.editSession;
+        if (editSession != null) {
+            editSession.getDeferredExtent().cancel();
+        }
+
+        synchronized (this) {
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Run the command on the given executor.
+     *
+     * @param executor the executor
+     * @param task the task that runs the command
+     */
+    void start(Executor executor, final Runnable task) {
+        checkNotNull(executor);
+        checkNotNull(task);
+
+        scheduler.submit(new ProgressReporter());
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (AsyncCommand.this) {
+                    thread = Thread.currentThread();
+                }
+
+                try {
+                    if (!cancelled) {
+                        task.run();
+                    }
+                } finally {
+                    synchronized (AsyncCommand.this) {
+                        thread = null;
+                    }
+                    // Don't leave an interrupt from cancel() behind on a pooled thread
+                    Thread.interrupted();
+                    done = true;
+                }
+            }
+        });
+    }
+
+    /**
+     * Wait for the changes made by the command to be applied. This must be
+     * called from the worker once the edit session has been flushed.
+     *
+     * @throws InterruptedException if the command was cancelled while waiting
+     * @throws ExecutionException if the changes could not be applied
+     */
+    void awaitApplication() throws InterruptedException, ExecutionException {
+        EditSession editSession = this.editSession;
+        ListenableFuture<Operation> application = this.application;
+        if (editSession != null && application != null) {
+            editSession.getDeferredExtent().finish();
+            application.get();
+        }
+    }
+
+    /**
+     * Run a task on the main thread once.
+     *
+     * @param task the task
+     */
+    void runOnMainThread(final Runnable task) {
+        checkNotNull(task);
+        scheduler.submit(new Operation() {
+            @Override
+            public Operation resume(RunContext run) throws WorldEditException {
+                task.run();
+                return null;
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+    }
+
+    /**
+     * Tells the actor how far along the command is until it is done.
+     */
+    private class ProgressReporter implements Operation {
+        private long lastReport = System.currentTimeMillis();
+
+        @Override
+        public Operation resume(RunContext run) throws WorldEditException {
+            if (done) {
+                return null;
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastReport >= REPORT_INTERVAL && !cancelled) {
+                EditSession editSession = AsyncCommand.this.editSession;
+                if (editSession == null) {
+                    actor.print("Still working... (use //cancel to stop)");
+                } else {
+                    DeferredApplyExtent extent = editSession.getDeferredExtent();
+                    int applied = extent.getAppliedCount();
+                    if (extent.isFinished()) {
+                        actor.print("Placing blocks... " + applied + " of " + (applied + extent.getQueuedCount()) + " placed (use //cancel to stop)");
+                    } else {
+                        actor.print("Working... " + editSession.getBlockChangeCount() + " blocks changed, "
+                                + applied + " placed so far (use //cancel to stop)");
+                    }
+                }
+                lastReport = now;
+            }
+
+            return this;
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+
+}
@@ -20,6 +20,7 @@
 package com.sk89q.worldedit.extension.platform;
 
 import com.google.common.base.Joiner;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sk89q.minecraft.util.commands.CommandException;
 import com.sk89q.minecraft.util.commands.CommandLocals;
 import com.sk89q.minecraft.util.commands.CommandPermissionsException;
@@ -29,6 +30,7 @@
 import com.sk89q.worldedit.LocalSession;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.command.*;
+import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.event.platform.CommandEvent;
 import com.sk89q.worldedit.event.platform.CommandSuggestionEvent;
 import com.sk89q.worldedit.internal.command.ActorAuthorizer;
@@ -47,9 +49,19 @@
 import com.sk89q.worldedit.util.formatting.component.CommandUsageBox;
 import com.sk89q.worldedit.util.logging.DynamicStreamHandler;
 import com.sk89q.worldedit.util.logging.LogFormat;
+import com.sk89q.worldedit.util.metrics.Allocations;
+import com.sk89q.worldedit.util.metrics.MetricsRegistry;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -73,6 +85,8 @@ public final class CommandManager {
     private final PlatformManager platformManager;
     private final Dispatcher dispatcher;
     private final DynamicStreamHandler dynamicHandler = new DynamicStreamHandler();
+    private final Map<LocalSession, AsyncCommand> asyncCommands = new HashMap<LocalSession, AsyncCommand>();
+    private @Nullable ExecutorService asyncExecutor;
 
     /**
      * Create a new instance.
@@ -175,6 +189,62 @@ void register(Platform platform) {
 
     void unregister() {
         dynamicHandler.setHandler(null);
+
+        synchronized (asyncCommands) {
+            for (AsyncCommand command : asyncCommands.values()) {
+                command.cancel();
+            }
+            if (asyncExecutor != null) {
+                asyncExecutor.shutdown();
+                asyncExecutor = null;
+            }
+        }
+    }
+
+    /**
+     * Cancel the command that is running in the background for the given
+     * session, if there is one.
+     *
+     * @param session the session
+     * @return true if a command was cancelled
+     */
+    public boolean cancelAsyncCommand(LocalSession session) {
+        checkNotNull(session);
+        AsyncCommand command;
+        synchronized (asyncCommands) {
+            command = asyncCommands.get(session);
+        }
+        if (command != null && !command.isCancelled()) {
+            command.cancel();
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Get whether the given command should be run in the background.
+     *
+     * @param actor the actor
+     * @param command the command name
+     * @return true to run it in the background
+     */
+    private boolean shouldRunAsync(Actor actor, String command) {
+        LocalConfiguration config = worldEdit.getConfiguration();
+        return config.commandThreads > 0
+                && actor instanceof Player
+                && platformManager.isOperationSchedulerRunning()
+                && config.asyncCommands.contains(COMMAND_CLEAN_PATTERN.matcher(command).replaceFirst("").toLowerCase());
+    }
+
+    private ExecutorService getAsyncExecutor() {
+        synchronized (asyncCommands) {
+            if (asyncExecutor == null) {
+                asyncExecutor = Executors.newFixedThreadPool(worldEdit.getConfiguration().commandThreads,
+                        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("WorldEdit Command Worker %d").build());
+            }
+            return asyncExecutor;
+        }
     }
 
     public String[] commandDetection(String[] split) {
@@ -205,20 +275,78 @@ public String[] commandDetection(String[] split) {
     public void handleCommand(CommandEvent event) {
         Request.reset();
 
-        Actor actor = platformManager.createProxyActor(event.getActor());
-        String[] split = commandDetection(event.getArguments().split(" "));
+        final Actor actor = platformManager.createProxyActor(event.getActor());
+        final String[] split = commandDetection(event.getArguments().split(" "));
 
         // No command found!
         if (!dispatcher.contains(split[0])) {
             return;
         }
 
-        LocalSession session = worldEdit.getSessionManager().get(actor);
-        LocalConfiguration config = worldEdit.getConfiguration();
+        event.setCancelled(true);
 
-        CommandLocals locals = new CommandLocals();
+        final LocalSession session = worldEdit.getSessionManager().get(actor);
+        final CommandLocals locals = new CommandLocals();
         locals.put(Actor.class, actor);
 
+        synchronized (asyncCommands) {
+            if (asyncCommands.containsKey(session) && !COMMAND_CLEAN_PATTERN.matcher(split[0]).replaceFirst("").equalsIgnoreCase("cancel")) {
+                actor.printError("Your last operation is still running. Use //cancel to stop it.");
+                return;
+            }
+        }
+
+        if (shouldRunAsync(actor, split[0])) {
+            final AsyncCommand command = new AsyncCommand(actor, platformManager.getOperationScheduler());
+            locals.put(AsyncCommand.class, command);
+
+            synchronized (asyncCommands) {
+                asyncCommands.put(session, command);
+            }
+
+            try {
+                command.start(getAsyncExecutor(), new Runnable() {
+                    @Override
+                    public void run() {
+                        Request.reset();
+                        try {
+                            execute(actor, session, split, locals, command);
+                        } finally {
+                            Request.reset();
+                            synchronized (asyncCommands) {
+                                asyncCommands.remove(session);
+                            }
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                synchronized (asyncCommands) {
+                    asyncCommands.remove(session);
+                }
+                command.cancel();
+                actor.printError("WorldEdit is shutting down.");
+            }
+        } else {
+            execute(actor, session, split, locals, null);
+        }
+    }
+
+    /**
+     * Run a command.
+     *
+     * @param actor the actor
+     * @param session the actor's session
+     * @param split the command split into arguments
+     * @param locals the locals
+     * @param command the command running in the background, or null if the command is run on the main thread
+     */
+    private void execute(Actor actor, LocalSession session, String[] split, CommandLocals locals, @Nullable AsyncCommand command) {
+        LocalConfiguration config = worldEdit.getConfiguration();
+
+        MetricsRegistry metrics = platformManager.getMetrics();
+        boolean measure = metrics.isEnabled();
+        long startAllocated = measure ? Allocations.getAllocatedBytes() : -1;
+        long startNanos = System.nanoTime();
         long start = System.currentTimeMillis();
 
         try {
@@ -239,6 +367,9 @@ public void handleCommand(CommandEvent event) {
             }
         } catch (WrappedCommandException e) {
             Throwable t = e.getCause();
+            if (t instanceof CancellationException && command != null && command.isCancelled()) {
+                return;
+            }
             actor.printError("Please report this error: [See console]");
             actor.printRaw(t.getClass().getName() + ": " + t.getMessage());
             log.log(Level.SEVERE, "An unexpected error while handling a WorldEdit command", t);
@@ -255,7 +386,27 @@ public void handleCommand(CommandEvent event) {
 
             if (editSession != null) {
                 session.remember(editSession);
-                editSession.flushQueue();
+
+                // Anything still buffered above a cancelled background edit
+                // would only be refused by the deferred extent
+                if (command == null || !command.isCancelled()) {
+                    try {
+                        editSession.flushQueue();
+                    } catch (CancellationException ignored) {
+                        // Cancelled while the buffer was being flushed
+                    }
+                }
+
+                if (command != null && !command.isCancelled()) {
+                    try {
+                        command.awaitApplication();
+                    } catch (CancellationException ignored) {
+                    } catch (InterruptedException ignored) {
+                    } catch (ExecutionException e) {
+                        actor.printError("Some of the changes could not be placed: [See console]");
+                        log.log(Level.SEVERE, "Changes made in the background could not be applied", e.getCause());
+                    }
+                }
 
                 if (config.profile) {
                     long time = System.currentTimeMillis() - start;
@@ -270,11 +421,27 @@ public void handleCommand(CommandEvent event) {
                     }
                 }
 
-                worldEdit.flushBlockBag(actor, editSession);
+                if (command != null) {
+                    final Actor flushActor = actor;
+                    final EditSession flushSession = editSession;
+                    command.runOnMainThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            worldEdit.flushBlockBag(flushActor, flushSession);
+                        }
+                    });
+                } else {
+                    worldEdit.flushBlockBag(actor, editSession);
+                }
             }
-        }
 
-        event.setCancelled(true);
+            if (measure) {
+                long time = System.nanoTime() - startNanos;
+                long allocated = startAllocated >= 0 ? Allocations.getAllocatedBytes() - startAllocated : -1;
+                metrics.record(split[0].toLowerCase(), editSession != null ? editSession.getMetrics() : null,
+                        time, allocated, editSession != null ? editSession.getBlockChangeCount() : 0);
+            }
+        }
     }
 
     @Subscribe
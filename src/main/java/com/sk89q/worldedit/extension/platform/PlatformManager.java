@@ -38,10 +38,13 @@
 import com.sk89q.worldedit.event.platform.PlatformReadyEvent;
 import com.sk89q.worldedit.event.platform.PlayerInputEvent;
 import com.sk89q.worldedit.extension.platform.permission.ActorSelectorLimits;
+import com.sk89q.worldedit.function.operation.OperationScheduler;
 import com.sk89q.worldedit.internal.ServerInterfaceAdapter;
 import com.sk89q.worldedit.regions.RegionSelector;
+import com.sk89q.worldedit.regions.shape.SlabEvaluator;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.util.eventbus.Subscribe;
+import com.sk89q.worldedit.util.metrics.MetricsRegistry;
 import com.sk89q.worldedit.world.World;
 
 import javax.annotation.Nullable;
@@ -51,6 +54,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -69,6 +73,9 @@ public class PlatformManager {
 
     private final WorldEdit worldEdit;
     private final CommandManager commandManager;
+    private final OperationScheduler operationScheduler = new OperationScheduler();
+    private volatile boolean operationSchedulerRunning;
+    private final MetricsRegistry metrics = new MetricsRegistry();
     private final List<Platform> platforms = new ArrayList<Platform>();
     private final Map<Capability, Platform> preferences = new EnumMap<Capability, Platform>(Capability.class);
     private @Nullable String firstSeenVersion;
@@ -273,6 +280,33 @@ public CommandManager getCommandManager() {
         return commandManager;
     }
 
+    /**
+     * Get the scheduler that runs operations across several ticks.
+     *
+     * @return the operation scheduler
+     */
+    public OperationScheduler getOperationScheduler() {
+        return operationScheduler;
+    }
+
+    /**
+     * Get whether a platform runs the operation scheduler every tick.
+     *
+     * @return true if operations are run
+     */
+    public boolean isOperationSchedulerRunning() {
+        return operationSchedulerRunning;
+    }
+
+    /**
+     * Get the registry that collects metrics about edits.
+     *
+     * @return the metrics registry
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
     /**
      * Get the current configuration.
      *
@@ -300,10 +334,47 @@ public ServerInterface getServerInterface() throws IllegalStateException {
     public void handlePlatformReady(PlatformReadyEvent event) {
         choosePreferred();
         if (initialized.compareAndSet(false, true)) {
+            startOperationScheduler();
+            startMetrics();
             worldEdit.getEventBus().post(new PlatformInitializeEvent());
         }
     }
 
+    /**
+     * Configure the operation scheduler and have the platform providing
+     * game hooks run it every tick.
+     */
+    private void startOperationScheduler() {
+        try {
+            LocalConfiguration config = getConfiguration();
+            operationScheduler.setTickTime(config.operationTickTime, TimeUnit.MILLISECONDS);
+            operationScheduler.setTickSteps(config.operationTickBlocks);
+
+            if (queryCapability(Capability.GAME_HOOKS).schedule(1, 1, operationScheduler) == -1) {
+                logger.log(Level.WARNING, "Failed to schedule the operation scheduler; operations will not run in the background");
+            } else {
+                operationSchedulerRunning = true;
+            }
+        } catch (NoCapablePlatformException e) {
+            logger.log(Level.WARNING, "No platform provides game hooks; operations will not run in the background");
+        }
+    }
+
+    /**
+     * Collect metrics from the start if profiling is enabled, and make
+     * them available over JMX.
+     */
+    private void startMetrics() {
+        metrics.setEnabled(getConfiguration().profile);
+        metrics.register();
+    }
+
+    @Subscribe
+    public void onConfigurationLoad(ConfigurationLoadEvent event) {
+        int threads = event.getConfiguration().expressionThreads;
+        SlabEvaluator.setPoolSize(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    }
+
     @SuppressWarnings("deprecation")
     @Subscribe
     public void handleBlockInteract(BlockInteractEvent event) {
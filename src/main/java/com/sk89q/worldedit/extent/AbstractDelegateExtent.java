@@ -78,6 +78,25 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         return extent.setBlock(location, block);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This implementation calls {@link #setBlock(Vector, BaseBlock)} for
+     * every entry so that subclasses that only override that method still
+     * see every change. Subclasses that can handle a whole batch should
+     * override this method and pass the batch on to {@link #getExtent()}.</p>
+     */
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        int changed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (setBlock(batch.toVector(i), batch.getBlock(i))) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
     @Override
     @Nullable
     public Entity createEntity(Location location, BaseEntity entity) {
@@ -0,0 +1,333 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A list of block changes that all fall within the same 16x16x16 chunk
+ * section, used with {@link OutputExtent#setBlocks(BlockBatch)}.
+ *
+ * <p>Positions are stored as indices local to the section so that no
+ * vectors have to be created while the batch is passed down a chain
+ * of extents. An extent that wants to drop a change can call
+ * {@link #remove(int)} and then {@link #compact()} once it is done
+ * with the batch.</p>
+ *
+ * <p>The same position may appear more than once, in which case the
+ * later entry wins.</p>
+ */
+public class BlockBatch {
+
+    /**
+     * The maximum number of entries in one batch.
+     */
+    public static final int CAPACITY = 16 * 16 * 16;
+
+    private final int chunkX;
+    private final int sectionY;
+    private final int chunkZ;
+    private final short[] indices;
+    private final BaseBlock[] blocks;
+    private int size = 0;
+    private boolean holes = false;
+
+    /**
+     * Create a new empty batch.
+     *
+     * @param chunkX the X coordinate of the chunk
+     * @param sectionY the Y coordinate of the section (block Y >> 4)
+     * @param chunkZ the Z coordinate of the chunk
+     */
+    public BlockBatch(int chunkX, int sectionY, int chunkZ) {
+        this(chunkX, sectionY, chunkZ, CAPACITY);
+    }
+
+    /**
+     * Create a new empty batch.
+     *
+     * @param chunkX the X coordinate of the chunk
+     * @param sectionY the Y coordinate of the section (block Y >> 4)
+     * @param chunkZ the Z coordinate of the chunk
+     * @param capacity the maximum number of entries
+     */
+    public BlockBatch(int chunkX, int sectionY, int chunkZ, int capacity) {
+        checkArgument(capacity > 0, "capacity must be > 0");
+        this.chunkX = chunkX;
+        this.sectionY = sectionY;
+        this.chunkZ = chunkZ;
+        this.indices = new short[capacity];
+        this.blocks = new BaseBlock[capacity];
+    }
+
+    /**
+     * Get the X coordinate of the chunk.
+     *
+     * @return the chunk X coordinate
+     */
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    /**
+     * Get the Y coordinate of the section.
+     *
+     * @return the section Y coordinate
+     */
+    public int getSectionY() {
+        return sectionY;
+    }
+
+    /**
+     * Get the Z coordinate of the chunk.
+     *
+     * @return the chunk Z coordinate
+     */
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    /**
+     * Return whether the given block position falls into this batch's
+     * section.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position is in the section
+     */
+    public boolean contains(int x, int y, int z) {
+        return x >> 4 == chunkX && y >> 4 == sectionY && z >> 4 == chunkZ;
+    }
+
+    /**
+     * Add a block change.
+     *
+     * @param x the X coordinate, which must be within the section
+     * @param y the Y coordinate, which must be within the section
+     * @param z the Z coordinate, which must be within the section
+     * @param block the block
+     * @throws IllegalStateException if the batch is full
+     */
+    public void add(int x, int y, int z, BaseBlock block) {
+        checkNotNull(block);
+        checkArgument(contains(x, y, z), "position is not within the section");
+        addLocal(toLocalIndex(x, y, z), block);
+    }
+
+    /**
+     * Add a block change using an index local to the section.
+     *
+     * @param index the local index
+     * @param block the block
+     * @throws IllegalStateException if the batch is full
+     * @see #toLocalIndex(int, int, int)
+     */
+    public void addLocal(int index, BaseBlock block) {
+        checkNotNull(block);
+        if (size == indices.length) {
+            throw new IllegalStateException("Batch is full");
+        }
+        indices[size] = (short) index;
+        blocks[size] = block;
+        size++;
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return the number of entries, including removed entries if
+     *         {@link #compact()} has not been called
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return whether there are no entries.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return whether no more entries can be added.
+     *
+     * @return true if full
+     */
+    public boolean isFull() {
+        return size == indices.length;
+    }
+
+    /**
+     * Get the section-local index of the given entry.
+     *
+     * @param i the entry
+     * @return the local index
+     */
+    public int getLocalIndex(int i) {
+        checkElementIndex(i, size);
+        return indices[i];
+    }
+
+    /**
+     * Get the X coordinate of the given entry.
+     *
+     * @param i the entry
+     * @return the X coordinate
+     */
+    public int getX(int i) {
+        return (chunkX << 4) | (getLocalIndex(i) & 15);
+    }
+
+    /**
+     * Get the Y coordinate of the given entry.
+     *
+     * @param i the entry
+     * @return the Y coordinate
+     */
+    public int getY(int i) {
+        return (sectionY << 4) | (getLocalIndex(i) >> 8);
+    }
+
+    /**
+     * Get the Z coordinate of the given entry.
+     *
+     * @param i the entry
+     * @return the Z coordinate
+     */
+    public int getZ(int i) {
+        return (chunkZ << 4) | ((getLocalIndex(i) >> 4) & 15);
+    }
+
+    /**
+     * Create a vector for the position of the given entry.
+     *
+     * @param i the entry
+     * @return a new vector
+     */
+    public BlockVector toVector(int i) {
+        return new BlockVector(getX(i), getY(i), getZ(i));
+    }
+
+    /**
+     * Get the block of the given entry.
+     *
+     * @param i the entry
+     * @return the block, or null if the entry was removed
+     */
+    @Nullable
+    public BaseBlock getBlock(int i) {
+        checkElementIndex(i, size);
+        return blocks[i];
+    }
+
+    /**
+     * Replace the block of the given entry.
+     *
+     * @param i the entry
+     * @param block the new block
+     */
+    public void setBlock(int i, BaseBlock block) {
+        checkNotNull(block);
+        checkElementIndex(i, size);
+        blocks[i] = block;
+    }
+
+    /**
+     * Mark the given entry as removed.
+     *
+     * <p>{@link #getBlock(int)} returns {@code null} for removed entries
+     * until {@link #compact()} is called.</p>
+     *
+     * @param i the entry
+     */
+    public void remove(int i) {
+        checkElementIndex(i, size);
+        blocks[i] = null;
+        holes = true;
+    }
+
+    /**
+     * Drop removed entries while keeping the order of the others.
+     */
+    public void compact() {
+        if (!holes) {
+            return;
+        }
+
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            if (blocks[i] != null) {
+                indices[j] = indices[i];
+                blocks[j] = blocks[i];
+                j++;
+            }
+        }
+        for (int i = j; i < size; i++) {
+            blocks[i] = null;
+        }
+        size = j;
+        holes = false;
+    }
+
+    /**
+     * Drop every entry after the first {@code size} entries.
+     *
+     * @param size the new size
+     */
+    public void truncate(int size) {
+        checkArgument(size >= 0 && size <= this.size, "size out of range");
+        for (int i = size; i < this.size; i++) {
+            blocks[i] = null;
+        }
+        this.size = size;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        truncate(0);
+        holes = false;
+    }
+
+    /**
+     * Get the section-local index of a block position.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return the local index
+     */
+    public static int toLocalIndex(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
+
+}
@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit.extent;
 
+import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
@@ -64,6 +65,15 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         return super.setBlock(location, block);
     }
 
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        for (int i = 0; i < batch.size(); i++) {
+            BlockVector position = batch.toVector(i);
+            changeSet.add(new BlockChange(position, getBlock(position), batch.getBlock(i)));
+        }
+        return getExtent().setBlocks(batch);
+    }
+
     @Nullable
     @Override
     public Entity createEntity(Location location, BaseEntity state) {
@@ -23,6 +23,7 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.Masks;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -69,4 +70,17 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         return mask.test(location) && super.setBlock(location, block);
     }
 
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        if (mask != Masks.alwaysTrue()) {
+            for (int i = 0; i < batch.size(); i++) {
+                if (!mask.test(batch.toVector(i))) {
+                    batch.remove(i);
+                }
+            }
+            batch.compact();
+        }
+        return batch.isEmpty() ? 0 : getExtent().setBlocks(batch);
+    }
+
 }
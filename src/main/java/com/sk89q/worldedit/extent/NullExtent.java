@@ -89,6 +89,11 @@ public boolean setBlock(Vector position, BaseBlock block) throws WorldEditExcept
         return false;
     }
 
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        return 0;
+    }
+
     @Override
     public boolean setBiome(Vector2D position, BaseBiome biome) {
         return false;
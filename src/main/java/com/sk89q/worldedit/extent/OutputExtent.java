@@ -52,6 +52,21 @@ public interface OutputExtent {
      */
     boolean setBlock(Vector position, BaseBlock block) throws WorldEditException;
 
+    /**
+     * Change a batch of blocks that all fall within one chunk section.
+     *
+     * <p>The result should be the same as calling
+     * {@link #setBlock(Vector, BaseBlock)} for every entry of the batch in
+     * order, but implementations can process the whole batch at once to
+     * avoid per-block overhead. The batch may be modified by this method
+     * and should not contain removed entries when passed in.</p>
+     *
+     * @param batch the batch of changes
+     * @return the number of blocks that were probably changed (may not be accurate)
+     * @throws WorldEditException thrown on an error
+     */
+    int setBlocks(BlockBatch batch) throws WorldEditException;
+
     /**
      * Set the biome.
      *
@@ -21,14 +21,19 @@
 
 import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.extent.Extent;
 
 /**
  * Returns the same cached {@link BaseBlock} for repeated calls to
  * {@link #getLazyBlock(Vector)} with the same position.
+ *
+ * @deprecated Use {@link SectionCacheExtent}, which caches whole sections
  */
+@Deprecated
 public class LastAccessExtentCache extends AbstractDelegateExtent {
 
     private CachedBlock lastBlock;
@@ -55,6 +60,11 @@ public BaseBlock getLazyBlock(Vector position) {
         }
     }
 
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        return getExtent().setBlocks(batch);
+    }
+
     private static class CachedBlock {
         private final BlockVector position;
         private final BaseBlock block;
@@ -0,0 +1,239 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.cache;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.LazyBlock;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BlockBatch;
+import com.sk89q.worldedit.extent.Extent;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Caches the type and data values read with {@link #getLazyBlock(Vector)}
+ * in primitive arrays, one for each 16x16x16 chunk section, so that
+ * repeated reads of the same block do not go back to the extent.
+ *
+ * <p>The least recently used sections are evicted once more than the
+ * maximum number of sections are cached. Blocks that are changed
+ * through this extent are removed from the cache, but changes made to
+ * the underlying extent by other means are not seen.</p>
+ *
+ * <p>Blocks returned are {@link LazyBlock}s that load their full data
+ * from the underlying extent when it is asked for.</p>
+ */
+public class SectionCacheExtent extends AbstractDelegateExtent {
+
+    /**
+     * The default maximum number of cached sections.
+     */
+    public static final int DEFAULT_MAX_SECTIONS = 256;
+
+    private static final int SECTION_SIZE = 16 * 16 * 16;
+    private static final short UNKNOWN = -1;
+
+    private final Map<Long, Section> sections;
+    private long lastKey;
+    @Nullable
+    private Section lastSection;
+    private long hits;
+    private long misses;
+
+    /**
+     * Create a new instance that caches up to
+     * {@link #DEFAULT_MAX_SECTIONS} sections.
+     *
+     * @param extent the extent
+     */
+    public SectionCacheExtent(Extent extent) {
+        this(extent, DEFAULT_MAX_SECTIONS);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param extent the extent
+     * @param maxSections the maximum number of sections to cache
+     */
+    public SectionCacheExtent(Extent extent, final int maxSections) {
+        super(extent);
+        checkArgument(maxSections > 0, "maxSections must be > 0");
+        this.sections = new LinkedHashMap<Long, Section>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Section> eldest) {
+                return size() > maxSections;
+            }
+        };
+    }
+
+    /**
+     * Get the number of reads that were answered from the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of reads that went to the underlying extent.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of sections currently cached.
+     *
+     * @return the number of sections
+     */
+    public int getCachedSections() {
+        return sections.size();
+    }
+
+    /**
+     * Remove all cached blocks.
+     */
+    public void clear() {
+        sections.clear();
+        lastSection = null;
+    }
+
+    @Override
+    public BaseBlock getLazyBlock(Vector position) {
+        int x = position.getBlockX();
+        int y = position.getBlockY();
+        int z = position.getBlockZ();
+        Section section = getSection(x, y, z, true);
+        int index = BlockBatch.toLocalIndex(x, y, z);
+
+        short type = section.types[index];
+        if (type != UNKNOWN) {
+            hits++;
+            return new LazyBlock(type, section.data[index], getExtent(), position);
+        }
+
+        misses++;
+        BaseBlock block = super.getLazyBlock(position);
+        store(section, index, block);
+        return block;
+    }
+
+    @Override
+    public BaseBlock getBlock(Vector position) {
+        BaseBlock block = super.getBlock(position);
+        int x = position.getBlockX();
+        int y = position.getBlockY();
+        int z = position.getBlockZ();
+        Section section = getSection(x, y, z, false);
+        if (section != null) {
+            store(section, BlockBatch.toLocalIndex(x, y, z), block);
+        }
+        return block;
+    }
+
+    @Override
+    public boolean setBlock(Vector location, BaseBlock block) throws WorldEditException {
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        Section section = getSection(x, y, z, false);
+        if (section != null) {
+            // The extents below may change the block, so read it again later
+            section.types[BlockBatch.toLocalIndex(x, y, z)] = UNKNOWN;
+        }
+        return super.setBlock(location, block);
+    }
+
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        Section section = sections.get(toKey(batch.getChunkX(), batch.getSectionY(), batch.getChunkZ()));
+        if (section != null) {
+            for (int i = 0; i < batch.size(); i++) {
+                section.types[batch.getLocalIndex(i)] = UNKNOWN;
+            }
+        }
+        return getExtent().setBlocks(batch);
+    }
+
+    /**
+     * Get the section containing the given block.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @param create true to create the section if it is not cached
+     * @return the section, or null if not cached and {@code create} is false
+     */
+    @Nullable
+    private Section getSection(int x, int y, int z, boolean create) {
+        long key = toKey(x >> 4, y >> 4, z >> 4);
+        Section section = lastSection;
+        if (section != null && key == lastKey) {
+            return section;
+        }
+
+        section = sections.get(key);
+        if (section == null) {
+            if (!create) {
+                return null;
+            }
+            section = new Section();
+            sections.put(key, section);
+        }
+
+        lastKey = key;
+        lastSection = section;
+        return section;
+    }
+
+    private static void store(Section section, int index, BaseBlock block) {
+        int type = block.getType();
+        int data = block.getData();
+        if (type >= 0 && type <= Short.MAX_VALUE && data >= 0 && data <= Byte.MAX_VALUE) {
+            section.types[index] = (short) type;
+            section.data[index] = (byte) data;
+        }
+    }
+
+    private static long toKey(int sectionX, int sectionY, int sectionZ) {
+        return ((long) sectionX & 0x3FFFFFF) << 38 | ((long) sectionZ & 0x3FFFFFF) << 12 | (sectionY & 0xFFF);
+    }
+
+    private static class Section {
+        private final short[] types = new short[SECTION_SIZE];
+        private final byte[] data = new byte[SECTION_SIZE];
+
+        private Section() {
+            Arrays.fill(types, UNKNOWN);
+        }
+    }
+
+}
@@ -26,6 +26,7 @@
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.Location;
@@ -148,6 +149,17 @@ public boolean setBlock(Vector position, BaseBlock block) throws WorldEditExcept
         }
     }
 
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        int changed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (setBlock(batch.toVector(i), batch.getBlock(i))) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
     @Override
     public BaseBiome getBiome(Vector2D position) {
         return new BaseBiome(0);
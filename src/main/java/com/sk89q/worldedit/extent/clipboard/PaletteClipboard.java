@@ -0,0 +1,374 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extent.BlockBatch;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.biome.BaseBiome;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Stores block data compactly as indices into a palette of the
+ * distinct blocks in the clipboard.
+ *
+ * <p>Each block takes 1, 2, 4, 8 or 16 bits depending on the size of the
+ * palette, packed into longs that can be held either on the heap or in a
+ * direct buffer outside of it. Blocks with NBT data, and blocks with a
+ * type or data value that does not fit into the palette, are kept as
+ * {@link BaseBlock}s in a separate map.</p>
+ */
+public class PaletteClipboard implements Clipboard {
+
+    private final Region region;
+    private Vector origin;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int width;
+    private final int length;
+    private final int volume;
+    private final boolean direct;
+
+    private int[] palette = new int[16];
+    private final int[] paletteIndex = new int[(BaseBlock.MAX_ID + 1) * (BaseBlock.MAX_DATA + 1)];
+    private int paletteSize = 0;
+    private int bitsShift = 0; // log2 of the bits per entry
+    private LongBuffer storage;
+    private final Map<Integer, BaseBlock> sparse = new HashMap<Integer, BaseBlock>();
+    private final List<ClipboardEntity> entities = new ArrayList<ClipboardEntity>();
+
+    /**
+     * Create a new instance that stores blocks on the heap.
+     *
+     * <p>The origin will be placed at the region's lowest minimum point.</p>
+     *
+     * @param region the bounding region
+     */
+    public PaletteClipboard(Region region) {
+        this(region, false);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * <p>The origin will be placed at the region's lowest minimum point.</p>
+     *
+     * @param region the bounding region
+     * @param direct true to store blocks in a direct buffer outside the heap
+     */
+    public PaletteClipboard(Region region, boolean direct) {
+        checkNotNull(region);
+        this.region = region.clone();
+        this.origin = region.getMinimumPoint();
+        this.direct = direct;
+
+        Vector min = region.getMinimumPoint();
+        Vector dimensions = getDimensions();
+        minX = min.getBlockX();
+        minY = min.getBlockY();
+        minZ = min.getBlockZ();
+        width = dimensions.getBlockX();
+        length = dimensions.getBlockZ();
+        long volume = (long) width * dimensions.getBlockY() * length;
+        checkArgument(volume <= Integer.MAX_VALUE, "region is too large for a clipboard");
+        this.volume = (int) volume;
+
+        Arrays.fill(paletteIndex, -1);
+        addToPalette(0); // Air
+        storage = allocate(0);
+    }
+
+    /**
+     * Return whether blocks are stored outside of the heap.
+     *
+     * @return true if blocks are stored in a direct buffer
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Get the number of distinct type and data combinations in the palette.
+     *
+     * @return the palette size
+     */
+    public int getPaletteSize() {
+        return paletteSize;
+    }
+
+    /**
+     * Get the number of bits used to store each block.
+     *
+     * @return the number of bits
+     */
+    public int getBitsPerBlock() {
+        return 1 << bitsShift;
+    }
+
+    @Override
+    public Region getRegion() {
+        return region.clone();
+    }
+
+    @Override
+    public Vector getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public void setOrigin(Vector origin) {
+        this.origin = origin;
+    }
+
+    @Override
+    public Vector getDimensions() {
+        return region.getMaximumPoint().subtract(region.getMinimumPoint()).add(1, 1, 1);
+    }
+
+    @Override
+    public Vector getMinimumPoint() {
+        return region.getMinimumPoint();
+    }
+
+    @Override
+    public Vector getMaximumPoint() {
+        return region.getMaximumPoint();
+    }
+
+    @Override
+    public List<? extends Entity> getEntities(Region region) {
+        List<Entity> filtered = new ArrayList<Entity>();
+        for (Entity entity : entities) {
+            if (region.contains(entity.getLocation().toVector())) {
+                filtered.add(entity);
+            }
+        }
+        return Collections.unmodifiableList(filtered);
+    }
+
+    @Override
+    public List<? extends Entity> getEntities() {
+        return Collections.unmodifiableList(entities);
+    }
+
+    @Nullable
+    @Override
+    public Entity createEntity(Location location, BaseEntity entity) {
+        ClipboardEntity ret = new ClipboardEntity(location, entity);
+        entities.add(ret);
+        return ret;
+    }
+
+    @Override
+    public BaseBlock getBlock(Vector position) {
+        if (region.contains(position)) {
+            int index = toIndex(position);
+            if (!sparse.isEmpty()) {
+                BaseBlock block = sparse.get(index);
+                if (block != null) {
+                    return new BaseBlock(block);
+                }
+            }
+            int key = palette[get(index)];
+            return new BaseBlock(key >> 4, key & BaseBlock.MAX_DATA);
+        }
+
+        return new BaseBlock(BlockID.AIR);
+    }
+
+    @Override
+    public BaseBlock getLazyBlock(Vector position) {
+        return getBlock(position);
+    }
+
+    @Override
+    public boolean setBlock(Vector position, BaseBlock block) throws WorldEditException {
+        if (region.contains(position)) {
+            int index = toIndex(position);
+            int type = block.getType();
+            int data = block.getData();
+            boolean fits = type >= 0 && type <= BaseBlock.MAX_ID && data >= 0 && data <= BaseBlock.MAX_DATA;
+
+            if (!fits || block.hasNbtData()) {
+                sparse.put(index, new BaseBlock(block));
+            } else if (!sparse.isEmpty()) {
+                sparse.remove(index);
+            }
+
+            set(index, fits ? getPaletteId(type << 4 | data) : 0);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        int changed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            BaseBlock block = batch.getBlock(i);
+            if (block != null && setBlock(batch.toVector(i), block)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public BaseBiome getBiome(Vector2D position) {
+        return new BaseBiome(0);
+    }
+
+    @Override
+    public boolean setBiome(Vector2D position, BaseBiome biome) {
+        return false;
+    }
+
+    @Nullable
+    @Override
+    public Operation commit() {
+        return null;
+    }
+
+    private int toIndex(Vector position) {
+        return ((position.getBlockY() - minY) * length + (position.getBlockZ() - minZ)) * width + (position.getBlockX() - minX);
+    }
+
+    /**
+     * Get the palette ID of a key, adding it to the palette
+     * if necessary.
+     *
+     * @param key the key ({@code type << 4 | data})
+     * @return the palette ID
+     */
+    private int getPaletteId(int key) {
+        int id = paletteIndex[key];
+        if (id == -1) {
+            id = addToPalette(key);
+        }
+        return id;
+    }
+
+    private int addToPalette(int key) {
+        int id = paletteSize++;
+        if (id == palette.length) {
+            palette = Arrays.copyOf(palette, palette.length * 2);
+        }
+        palette[id] = key;
+        paletteIndex[key] = id;
+        if (paletteSize > 1 << (1 << bitsShift)) {
+            resize(bitsShift + 1);
+        }
+        return id;
+    }
+
+    private int get(int index) {
+        return read(storage, bitsShift, index);
+    }
+
+    private void set(int index, int id) {
+        write(storage, bitsShift, index, id);
+    }
+
+    /**
+     * Repack the stored blocks with a new number of bits per entry.
+     *
+     * @param newBitsShift log2 of the new number of bits
+     */
+    private void resize(int newBitsShift) {
+        LongBuffer repacked = allocate(newBitsShift);
+        for (int i = 0; i < volume; i++) {
+            int id = read(storage, bitsShift, i);
+            if (id != 0) {
+                write(repacked, newBitsShift, i, id);
+            }
+        }
+        storage = repacked;
+        bitsShift = newBitsShift;
+    }
+
+    private static int read(LongBuffer storage, int bitsShift, int index) {
+        // Entries never straddle two longs because the bits are a power of 2
+        int shift = 6 - bitsShift;
+        int offset = (index & ((1 << shift) - 1)) << bitsShift;
+        return (int) (storage.get(index >>> shift) >>> offset) & ((1 << (1 << bitsShift)) - 1);
+    }
+
+    private static void write(LongBuffer storage, int bitsShift, int index, int id) {
+        int shift = 6 - bitsShift;
+        int offset = (index & ((1 << shift) - 1)) << bitsShift;
+        long mask = ((1L << (1 << bitsShift)) - 1) << offset;
+        int word = index >>> shift;
+        storage.put(word, (storage.get(word) & ~mask) | ((long) id << offset));
+    }
+
+    private LongBuffer allocate(int bitsShift) {
+        int words = (int) (((long) volume << bitsShift) + 63 >>> 6);
+        if (direct) {
+            checkArgument(words <= Integer.MAX_VALUE / 8, "region is too large for a direct clipboard");
+            return ByteBuffer.allocateDirect(Math.max(1, words) * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+        } else {
+            return LongBuffer.wrap(new long[Math.max(1, words)]);
+        }
+    }
+
+    /**
+     * Stores entity data.
+     */
+    private class ClipboardEntity extends StoredEntity {
+        ClipboardEntity(Location location, BaseEntity entity) {
+            super(location, entity);
+        }
+
+        @Override
+        public boolean remove() {
+            return entities.remove(this);
+        }
+
+        @Nullable
+        @Override
+        public <T> T getFacet(Class<? extends T> cls) {
+            return null;
+        }
+    }
+
+}
@@ -22,6 +22,8 @@
 import com.sk89q.jnbt.NBTConstants;
 import com.sk89q.jnbt.NBTInputStream;
 import com.sk89q.jnbt.NBTOutputStream;
+import com.sk89q.worldedit.util.io.ParallelGZIPInputStream;
+import com.sk89q.worldedit.util.io.ParallelGZIPOutputStream;
 
 import javax.annotation.Nullable;
 import java.io.DataInputStream;
@@ -53,7 +55,7 @@ public enum ClipboardFormat {
     SCHEMATIC("mcedit", "mce", "schematic") {
         @Override
         public ClipboardReader getReader(InputStream inputStream) throws IOException {
-            NBTInputStream nbtStream = new NBTInputStream(new GZIPInputStream(inputStream));
+            NBTInputStream nbtStream = new NBTInputStream(new ParallelGZIPInputStream(inputStream));
             return new SchematicReader(nbtStream);
         }
 
@@ -86,6 +88,30 @@ public boolean isFormat(File file) {
                 }
             }
         }
+    },
+
+    /**
+     * The Schematic format, compressed in blocks on several threads.
+     *
+     * <p>Files are ordinary multi-member gzip files that other software can
+     * read as {@link #SCHEMATIC}, which they are also detected as.</p>
+     */
+    BLOCKED_SCHEMATIC("blocked", "parallel") {
+        @Override
+        public ClipboardReader getReader(InputStream inputStream) throws IOException {
+            return SCHEMATIC.getReader(inputStream);
+        }
+
+        @Override
+        public ClipboardWriter getWriter(OutputStream outputStream) throws IOException {
+            NBTOutputStream nbtStream = new NBTOutputStream(new ParallelGZIPOutputStream(outputStream));
+            return new SchematicWriter(nbtStream);
+        }
+
+        @Override
+        public boolean isFormat(File file) {
+            return SCHEMATIC.isFormat(file);
+        }
     };
 
     private static final Map<String, ClipboardFormat> aliasMap = new HashMap<String, ClipboardFormat>();
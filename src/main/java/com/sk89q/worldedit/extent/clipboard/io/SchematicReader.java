@@ -31,9 +31,10 @@
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.entity.BaseEntity;
-import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.PaletteClipboard;
 import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.Location;
@@ -57,6 +58,7 @@ public class SchematicReader implements ClipboardReader {
 
     private static final Logger log = Logger.getLogger(SchematicReader.class.getCanonicalName());
     private final NBTInputStream inputStream;
+    private boolean offHeap = false;
 
     /**
      * Create a new instance.
@@ -68,6 +70,24 @@ public SchematicReader(NBTInputStream inputStream) {
         this.inputStream = inputStream;
     }
 
+    /**
+     * Get whether the blocks of read clipboards are stored outside the heap.
+     *
+     * @return true if stored outside the heap
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Set whether the blocks of read clipboards are stored outside the heap.
+     *
+     * @param offHeap true to store them in a direct buffer
+     */
+    public void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
     @Override
     public Clipboard read(WorldData data) throws IOException {
         // Schematic tag
@@ -183,7 +203,7 @@ public Clipboard read(WorldData data) throws IOException {
             tileEntitiesMap.put(vec, values);
         }
 
-        BlockArrayClipboard clipboard = new BlockArrayClipboard(region);
+        PaletteClipboard clipboard = new PaletteClipboard(region, offHeap);
         clipboard.setOrigin(origin);
 
         // Don't log a torrent of errors
@@ -194,6 +214,12 @@ public Clipboard read(WorldData data) throws IOException {
                 for (int z = 0; z < length; ++z) {
                     int index = y * width * length + z * width + x;
                     BlockVector pt = new BlockVector(x, y, z);
+
+                    // The clipboard starts out filled with air
+                    if (blocks[index] == BlockID.AIR && blockData[index] == 0 && !tileEntitiesMap.containsKey(pt)) {
+                        continue;
+                    }
+
                     BaseBlock block = new BaseBlock(blocks[index], blockData[index]);
 
                     if (tileEntitiesMap.containsKey(pt)) {
@@ -0,0 +1,427 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.google.common.io.InputSupplier;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.ListTag;
+import com.sk89q.jnbt.NBTConstants;
+import com.sk89q.jnbt.NBTPathFilter;
+import com.sk89q.jnbt.NBTStreamReader;
+import com.sk89q.jnbt.NBTStreamReader.Event;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.clipboard.PaletteClipboard;
+import com.sk89q.worldedit.extent.transform.BlockTransformExtent;
+import com.sk89q.worldedit.function.mask.ExistingBlockMask;
+import com.sk89q.worldedit.function.operation.ForwardExtentCopy;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.util.io.Closer;
+import com.sk89q.worldedit.world.registry.WorldData;
+import com.sk89q.worldedit.world.storage.NBTConversions;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Pastes a .schematic file straight into an extent, decoding a few layers
+ * at a time instead of reading the whole schematic into a clipboard.
+ *
+ * <p>The file is read more than once: first for its dimensions, tile
+ * entities and entities, and then through a separate stream for each of the
+ * {@code Blocks}, {@code Data} and {@code AddBlocks} arrays, which may
+ * appear in any order in the file. Layers are decoded into a small
+ * {@link PaletteClipboard} and pasted with a {@link ForwardExtentCopy} in
+ * the same way as {@link com.sk89q.worldedit.session.PasteBuilder} pastes
+ * a whole clipboard, so only one slab of layers is held in
+ * memory at once.</p>
+ */
+public class StreamingSchematicReader {
+
+    private static final Logger log = Logger.getLogger(StreamingSchematicReader.class.getCanonicalName());
+
+    /**
+     * The default maximum number of blocks decoded at once.
+     */
+    public static final int DEFAULT_SLAB_VOLUME = 1 << 20;
+
+    private static final NBTPathFilter HEADER_FILTER = new NBTPathFilter(
+            "Width", "Height", "Length", "Materials",
+            "WEOriginX", "WEOriginY", "WEOriginZ", "WEOffsetX", "WEOffsetY", "WEOffsetZ",
+            "TileEntities", "Entities");
+
+    private final InputSupplier<? extends InputStream> input;
+    private int slabVolume = DEFAULT_SLAB_VOLUME;
+
+    private boolean headerRead = false;
+    private int width;
+    private int height;
+    private int length;
+    private Vector origin;
+    private Region region;
+    private final Map<Integer, List<CompoundTag>> tileEntities = new HashMap<Integer, List<CompoundTag>>();
+    private final List<CompoundTag> entities = new ArrayList<CompoundTag>();
+
+    /**
+     * Create a new instance.
+     *
+     * @param input a supplier of new streams of the gzipped schematic file,
+     *              which is called once for every pass over the file
+     */
+    public StreamingSchematicReader(InputSupplier<? extends InputStream> input) {
+        checkNotNull(input);
+        this.input = input;
+    }
+
+    /**
+     * Get the maximum number of blocks that are decoded at once.
+     *
+     * @return the number of blocks
+     */
+    public int getSlabVolume() {
+        return slabVolume;
+    }
+
+    /**
+     * Set the maximum number of blocks that are decoded at once. At least
+     * one layer of the schematic is always decoded.
+     *
+     * @param slabVolume the number of blocks
+     */
+    public void setSlabVolume(int slabVolume) {
+        checkArgument(slabVolume > 0, "slabVolume must be > 0");
+        this.slabVolume = slabVolume;
+    }
+
+    /**
+     * Get the region that the schematic was copied from.
+     *
+     * @return the region
+     * @throws IOException thrown if the header could not be read
+     */
+    public Region getRegion() throws IOException {
+        readHeader();
+        return region.clone();
+    }
+
+    /**
+     * Get the origin that the schematic was copied from.
+     *
+     * @return the origin
+     * @throws IOException thrown if the header could not be read
+     */
+    public Vector getOrigin() throws IOException {
+        readHeader();
+        return origin;
+    }
+
+    /**
+     * Paste the schematic.
+     *
+     * @param targetExtent the extent to paste into
+     * @param targetWorldData world data of the target
+     * @param transform the transform to apply around the origin
+     * @param to the position to paste the origin at
+     * @param ignoreAirBlocks true to skip air blocks in the schematic
+     * @throws IOException thrown if the schematic could not be read
+     * @throws MaxChangedBlocksException thrown if too many blocks are changed
+     */
+    public void paste(Extent targetExtent, WorldData targetWorldData, Transform transform, Vector to, boolean ignoreAirBlocks)
+            throws IOException, MaxChangedBlocksException {
+        checkNotNull(targetExtent);
+        checkNotNull(targetWorldData);
+        checkNotNull(transform);
+        checkNotNull(to);
+        readHeader();
+
+        int area = width * length;
+        int volume = area * height;
+        int layersPerSlab = Math.max(1, Math.min(height, slabVolume / Math.max(1, area)));
+        byte[] blocks = new byte[layersPerSlab * area];
+        byte[] data = new byte[layersPerSlab * area];
+        byte[] addBlocks = new byte[(layersPerSlab * area >> 1) + 2];
+
+        Closer closer = Closer.create();
+        try {
+            NBTStreamReader blockReader = closer.register(openArray("Blocks", true));
+            NBTStreamReader dataReader = closer.register(openArray("Data", true));
+            NBTStreamReader addReader = closer.register(openArray("AddBlocks", false));
+
+            if (blockReader.startByteArray() != volume) {
+                throw new IOException("Blocks tag does not match the schematic dimensions");
+            }
+            if (dataReader.startByteArray() != volume) {
+                throw new IOException("Data tag does not match the schematic dimensions");
+            }
+            int addLength = addReader.getEvent() == Event.VALUE ? addReader.startByteArray() : 0;
+            int addRead = 0;
+            byte lastAdd = 0;
+
+            for (int y0 = 0; y0 < height; y0 += layersPerSlab) {
+                int y1 = Math.min(height, y0 + layersPerSlab);
+                int start = y0 * area;
+                int count = (y1 - y0) * area;
+
+                blockReader.readByteArray(blocks, 0, count);
+                dataReader.readByteArray(data, 0, count);
+
+                // AddBlocks packs two blocks per byte, so the first byte of
+                // this slab may have been read with the previous slab
+                int firstAdd = start >> 1;
+                int endAdd = Math.min((start + count - 1) >> 1, addLength - 1);
+                int from = Math.max(addRead, firstAdd);
+                if (from > firstAdd) {
+                    addBlocks[0] = lastAdd;
+                }
+                if (endAdd >= from) {
+                    addReader.readByteArray(addBlocks, from - firstAdd, endAdd - from + 1);
+                    addRead = endAdd + 1;
+                    lastAdd = addBlocks[endAdd - firstAdd];
+                }
+
+                pasteSlab(y0, y1, blocks, data, addBlocks, addLength, targetExtent, targetWorldData, transform, to, ignoreAirBlocks);
+            }
+        } catch (Throwable t) {
+            throw closer.rethrow(t, MaxChangedBlocksException.class);
+        } finally {
+            closer.close();
+        }
+    }
+
+    private void pasteSlab(int y0, int y1, byte[] blocks, byte[] data, byte[] addBlocks, int addLength,
+                           Extent targetExtent, WorldData targetWorldData, Transform transform, Vector to,
+                           boolean ignoreAirBlocks) throws MaxChangedBlocksException {
+        int area = width * length;
+        int start = y0 * area;
+        int firstAdd = start >> 1;
+        Vector min = region.getMinimumPoint();
+        CuboidRegion slabRegion = new CuboidRegion(min.add(0, y0, 0), min.add(width - 1, y1 - 1, length - 1));
+        PaletteClipboard slab = new PaletteClipboard(slabRegion);
+        slab.setOrigin(origin);
+
+        // Don't log a torrent of errors
+        int failedBlockSets = 0;
+
+        for (int i = 0; i < (y1 - y0) * area; i++) {
+            int index = start + i;
+            int type = blocks[i] & 0xFF;
+            if ((index >> 1) < addLength) {
+                int add = addBlocks[(index >> 1) - firstAdd];
+                type |= ((index & 1) == 0 ? add & 0x0F : (add & 0xF0) >> 4) << 8;
+            }
+            if (type == BlockID.AIR && data[i] == 0) {
+                continue; // The clipboard starts out filled with air
+            }
+
+            int x = index % width;
+            int z = (index / width) % length;
+            int y = index / area;
+            failedBlockSets = setBlock(slab, min.add(x, y, z), new BaseBlock(type, data[i]), failedBlockSets);
+        }
+
+        for (int y = y0; y < y1; y++) {
+            List<CompoundTag> layer = tileEntities.get(y);
+            if (layer == null) {
+                continue;
+            }
+            for (CompoundTag tag : layer) {
+                Vector position = min.add(tag.getInt("x"), y, tag.getInt("z"));
+                BaseBlock block = slab.getBlock(position);
+                block.setNbtData(tag);
+                failedBlockSets = setBlock(slab, position, block, failedBlockSets);
+            }
+        }
+
+        for (CompoundTag compound : entities) {
+            ListTag pos = compound.getListTag("Pos");
+            int y = (int) Math.floor(pos.getDouble(1)) - min.getBlockY();
+            if ((y >= y0 || y0 == 0) && (y < y1 || y1 == height)) {
+                Location location = NBTConversions.toLocation(slab, pos, compound.getListTag("Rotation"));
+                slab.createEntity(location, new BaseEntity(compound.getString("id"), compound));
+            }
+        }
+
+        BlockTransformExtent extent = new BlockTransformExtent(slab, transform, targetWorldData.getBlockRegistry());
+        ForwardExtentCopy copy = new ForwardExtentCopy(extent, slabRegion, origin, targetExtent, to);
+        copy.setTransform(transform);
+        if (ignoreAirBlocks) {
+            copy.setSourceMask(new ExistingBlockMask(slab));
+        }
+        Operations.completeLegacy(copy);
+    }
+
+    private static int setBlock(PaletteClipboard slab, Vector position, BaseBlock block, int failedBlockSets) {
+        try {
+            slab.setBlock(position, block);
+        } catch (WorldEditException e) {
+            switch (failedBlockSets) {
+                case 0:
+                    log.log(Level.WARNING, "Failed to set block on a Clipboard", e);
+                    break;
+                case 1:
+                    log.log(Level.WARNING, "Failed to set block on a Clipboard (again) -- no more messages will be logged", e);
+                    break;
+                default:
+            }
+            failedBlockSets++;
+        }
+        return failedBlockSets;
+    }
+
+    /**
+     * Read the dimensions, tile entities and entities of the schematic if
+     * they have not yet been read.
+     *
+     * @throws IOException thrown on I/O error
+     */
+    private void readHeader() throws IOException {
+        if (headerRead) {
+            return;
+        }
+
+        Map<String, Tag> values = new HashMap<String, Tag>();
+        Closer closer = Closer.create();
+        try {
+            NBTStreamReader reader = closer.register(open(HEADER_FILTER));
+            if (reader.next() != Event.START_COMPOUND || !"Schematic".equals(reader.getName())) {
+                throw new IOException("Tag 'Schematic' does not exist or is not first");
+            }
+            while (reader.next() != Event.END_COMPOUND) {
+                Tag tag = reader.readTag();
+                values.put(tag.getName(), tag);
+            }
+        } catch (Throwable t) {
+            throw closer.rethrow(t);
+        } finally {
+            closer.close();
+        }
+
+        CompoundTag schematic = new CompoundTag("Schematic", values);
+        if (!"Alpha".equals(schematic.getString("Materials"))) {
+            throw new IOException("Schematic file is not an Alpha schematic");
+        }
+        if (!values.containsKey("Width") || !values.containsKey("Height") || !values.containsKey("Length")) {
+            throw new IOException("Schematic file is missing its dimensions");
+        }
+
+        width = schematic.getShort("Width");
+        height = schematic.getShort("Height");
+        length = schematic.getShort("Length");
+        if (width <= 0 || height <= 0 || length <= 0) {
+            throw new IOException("Schematic file has no blocks");
+        }
+
+        if (values.containsKey("WEOriginX") && values.containsKey("WEOffsetX")) {
+            Vector min = new Vector(schematic.getInt("WEOriginX"), schematic.getInt("WEOriginY"), schematic.getInt("WEOriginZ"));
+            Vector offset = new Vector(schematic.getInt("WEOffsetX"), schematic.getInt("WEOffsetY"), schematic.getInt("WEOffsetZ"));
+            origin = min.subtract(offset);
+            region = new CuboidRegion(min, min.add(width, height, length).subtract(Vector.ONE));
+        } else {
+            origin = new Vector(0, 0, 0);
+            region = new CuboidRegion(origin, origin.add(width, height, length).subtract(Vector.ONE));
+        }
+
+        for (Tag tag : schematic.getList("TileEntities")) {
+            if (tag instanceof CompoundTag) {
+                CompoundTag tileEntity = (CompoundTag) tag;
+                int y = tileEntity.getInt("y");
+                if (y >= 0 && y < height) {
+                    List<CompoundTag> layer = tileEntities.get(y);
+                    if (layer == null) {
+                        layer = new ArrayList<CompoundTag>();
+                        tileEntities.put(y, layer);
+                    }
+                    layer.add(new CompoundTag("", tileEntity.getValue()));
+                }
+            }
+        }
+
+        for (Tag tag : schematic.getList("Entities")) {
+            if (tag instanceof CompoundTag && !((CompoundTag) tag).getString("id").isEmpty()) {
+                entities.add((CompoundTag) tag);
+            }
+        }
+
+        headerRead = true;
+    }
+
+    /**
+     * Open a new pass over the file, positioned at the given byte array.
+     *
+     * @param name the name of the array
+     * @param required true to throw if the array is missing
+     * @return a reader positioned at the array, or at the end of the document
+     *         if the array is missing and not required
+     * @throws IOException thrown on I/O error
+     */
+    private NBTStreamReader openArray(String name, boolean required) throws IOException {
+        NBTStreamReader reader = open(new NBTPathFilter(name));
+        try {
+            Event event;
+            while ((event = reader.next()) != Event.END_DOCUMENT) {
+                if (event == Event.VALUE && reader.getDepth() == 1 && name.equals(reader.getName())) {
+                    if (reader.getType() != NBTConstants.TYPE_BYTE_ARRAY) {
+                        throw new IOException(name + " tag is not a byte array");
+                    }
+                    return reader;
+                }
+            }
+            if (required) {
+                throw new IOException("Schematic file is missing a \"" + name + "\" tag");
+            }
+            return reader;
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    private NBTStreamReader open(NBTPathFilter filter) throws IOException {
+        InputStream stream = input.getInput();
+        try {
+            return new NBTStreamReader(new GZIPInputStream(new BufferedInputStream(stream)), filter);
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+}
@@ -23,6 +23,7 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.extent.Extent;
 
 import javax.annotation.Nullable;
@@ -80,34 +81,65 @@ public Map<Integer, Integer> popMissing() {
 
     @Override
     public boolean setBlock(Vector position, BaseBlock block) throws WorldEditException {
+        if (blockBag != null && !exchange(blockBag, position, block)) {
+            return false;
+        }
+
+        return super.setBlock(position, block);
+    }
+
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        BlockBag blockBag = this.blockBag;
+
         if (blockBag != null) {
-            BaseBlock lazyBlock = getExtent().getLazyBlock(position);
-            int existing = lazyBlock.getType();
-            final int type = block.getType();
-
-            if (type > 0) {
-                try {
-                    blockBag.fetchPlacedBlock(type, 0);
-                } catch (UnplaceableBlockException e) {
-                    return false;
-                } catch (BlockBagException e) {
-                    if (!missingBlocks.containsKey(type)) {
-                        missingBlocks.put(type, 1);
-                    } else {
-                        missingBlocks.put(type, missingBlocks.get(type) + 1);
-                    }
-                    return false;
+            for (int i = 0; i < batch.size(); i++) {
+                if (!exchange(blockBag, batch.toVector(i), batch.getBlock(i))) {
+                    batch.remove(i);
                 }
             }
+            batch.compact();
+        }
+
+        return batch.isEmpty() ? 0 : getExtent().setBlocks(batch);
+    }
 
-            if (existing > 0) {
-                try {
-                    blockBag.storeDroppedBlock(existing, lazyBlock.getData());
-                } catch (BlockBagException ignored) {
+    /**
+     * Take the block to be placed from the block bag and store the block
+     * that is being replaced.
+     *
+     * @param blockBag the block bag
+     * @param position the position
+     * @param block the block to be placed
+     * @return true if the block can be placed
+     */
+    private boolean exchange(BlockBag blockBag, Vector position, BaseBlock block) {
+        BaseBlock lazyBlock = getExtent().getLazyBlock(position);
+        int existing = lazyBlock.getType();
+        final int type = block.getType();
+
+        if (type > 0) {
+            try {
+                blockBag.fetchPlacedBlock(type, 0);
+            } catch (UnplaceableBlockException e) {
+                return false;
+            } catch (BlockBagException e) {
+                if (!missingBlocks.containsKey(type)) {
+                    missingBlocks.put(type, 1);
+                } else {
+                    missingBlocks.put(type, missingBlocks.get(type) + 1);
                 }
+                return false;
             }
         }
 
-        return super.setBlock(position, block);
+        if (existing > 0) {
+            try {
+                blockBag.storeDroppedBlock(existing, lazyBlock.getData());
+            } catch (BlockBagException ignored) {
+            }
+        }
+
+        return true;
     }
 }
@@ -0,0 +1,200 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.metric;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extent.BlockBatch;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.util.metrics.LayerMetrics;
+import com.sk89q.worldedit.world.biome.BaseBiome;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Times the block reads and writes that are passed to an extent, and the
+ * operation returned by its {@link #commit()}.
+ *
+ * <p>Unlike other delegating extents, this one also wraps the commit
+ * operation of the extent below it, so that changes flushed from buffers
+ * are timed as well.</p>
+ */
+public class TimingExtent implements Extent {
+
+    private final Extent extent;
+    private final LayerMetrics metrics;
+
+    /**
+     * Create a new instance.
+     *
+     * @param extent the extent
+     * @param metrics the metrics to record into
+     */
+    public TimingExtent(Extent extent, LayerMetrics metrics) {
+        checkNotNull(extent);
+        checkNotNull(metrics);
+        this.extent = extent;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get the extent that is being timed.
+     *
+     * @return the extent
+     */
+    public Extent getExtent() {
+        return extent;
+    }
+
+    /**
+     * Get the metrics that are recorded into.
+     *
+     * @return the metrics
+     */
+    public LayerMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public BaseBlock getBlock(Vector position) {
+        long start = System.nanoTime();
+        try {
+            return extent.getBlock(position);
+        } finally {
+            metrics.addRead(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public BaseBlock getLazyBlock(Vector position) {
+        long start = System.nanoTime();
+        try {
+            return extent.getLazyBlock(position);
+        } finally {
+            metrics.addRead(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean setBlock(Vector position, BaseBlock block) throws WorldEditException {
+        long start = System.nanoTime();
+        try {
+            return extent.setBlock(position, block);
+        } finally {
+            metrics.addWrite(1, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        int size = batch.size();
+        long start = System.nanoTime();
+        try {
+            return extent.setBlocks(batch);
+        } finally {
+            metrics.addWrite(size, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public BaseBiome getBiome(Vector2D position) {
+        return extent.getBiome(position);
+    }
+
+    @Override
+    public boolean setBiome(Vector2D position, BaseBiome biome) {
+        return extent.setBiome(position, biome);
+    }
+
+    @Override
+    public Vector getMinimumPoint() {
+        return extent.getMinimumPoint();
+    }
+
+    @Override
+    public Vector getMaximumPoint() {
+        return extent.getMaximumPoint();
+    }
+
+    @Override
+    public List<? extends Entity> getEntities(Region region) {
+        return extent.getEntities(region);
+    }
+
+    @Override
+    public List<? extends Entity> getEntities() {
+        return extent.getEntities();
+    }
+
+    @Override
+    @Nullable
+    public Entity createEntity(Location location, BaseEntity entity) {
+        return extent.createEntity(location, entity);
+    }
+
+    @Override
+    public @Nullable Operation commit() {
+        Operation operation = extent.commit();
+        return operation != null ? new TimedOperation(operation) : null;
+    }
+
+    /**
+     * Times every resumption of a commit operation.
+     */
+    private class TimedOperation implements Operation {
+        private final Operation operation;
+
+        private TimedOperation(Operation operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public Operation resume(RunContext run) throws WorldEditException {
+            long start = System.nanoTime();
+            try {
+                Operation next = operation.resume(run);
+                if (next == null) {
+                    return null;
+                } else {
+                    return next == operation ? this : new TimedOperation(next);
+                }
+            } finally {
+                metrics.addCommit(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            operation.cancel();
+        }
+    }
+
+}
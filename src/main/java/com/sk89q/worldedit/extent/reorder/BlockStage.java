@@ -0,0 +1,197 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.reorder;
+
+import com.sk89q.worldedit.blocks.BaseBlock;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Buffers block changes for one stage of {@link MultiStageReorder}, keyed
+ * by positions packed into a {@code long}.
+ *
+ * <p>Packed positions sort by chunk column, then by Y, Z and X, so that
+ * changes can be placed one chunk section at a time. Setting the same
+ * position twice replaces the earlier change.</p>
+ */
+class BlockStage {
+
+    private static final int MAX_CHUNK = (1 << 21) - 1;
+    private static final int MAX_Y = (1 << 11) - 1;
+
+    private long[] keys = new long[16];
+    private BaseBlock[] blocks = new BaseBlock[16];
+    private int size = 0;
+    private int[] table = new int[32]; // Slot + 1, or 0 if empty
+
+    /**
+     * Return whether the given position can be stored in a stage.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position fits
+     */
+    static boolean fits(int x, int y, int z) {
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        return chunkX >= -MAX_CHUNK - 1 && chunkX <= MAX_CHUNK && chunkZ >= -MAX_CHUNK - 1 && chunkZ <= MAX_CHUNK
+                && y >= -MAX_Y - 1 && y <= MAX_Y;
+    }
+
+    /**
+     * Pack a position into a key.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return the key
+     */
+    static long pack(int x, int y, int z) {
+        return ((long) (x >> 4) & 0x3FFFFF) << 42 | ((long) (z >> 4) & 0x3FFFFF) << 20
+                | (long) (y & 0xFFF) << 8 | (z & 15) << 4 | (x & 15);
+    }
+
+    static int getX(long key) {
+        return (int) (key >> 42) << 4 | (int) (key & 15);
+    }
+
+    static int getY(long key) {
+        return (int) (key >>> 8) << 20 >> 20;
+    }
+
+    static int getZ(long key) {
+        return (int) (key >>> 20) << 10 >> 10 << 4 | (int) ((key >> 4) & 15);
+    }
+
+    /**
+     * Add a change, replacing any earlier change at the same position.
+     *
+     * @param key the packed position
+     * @param block the block
+     */
+    void put(long key, BaseBlock block) {
+        checkNotNull(block);
+        int slot = indexOf(key);
+        if (slot >= 0) {
+            blocks[slot] = block;
+            return;
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            blocks = Arrays.copyOf(blocks, size * 2);
+        }
+        keys[size] = key;
+        blocks[size] = block;
+        size++;
+
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        } else {
+            insert(size - 1);
+        }
+    }
+
+    /**
+     * Get the slot of the change at the given position.
+     *
+     * @param key the packed position
+     * @return the slot, or -1 if there is no change at the position
+     */
+    int indexOf(long key) {
+        int mask = table.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            int entry = table[i];
+            if (entry == 0) {
+                return -1;
+            }
+            if (keys[entry - 1] == key) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Get the number of changes.
+     *
+     * @return the number of changes
+     */
+    int size() {
+        return size;
+    }
+
+    long getKey(int slot) {
+        return keys[slot];
+    }
+
+    BaseBlock getBlock(int slot) {
+        return blocks[slot];
+    }
+
+    /**
+     * Get the slots of all changes, ordered by their packed positions.
+     *
+     * @return an array of slots
+     */
+    int[] getSortedSlots() {
+        long[] sorted = Arrays.copyOf(keys, size);
+        Arrays.sort(sorted);
+        int[] slots = new int[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = indexOf(sorted[i]);
+        }
+        return slots;
+    }
+
+    /**
+     * Remove all changes.
+     */
+    void clear() {
+        keys = new long[16];
+        blocks = new BaseBlock[16];
+        table = new int[32];
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insert(i);
+        }
+    }
+
+    private void insert(int slot) {
+        int mask = table.length - 1;
+        int i = hash(keys[slot]) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = slot + 1;
+    }
+
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+}
@@ -19,7 +19,6 @@
 
 package com.sk89q.worldedit.extent.reorder;
 
-import com.google.common.collect.Iterators;
 import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.PlayerDirection;
 import com.sk89q.worldedit.Vector;
@@ -28,23 +27,24 @@
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.blocks.BlockType;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.extent.Extent;
-import com.sk89q.worldedit.function.operation.BlockMapEntryPlacer;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.OperationQueue;
 import com.sk89q.worldedit.function.operation.RunContext;
-import com.sk89q.worldedit.util.collection.TupleArrayList;
-
-import java.util.*;
 
 /**
  * Re-orders blocks into several stages.
+ *
+ * <p>Blocks of the first two stages are placed one chunk section at a
+ * time. Blocks of the third stage are placed after the blocks that they
+ * are attached to.</p>
  */
 public class MultiStageReorder extends AbstractDelegateExtent implements ReorderingExtent {
 
-    private TupleArrayList<BlockVector, BaseBlock> stage1 = new TupleArrayList<BlockVector, BaseBlock>();
-    private TupleArrayList<BlockVector, BaseBlock> stage2 = new TupleArrayList<BlockVector, BaseBlock>();
-    private TupleArrayList<BlockVector, BaseBlock> stage3 = new TupleArrayList<BlockVector, BaseBlock>();
+    private BlockStage stage1 = new BlockStage();
+    private BlockStage stage2 = new BlockStage();
+    private BlockStage stage3 = new BlockStage();
     private boolean enabled;
 
     /**
@@ -89,77 +89,190 @@ public void setEnabled(boolean enabled) {
     public boolean setBlock(Vector location, BaseBlock block) throws WorldEditException {
         BaseBlock lazyBlock = getLazyBlock(location);
 
-        if (!enabled) {
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+
+        if (!enabled || !BlockStage.fits(x, y, z)) {
             return super.setBlock(location, block);
         }
 
         if (BlockType.shouldPlaceLast(block.getType())) {
             // Place torches, etc. last
-            stage2.put(location.toBlockVector(), block);
+            stage2.put(BlockStage.pack(x, y, z), block);
             return !(lazyBlock.getType() == block.getType() && lazyBlock.getData() == block.getData());
         } else if (BlockType.shouldPlaceFinal(block.getType())) {
             // Place signs, reed, etc even later
-            stage3.put(location.toBlockVector(), block);
+            stage3.put(BlockStage.pack(x, y, z), block);
             return !(lazyBlock.getType() == block.getType() && lazyBlock.getData() == block.getData());
         } else if (BlockType.shouldPlaceLast(lazyBlock.getType())) {
             // Destroy torches, etc. first
             super.setBlock(location, new BaseBlock(BlockID.AIR));
             return super.setBlock(location, block);
         } else {
-            stage1.put(location.toBlockVector(), block);
+            stage1.put(BlockStage.pack(x, y, z), block);
             return !(lazyBlock.getType() == block.getType() && lazyBlock.getData() == block.getData());
         }
     }
 
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        if (!enabled) {
+            return getExtent().setBlocks(batch);
+        }
+
+        int changed = 0;
+
+        for (int i = 0; i < batch.size(); i++) {
+            BaseBlock block = batch.getBlock(i);
+            if (block == null) {
+                continue;
+            }
+
+            int x = batch.getX(i);
+            int y = batch.getY(i);
+            int z = batch.getZ(i);
+            if (!BlockStage.fits(x, y, z)) {
+                continue; // Leave the block in the batch to be placed right away
+            }
+
+            BlockVector position = batch.toVector(i);
+            BaseBlock lazyBlock = getLazyBlock(position);
+            boolean different = !(lazyBlock.getType() == block.getType() && lazyBlock.getData() == block.getData());
+
+            if (BlockType.shouldPlaceLast(block.getType())) {
+                stage2.put(BlockStage.pack(x, y, z), block);
+            } else if (BlockType.shouldPlaceFinal(block.getType())) {
+                stage3.put(BlockStage.pack(x, y, z), block);
+            } else if (BlockType.shouldPlaceLast(lazyBlock.getType())) {
+                // Destroy torches, etc. first and leave the block in the
+                // batch to be placed right away
+                getExtent().setBlock(position, new BaseBlock(BlockID.AIR));
+                continue;
+            } else {
+                stage1.put(BlockStage.pack(x, y, z), block);
+            }
+
+            batch.remove(i);
+            if (different) {
+                changed++;
+            }
+        }
+
+        batch.compact();
+        return changed + (batch.isEmpty() ? 0 : getExtent().setBlocks(batch));
+    }
+
     @Override
     public Operation commitBefore() {
         return new OperationQueue(
-                new BlockMapEntryPlacer(
-                        getExtent(),
-                        Iterators.concat(stage1.iterator(), stage2.iterator())),
+                new StagePlacer(stage1),
+                new StagePlacer(stage2),
                 new Stage3Committer());
     }
 
-    private class Stage3Committer implements Operation {
+    /**
+     * Places the blocks of a stage in the order of their packed positions,
+     * one chunk section at a time.
+     */
+    private class StagePlacer implements Operation {
+        private final BlockStage stage;
+        private int[] slots;
+        private int index = 0;
+
+        private StagePlacer(BlockStage stage) {
+            this.stage = stage;
+        }
 
         @Override
         public Operation resume(RunContext run) throws WorldEditException {
+            if (slots == null) {
+                slots = stage.getSortedSlots();
+            }
+
             Extent extent = getExtent();
 
-            final Set<BlockVector> blocks = new HashSet<BlockVector>();
-            final Map<BlockVector, BaseBlock> blockTypes = new HashMap<BlockVector, BaseBlock>();
-            for (Map.Entry<BlockVector, BaseBlock> entry : stage3) {
-                final BlockVector pt = entry.getKey();
-                blocks.add(pt);
-                blockTypes.put(pt, entry.getValue());
+            while (index < slots.length) {
+                long first = stage.getKey(slots[index]);
+                int x = BlockStage.getX(first);
+                int y = BlockStage.getY(first);
+                int z = BlockStage.getZ(first);
+                BlockBatch batch = new BlockBatch(x >> 4, y >> 4, z >> 4);
+
+                while (index < slots.length) {
+                    int slot = slots[index];
+                    long key = stage.getKey(slot);
+                    x = BlockStage.getX(key);
+                    y = BlockStage.getY(key);
+                    z = BlockStage.getZ(key);
+                    if (!batch.contains(x, y, z)) {
+                        break;
+                    }
+                    batch.add(x, y, z, stage.getBlock(slot));
+                    index++;
+                }
+
+                extent.setBlocks(batch);
+
+                if (!run.shouldContinue()) {
+                    return this;
+                }
             }
 
-            while (!blocks.isEmpty()) {
-                BlockVector current = blocks.iterator().next();
-                if (!blocks.contains(current)) {
+            return null;
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+
+    private class Stage3Committer implements Operation {
+
+        @Override
+        public Operation resume(RunContext run) throws WorldEditException {
+            Extent extent = getExtent();
+            BlockStage blocks = stage3;
+            int count = blocks.size();
+
+            // Per slot: whether the block has been placed, and the walk that
+            // last visited it so that a walk can be tested for cycles
+            boolean[] placed = new boolean[count];
+            int[] walkedBy = new int[count];
+            int[] walked = new int[16];
+            int walk = 0;
+
+            for (int start : blocks.getSortedSlots()) {
+                if (placed[start]) {
                     continue;
                 }
 
-                final Deque<BlockVector> walked = new LinkedList<BlockVector>();
+                walk++;
+                int walkedCount = 0;
+                int current = start;
 
                 while (true) {
-                    walked.addFirst(current);
+                    walked = push(walked, walkedCount++, current);
+                    walkedBy[current] = walk;
 
-                    assert (blockTypes.containsKey(current));
-
-                    final BaseBlock baseBlock = blockTypes.get(current);
+                    final long key = blocks.getKey(current);
+                    final BaseBlock baseBlock = blocks.getBlock(current);
 
                     final int type = baseBlock.getType();
                     final int data = baseBlock.getData();
+                    final int x = BlockStage.getX(key);
+                    final int y = BlockStage.getY(key);
+                    final int z = BlockStage.getZ(key);
 
                     switch (type) {
                         case BlockID.WOODEN_DOOR:
                         case BlockID.IRON_DOOR:
                             if ((data & 0x8) == 0) {
                                 // Deal with lower door halves being attached to the floor AND the upper half
-                                BlockVector upperBlock = current.add(0, 1, 0).toBlockVector();
-                                if (blocks.contains(upperBlock) && !walked.contains(upperBlock)) {
-                                    walked.addFirst(upperBlock);
+                                int upperBlock = find(blocks, placed, x, y + 1, z);
+                                if (upperBlock >= 0 && walkedBy[upperBlock] != walk) {
+                                    walked = push(walked, walkedCount++, upperBlock);
+                                    walkedBy[upperBlock] = walk;
                                 }
                             }
                             break;
@@ -170,9 +283,10 @@ public Operation resume(RunContext run) throws WorldEditException {
                         case BlockID.ACTIVATOR_RAIL:
                             // Here, rails are hardcoded to be attached to the block below them.
                             // They're also attached to the block they're ascending towards via BlockType.getAttachment.
-                            BlockVector lowerBlock = current.add(0, -1, 0).toBlockVector();
-                            if (blocks.contains(lowerBlock) && !walked.contains(lowerBlock)) {
-                                walked.addFirst(lowerBlock);
+                            int lowerBlock = find(blocks, placed, x, y - 1, z);
+                            if (lowerBlock >= 0 && walkedBy[lowerBlock] != walk) {
+                                walked = push(walked, walkedCount++, lowerBlock);
+                                walkedBy[lowerBlock] = walk;
                             }
                             break;
                     }
@@ -183,22 +297,26 @@ public Operation resume(RunContext run) throws WorldEditException {
                         break;
                     }
 
-                    current = current.add(attachment.vector()).toBlockVector();
+                    Vector offset = attachment.vector();
+                    current = find(blocks, placed, x + offset.getBlockX(), y + offset.getBlockY(), z + offset.getBlockZ());
 
-                    if (!blocks.contains(current)) {
+                    if (current < 0) {
                         // We ran outside the remaining set => assume we can place blocks on this
                         break;
                     }
 
-                    if (walked.contains(current)) {
+                    if (walkedBy[current] == walk) {
                         // Cycle detected => This will most likely go wrong, but there's nothing we can do about it.
                         break;
                     }
                 }
 
-                for (BlockVector pt : walked) {
-                    extent.setBlock(pt, blockTypes.get(pt));
-                    blocks.remove(pt);
+                // Place the blocks that were walked last first
+                for (int i = walkedCount - 1; i >= 0; i--) {
+                    int slot = walked[i];
+                    long key = blocks.getKey(slot);
+                    extent.setBlock(new BlockVector(BlockStage.getX(key), BlockStage.getY(key), BlockStage.getZ(key)), blocks.getBlock(slot));
+                    placed[slot] = true;
                 }
             }
 
@@ -215,4 +333,32 @@ public void cancel() {
 
     }
 
+    /**
+     * Find the slot of a block that has not been placed yet.
+     *
+     * @param stage the stage
+     * @param placed whether each slot has been placed
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return the slot, or -1 if there is no unplaced block at the position
+     */
+    private static int find(BlockStage stage, boolean[] placed, int x, int y, int z) {
+        if (!BlockStage.fits(x, y, z)) {
+            return -1;
+        }
+        int slot = stage.indexOf(BlockStage.pack(x, y, z));
+        return slot >= 0 && !placed[slot] ? slot : -1;
+    }
+
+    private static int[] push(int[] array, int index, int value) {
+        if (index == array.length) {
+            int[] larger = new int[array.length * 2];
+            System.arraycopy(array, 0, larger, 0, index);
+            array = larger;
+        }
+        array[index] = value;
+        return array;
+    }
+
 }
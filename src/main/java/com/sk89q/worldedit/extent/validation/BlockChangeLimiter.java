@@ -24,6 +24,7 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.extent.Extent;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -86,4 +87,23 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         }
         return super.setBlock(location, block);
     }
+
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        if (limit >= 0) {
+            int allowed = limit - count;
+            if (allowed < batch.size()) {
+                // Apply what is still allowed before failing, as would
+                // happen if every block was set one by one
+                batch.truncate(Math.max(0, allowed));
+                count = Math.max(count, limit);
+                if (!batch.isEmpty()) {
+                    getExtent().setBlocks(batch);
+                }
+                throw new MaxChangedBlocksException(limit);
+            }
+            count += batch.size();
+        }
+        return getExtent().setBlocks(batch);
+    }
 }
@@ -23,6 +23,7 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.world.World;
 
@@ -67,6 +68,25 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         return super.setBlock(location, block);
     }
 
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        int maxY = world.getMaxY();
+
+        for (int i = 0; i < batch.size(); i++) {
+            BaseBlock block = batch.getBlock(i);
+            int y = batch.getY(i);
+
+            if (y < 0 || y > maxY || !world.isValidBlockType(block.getType())) {
+                batch.remove(i);
+            } else if (block.getData() < 0) {
+                throw new SevereValidationException("Cannot set a data value that is less than 0");
+            }
+        }
+
+        batch.compact();
+        return batch.isEmpty() ? 0 : getExtent().setBlocks(batch);
+    }
+
     private static class SevereValidationException extends WorldEditException {
         private SevereValidationException(String message) {
             super(message);
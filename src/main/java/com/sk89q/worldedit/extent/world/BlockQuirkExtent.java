@@ -25,6 +25,7 @@
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.blocks.BlockType;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.world.World;
 
@@ -52,6 +53,25 @@ public BlockQuirkExtent(Extent extent, World world) {
 
     @Override
     public boolean setBlock(Vector position, BaseBlock block) throws WorldEditException {
+        prepare(position);
+        return super.setBlock(position, block);
+    }
+
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        for (int i = 0; i < batch.size(); i++) {
+            prepare(batch.toVector(i));
+        }
+        return getExtent().setBlocks(batch);
+    }
+
+    /**
+     * Deal with the block that is about to be replaced at the given position.
+     *
+     * @param position the position
+     * @throws WorldEditException thrown on an error
+     */
+    private void prepare(Vector position) throws WorldEditException {
         BaseBlock lazyBlock = getExtent().getLazyBlock(position);
         int existing = lazyBlock.getType();
 
@@ -60,8 +80,6 @@ public boolean setBlock(Vector position, BaseBlock block) throws WorldEditExcept
         } else if (existing == BlockID.ICE) {
             world.setBlock(position, new BaseBlock(BlockID.AIR)); // Ice turns until water so this has to be done first
         }
-
-        return super.setBlock(position, block);
     }
 
 }
@@ -20,21 +20,62 @@
 package com.sk89q.worldedit.extent.world;
 
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.OperationScheduler;
+import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.World;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Automatically loads chunks when blocks are accessed.
+ *
+ * <p>If the chunks that an edit will touch are known ahead of time, they
+ * can be passed to {@link #preload(Region, OperationScheduler)} so that a
+ * {@link ChunkPreloader} loads them on the scheduler before the edit gets
+ * to them. This only helps if the scheduler keeps running while the edit
+ * is made, which is the case when the edit is computed on another thread
+ * and its changes are applied by the scheduler. A chunk that has not been
+ * loaded yet by the time it is accessed is still loaded right away.</p>
  */
 public class ChunkLoadingExtent extends AbstractDelegateExtent {
 
+    /**
+     * Orders chunks by Z and then X, which is the order that region
+     * visitors go through a cuboid.
+     */
+    private static final Comparator<Vector2D> VISIT_ORDER = new Comparator<Vector2D>() {
+        @Override
+        public int compare(Vector2D o1, Vector2D o2) {
+            int z = o1.getBlockZ() < o2.getBlockZ() ? -1 : o1.getBlockZ() > o2.getBlockZ() ? 1 : 0;
+            if (z != 0) {
+                return z;
+            }
+            return o1.getBlockX() < o2.getBlockX() ? -1 : o1.getBlockX() > o2.getBlockX() ? 1 : 0;
+        }
+    };
+
     private final World world;
     private boolean enabled;
+    private final Set<Long> chunks = new HashSet<Long>();
+    private long lastChunk;
+    private int preloadAhead = 0;
+    private volatile @Nullable ChunkPreloader preloader;
 
     /**
      * Create a new instance.
@@ -60,9 +101,130 @@ public ChunkLoadingExtent(Extent extent, World world) {
         this(extent, world, true);
     }
 
+    /**
+     * Get the number of distinct chunks that have been written to.
+     *
+     * @return the number of chunks
+     */
+    public long getChunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * Get the number of chunks that are loaded ahead of an edit.
+     *
+     * @return the number of chunks, or 0 if chunks are not preloaded
+     */
+    public int getPreloadAhead() {
+        return preloadAhead;
+    }
+
+    /**
+     * Set the number of chunks that are loaded ahead of an edit.
+     *
+     * @param preloadAhead the number of chunks, or 0 to not preload chunks
+     */
+    public void setPreloadAhead(int preloadAhead) {
+        checkArgument(preloadAhead >= 0, "preloadAhead >= 0");
+        this.preloadAhead = preloadAhead;
+    }
+
+    /**
+     * Announce the region that the next edit will change, so that its
+     * chunks are loaded on the given scheduler before they are accessed.
+     *
+     * <p>Chunks are loaded in the order that region visitors go through
+     * a cuboid. Preloading from an earlier call is cancelled. Nothing
+     * happens if preloading is disabled.</p>
+     *
+     * @param region the region
+     * @param scheduler the scheduler that runs the loads
+     */
+    public void preload(Region region, OperationScheduler scheduler) {
+        checkNotNull(region);
+        List<Vector2D> chunks = new ArrayList<Vector2D>(region.getChunks());
+        Collections.sort(chunks, VISIT_ORDER);
+        preload(chunks, scheduler);
+    }
+
+    /**
+     * Announce the chunks that the next edit will change, in the order
+     * that it will reach them, so that they are loaded on the given
+     * scheduler before they are accessed.
+     *
+     * <p>Preloading from an earlier call is cancelled. Nothing happens if
+     * preloading is disabled.</p>
+     *
+     * @param chunks the chunks
+     * @param scheduler the scheduler that runs the loads
+     */
+    public void preload(Iterable<? extends Vector2D> chunks, OperationScheduler scheduler) {
+        checkNotNull(chunks);
+        checkNotNull(scheduler);
+        cancelPreload();
+        if (enabled && preloadAhead > 0) {
+            ChunkPreloader preloader = new ChunkPreloader(world, chunks, preloadAhead);
+            this.preloader = preloader;
+            scheduler.submit(preloader);
+        }
+    }
+
+    private void cancelPreload() {
+        ChunkPreloader preloader = this.preloader;
+        if (preloader != null) {
+            preloader.cancel();
+            this.preloader = null;
+        }
+    }
+
+    private void advancePreloader(int chunkX, int chunkZ) {
+        ChunkPreloader preloader = this.preloader;
+        if (preloader != null) {
+            preloader.reached(chunkX, chunkZ);
+        }
+    }
+
+    private void reached(int chunkX, int chunkZ) {
+        long key = (long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL);
+        // Writes tend to stay in one chunk for a while
+        if (chunks.isEmpty() || key != lastChunk) {
+            lastChunk = key;
+            chunks.add(key);
+        }
+    }
+
+    @Override
+    public BaseBlock getBlock(Vector position) {
+        advancePreloader(position.getBlockX() >> 4, position.getBlockZ() >> 4);
+        return super.getBlock(position);
+    }
+
+    @Override
+    public BaseBlock getLazyBlock(Vector position) {
+        advancePreloader(position.getBlockX() >> 4, position.getBlockZ() >> 4);
+        return super.getLazyBlock(position);
+    }
+
     @Override
     public boolean setBlock(Vector location, BaseBlock block) throws WorldEditException {
+        advancePreloader(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        reached(location.getBlockX() >> 4, location.getBlockZ() >> 4);
         world.checkLoadedChunk(location);
         return super.setBlock(location, block);
     }
+
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        advancePreloader(batch.getChunkX(), batch.getChunkZ());
+        reached(batch.getChunkX(), batch.getChunkZ());
+        world.checkLoadedChunk(new Vector(batch.getChunkX() << 4, batch.getSectionY() << 4, batch.getChunkZ() << 4));
+        return getExtent().setBlocks(batch);
+    }
+
+    @Override
+    protected Operation commitBefore() {
+        // The edit is over, so the chunks ahead of it are no longer needed
+        cancelPreload();
+        return super.commitBefore();
+    }
 }
@@ -0,0 +1,196 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.world;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.BlockBatch;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.OperationScheduler;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.world.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Loads chunks ahead of an edit that goes through them in a known order.
+ *
+ * <p>The preloader is an operation that is run by an
+ * {@link OperationScheduler} on the main thread. Every tick, it loads the
+ * next chunks, up to a fixed number ahead of the last chunk that the edit
+ * has reached, until the scheduler's budget is used up. Chunks are loaded
+ * in the background if the world supports it, and otherwise on the main
+ * thread. The edit itself only has to load a chunk if it gets there
+ * before the preloader does.</p>
+ *
+ * <p>Apart from {@link #cancel()}, this class must only be used from the
+ * thread running the scheduler.</p>
+ */
+class ChunkPreloader implements Operation {
+
+    private final World world;
+    private final long[] chunks;
+    private final Map<Long, Integer> indexes = new HashMap<Long, Integer>();
+    private final List<ListenableFuture<?>> requests = new ArrayList<ListenableFuture<?>>();
+    private final int ahead;
+    private int reached = -1;
+    private int loaded = 0;
+    private long lastKey;
+    private boolean hasLast = false;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Create a new preloader.
+     *
+     * @param world the world
+     * @param chunks the chunks that the edit will go through, in the order that it will reach them
+     * @param ahead the number of chunks to load ahead of the edit
+     */
+    ChunkPreloader(World world, Iterable<? extends Vector2D> chunks, int ahead) {
+        checkNotNull(world);
+        checkNotNull(chunks);
+        checkArgument(ahead >= 1, "ahead >= 1");
+        this.world = world;
+        this.ahead = ahead;
+
+        List<Long> keys = new ArrayList<Long>();
+        for (Vector2D chunk : chunks) {
+            long key = toKey(chunk.getBlockX(), chunk.getBlockZ());
+            if (!indexes.containsKey(key)) {
+                indexes.put(key, keys.size());
+                keys.add(key);
+            }
+        }
+
+        this.chunks = new long[keys.size()];
+        for (int i = 0; i < this.chunks.length; i++) {
+            this.chunks[i] = keys.get(i);
+        }
+    }
+
+    /**
+     * Get the number of chunks that will be preloaded.
+     *
+     * @return the number of chunks
+     */
+    int getChunkCount() {
+        return chunks.length;
+    }
+
+    /**
+     * Get the number of chunks that have been loaded or requested so far.
+     *
+     * @return the number of chunks
+     */
+    int getLoadedCount() {
+        return loaded;
+    }
+
+    /**
+     * Let the preloader know that the edit has reached the given chunk.
+     *
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     */
+    void reached(int chunkX, int chunkZ) {
+        long key = toKey(chunkX, chunkZ);
+        if (hasLast && key == lastKey) {
+            return;
+        }
+        lastKey = key;
+        hasLast = true;
+
+        Integer index = indexes.get(key);
+        if (index != null && index > reached) {
+            reached = index;
+            // Anything before this chunk is no longer worth loading
+            loaded = Math.max(loaded, index + 1);
+        }
+    }
+
+    @Override
+    public Operation resume(RunContext run) throws WorldEditException {
+        while (!cancelled && loaded < chunks.length) {
+            if (loaded > reached + ahead) {
+                // Wait for the edit to catch up
+                return this;
+            }
+
+            if (!run.shouldContinue()) {
+                return this;
+            }
+
+            long key = chunks[loaded++];
+            BlockVector2D chunk = new BlockVector2D((int) (key >> 32), (int) key);
+            ListenableFuture<?> request = world.loadChunkAsync(chunk);
+            if (request != null) {
+                synchronized (requests) {
+                    requests.add(request);
+                }
+            } else {
+                world.checkLoadedChunk(new Vector(chunk.getBlockX() << 4, 0, chunk.getBlockZ() << 4));
+                if (!advance(run, BlockBatch.CAPACITY)) {
+                    return loaded < chunks.length ? this : null;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        synchronized (requests) {
+            for (ListenableFuture<?> request : requests) {
+                request.cancel(false);
+            }
+            requests.clear();
+        }
+    }
+
+    /**
+     * Take as many steps as reading a chunk section takes, so that the
+     * scheduler's clock is checked often enough while loading chunks on
+     * the main thread.
+     */
+    private static boolean advance(RunContext run, int steps) {
+        for (int i = 0; i < steps; i++) {
+            if (!run.shouldContinue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long toKey(int chunkX, int chunkZ) {
+        return (long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL);
+    }
+
+}
@@ -0,0 +1,713 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.world;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.blocks.LazyBlock;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extent.BlockBatch;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.OperationScheduler;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.biome.BaseBiome;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Lets an edit be computed on a worker thread while the extent below is
+ * only ever read and changed on the thread running an
+ * {@link OperationScheduler} (the main thread).
+ *
+ * <p>Until {@link #deferTo(OperationScheduler)} is called, this extent
+ * passes everything straight through. Afterwards, blocks are read from a
+ * copy of each 16x16x16 chunk section that is taken on the main thread the
+ * first time the section is needed. The six neighbouring sections are
+ * requested at the same time, and when the worker keeps moving from section
+ * to section in one direction, up to {@link #MAX_READ_AHEAD} sections
+ * further along that direction are requested as well, so they are usually
+ * ready by the time the worker reaches them. Each copy is taken within a single tick, so it is
+ * consistent with itself, but different sections may be copied in
+ * different ticks.</p>
+ *
+ * <p>Changes update the copy, so that the worker sees its own changes, and
+ * are queued as {@link BlockBatch}es that are passed to the extent below
+ * within the scheduler's tick budget. A batch is closed as soon as a change
+ * is made to another section, so changes are applied in the order that
+ * they were made. Once {@link #finish()} has been
+ * called and the queue is empty, the extent below is committed on the
+ * main thread as well. Entity and biome calls are run on the main thread
+ * while the worker waits.</p>
+ *
+ * <p>The copies are kept until the edit is finished, so the memory used
+ * grows with the number of sections that the edit touches.</p>
+ */
+public class DeferredApplyExtent implements Extent {
+
+    private static final int[][] NEIGHBOURS = {
+            { 1, 0, 0 }, { -1, 0, 0 }, { 0, 1, 0 }, { 0, -1, 0 }, { 0, 0, 1 }, { 0, 0, -1 }
+    };
+
+    /**
+     * The greatest number of sections that are requested ahead of the
+     * worker in the direction that it is moving in.
+     */
+    public static final int MAX_READ_AHEAD = 8;
+
+    private final Extent extent;
+    private final Queue<FutureTask<?>> calls = new ConcurrentLinkedQueue<FutureTask<?>>();
+    private final Queue<BlockBatch> batches = new ConcurrentLinkedQueue<BlockBatch>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger applied = new AtomicInteger();
+    private volatile @Nullable OperationScheduler scheduler;
+    private volatile ListenableFuture<Operation> future;
+    private volatile boolean finished;
+    private volatile boolean cancelled;
+
+    // Only used by the worker
+    private final Map<Long, Section> sections = new HashMap<Long, Section>();
+    private @Nullable Section open;
+    private @Nullable Section last;
+    private int runX;
+    private int runY;
+    private int runZ;
+    private int run;
+    private int minY;
+    private int maxY;
+
+    /**
+     * Create a new instance.
+     *
+     * @param extent the extent
+     */
+    public DeferredApplyExtent(Extent extent) {
+        checkNotNull(extent);
+        this.extent = extent;
+    }
+
+    /**
+     * Get the extent that changes are applied to.
+     *
+     * @return the extent
+     */
+    public Extent getExtent() {
+        return extent;
+    }
+
+    /**
+     * Defer changes to the extent below to the given scheduler.
+     *
+     * <p>From now on, this extent must only be used from one thread (the
+     * worker), which should not be the thread running the scheduler.</p>
+     *
+     * @param scheduler the scheduler
+     * @return a future that completes once every change has been applied and the extent below has been committed
+     * @throws IllegalStateException if changes are already deferred
+     */
+    public synchronized ListenableFuture<Operation> deferTo(OperationScheduler scheduler) {
+        checkNotNull(scheduler);
+        checkState(future == null, "Changes are already deferred");
+        minY = extent.getMinimumPoint().getBlockY();
+        maxY = extent.getMaximumPoint().getBlockY();
+        this.scheduler = scheduler;
+        future = scheduler.submit(new Applier());
+        return future;
+    }
+
+    /**
+     * Get the scheduler that changes are deferred to.
+     *
+     * @return the scheduler, or null if changes are not deferred
+     */
+    @Nullable
+    public OperationScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Get whether changes are deferred.
+     *
+     * @return true if deferred
+     */
+    public boolean isDeferred() {
+        return future != null;
+    }
+
+    /**
+     * Mark the edit as finished, queueing any remaining changes. Once those
+     * have been applied, the extent below is committed.
+     *
+     * <p>This must be called from the worker.</p>
+     */
+    public void finish() {
+        checkState(isDeferred(), "Changes are not deferred");
+        flushOpen();
+        finished = true;
+    }
+
+    /**
+     * Stop applying changes. Changes that have not been applied yet are
+     * discarded, and the worker fails with a {@link CancellationException}
+     * the next time it uses this extent.
+     *
+     * <p>This may be called from any thread.</p>
+     */
+    public void cancel() {
+        cancelled = true;
+        ListenableFuture<Operation> future = this.future;
+        if (future != null) {
+            future.cancel(false);
+        }
+        discardPending();
+    }
+
+    /**
+     * Get whether {@link #cancel()} has been called or applying changes
+     * has failed.
+     *
+     * @return true if cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Get whether {@link #finish()} has been called.
+     *
+     * @return true if finished
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Get the number of changes that are waiting to be applied.
+     *
+     * @return the number of changes
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * Get the number of changes that have been applied.
+     *
+     * @return the number of changes
+     */
+    public int getAppliedCount() {
+        return applied.get();
+    }
+
+    @Override
+    public BaseBlock getBlock(Vector position) {
+        if (!isDeferred()) {
+            return extent.getBlock(position);
+        }
+
+        checkCancelled();
+        int x = position.getBlockX();
+        int y = position.getBlockY();
+        int z = position.getBlockZ();
+        if (y < minY || y > maxY) {
+            return new BaseBlock(BlockID.AIR);
+        }
+        return getSection(x >> 4, y >> 4, z >> 4).get(BlockBatch.toLocalIndex(x, y, z));
+    }
+
+    @Override
+    public BaseBlock getLazyBlock(Vector position) {
+        if (!isDeferred()) {
+            return extent.getLazyBlock(position);
+        }
+        return getBlock(position);
+    }
+
+    @Override
+    public boolean setBlock(Vector position, BaseBlock block) throws WorldEditException {
+        if (!isDeferred()) {
+            return extent.setBlock(position, block);
+        }
+
+        checkCancelled();
+        int x = position.getBlockX();
+        int y = position.getBlockY();
+        int z = position.getBlockZ();
+        if (y < minY || y > maxY) {
+            return false;
+        }
+
+        Section section = getSection(x >> 4, y >> 4, z >> 4);
+        int index = BlockBatch.toLocalIndex(x, y, z);
+        if (!section.set(index, block)) {
+            return false;
+        }
+
+        // Batches are queued in the order that their blocks were written in,
+        // so the order produced by the extents above (such as placing
+        // attached blocks last) is kept
+        if (section != open) {
+            flushOpen();
+            section.batch = new BlockBatch(section.chunkX, section.sectionY, section.chunkZ);
+            open = section;
+        }
+
+        section.batch.addLocal(index, detach(block));
+
+        if (section.batch.isFull()) {
+            flushOpen();
+        }
+
+        return true;
+    }
+
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        if (!isDeferred()) {
+            return extent.setBlocks(batch);
+        }
+
+        checkCancelled();
+        int sectionY = batch.getSectionY();
+        if (batch.isEmpty() || sectionY < minY >> 4 || sectionY > maxY >> 4) {
+            return 0;
+        }
+
+        Section section = getSection(batch.getChunkX(), sectionY, batch.getChunkZ());
+
+        // Changes made with setBlock() have to be applied first
+        flushOpen();
+
+        BlockBatch copy = new BlockBatch(batch.getChunkX(), sectionY, batch.getChunkZ(), batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            BaseBlock block = batch.getBlock(i);
+            if (block != null) {
+                int index = batch.getLocalIndex(i);
+                if (section.set(index, block)) {
+                    copy.addLocal(index, detach(block));
+                }
+            }
+        }
+
+        if (!copy.isEmpty()) {
+            offer(copy);
+        }
+
+        return copy.size();
+    }
+
+    @Override
+    public List<? extends Entity> getEntities(final Region region) {
+        if (!isDeferred()) {
+            return extent.getEntities(region);
+        }
+
+        return callOnMainThread(new Callable<List<? extends Entity>>() {
+            @Override
+            public List<? extends Entity> call() throws Exception {
+                return extent.getEntities(region);
+            }
+        });
+    }
+
+    @Override
+    public List<? extends Entity> getEntities() {
+        if (!isDeferred()) {
+            return extent.getEntities();
+        }
+
+        return callOnMainThread(new Callable<List<? extends Entity>>() {
+            @Override
+            public List<? extends Entity> call() throws Exception {
+                return extent.getEntities();
+            }
+        });
+    }
+
+    @Override
+    @Nullable
+    public Entity createEntity(final Location location, final BaseEntity entity) {
+        if (!isDeferred()) {
+            return extent.createEntity(location, entity);
+        }
+
+        return callOnMainThread(new Callable<Entity>() {
+            @Override
+            public Entity call() throws Exception {
+                return extent.createEntity(location, entity);
+            }
+        });
+    }
+
+    @Override
+    public BaseBiome getBiome(final Vector2D position) {
+        if (!isDeferred()) {
+            return extent.getBiome(position);
+        }
+
+        return callOnMainThread(new Callable<BaseBiome>() {
+            @Override
+            public BaseBiome call() throws Exception {
+                return extent.getBiome(position);
+            }
+        });
+    }
+
+    @Override
+    public boolean setBiome(final Vector2D position, final BaseBiome biome) {
+        if (!isDeferred()) {
+            return extent.setBiome(position, biome);
+        }
+
+        return callOnMainThread(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return extent.setBiome(position, biome);
+            }
+        });
+    }
+
+    @Override
+    public Vector getMinimumPoint() {
+        return extent.getMinimumPoint();
+    }
+
+    @Override
+    public Vector getMaximumPoint() {
+        return extent.getMaximumPoint();
+    }
+
+    @Override
+    public @Nullable Operation commit() {
+        if (!isDeferred()) {
+            return extent.commit();
+        }
+
+        // The extent below is committed on the main thread after finish()
+        flushOpen();
+        return null;
+    }
+
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("The edit was cancelled");
+        }
+    }
+
+    /**
+     * Get a section, waiting for it to be read if necessary.
+     */
+    private Section getSection(int chunkX, int sectionY, int chunkZ) {
+        Section section = request(chunkX, sectionY, chunkZ);
+
+        if (section != last) {
+            readAhead(last, section);
+            last = section;
+        }
+
+        if (!section.loaded) {
+            if (!section.neighboursRequested) {
+                section.neighboursRequested = true;
+                for (int[] offset : NEIGHBOURS) {
+                    int y = sectionY + offset[1];
+                    if (y >= minY >> 4 && y <= maxY >> 4) {
+                        request(chunkX + offset[0], y, chunkZ + offset[2]);
+                    }
+                }
+            }
+
+            await(section.read);
+            section.loaded = true;
+        }
+
+        return section;
+    }
+
+    /**
+     * Request the sections ahead of the worker if it has moved to the
+     * section next to the last one in the same direction as before. The
+     * more moves in a row, the further ahead sections are requested.
+     */
+    private void readAhead(@Nullable Section from, Section to) {
+        if (from == null) {
+            return;
+        }
+
+        int dx = to.chunkX - from.chunkX;
+        int dy = to.sectionY - from.sectionY;
+        int dz = to.chunkZ - from.chunkZ;
+        if (Math.abs(dx) + Math.abs(dy) + Math.abs(dz) != 1) {
+            run = 0;
+            return;
+        }
+
+        if (dx == runX && dy == runY && dz == runZ) {
+            run++;
+        } else {
+            runX = dx;
+            runY = dy;
+            runZ = dz;
+            run = 1;
+        }
+
+        int ahead = Math.min(run * 2, MAX_READ_AHEAD);
+        for (int i = 1; i <= ahead; i++) {
+            int y = to.sectionY + dy * i;
+            if (y < minY >> 4 || y > maxY >> 4) {
+                break;
+            }
+            request(to.chunkX + dx * i, y, to.chunkZ + dz * i);
+        }
+    }
+
+    /**
+     * Get a section, queueing it to be read if it hasn't been already.
+     */
+    private Section request(int chunkX, int sectionY, int chunkZ) {
+        long key = (long) chunkX << 36 | (chunkZ & 0xFFFFFFFL) << 8 | (sectionY & 0xFF);
+        Section section = sections.get(key);
+        if (section == null) {
+            section = new Section(chunkX, sectionY, chunkZ);
+            section.read = submit(new FutureTask<Void>(new SectionRead(section), null));
+            sections.put(key, section);
+        }
+        return section;
+    }
+
+    private void flushOpen() {
+        if (open != null) {
+            offer(open.batch);
+            open.batch = null;
+            open = null;
+        }
+    }
+
+    private void offer(BlockBatch batch) {
+        queued.addAndGet(batch.size());
+        batches.offer(batch);
+    }
+
+    private <T> T callOnMainThread(Callable<T> callable) {
+        checkCancelled();
+        return await(submit(new FutureTask<T>(callable)));
+    }
+
+    private <T> FutureTask<T> submit(FutureTask<T> task) {
+        calls.offer(task);
+        if (cancelled) {
+            task.cancel(false);
+        }
+        return task;
+    }
+
+    private void discardPending() {
+        FutureTask<?> call;
+        while ((call = calls.poll()) != null) {
+            call.cancel(false);
+        }
+        batches.clear();
+        queued.set(0);
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the main thread");
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Make sure that a block can be used on another thread without calling
+     * back into the extent it came from.
+     */
+    private static BaseBlock detach(BaseBlock block) {
+        if (block instanceof LazyBlock) {
+            return new BaseBlock(block.getId(), block.getData(), block.getNbtData());
+        } else {
+            return block;
+        }
+    }
+
+    /**
+     * The worker's copy of a chunk section.
+     */
+    private static final class Section {
+        private final int chunkX;
+        private final int sectionY;
+        private final int chunkZ;
+        private final char[] blocks = new char[BlockBatch.CAPACITY];
+        private @Nullable Map<Integer, BaseBlock> tiles;
+        private FutureTask<Void> read;
+        private boolean loaded;
+        private boolean neighboursRequested;
+        private @Nullable BlockBatch batch;
+
+        private Section(int chunkX, int sectionY, int chunkZ) {
+            this.chunkX = chunkX;
+            this.sectionY = sectionY;
+            this.chunkZ = chunkZ;
+        }
+
+        private BaseBlock get(int index) {
+            BaseBlock tile = tiles != null ? tiles.get(index) : null;
+            if (tile != null) {
+                return new BaseBlock(tile);
+            }
+            char value = blocks[index];
+            return new BaseBlock(value >> 4, value & 0xF);
+        }
+
+        /**
+         * Store a block, returning whether it differs from the one before.
+         */
+        private boolean set(int index, BaseBlock block) {
+            char value = (char) (block.getType() << 4 | block.getData());
+            boolean hadTile = tiles != null && tiles.remove(index) != null;
+            boolean hasTile = block.hasNbtData();
+            boolean changed = blocks[index] != value || hadTile || hasTile;
+            blocks[index] = value;
+            if (hasTile) {
+                if (tiles == null) {
+                    tiles = new HashMap<Integer, BaseBlock>();
+                }
+                tiles.put(index, new BaseBlock(block));
+            }
+            return changed;
+        }
+    }
+
+    /**
+     * Copies a section from the extent below on the main thread.
+     */
+    private final class SectionRead implements Runnable {
+        private final Section section;
+
+        private SectionRead(Section section) {
+            this.section = section;
+        }
+
+        @Override
+        public void run() {
+            int baseX = section.chunkX << 4;
+            int baseY = section.sectionY << 4;
+            int baseZ = section.chunkZ << 4;
+            for (int i = 0; i < BlockBatch.CAPACITY; i++) {
+                BaseBlock block = extent.getBlock(new BlockVector(baseX + (i & 15), baseY + (i >> 8), baseZ + (i >> 4 & 15)));
+                section.blocks[i] = (char) (block.getType() << 4 | block.getData());
+                if (block.hasNbtData()) {
+                    if (section.tiles == null) {
+                        section.tiles = new HashMap<Integer, BaseBlock>();
+                    }
+                    section.tiles.put(i, block);
+                }
+            }
+        }
+    }
+
+    /**
+     * Serves the worker's requests and applies queued changes on the
+     * main thread.
+     */
+    private final class Applier implements Operation {
+        @Override
+        public Operation resume(RunContext run) throws WorldEditException {
+            try {
+                // The worker may be waiting on these
+                FutureTask<?> call;
+                while ((call = calls.poll()) != null) {
+                    call.run();
+                    if (!advance(run, BlockBatch.CAPACITY)) {
+                        return this;
+                    }
+                }
+
+                BlockBatch batch;
+                while ((batch = batches.poll()) != null) {
+                    int size = batch.size();
+                    extent.setBlocks(batch);
+                    queued.addAndGet(-size);
+                    applied.addAndGet(size);
+                    if (!advance(run, size)) {
+                        return this;
+                    }
+                }
+            } catch (WorldEditException e) {
+                cancel();
+                throw e;
+            } catch (RuntimeException e) {
+                cancel();
+                throw e;
+            }
+
+            if (finished && batches.isEmpty()) {
+                return extent.commit();
+            } else {
+                return this;
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            discardPending();
+        }
+
+        /**
+         * Take one step per block so that the scheduler's clock is checked
+         * often enough.
+         */
+        private boolean advance(RunContext run, int steps) {
+            for (int i = 0; i < steps; i++) {
+                if (!run.shouldContinue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
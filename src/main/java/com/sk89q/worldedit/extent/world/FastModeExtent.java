@@ -24,6 +24,7 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.world.World;
@@ -92,6 +93,16 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         }
     }
 
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        if (enabled) {
+            dirtyChunks.add(new BlockVector2D(batch.getChunkX(), batch.getChunkZ()));
+            return world.setBlocks(batch, false);
+        } else {
+            return world.setBlocks(batch, true);
+        }
+    }
+
     @Override
     protected Operation commitBefore() {
         return new Operation() {
@@ -24,6 +24,7 @@
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.world.World;
 
@@ -89,4 +90,22 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         }
     }
 
+    @Override
+    public int setBlocks(BlockBatch batch) throws WorldEditException {
+        if (!toolUse) {
+            return getExtent().setBlocks(batch);
+        }
+
+        int mined = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.getBlock(i).getType() == BlockID.AIR) {
+                world.simulateBlockMine(batch.toVector(i));
+                batch.remove(i);
+                mined++;
+            }
+        }
+        batch.compact();
+        return mined + (batch.isEmpty() ? 0 : getExtent().setBlocks(batch));
+    }
+
 }
@@ -0,0 +1,196 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.block;
+
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.util.Countable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Counts blocks by type and data value into a primitive array.
+ *
+ * <p>Blocks are identified by their state, which is
+ * {@code type << 4 | data}. Instances are not thread safe.</p>
+ */
+public class BlockDistribution {
+
+    /**
+     * The number of distinct states.
+     */
+    public static final int STATES = (BaseBlock.MAX_ID + 1) << 4;
+
+    private final int[] counts = new int[STATES];
+    private long total;
+
+    /**
+     * Get the state of a type and data value.
+     *
+     * @param type the type ID
+     * @param data the data value
+     * @return the state
+     */
+    public static int toState(int type, int data) {
+        return type << 4 | (data & 15);
+    }
+
+    /**
+     * Count one block.
+     *
+     * @param type the type ID
+     * @param data the data value
+     */
+    public void add(int type, int data) {
+        counts[toState(type, data)]++;
+        total++;
+    }
+
+    /**
+     * Count a number of blocks given by their states.
+     *
+     * @param states an array of states
+     * @param length the number of states to count from the start of the array
+     */
+    public void addAll(char[] states, int length) {
+        checkNotNull(states);
+        int[] counts = this.counts;
+        for (int i = 0; i < length; i++) {
+            counts[states[i]]++;
+        }
+        total += length;
+    }
+
+    /**
+     * Add the counts of another distribution to this one.
+     *
+     * @param other the other distribution
+     */
+    public void addAll(BlockDistribution other) {
+        checkNotNull(other);
+        for (int i = 0; i < STATES; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * Get the number of blocks that have been counted.
+     *
+     * @return the number of blocks
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Get the number of blocks of a type, regardless of data value.
+     *
+     * @param type the type ID
+     * @return the number of blocks
+     */
+    public int getCount(int type) {
+        int count = 0;
+        int state = type << 4;
+        for (int i = 0; i < 16; i++) {
+            count += counts[state + i];
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of blocks of a type and data value.
+     *
+     * @param type the type ID
+     * @param data the data value
+     * @return the number of blocks
+     */
+    public int getCount(int type, int data) {
+        return counts[toState(type, data)];
+    }
+
+    /**
+     * Get the number of blocks that match any of the given blocks. A data
+     * value of -1 matches any data value.
+     *
+     * @param blocks the blocks to match
+     * @return the number of blocks
+     */
+    public int getCount(Set<BaseBlock> blocks) {
+        checkNotNull(blocks);
+        boolean[] matched = new boolean[STATES];
+        for (BaseBlock block : blocks) {
+            int state = block.getType() << 4;
+            if (block.getData() == -1) {
+                for (int i = 0; i < 16; i++) {
+                    matched[state + i] = true;
+                }
+            } else {
+                matched[state + block.getData()] = true;
+            }
+        }
+
+        int count = 0;
+        for (int i = 0; i < STATES; i++) {
+            if (matched[i]) {
+                count += counts[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the counted types, ordered by increasing amount.
+     *
+     * @return a list of counts
+     */
+    public List<Countable<Integer>> getDistribution() {
+        List<Countable<Integer>> distribution = new ArrayList<Countable<Integer>>();
+        for (int type = 0; type <= BaseBlock.MAX_ID; type++) {
+            int count = getCount(type);
+            if (count > 0) {
+                distribution.add(new Countable<Integer>(type, count));
+            }
+        }
+        Collections.sort(distribution);
+        return distribution;
+    }
+
+    /**
+     * Get the counted types and data values, ordered by increasing amount.
+     *
+     * @return a list of counts
+     */
+    public List<Countable<BaseBlock>> getDistributionWithData() {
+        List<Countable<BaseBlock>> distribution = new ArrayList<Countable<BaseBlock>>();
+        for (int i = 0; i < STATES; i++) {
+            if (counts[i] > 0) {
+                distribution.add(new Countable<BaseBlock>(new BaseBlock(i >> 4, i & 15), counts[i]));
+            }
+        }
+        Collections.sort(distribution);
+        return distribution;
+    }
+
+}
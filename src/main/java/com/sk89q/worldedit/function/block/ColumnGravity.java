@@ -0,0 +1,133 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.block;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.FlatRegionFunction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Lets every non-air block in a column fall down until it rests on the
+ * bottom of the column or on another block, keeping the order of the
+ * blocks.
+ *
+ * <p>The column is read once into primitive arrays and only the positions
+ * whose block actually changes are written back, so blocks that are
+ * already resting are not touched.</p>
+ */
+public class ColumnGravity implements FlatRegionFunction {
+
+    private static final BaseBlock AIR = new BaseBlock(BlockID.AIR);
+
+    private final Extent extent;
+    private final int minY;
+    private final int[] blocks;
+    private final int[] sources;
+    private final BaseBlock[] moved;
+    private int affected = 0;
+
+    /**
+     * Create a new instance.
+     *
+     * @param extent the extent
+     * @param minY the bottom of each column
+     * @param maxY the top of each column
+     */
+    public ColumnGravity(Extent extent, int minY, int maxY) {
+        checkNotNull(extent);
+        checkArgument(minY <= maxY, "minY <= maxY required");
+        this.extent = extent;
+        this.minY = minY;
+
+        int height = maxY - minY + 1;
+        this.blocks = new int[height];
+        this.sources = new int[height];
+        this.moved = new BaseBlock[height];
+    }
+
+    /**
+     * Get the number of blocks that have been changed.
+     *
+     * @return the number of changed blocks
+     */
+    public int getAffected() {
+        return affected;
+    }
+
+    @Override
+    public boolean apply(Vector2D position) throws WorldEditException {
+        int x = position.getBlockX();
+        int z = position.getBlockZ();
+        int height = blocks.length;
+
+        // Read the column and note where each block will come from
+        int count = 0;
+        for (int i = 0; i < height; i++) {
+            BaseBlock block = extent.getLazyBlock(new Vector(x, minY + i, z));
+            blocks[i] = block.getType() << 4 | block.getData();
+            if (block.getType() != BlockID.AIR) {
+                sources[count++] = i;
+            }
+        }
+
+        // Nothing moves if the blocks are already at the bottom
+        if (count == 0 || sources[count - 1] == count - 1) {
+            return false;
+        }
+
+        // Fetch the full blocks that move before anything is written
+        for (int i = 0; i < count; i++) {
+            int source = sources[i];
+            if (source != i) {
+                moved[i] = extent.getBlock(new Vector(x, minY + source, z));
+            }
+        }
+
+        int changed = 0;
+        for (int i = 0; i < count; i++) {
+            BaseBlock block = moved[i];
+            if (block != null) {
+                if (blocks[sources[i]] != blocks[i] || block.hasNbtData()) {
+                    extent.setBlock(new Vector(x, minY + i, z), block);
+                    changed++;
+                }
+                moved[i] = null;
+            }
+        }
+
+        for (int i = count; i < height; i++) {
+            if (blocks[i] >> 4 != BlockID.AIR) {
+                extent.setBlock(new Vector(x, minY + i, z), AIR);
+                changed++;
+            }
+        }
+
+        affected += changed;
+        return changed > 0;
+    }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.mask;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.blocks.BlockType;
+import com.sk89q.worldedit.extent.Extent;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A mask that matches blocks by looking up their type and data value in a
+ * bitset with one bit for every type and data combination.
+ *
+ * <p>Instances are created by {@link Masks#compile(Mask)} from block-based
+ * masks such as {@link BlockMask}, {@link ExistingBlockMask} and
+ * {@link SolidBlockMask}, and from negations, intersections and unions
+ * of them. Blocks with a type or data value outside of the table are
+ * tested with the mask that the table was compiled from.</p>
+ */
+public class CompiledBlockMask extends AbstractMask {
+
+    /**
+     * The number of block types covered by the table.
+     */
+    public static final int MAX_TYPES = 4096;
+
+    /**
+     * The number of data values covered by the table.
+     */
+    public static final int MAX_DATA = 16;
+
+    private static final int BITS = MAX_TYPES * MAX_DATA;
+
+    @Nullable
+    private static long[] solidTable;
+
+    private final Extent extent;
+    private final long[] table;
+    private final Mask fallback;
+
+    private CompiledBlockMask(Extent extent, long[] table, Mask fallback) {
+        this.extent = extent;
+        this.table = table;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Get the extent that blocks are read from.
+     *
+     * @return the extent
+     */
+    public Extent getExtent() {
+        return extent;
+    }
+
+    /**
+     * Return whether the table matches the given block type and data value.
+     *
+     * @param type the block type
+     * @param data the data value
+     * @return true if matched
+     * @throws IllegalArgumentException if the type or data value is not in the table
+     */
+    public boolean matches(int type, int data) {
+        checkArgument(type >= 0 && type < MAX_TYPES, "type out of range");
+        checkArgument(data >= 0 && data < MAX_DATA, "data out of range");
+        int index = type << 4 | data;
+        return (table[index >>> 6] & (1L << index)) != 0;
+    }
+
+    @Override
+    public boolean test(Vector vector) {
+        BaseBlock block = extent.getLazyBlock(vector);
+        int type = block.getType();
+        int data = block.getData();
+        if (type >= 0 && type < MAX_TYPES && data >= 0 && data < MAX_DATA) {
+            int index = type << 4 | data;
+            return (table[index >>> 6] & (1L << index)) != 0;
+        }
+        return fallback.test(vector);
+    }
+
+    @Nullable
+    @Override
+    public Mask2D toMask2D() {
+        return null;
+    }
+
+    /**
+     * Create a mask matching the opposite blocks.
+     *
+     * @return a new mask
+     */
+    CompiledBlockMask negate() {
+        long[] negated = new long[table.length];
+        for (int i = 0; i < table.length; i++) {
+            negated[i] = ~table[i];
+        }
+        return new CompiledBlockMask(extent, negated, Masks.negate(fallback));
+    }
+
+    /**
+     * Create a mask matching the blocks that this mask and another match.
+     *
+     * @param other the other mask, which must use the same extent
+     * @return a new mask
+     */
+    CompiledBlockMask and(CompiledBlockMask other) {
+        checkArgument(other.extent == extent, "extents differ");
+        long[] combined = new long[table.length];
+        for (int i = 0; i < table.length; i++) {
+            combined[i] = table[i] & other.table[i];
+        }
+        return new CompiledBlockMask(extent, combined, new MaskIntersection(fallback, other.fallback));
+    }
+
+    /**
+     * Create a mask matching the blocks that either this mask or another
+     * match.
+     *
+     * @param other the other mask, which must use the same extent
+     * @return a new mask
+     */
+    CompiledBlockMask or(CompiledBlockMask other) {
+        checkArgument(other.extent == extent, "extents differ");
+        long[] combined = new long[table.length];
+        for (int i = 0; i < table.length; i++) {
+            combined[i] = table[i] | other.table[i];
+        }
+        return new CompiledBlockMask(extent, combined, new MaskUnion(fallback, other.fallback));
+    }
+
+    /**
+     * Compile a block mask. Data values of -1 match all data values.
+     *
+     * @param mask the mask
+     * @return a compiled mask
+     */
+    static CompiledBlockMask compile(BlockMask mask) {
+        checkNotNull(mask);
+        long[] table = new long[BITS / 64];
+        Collection<BaseBlock> blocks = mask.getBlocks();
+        for (BaseBlock block : blocks) {
+            int type = block.getType();
+            int data = block.getData();
+            if (type < 0 || type >= MAX_TYPES) {
+                continue;
+            }
+            if (data == -1) {
+                for (int i = 0; i < MAX_DATA; i++) {
+                    set(table, type, i);
+                }
+            } else if (data >= 0 && data < MAX_DATA) {
+                set(table, type, data);
+            }
+        }
+        return new CompiledBlockMask(mask.getExtent(), table, mask);
+    }
+
+    /**
+     * Compile an existing block mask.
+     *
+     * @param mask the mask
+     * @return a compiled mask
+     */
+    static CompiledBlockMask compile(ExistingBlockMask mask) {
+        checkNotNull(mask);
+        long[] table = new long[BITS / 64];
+        Arrays.fill(table, -1L);
+        for (int i = 0; i < MAX_DATA; i++) {
+            clear(table, BlockID.AIR, i);
+        }
+        return new CompiledBlockMask(mask.getExtent(), table, mask);
+    }
+
+    /**
+     * Compile a solid block mask.
+     *
+     * @param mask the mask
+     * @return a compiled mask
+     */
+    static CompiledBlockMask compile(SolidBlockMask mask) {
+        checkNotNull(mask);
+        return new CompiledBlockMask(mask.getExtent(), getSolidTable(), mask);
+    }
+
+    private static synchronized long[] getSolidTable() {
+        if (solidTable == null) {
+            long[] table = new long[BITS / 64];
+            for (int type = 0; type < MAX_TYPES; type++) {
+                for (int data = 0; data < MAX_DATA; data++) {
+                    if (!BlockType.canPassThrough(type, data)) {
+                        set(table, type, data);
+                    }
+                }
+            }
+            solidTable = table;
+        }
+        // Tables are never modified once created
+        return solidTable;
+    }
+
+    private static void set(long[] table, int type, int data) {
+        int index = type << 4 | data;
+        table[index >>> 6] |= 1L << index;
+    }
+
+    private static void clear(long[] table, int type, int data) {
+        int index = type << 4 | data;
+        table[index >>> 6] &= ~(1L << index);
+    }
+
+}
@@ -20,9 +20,15 @@
 package com.sk89q.worldedit.function.mask;
 
 import com.sk89q.worldedit.*;
+import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.session.request.Request;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -69,23 +75,7 @@ public static Mask negate(final Mask mask) {
         }
 
         checkNotNull(mask);
-        return new AbstractMask() {
-            @Override
-            public boolean test(Vector vector) {
-                return !mask.test(vector);
-            }
-
-            @Nullable
-            @Override
-            public Mask2D toMask2D() {
-                Mask2D mask2d = mask.toMask2D();
-                if (mask2d != null) {
-                    return negate(mask2d);
-                } else {
-                    return null;
-                }
-            }
-        };
+        return new NegatedMask(mask);
     }
 
     /**
@@ -110,6 +100,94 @@ public boolean test(Vector2D vector) {
         };
     }
 
+    /**
+     * Compile the block tests of the given mask into lookup tables.
+     *
+     * <p>Block masks, existing block masks and solid block masks, along with
+     * negations, intersections, unions and offsets of them, are replaced
+     * with {@link CompiledBlockMask}s that test a block with a single read
+     * and a bit lookup. Masks that cannot be compiled are returned
+     * unchanged. The returned mask reflects the blocks of the given masks
+     * at the time of the call, so later changes to those masks
+     * are not seen. Other subclasses of these masks may override their
+     * tests, so they are never compiled.</p>
+     *
+     * @param mask the mask
+     * @return a mask that behaves like the given mask
+     */
+    public static Mask compile(Mask mask) {
+        checkNotNull(mask);
+
+        if (mask.getClass() == CompiledBlockMask.class) {
+            return mask;
+        } else if (mask.getClass() == BlockMask.class || mask.getClass() == FuzzyBlockMask.class) {
+            // Both treat a data value of -1 as any data
+            return CompiledBlockMask.compile((BlockMask) mask);
+        } else if (mask.getClass() == ExistingBlockMask.class) {
+            return CompiledBlockMask.compile((ExistingBlockMask) mask);
+        } else if (mask.getClass() == SolidBlockMask.class) {
+            return CompiledBlockMask.compile((SolidBlockMask) mask);
+        } else if (mask.getClass() == NegatedMask.class) {
+            Mask compiled = compile(((NegatedMask) mask).getMask());
+            if (compiled.getClass() == CompiledBlockMask.class) {
+                return ((CompiledBlockMask) compiled).negate();
+            } else {
+                return negate(compiled);
+            }
+        } else if (mask.getClass() == MaskUnion.class) {
+            Collection<Mask> masks = ((MaskUnion) mask).getMasks();
+            if (masks.isEmpty()) {
+                return mask;
+            }
+            List<Mask> compiled = compileAll(masks, true);
+            return compiled.size() == 1 ? compiled.get(0) : new MaskUnion(compiled);
+        } else if (mask.getClass() == MaskIntersection.class) {
+            Collection<Mask> masks = ((MaskIntersection) mask).getMasks();
+            if (masks.isEmpty()) {
+                return mask;
+            }
+            List<Mask> compiled = compileAll(masks, false);
+            return compiled.size() == 1 ? compiled.get(0) : new MaskIntersection(compiled);
+        } else if (mask.getClass() == OffsetMask.class) {
+            OffsetMask offsetMask = (OffsetMask) mask;
+            Mask compiled = compile(offsetMask.getMask());
+            if (compiled != offsetMask.getMask()) {
+                return new OffsetMask(compiled, offsetMask.getOffset());
+            }
+        }
+
+        return mask;
+    }
+
+    /**
+     * Compile a list of masks, combining compiled masks that read
+     * from the same extent.
+     *
+     * @param masks the masks
+     * @param union true to combine with OR, false to combine with AND
+     * @return a list of compiled masks
+     */
+    private static List<Mask> compileAll(Collection<Mask> masks, boolean union) {
+        List<Mask> compiled = new ArrayList<Mask>();
+        Map<Extent, CompiledBlockMask> tables = new IdentityHashMap<Extent, CompiledBlockMask>();
+        for (Mask mask : masks) {
+            Mask result = compile(mask);
+            if (result.getClass() == CompiledBlockMask.class) {
+                CompiledBlockMask table = (CompiledBlockMask) result;
+                CompiledBlockMask existing = tables.get(table.getExtent());
+                if (existing != null) {
+                    table = union ? existing.or(table) : existing.and(table);
+                }
+                tables.put(table.getExtent(), table);
+            } else {
+                compiled.add(result);
+            }
+        }
+        // Table lookups are cheap, so test them first
+        compiled.addAll(0, tables.values());
+        return compiled;
+    }
+
     /**
      * Return a 3-dimensional version of a 2D mask.
      *
@@ -207,6 +285,34 @@ public boolean matches(EditSession editSession, Vector position) {
         };
     }
 
+    private static class NegatedMask extends AbstractMask {
+        private final Mask mask;
+
+        private NegatedMask(Mask mask) {
+            this.mask = mask;
+        }
+
+        public Mask getMask() {
+            return mask;
+        }
+
+        @Override
+        public boolean test(Vector vector) {
+            return !mask.test(vector);
+        }
+
+        @Nullable
+        @Override
+        public Mask2D toMask2D() {
+            Mask2D mask2d = mask.toMask2D();
+            if (mask2d != null) {
+                return negate(mask2d);
+            } else {
+                return null;
+            }
+        }
+    }
+
     private static class AlwaysTrue implements Mask, Mask2D {
         @Override
         public boolean test(Vector vector) {
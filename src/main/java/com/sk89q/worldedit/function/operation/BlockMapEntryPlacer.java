@@ -56,6 +56,10 @@ public Operation resume(RunContext run) throws WorldEditException {
         while (iterator.hasNext()) {
             Map.Entry<BlockVector, BaseBlock> entry = iterator.next();
             extent.setBlock(entry.getKey(), entry.getValue());
+
+            if (!run.shouldContinue()) {
+                return this;
+            }
         }
 
         return null;
@@ -244,6 +244,11 @@ public Operation resume(RunContext run) throws WorldEditException {
 
     @Override
     public void cancel() {
+        repetitions = 0;
+        if (lastVisitor != null) {
+            lastVisitor.cancel();
+            lastVisitor = null;
+        }
     }
 
 }
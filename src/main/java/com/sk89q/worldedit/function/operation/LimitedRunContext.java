@@ -0,0 +1,110 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A run context that stops an operation once a time budget or a step
+ * budget has been exhausted.
+ *
+ * <p>Every call to {@link #shouldContinue()} counts as one step, which
+ * for most operations corresponds to one block or position that has been
+ * processed. Operations that find that they should not continue should
+ * return themselves from {@link Operation#resume(RunContext)} so that they
+ * can pick up where they stopped at a later time.</p>
+ */
+public class LimitedRunContext extends RunContext {
+
+    /**
+     * The clock is only read every this many steps to keep
+     * {@link #shouldContinue()} cheap.
+     */
+    private static final int CLOCK_CHECK_INTERVAL = 64;
+
+    private final long deadline;
+    private final int maxSteps;
+    private int steps = 0;
+    private boolean exhausted = false;
+
+    /**
+     * Create a new context that is only limited by time.
+     *
+     * @param time the amount of time
+     * @param unit the unit of the time
+     */
+    public LimitedRunContext(long time, TimeUnit unit) {
+        this(time, unit, -1);
+    }
+
+    /**
+     * Create a new context.
+     *
+     * @param time the amount of time, or -1 for no time limit
+     * @param unit the unit of the time
+     * @param maxSteps the maximum number of steps, or -1 for no limit
+     */
+    public LimitedRunContext(long time, TimeUnit unit, int maxSteps) {
+        checkNotNull(unit);
+        checkArgument(time >= -1, "time must be >= -1");
+        checkArgument(maxSteps >= -1, "maxSteps must be >= -1");
+        this.deadline = time == -1 ? -1 : System.nanoTime() + unit.toNanos(time);
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Get the number of steps that have been taken so far.
+     *
+     * @return the number of steps
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * Return whether the budget of this context has been used up.
+     *
+     * @return true if exhausted
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    @Override
+    public boolean shouldContinue() {
+        if (exhausted) {
+            return false;
+        }
+
+        steps++;
+
+        if (maxSteps != -1 && steps >= maxSteps) {
+            exhausted = true;
+        } else if (deadline != -1 && steps % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+            exhausted = true;
+        }
+
+        return !exhausted;
+    }
+
+}
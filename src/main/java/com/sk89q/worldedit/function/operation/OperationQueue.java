@@ -81,12 +81,16 @@ public Operation resume(RunContext run) throws WorldEditException {
             current = queue.poll();
         }
 
-        if (current != null) {
+        while (current != null) {
             current = current.resume(run);
 
             if (current == null) {
                 current = queue.poll();
             }
+
+            if (!run.shouldContinue()) {
+                break;
+            }
         }
 
         return current != null ? this : null;
@@ -94,6 +98,10 @@ public Operation resume(RunContext run) throws WorldEditException {
 
     @Override
     public void cancel() {
+        if (current != null) {
+            current.cancel();
+            current = null;
+        }
         for (Operation operation : queue) {
             operation.cancel();
         }
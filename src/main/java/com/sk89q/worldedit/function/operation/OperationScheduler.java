@@ -0,0 +1,212 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs operations across several server ticks.
+ *
+ * <p>Every time {@link #run()} is called (which should happen once per
+ * server tick on the main thread), queued operations are resumed with a
+ * {@link LimitedRunContext} until the per-tick budget is exhausted. An
+ * operation that could not finish is moved to the end of the queue so that
+ * several operations progress in turns.</p>
+ *
+ * <p>An operation that returns itself before the budget is exhausted is
+ * considered to be waiting on something else, and it is not resumed again
+ * until the next tick.</p>
+ *
+ * <p>Operations may be submitted from any thread, but they are only ever
+ * resumed from the thread calling {@link #run()}.</p>
+ */
+public class OperationScheduler implements Runnable {
+
+    private static final Logger log = Logger.getLogger(OperationScheduler.class.getCanonicalName());
+
+    private final Deque<Task> tasks = new ArrayDeque<Task>();
+    private volatile long tickTime = TimeUnit.MILLISECONDS.toNanos(25);
+    private volatile int tickSteps = -1;
+
+    /**
+     * Get the amount of time, in nanoseconds, that operations may run
+     * for every tick.
+     *
+     * @return the time, or -1 if there is no limit
+     */
+    public long getTickTime() {
+        return tickTime;
+    }
+
+    /**
+     * Set the amount of time that operations may run for every tick.
+     *
+     * @param time the time, or -1 for no limit
+     * @param unit the unit of the time
+     */
+    public void setTickTime(long time, TimeUnit unit) {
+        checkNotNull(unit);
+        checkArgument(time >= -1, "time must be >= -1");
+        this.tickTime = time == -1 ? -1 : unit.toNanos(time);
+    }
+
+    /**
+     * Get the number of steps (usually blocks) that operations may take
+     * every tick.
+     *
+     * @return the number of steps, or -1 if there is no limit
+     */
+    public int getTickSteps() {
+        return tickSteps;
+    }
+
+    /**
+     * Set the number of steps (usually blocks) that operations may take
+     * every tick.
+     *
+     * @param steps the number of steps, or -1 for no limit
+     */
+    public void setTickSteps(int steps) {
+        checkArgument(steps >= -1, "steps must be >= -1");
+        this.tickSteps = steps;
+    }
+
+    /**
+     * Queue an operation to be run over the next ticks.
+     *
+     * <p>The returned future completes with the given operation once it has
+     * finished. Cancelling the future cancels the operation.</p>
+     *
+     * @param operation the operation
+     * @return a future
+     */
+    public ListenableFuture<Operation> submit(Operation operation) {
+        checkNotNull(operation);
+        Task task = new Task(operation);
+        synchronized (tasks) {
+            tasks.offer(task);
+        }
+        return task.future;
+    }
+
+    /**
+     * Get the number of operations that have not completed yet.
+     *
+     * @return the number of operations
+     */
+    public int getPendingCount() {
+        synchronized (tasks) {
+            return tasks.size();
+        }
+    }
+
+    /**
+     * Cancel all pending operations.
+     */
+    public void cancelAll() {
+        synchronized (tasks) {
+            for (Task task : tasks) {
+                task.future.cancel(false);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        LimitedRunContext context = new LimitedRunContext(tickTime, TimeUnit.NANOSECONDS, tickSteps);
+        Set<Task> waiting = new HashSet<Task>();
+
+        while (context.shouldContinue()) {
+            Task task;
+            synchronized (tasks) {
+                task = tasks.peek();
+            }
+
+            if (task == null || waiting.contains(task)) {
+                break;
+            }
+
+            if (task.future.isCancelled()) {
+                remove(task);
+                task.current.cancel();
+                continue;
+            }
+
+            Operation previous = task.current;
+            try {
+                task.current = task.current.resume(context);
+            } catch (Throwable t) {
+                remove(task);
+                log.log(Level.FINE, "Scheduled operation failed", t);
+                task.future.setException(t);
+                continue;
+            }
+
+            if (task.current == null) {
+                remove(task);
+                task.future.set(task.operation);
+            } else if (context.isExhausted() || task.current == previous) {
+                if (!context.isExhausted()) {
+                    waiting.add(task);
+                }
+
+                // Let the next operation go first
+                synchronized (tasks) {
+                    if (tasks.remove(task)) {
+                        tasks.offer(task);
+                    }
+                }
+            }
+        }
+    }
+
+    private void remove(Task task) {
+        synchronized (tasks) {
+            tasks.remove(task);
+        }
+    }
+
+    /**
+     * An operation that has been submitted.
+     */
+    private static class Task {
+        private final Operation operation;
+        private final SettableFuture<Operation> future = SettableFuture.create();
+        private Operation current;
+
+        private Task(Operation operation) {
+            this.operation = operation;
+            this.current = operation;
+        }
+    }
+
+}
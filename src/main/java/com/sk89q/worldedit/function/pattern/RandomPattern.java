@@ -21,21 +21,54 @@
 
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.util.SplittableRandom;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Uses a random pattern of a weighted list of patterns.
+ *
+ * <p>Patterns are chosen in constant time using an alias table that is
+ * built once after patterns are added. Every thread that applies the
+ * pattern draws from its own generator split from the generator given
+ * to the constructor, so a pattern can be shared by worker threads, and
+ * a seeded pattern applied from one thread always chooses the
+ * same sequence of patterns.</p>
  */
 public class RandomPattern extends AbstractPattern {
 
-    private final Random random = new Random();
-    private List<Chance> patterns = new ArrayList<Chance>();
+    private final SplittableRandom random;
+    private final ThreadLocal<SplittableRandom> threadRandom = new ThreadLocal<SplittableRandom>() {
+        @Override
+        protected SplittableRandom initialValue() {
+            synchronized (random) {
+                return random.split();
+            }
+        }
+    };
+    private final List<Chance> patterns = new ArrayList<Chance>();
     private double max = 0;
+    private volatile AliasTable table;
+
+    /**
+     * Create a new instance with a randomly seeded generator.
+     */
+    public RandomPattern() {
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param random the generator to split the generators of each thread from
+     */
+    public RandomPattern(SplittableRandom random) {
+        checkNotNull(random);
+        this.random = random;
+    }
 
     /**
      * Add a pattern to the weight list of patterns.
@@ -46,25 +79,102 @@ public class RandomPattern extends AbstractPattern {
      * @param pattern the pattern
      * @param chance the chance, which can be any positive number
      */
-    public void add(Pattern pattern, double chance) {
+    public synchronized void add(Pattern pattern, double chance) {
         checkNotNull(pattern);
         patterns.add(new Chance(pattern, chance));
         max += chance;
+        table = null;
     }
 
     @Override
     public BaseBlock apply(Vector position) {
-        double r = random.nextDouble();
-        double offset = 0;
+        AliasTable table = this.table;
+        if (table == null) {
+            table = getTable();
+        }
+
+        SplittableRandom random = threadRandom.get();
+        int index = random.nextInt(table.patterns.length);
+        if (random.nextDouble() >= table.probability[index]) {
+            index = table.alias[index];
+        }
+        return table.patterns[index].apply(position);
+    }
 
-        for (Chance chance : patterns) {
-            if (r <= (offset + chance.getChance()) / max) {
-                return chance.getPattern().apply(position);
+    /**
+     * Get the alias table, building it if patterns have been added
+     * since it was last built.
+     *
+     * @return the alias table
+     */
+    private synchronized AliasTable getTable() {
+        if (table == null) {
+            if (patterns.isEmpty()) {
+                throw new IllegalStateException("No patterns have been added");
             }
-            offset += chance.getChance();
+            table = new AliasTable(patterns, max);
         }
+        return table;
+    }
+
+    /**
+     * A table for Walker's alias method, where each column holds the
+     * probability of keeping its own pattern and the pattern that
+     * is chosen otherwise.
+     */
+    private static class AliasTable {
+        private final Pattern[] patterns;
+        private final double[] probability;
+        private final int[] alias;
+
+        private AliasTable(List<Chance> chances, double max) {
+            int n = chances.size();
+            patterns = new Pattern[n];
+            probability = new double[n];
+            alias = new int[n];
 
-        throw new RuntimeException("ProportionalFillPattern");
+            double[] scaled = new double[n];
+            int[] small = new int[n];
+            int[] large = new int[n];
+            int smallCount = 0;
+            int largeCount = 0;
+
+            for (int i = 0; i < n; i++) {
+                Chance chance = chances.get(i);
+                patterns[i] = chance.getPattern();
+                scaled[i] = chance.getChance() * n / max;
+                if (scaled[i] < 1) {
+                    small[smallCount++] = i;
+                } else {
+                    large[largeCount++] = i;
+                }
+            }
+
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+                probability[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = (scaled[more] + scaled[less]) - 1;
+                if (scaled[more] < 1) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+
+            // Whatever remains is 1 give or take rounding error
+            while (largeCount > 0) {
+                int i = large[--largeCount];
+                probability[i] = 1;
+                alias[i] = i;
+            }
+            while (smallCount > 0) {
+                int i = small[--smallCount];
+                probability[i] = 1;
+                alias[i] = i;
+            }
+        }
     }
 
     private static class Chance {
@@ -0,0 +1,178 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.visitor;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.extent.BlockBatch;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.function.pattern.BlockPattern;
+import com.sk89q.worldedit.function.pattern.Pattern;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.SpanList;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Fills a region with a pattern, passing the blocks of one chunk section
+ * at a time to {@link Extent#setBlocks(BlockBatch)}.
+ *
+ * <p>Sections are visited one chunk column at a time. Every section that
+ * has been sent to the extent counts as one step of the
+ * {@link RunContext}.</p>
+ */
+public class BatchedRegionVisitor implements Operation {
+
+    private final Region region;
+    private final Extent extent;
+    private final Pattern pattern;
+    private final Vector min;
+    private final Vector max;
+    private final SpanList spans = new SpanList();
+    private final int maxChunkX;
+    private final int maxSectionY;
+    private final int maxChunkZ;
+    private int chunkX;
+    private int sectionY;
+    private int chunkZ;
+    private int affected = 0;
+
+    /**
+     * Create a new visitor.
+     *
+     * @param region the region to fill
+     * @param extent the extent to set blocks on
+     * @param pattern the pattern that provides the blocks
+     */
+    public BatchedRegionVisitor(Region region, Extent extent, Pattern pattern) {
+        checkNotNull(region);
+        checkNotNull(extent);
+        checkNotNull(pattern);
+        this.region = region;
+        this.extent = extent;
+        this.pattern = pattern;
+        this.min = region.getMinimumPoint();
+        this.max = region.getMaximumPoint();
+        this.chunkX = min.getBlockX() >> 4;
+        this.sectionY = min.getBlockY() >> 4;
+        this.chunkZ = min.getBlockZ() >> 4;
+        this.maxChunkX = max.getBlockX() >> 4;
+        this.maxSectionY = max.getBlockY() >> 4;
+        this.maxChunkZ = max.getBlockZ() >> 4;
+    }
+
+    /**
+     * Get the number of affected objects.
+     *
+     * @return the number of affected
+     */
+    public int getAffected() {
+        return affected;
+    }
+
+    @Override
+    public Operation resume(RunContext run) throws WorldEditException {
+        boolean cuboid = region instanceof CuboidRegion;
+        BaseBlock constant = pattern instanceof BlockPattern ? ((BlockPattern) pattern).getBlock() : null;
+
+        while (chunkX <= maxChunkX) {
+            BlockBatch batch = new BlockBatch(chunkX, sectionY, chunkZ);
+
+            int minX = Math.max(min.getBlockX(), chunkX << 4);
+            int minY = Math.max(min.getBlockY(), sectionY << 4);
+            int minZ = Math.max(min.getBlockZ(), chunkZ << 4);
+            int maxX = Math.min(max.getBlockX(), (chunkX << 4) + 15);
+            int maxY = Math.min(max.getBlockY(), (sectionY << 4) + 15);
+            int maxZ = Math.min(max.getBlockZ(), (chunkZ << 4) + 15);
+
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    if (cuboid) {
+                        addRun(batch, minX, maxX, y, z, constant);
+                    } else {
+                        region.getSpans(y, z, spans);
+                        for (int i = 0; i < spans.size(); i++) {
+                            int runMin = Math.max(minX, spans.getMinX(i));
+                            int runMax = Math.min(maxX, spans.getMaxX(i));
+                            if (runMin <= runMax) {
+                                addRun(batch, runMin, runMax, y, z, constant);
+                            }
+                        }
+                    }
+                }
+            }
+
+            advance();
+
+            if (!batch.isEmpty()) {
+                affected += extent.setBlocks(batch);
+            }
+
+            if (!run.shouldContinue()) {
+                return chunkX <= maxChunkX ? this : null;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Add a run of positions in one row to a batch.
+     *
+     * @param batch the batch
+     * @param minX the lowest X coordinate
+     * @param maxX the highest X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @param constant the block to use, or null to use the pattern
+     */
+    private void addRun(BlockBatch batch, int minX, int maxX, int y, int z, @Nullable BaseBlock constant) {
+        for (int x = minX; x <= maxX; x++) {
+            BaseBlock block = constant != null ? constant : pattern.apply(new Vector(x, y, z));
+            batch.addLocal(BlockBatch.toLocalIndex(x, y, z), block);
+        }
+    }
+
+    /**
+     * Move on to the next section, going through a whole chunk column
+     * before moving on to the next column.
+     */
+    private void advance() {
+        if (++sectionY > maxSectionY) {
+            sectionY = min.getBlockY() >> 4;
+            if (++chunkZ > maxChunkZ) {
+                chunkZ = min.getBlockZ() >> 4;
+                chunkX++;
+            }
+        }
+    }
+
+    @Override
+    public void cancel() {
+        chunkX = maxChunkX + 1;
+    }
+
+}
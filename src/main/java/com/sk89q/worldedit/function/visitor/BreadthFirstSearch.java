@@ -25,6 +25,9 @@
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.RegionFunction;
 import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.math.BlockPositions;
+import com.sk89q.worldedit.util.collection.BlockPositionSet;
+import com.sk89q.worldedit.util.collection.LongArrayDeque;
 
 import java.util.*;
 
@@ -40,12 +43,16 @@
  * <p>As an abstract implementation, this class can be used to implement
  * functionality that starts at certain points and extends outward from
  * those points.</p>
+ *
+ * <p>Queued positions are packed into {@code long}s and visited positions
+ * are kept in a {@link BlockPositionSet}, so positions outside of the range
+ * supported by {@link BlockPositions} are never visited.</p>
  */
 public abstract class BreadthFirstSearch implements Operation {
 
     private final RegionFunction function;
-    private final Queue<BlockVector> queue = new ArrayDeque<BlockVector>();
-    private final Set<BlockVector> visited = new HashSet<BlockVector>();
+    private final LongArrayDeque queue = new LongArrayDeque();
+    private final BlockPositionSet visited = new BlockPositionSet();
     private final List<Vector> directions = new ArrayList<Vector>();
     private int affected = 0;
 
@@ -76,26 +83,29 @@ protected Collection<Vector> getDirections() {
         return directions;
     }
 
+    /**
+     * Replace the directions to visit with the given directions.
+     *
+     * @param directions the directions, such as those in {@link Directions}
+     */
+    public void setDirections(Collection<? extends Vector> directions) {
+        checkNotNull(directions);
+        this.directions.clear();
+        this.directions.addAll(directions);
+    }
+
     /**
      * Add the directions along the axes as directions to visit.
      */
     protected void addAxes() {
-        directions.add(new Vector(0, -1, 0));
-        directions.add(new Vector(0, 1, 0));
-        directions.add(new Vector(-1, 0, 0));
-        directions.add(new Vector(1, 0, 0));
-        directions.add(new Vector(0, 0, -1));
-        directions.add(new Vector(0, 0, 1));
+        directions.addAll(Directions.AXES);
     }
 
     /**
      * Add the diagonal directions as directions to visit.
      */
     protected void addDiagonal() {
-        directions.add(new Vector(1, 0, 1));
-        directions.add(new Vector(-1, 0, -1));
-        directions.add(new Vector(1, 0, -1));
-        directions.add(new Vector(-1, 0, 1));
+        directions.addAll(Directions.DIAGONALS);
     }
 
     /**
@@ -113,26 +123,11 @@ protected void addDiagonal() {
      * @param position the position
      */
     public void visit(Vector position) {
-        BlockVector blockVector = position.toBlockVector();
-        if (!visited.contains(blockVector)) {
-            queue.add(blockVector);
-            visited.add(blockVector);
-        }
-    }
-
-    /**
-     * Try to visit the given 'to' location.
-     *
-     * @param from the origin block
-     * @param to the block under question
-     */
-    private void visit(Vector from, Vector to) {
-        BlockVector blockVector = to.toBlockVector();
-        if (!visited.contains(blockVector)) {
-            visited.add(blockVector);
-            if (isVisitable(from, to)) {
-                queue.add(blockVector);
-            }
+        int x = position.getBlockX();
+        int y = position.getBlockY();
+        int z = position.getBlockZ();
+        if (BlockPositions.canPack(x, y, z) && visited.add(x, y, z)) {
+            queue.add(BlockPositions.pack(x, y, z));
         }
     }
 
@@ -157,15 +152,44 @@ public int getAffected() {
 
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        Vector position;
-        
-        while ((position = queue.poll()) != null) {
+        int count = directions.size();
+        int[] dx = new int[count];
+        int[] dy = new int[count];
+        int[] dz = new int[count];
+        int i = 0;
+        for (Vector dir : directions) {
+            dx[i] = dir.getBlockX();
+            dy[i] = dir.getBlockY();
+            dz[i] = dir.getBlockZ();
+            i++;
+        }
+
+        while (!queue.isEmpty()) {
+            long packed = queue.remove();
+            int x = BlockPositions.unpackX(packed);
+            int y = BlockPositions.unpackY(packed);
+            int z = BlockPositions.unpackZ(packed);
+            BlockVector position = new BlockVector(x, y, z);
+
             if (function.apply(position)) {
                 affected++;
             }
 
-            for (Vector dir : directions) {
-                visit(position, position.add(dir));
+            for (int d = 0; d < count; d++) {
+                int toX = x + dx[d];
+                int toY = y + dy[d];
+                int toZ = z + dz[d];
+
+                // Only create a vector for positions that haven't been visited yet
+                if (BlockPositions.canPack(toX, toY, toZ) && visited.add(toX, toY, toZ)) {
+                    if (isVisitable(position, new BlockVector(toX, toY, toZ))) {
+                        queue.add(BlockPositions.pack(toX, toY, toZ));
+                    }
+                }
+            }
+
+            if (!run.shouldContinue()) {
+                return this;
             }
         }
 
@@ -174,6 +198,7 @@ public Operation resume(RunContext run) throws WorldEditException {
 
     @Override
     public void cancel() {
+        queue.clear();
     }
 
 }
\ No newline at end of file
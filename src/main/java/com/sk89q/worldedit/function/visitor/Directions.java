@@ -0,0 +1,67 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.visitor;
+
+import com.sk89q.worldedit.Vector;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Common sets of directions for use with
+ * {@link BreadthFirstSearch#setDirections(java.util.Collection)}.
+ */
+public final class Directions {
+
+    /**
+     * The six directions along the axes.
+     */
+    public static final List<Vector> AXES = Collections.unmodifiableList(Arrays.asList(
+            new Vector(0, -1, 0),
+            new Vector(0, 1, 0),
+            new Vector(-1, 0, 0),
+            new Vector(1, 0, 0),
+            new Vector(0, 0, -1),
+            new Vector(0, 0, 1)));
+
+    /**
+     * The four horizontal diagonal directions.
+     */
+    public static final List<Vector> DIAGONALS = Collections.unmodifiableList(Arrays.asList(
+            new Vector(1, 0, 1),
+            new Vector(-1, 0, -1),
+            new Vector(1, 0, -1),
+            new Vector(-1, 0, 1)));
+
+    /**
+     * The four horizontal directions along the axes and down.
+     */
+    public static final List<Vector> HORIZONTAL_AND_DOWN = Collections.unmodifiableList(Arrays.asList(
+            new Vector(1, 0, 0),
+            new Vector(-1, 0, 0),
+            new Vector(0, 0, 1),
+            new Vector(0, 0, -1),
+            new Vector(0, -1, 0)));
+
+    private Directions() {
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.visitor;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.block.BlockDistribution;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.SpanList;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Counts the blocks in a region one chunk section at a time.
+ *
+ * <p>Every time the operation is resumed, the blocks of some sections are
+ * copied into a snapshot of their states and passed to an executor, which
+ * counts them into a {@link BlockDistribution}. Only the copying happens
+ * on the thread resuming the operation, and every section read counts as
+ * one step of the {@link RunContext}. The operation completes once every
+ * section has been counted, so if the executor runs tasks on another
+ * thread, the operation should be run by something that resumes it
+ * periodically, such as an
+ * {@link com.sk89q.worldedit.function.operation.OperationScheduler}.</p>
+ */
+public class DistributionVisitor implements Operation {
+
+    private static final int SECTION_SIZE = 16 * 16 * 16;
+
+    private final Region region;
+    private final Extent extent;
+    private final Executor executor;
+    private final BlockDistribution distribution = new BlockDistribution();
+    private final AtomicInteger counted = new AtomicInteger();
+    private final Vector min;
+    private final Vector max;
+    private final SpanList spans = new SpanList();
+    private final int maxChunkX;
+    private final int maxSectionY;
+    private final int maxChunkZ;
+    private final int sectionCount;
+    private int chunkX;
+    private int sectionY;
+    private int chunkZ;
+    private int read = 0;
+
+    /**
+     * Create a new visitor.
+     *
+     * @param region the region to count the blocks of
+     * @param extent the extent to read blocks from
+     * @param executor the executor that counts the snapshots
+     */
+    public DistributionVisitor(Region region, Extent extent, Executor executor) {
+        checkNotNull(region);
+        checkNotNull(extent);
+        checkNotNull(executor);
+        this.region = region;
+        this.extent = extent;
+        this.executor = executor;
+        this.min = region.getMinimumPoint();
+        this.max = region.getMaximumPoint();
+        this.chunkX = min.getBlockX() >> 4;
+        this.sectionY = min.getBlockY() >> 4;
+        this.chunkZ = min.getBlockZ() >> 4;
+        this.maxChunkX = max.getBlockX() >> 4;
+        this.maxSectionY = max.getBlockY() >> 4;
+        this.maxChunkZ = max.getBlockZ() >> 4;
+        this.sectionCount = (maxChunkX - chunkX + 1) * (maxSectionY - sectionY + 1) * (maxChunkZ - chunkZ + 1);
+    }
+
+    /**
+     * Get the number of chunk sections that the region's bounding box
+     * spans.
+     *
+     * @return the number of sections
+     */
+    public int getSectionCount() {
+        return sectionCount;
+    }
+
+    /**
+     * Get the number of sections that have been read.
+     *
+     * @return the number of sections
+     */
+    public int getSectionsRead() {
+        return read;
+    }
+
+    /**
+     * Get the number of sections that have been counted.
+     *
+     * @return the number of sections
+     */
+    public int getSectionsCounted() {
+        return counted.get();
+    }
+
+    /**
+     * Get the fraction of sections that have been counted.
+     *
+     * @return a number between 0 and 1
+     */
+    public double getProgress() {
+        return sectionCount == 0 ? 1 : counted.get() / (double) sectionCount;
+    }
+
+    /**
+     * Return whether every section has been counted.
+     *
+     * @return true if done
+     */
+    public boolean isDone() {
+        return counted.get() >= sectionCount;
+    }
+
+    /**
+     * Get a copy of the blocks counted so far.
+     *
+     * <p>While the operation is running, the result only covers the
+     * sections that have been counted.</p>
+     *
+     * @return a distribution
+     */
+    public BlockDistribution getDistribution() {
+        BlockDistribution copy = new BlockDistribution();
+        synchronized (distribution) {
+            copy.addAll(distribution);
+        }
+        return copy;
+    }
+
+    @Override
+    public Operation resume(RunContext run) throws WorldEditException {
+        boolean cuboid = region instanceof CuboidRegion;
+
+        while (chunkX <= maxChunkX) {
+            char[] states = new char[SECTION_SIZE];
+            int length = 0;
+
+            int minX = Math.max(min.getBlockX(), chunkX << 4);
+            int minY = Math.max(min.getBlockY(), sectionY << 4);
+            int minZ = Math.max(min.getBlockZ(), chunkZ << 4);
+            int maxX = Math.min(max.getBlockX(), (chunkX << 4) + 15);
+            int maxY = Math.min(max.getBlockY(), (sectionY << 4) + 15);
+            int maxZ = Math.min(max.getBlockZ(), (chunkZ << 4) + 15);
+
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    if (cuboid) {
+                        length = readRun(states, length, minX, maxX, y, z);
+                    } else {
+                        region.getSpans(y, z, spans);
+                        for (int i = 0; i < spans.size(); i++) {
+                            int runMin = Math.max(minX, spans.getMinX(i));
+                            int runMax = Math.min(maxX, spans.getMaxX(i));
+                            if (runMin <= runMax) {
+                                length = readRun(states, length, runMin, runMax, y, z);
+                            }
+                        }
+                    }
+                }
+            }
+
+            advance();
+            read++;
+
+            if (length == 0) {
+                counted.incrementAndGet();
+            } else {
+                executor.execute(new CountTask(states, length));
+            }
+
+            if (!run.shouldContinue()) {
+                return isDone() ? null : this;
+            }
+        }
+
+        // Wait for the executor to count the remaining sections
+        return isDone() ? null : this;
+    }
+
+    /**
+     * Copy the states of a run of positions in one row into a snapshot.
+     *
+     * @param states the snapshot
+     * @param length the number of states in the snapshot
+     * @param minX the lowest X coordinate
+     * @param maxX the highest X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return the new number of states in the snapshot
+     */
+    private int readRun(char[] states, int length, int minX, int maxX, int y, int z) {
+        for (int x = minX; x <= maxX; x++) {
+            BaseBlock block = extent.getLazyBlock(new Vector(x, y, z));
+            states[length++] = (char) BlockDistribution.toState(block.getType(), block.getData());
+        }
+        return length;
+    }
+
+    /**
+     * Move on to the next section, going through a whole chunk column
+     * before moving on to the next column.
+     */
+    private void advance() {
+        if (++sectionY > maxSectionY) {
+            sectionY = min.getBlockY() >> 4;
+            if (++chunkZ > maxChunkZ) {
+                chunkZ = min.getBlockZ() >> 4;
+                chunkX++;
+            }
+        }
+    }
+
+    @Override
+    public void cancel() {
+        chunkX = maxChunkX + 1;
+        counted.set(sectionCount);
+    }
+
+    /**
+     * Counts the states of one section.
+     */
+    private class CountTask implements Runnable {
+        private final char[] states;
+        private final int length;
+
+        private CountTask(char[] states, int length) {
+            this.states = states;
+            this.length = length;
+        }
+
+        @Override
+        public void run() {
+            synchronized (distribution) {
+                distribution.addAll(states, length);
+            }
+            counted.incrementAndGet();
+        }
+    }
+
+}
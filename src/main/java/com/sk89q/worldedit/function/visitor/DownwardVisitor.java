@@ -23,8 +23,6 @@
 import com.sk89q.worldedit.function.RegionFunction;
 import com.sk89q.worldedit.function.mask.Mask;
 
-import java.util.Collection;
-
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -51,13 +49,7 @@ public DownwardVisitor(Mask mask, RegionFunction function, int baseY) {
 
         this.baseY = baseY;
 
-        Collection<Vector> directions = getDirections();
-        directions.clear();
-        directions.add(new Vector(1, 0, 0));
-        directions.add(new Vector(-1, 0, 0));
-        directions.add(new Vector(0, 0, 1));
-        directions.add(new Vector(0, 0, -1));
-        directions.add(new Vector(0, -1, 0));
+        setDirections(Directions.HORIZONTAL_AND_DOWN);
     }
 
     @Override
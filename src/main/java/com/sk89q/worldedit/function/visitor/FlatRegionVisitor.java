@@ -26,6 +26,8 @@
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.regions.FlatRegion;
 
+import java.util.Iterator;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -35,6 +37,8 @@ public class FlatRegionVisitor implements Operation {
 
     private final FlatRegion flatRegion;
     private final FlatRegionFunction function;
+    private Iterator<Vector2D> iterator;
+    private boolean cancelled;
     private int affected = 0;
 
     /**
@@ -62,10 +66,22 @@ public int getAffected() {
 
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        for (Vector2D pt : flatRegion.asFlatRegion()) {
-            if (function.apply(pt)) {
+        if (cancelled) {
+            return null;
+        }
+
+        if (iterator == null) {
+            iterator = flatRegion.asFlatRegion().iterator();
+        }
+
+        while (iterator.hasNext()) {
+            if (function.apply(iterator.next())) {
                 affected++;
             }
+
+            if (!run.shouldContinue()) {
+                return this;
+            }
         }
 
         return null;
@@ -73,6 +89,8 @@ public Operation resume(RunContext run) throws WorldEditException {
 
     @Override
     public void cancel() {
+        cancelled = true;
+        iterator = null;
     }
 
 }
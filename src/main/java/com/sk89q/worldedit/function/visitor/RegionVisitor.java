@@ -19,13 +19,15 @@
 
 package com.sk89q.worldedit.function.visitor;
 
-import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.RegionFunction;
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.regions.Region;
 
+import java.util.Iterator;
+
 /**
  * Utility class to apply region functions to {@link com.sk89q.worldedit.regions.Region}.
  */
@@ -33,6 +35,8 @@ public class RegionVisitor implements Operation {
 
     private final Region region;
     private final RegionFunction function;
+    private Iterator<BlockVector> iterator;
+    private boolean cancelled;
     private int affected = 0;
 
     public RegionVisitor(Region region, RegionFunction function) {
@@ -51,10 +55,22 @@ public int getAffected() {
 
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        for (Vector pt : region) {
-            if (function.apply(pt)) {
+        if (cancelled) {
+            return null;
+        }
+
+        if (iterator == null) {
+            iterator = region.iterator();
+        }
+
+        while (iterator.hasNext()) {
+            if (function.apply(iterator.next())) {
                 affected++;
             }
+
+            if (!run.shouldContinue()) {
+                return this;
+            }
         }
 
         return null;
@@ -62,6 +78,8 @@ public Operation resume(RunContext run) throws WorldEditException {
 
     @Override
     public void cancel() {
+        cancelled = true;
+        iterator = null;
     }
 
 }
@@ -0,0 +1,288 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.history.changeset;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NBTOutputStream;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.util.io.Closer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An extension of {@link ArrayListHistory} that buffers {@link BlockChange}s
+ * in a {@link PackedBlockHistory} and writes them out to a compressed file
+ * once the buffer reaches a given number of changes.
+ *
+ * <p>Each spill is appended to the file as its own GZIP member, so only one
+ * segment has to be held in memory while the change set is replayed
+ * in either direction. If writing to disk fails, changes are kept
+ * in memory instead.</p>
+ *
+ * <p>The file is created when the first spill happens and is deleted
+ * when this change set is closed.</p>
+ */
+public class DiskSpillingHistory extends ArrayListHistory implements Closeable {
+
+    private static final Logger log = Logger.getLogger(DiskSpillingHistory.class.getCanonicalName());
+    private static final String FILE_PREFIX = "edit";
+    private static final String FILE_SUFFIX = ".history";
+
+    private final File directory;
+    private final int threshold;
+    private final List<Segment> segments = new ArrayList<Segment>();
+    private PackedBlockHistory buffer = new PackedBlockHistory();
+    private File file;
+    private int spilled;
+    private boolean spillFailed;
+
+    /**
+     * Create a new instance.
+     *
+     * @param directory the directory to create the history file in
+     * @param threshold the number of block changes to buffer in memory before writing them to disk
+     */
+    public DiskSpillingHistory(File directory, int threshold) {
+        checkNotNull(directory);
+        checkArgument(threshold > 0, "threshold > 0 required");
+        this.directory = directory;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Get the file that changes are spilled to.
+     *
+     * @return the file, or null if nothing has been spilled yet
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Get the number of block changes that are stored on disk.
+     *
+     * @return the number of spilled changes
+     */
+    public int getSpilledCount() {
+        return spilled;
+    }
+
+    @Override
+    public void add(Change change) {
+        checkNotNull(change);
+
+        if (change instanceof BlockChange) {
+            buffer.add(change);
+
+            if (!spillFailed && buffer.size() >= threshold) {
+                spill();
+            }
+        } else {
+            super.add(change);
+        }
+    }
+
+    @Override
+    public Iterator<Change> forwardIterator() {
+        return Iterators.concat(
+                super.forwardIterator(),
+                Iterators.concat(Iterators.transform(new ArrayList<Segment>(segments).iterator(), new Function<Segment, Iterator<Change>>() {
+                    @Override
+                    public Iterator<Change> apply(Segment segment) {
+                        return read(segment).forwardIterator();
+                    }
+                })),
+                buffer.forwardIterator());
+    }
+
+    @Override
+    public Iterator<Change> backwardIterator() {
+        return Iterators.concat(
+                super.backwardIterator(),
+                buffer.backwardIterator(),
+                Iterators.concat(Iterators.transform(Lists.reverse(new ArrayList<Segment>(segments)).iterator(), new Function<Segment, Iterator<Change>>() {
+                    @Override
+                    public Iterator<Change> apply(Segment segment) {
+                        return read(segment).backwardIterator();
+                    }
+                })));
+    }
+
+    @Override
+    public int size() {
+        return super.size() + spilled + buffer.size();
+    }
+
+    /**
+     * Write the buffered changes to disk as a new segment.
+     */
+    private void spill() {
+        try {
+            if (file == null) {
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Failed to create directory " + directory.getPath());
+                }
+                file = File.createTempFile(FILE_PREFIX, FILE_SUFFIX, directory);
+            }
+
+            long offset = file.length();
+            int count = 0;
+            Closer closer = Closer.create();
+            try {
+                FileOutputStream fos = closer.register(new FileOutputStream(file, true));
+                GZIPOutputStream gzos = closer.register(new GZIPOutputStream(new BufferedOutputStream(fos)));
+                DataOutputStream out = new DataOutputStream(gzos);
+                NBTOutputStream nbtOut = new NBTOutputStream(out);
+                Iterator<Change> it = buffer.forwardIterator();
+                while (it.hasNext()) {
+                    BlockChange change = (BlockChange) it.next();
+                    BlockVector position = change.getPosition();
+                    out.writeInt(position.getBlockX());
+                    out.writeInt(position.getBlockY());
+                    out.writeInt(position.getBlockZ());
+                    writeBlock(out, nbtOut, change.getPrevious());
+                    writeBlock(out, nbtOut, change.getCurrent());
+                    count++;
+                }
+                out.flush();
+            } finally {
+                closer.close();
+            }
+
+            segments.add(new Segment(offset, count));
+            spilled += count;
+            buffer = new PackedBlockHistory();
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to write history to disk; keeping it in memory instead", e);
+            spillFailed = true;
+        }
+    }
+
+    /**
+     * Read a segment back into memory.
+     *
+     * @param segment the segment
+     * @return a change set with the segment's changes
+     */
+    private PackedBlockHistory read(Segment segment) {
+        PackedBlockHistory changes = new PackedBlockHistory();
+        Closer closer = Closer.create();
+        try {
+            FileInputStream fis = closer.register(new FileInputStream(file));
+            fis.getChannel().position(segment.offset);
+            GZIPInputStream gzis = closer.register(new GZIPInputStream(new BufferedInputStream(fis)));
+            DataInputStream in = new DataInputStream(gzis);
+            NBTInputStream nbtIn = new NBTInputStream(in);
+            for (int i = 0; i < segment.count; i++) {
+                BlockVector position = new BlockVector(in.readInt(), in.readInt(), in.readInt());
+                BaseBlock previous = readBlock(in, nbtIn);
+                BaseBlock current = readBlock(in, nbtIn);
+                changes.add(new BlockChange(position, previous, current));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read history from " + file.getPath(), e);
+        } finally {
+            try {
+                closer.close();
+            } catch (IOException ignored) {
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Delete the history file.
+     */
+    @Override
+    public void close() {
+        if (file != null) {
+            if (file.exists() && !file.delete()) {
+                log.log(Level.WARNING, "Failed to delete history file " + file.getPath());
+            }
+            file = null;
+        }
+        segments.clear();
+        spilled = 0;
+    }
+
+    private static void writeBlock(DataOutputStream out, NBTOutputStream nbtOut, BaseBlock block) throws IOException {
+        out.writeShort(block.getId());
+        out.writeByte(block.getData());
+        CompoundTag nbt = block.hasNbtData() ? block.getNbtData() : null;
+        out.writeBoolean(nbt != null);
+        if (nbt != null) {
+            nbtOut.writeTag(nbt);
+        }
+    }
+
+    private static BaseBlock readBlock(DataInputStream in, NBTInputStream nbtIn) throws IOException {
+        int id = in.readShort();
+        int data = in.readByte();
+        if (in.readBoolean()) {
+            Tag tag = nbtIn.readTag();
+            if (!(tag instanceof CompoundTag)) {
+                throw new IOException("Expected a compound tag for block NBT data");
+            }
+            return new BaseBlock(id, data, (CompoundTag) tag);
+        } else {
+            return new BaseBlock(id, data);
+        }
+    }
+
+    /**
+     * A GZIP member within the history file.
+     */
+    private static final class Segment {
+        private final long offset;
+        private final int count;
+
+        private Segment(long offset, int count) {
+            this.offset = offset;
+            this.count = count;
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.history.changeset;
+
+import com.google.common.collect.Iterators;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.math.BlockPositions;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An extension of {@link ArrayListHistory} that stores {@link BlockChange}s
+ * in primitive arrays.
+ *
+ * <p>Positions are packed into {@code long}s with {@link BlockPositions}
+ * and the previous and current block are each packed into a {@code char}
+ * holding the type ID and data value, so a block change costs 12 bytes
+ * rather than the four objects that {@link BlockOptimizedHistory} keeps.
+ * Blocks that cannot be packed (blocks with NBT data or a wildcard data
+ * value) are kept as-is in a side map keyed by index. Changes with positions
+ * out of the packable range are stored by the parent class.</p>
+ *
+ * <p>{@link BlockChange}s are only created when the iterators are walked.</p>
+ */
+public class PackedBlockHistory extends ArrayListHistory {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final char UNPACKED = Character.MAX_VALUE;
+
+    private long[] positions = new long[INITIAL_CAPACITY];
+    private char[] previous = new char[INITIAL_CAPACITY];
+    private char[] current = new char[INITIAL_CAPACITY];
+    private final Map<Integer, BaseBlock> previousExtra = new HashMap<Integer, BaseBlock>();
+    private final Map<Integer, BaseBlock> currentExtra = new HashMap<Integer, BaseBlock>();
+    private int count;
+
+    @Override
+    public void add(Change change) {
+        checkNotNull(change);
+
+        if (change instanceof BlockChange) {
+            BlockChange blockChange = (BlockChange) change;
+            BlockVector position = blockChange.getPosition();
+            int x = position.getBlockX();
+            int y = position.getBlockY();
+            int z = position.getBlockZ();
+
+            if (BlockPositions.canPack(x, y, z)) {
+                ensureCapacity(count + 1);
+                positions[count] = BlockPositions.pack(x, y, z);
+                previous[count] = pack(blockChange.getPrevious(), previousExtra, count);
+                current[count] = pack(blockChange.getCurrent(), currentExtra, count);
+                count++;
+                return;
+            }
+        }
+
+        super.add(change);
+    }
+
+    @Override
+    public Iterator<Change> forwardIterator() {
+        return Iterators.concat(super.forwardIterator(), new BlockChangeIterator(false));
+    }
+
+    @Override
+    public Iterator<Change> backwardIterator() {
+        return Iterators.concat(super.backwardIterator(), new BlockChangeIterator(true));
+    }
+
+    @Override
+    public int size() {
+        return super.size() + count;
+    }
+
+    /**
+     * Grow the backing arrays so that they can hold at least the given
+     * number of entries.
+     *
+     * @param capacity the required capacity
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > positions.length) {
+            int newCapacity = Math.max(capacity, positions.length + (positions.length >> 1));
+            positions = Arrays.copyOf(positions, newCapacity);
+            previous = Arrays.copyOf(previous, newCapacity);
+            current = Arrays.copyOf(current, newCapacity);
+        }
+    }
+
+    /**
+     * Pack a block, placing it into the given side map if it cannot be
+     * packed.
+     *
+     * @param block the block
+     * @param extra the side map
+     * @param index the index of the change
+     * @return the packed block, or {@link #UNPACKED}
+     */
+    private static char pack(BaseBlock block, Map<Integer, BaseBlock> extra, int index) {
+        if (block.hasNbtData() || block.getData() < 0) {
+            extra.put(index, block);
+            return UNPACKED;
+        }
+
+        char packed = (char) (block.getId() << 4 | block.getData());
+        if (packed == UNPACKED) { // ID 4095 with data 15
+            extra.put(index, block);
+        }
+        return packed;
+    }
+
+    /**
+     * Unpack a block.
+     *
+     * @param packed the packed block
+     * @param extra the side map
+     * @param index the index of the change
+     * @return a new block
+     */
+    private static BaseBlock unpack(char packed, Map<Integer, BaseBlock> extra, int index) {
+        if (packed == UNPACKED) {
+            return extra.get(index);
+        } else {
+            return new BaseBlock(packed >> 4, packed & 0xF);
+        }
+    }
+
+    /**
+     * Lazily creates {@link BlockChange}s from the packed arrays.
+     */
+    private class BlockChangeIterator implements Iterator<Change> {
+        private final boolean reverse;
+        private final int end;
+        private int index;
+
+        private BlockChangeIterator(boolean reverse) {
+            this.reverse = reverse;
+            this.end = count;
+            this.index = reverse ? count - 1 : 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return reverse ? index >= 0 : index < end;
+        }
+
+        @Override
+        public Change next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            int i = index;
+            index += reverse ? -1 : 1;
+            return new BlockChange(
+                    BlockPositions.unpack(positions[i]),
+                    unpack(previous[i], previousExtra, i),
+                    unpack(current[i], currentExtra, i));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
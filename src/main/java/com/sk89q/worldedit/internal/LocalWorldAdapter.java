@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit.internal;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.sk89q.worldedit.BlockVector2D;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.LocalWorld;
@@ -31,6 +32,7 @@
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.regions.Region;
@@ -99,6 +101,11 @@ public boolean setBlock(Vector position, BaseBlock block, boolean notifyAndLight
         return world.setBlock(position, block, notifyAndLight);
     }
 
+    @Override
+    public int setBlocks(BlockBatch batch, boolean notifyAndLight) throws WorldEditException {
+        return world.setBlocks(batch, notifyAndLight);
+    }
+
     @Override
     public int getBlockLightLevel(Vector position) {
         return world.getBlockLightLevel(position);
@@ -179,6 +186,12 @@ public void checkLoadedChunk(Vector position) {
         world.checkLoadedChunk(position);
     }
 
+    @Override
+    @Nullable
+    public ListenableFuture<?> loadChunkAsync(Vector2D chunk) {
+        return world.loadChunkAsync(chunk);
+    }
+
     @Override
     public void fixAfterFastMode(Iterable<BlockVector2D> chunks) {
         world.fixAfterFastMode(chunks);
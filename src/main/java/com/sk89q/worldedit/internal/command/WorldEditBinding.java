@@ -32,6 +32,7 @@
 import com.sk89q.worldedit.extension.input.NoMatchException;
 import com.sk89q.worldedit.extension.input.ParserContext;
 import com.sk89q.worldedit.extension.platform.Actor;
+import com.sk89q.worldedit.extension.platform.AsyncCommand;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.pattern.Pattern;
@@ -102,6 +103,10 @@ public EditSession getEditSession(ArgumentStack context) throws ParameterExcepti
         EditSession editSession = session.createEditSession(sender);
         editSession.enableQueue();
         context.getContext().getLocals().put(EditSession.class, editSession);
+        AsyncCommand command = context.getContext().getLocals().get(AsyncCommand.class);
+        if (command != null) {
+            command.attach(editSession);
+        }
         session.tellVersion(sender); 
         return editSession;
     }
@@ -20,19 +20,24 @@
 package com.sk89q.worldedit.internal.expression;
 
 import com.sk89q.worldedit.internal.expression.lexer.Lexer;
+import com.sk89q.worldedit.internal.expression.lexer.tokens.IdentifierToken;
 import com.sk89q.worldedit.internal.expression.lexer.tokens.Token;
 import com.sk89q.worldedit.internal.expression.parser.Parser;
 import com.sk89q.worldedit.internal.expression.runtime.Constant;
 import com.sk89q.worldedit.internal.expression.runtime.EvaluationException;
+import com.sk89q.worldedit.internal.expression.runtime.ExpressionCompiler;
 import com.sk89q.worldedit.internal.expression.runtime.ExpressionEnvironment;
 import com.sk89q.worldedit.internal.expression.runtime.Functions;
 import com.sk89q.worldedit.internal.expression.runtime.RValue;
 import com.sk89q.worldedit.internal.expression.runtime.ReturnException;
 import com.sk89q.worldedit.internal.expression.runtime.Variable;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 
 /**
@@ -69,12 +74,21 @@
 public class Expression {
 
     private static final ThreadLocal<Stack<Expression>> instance = new ThreadLocal<Stack<Expression>>();
+    private static volatile boolean compilerEnabled = true;
+
+    /**
+     * Functions that read the world or keep state between evaluations.
+     */
+    private static final Set<String> SHARED_STATE_FUNCTIONS = new HashSet<String>(Arrays.asList(
+            "query", "queryAbs", "queryRel", "megabuf", "gmegabuf", "closest", "gclosest"));
 
     private final Map<String, RValue> variables = new HashMap<String, RValue>();
     private final String[] variableNames;
+    private final Variable[] parameters;
     private RValue root;
     private final Functions functions = new Functions();
     private ExpressionEnvironment environment;
+    private final boolean parallelizable;
 
     public static Expression compile(String expression, String... variableNames) throws ExpressionException {
         return new Expression(expression, variableNames);
@@ -92,25 +106,30 @@ private Expression(List<Token> tokens, String... variableNames) throws Expressio
         variables.put("true", new Constant(-1, 1));
         variables.put("false", new Constant(-1, 0));
 
-        for (String variableName : variableNames) {
+        parameters = new Variable[variableNames.length];
+        for (int i = 0; i < variableNames.length; i++) {
+            String variableName = variableNames[i];
             if (variables.containsKey(variableName)) {
                 throw new ExpressionException(-1, "Tried to overwrite identifier '" + variableName + "'");
             }
-            variables.put(variableName, new Variable(0));
+            variables.put(variableName, parameters[i] = new Variable(0));
+        }
+
+        boolean parallelizable = true;
+        for (Token token : tokens) {
+            if (token instanceof IdentifierToken && SHARED_STATE_FUNCTIONS.contains(((IdentifierToken) token).value)) {
+                parallelizable = false;
+                break;
+            }
         }
+        this.parallelizable = parallelizable;
 
         root = Parser.parse(tokens, this);
     }
 
     public double evaluate(double... values) throws EvaluationException {
         for (int i = 0; i < values.length; ++i) {
-            final String variableName = variableNames[i];
-            final RValue invokable = variables.get(variableName);
-            if (!(invokable instanceof Variable)) {
-                throw new EvaluationException(invokable.getPosition(), "Tried to assign constant " + variableName + ".");
-            }
-
-            ((Variable) invokable).value = values[i];
+            parameters[i].value = values[i];
         }
 
         pushInstance();
@@ -125,6 +144,10 @@ public double evaluate(double... values) throws EvaluationException {
 
     public void optimize() throws EvaluationException {
         root = root.optimize();
+
+        if (compilerEnabled) {
+            root = ExpressionCompiler.compile(root);
+        }
     }
 
     @Override
@@ -141,6 +164,24 @@ public RValue getVariable(String name, boolean create) {
         return variable;
     }
 
+    /**
+     * Set whether {@link #optimize()} compiles expressions to bytecode.
+     *
+     * @param enabled true to compile expressions
+     */
+    public static void setCompilerEnabled(boolean enabled) {
+        compilerEnabled = enabled;
+    }
+
+    /**
+     * Get whether {@link #optimize()} compiles expressions to bytecode.
+     *
+     * @return true if expressions are compiled
+     */
+    public static boolean isCompilerEnabled() {
+        return compilerEnabled;
+    }
+
     public static Expression getInstance() {
         return instance.get().peek();
     }
@@ -160,10 +201,24 @@ private void popInstance() {
         foo.pop();
 
         if (foo.isEmpty()) {
-            instance.set(null);
+            instance.remove();
         }
     }
 
+    /**
+     * Return whether separate instances of this expression can be
+     * evaluated on different threads at the same time.
+     *
+     * <p>This is false if the expression calls functions that read the
+     * world or use the megabuf buffers. Variables assigned by the expression
+     * are not shared between instances either way.</p>
+     *
+     * @return true if the expression can be evaluated in parallel
+     */
+    public boolean isParallelizable() {
+        return parallelizable;
+    }
+
     public Functions getFunctions() {
         return functions;
     }
@@ -0,0 +1,73 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression.runtime;
+
+/**
+ * Base class for expression trees that were compiled to JVM bytecode by
+ * {@link ExpressionCompiler}.
+ *
+ * <p>Subclasses are generated at runtime and implement
+ * {@link #getValue()}. Parts of the tree that could not be compiled are
+ * evaluated through {@link #nodes}, and variables are read and written
+ * through {@link #variables}.</p>
+ */
+public abstract class CompiledExpression extends Node {
+
+    private final RValue source;
+    protected final RValue[] nodes;
+    protected final Variable[] variables;
+
+    /**
+     * Create a new instance.
+     *
+     * @param source the tree this was compiled from
+     * @param nodes nodes that are still interpreted
+     * @param variables variables used by the expression
+     */
+    protected CompiledExpression(RValue source, RValue[] nodes, Variable[] variables) {
+        super(source.getPosition());
+        this.source = source;
+        this.nodes = nodes;
+        this.variables = variables;
+    }
+
+    /**
+     * Get the tree that this was compiled from.
+     *
+     * @return the source tree
+     */
+    public RValue getSource() {
+        return source;
+    }
+
+    @Override
+    public abstract double getValue() throws EvaluationException;
+
+    @Override
+    public char id() {
+        return source.id();
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+
+}
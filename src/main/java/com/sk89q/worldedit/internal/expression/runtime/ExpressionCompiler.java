@@ -0,0 +1,816 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compiles an optimized expression tree into a generated subclass of
+ * {@link CompiledExpression}.
+ *
+ * <p>Constants, variables, sequences, conditionals, operators and the
+ * functions of {@link java.lang.Math} are turned into straight JVM
+ * bytecode working on primitive doubles. Other functions are called with
+ * a direct static call instead of through reflection. Anything else, such
+ * as loops, is left to the interpreter and called from the generated
+ * code.</p>
+ *
+ * <p>Classes are written in the Java 5 class file format, which doesn't
+ * need stack map frames, and each is defined in its own class loader so
+ * that it can be unloaded with the expression.</p>
+ */
+public final class ExpressionCompiler {
+
+    private static final Logger log = Logger.getLogger(ExpressionCompiler.class.getCanonicalName());
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    private static final String PACKAGE = "com/sk89q/worldedit/internal/expression/runtime/";
+    private static final String SUPER_CLASS = PACKAGE + "CompiledExpression";
+    private static final String RVALUE = PACKAGE + "RValue";
+    private static final String LVALUE = PACKAGE + "LValue";
+    private static final String VARIABLE = PACKAGE + "Variable";
+    private static final String MATH = "java/lang/Math";
+    private static final String CONSTRUCTOR_DESC = "(L" + RVALUE + ";[L" + RVALUE + ";[L" + VARIABLE + ";)V";
+
+    /**
+     * Functions with a {@link Math} method of the same name and arity.
+     */
+    private static final Set<String> MATH_FUNCTIONS = new HashSet<String>(Arrays.asList(
+            "sin", "cos", "tan", "asin", "acos", "atan", "atan2", "sinh", "cosh", "tanh",
+            "sqrt", "cbrt", "abs", "ceil", "floor", "rint", "exp", "log10", "min", "max"));
+
+    private static final int MAX_CODE_LENGTH = 32767;
+
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int ICONST_0 = 0x03;
+    private static final int LCONST_1 = 0x0a;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC2_W = 0x14;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ALOAD_3 = 0x2d;
+    private static final int AALOAD = 0x32;
+    private static final int POP2 = 0x58;
+    private static final int DUP = 0x59;
+    private static final int DUP2_X1 = 0x5d;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DREM = 0x73;
+    private static final int LNEG = 0x75;
+    private static final int DNEG = 0x77;
+    private static final int LSHL = 0x79;
+    private static final int LSHR = 0x7b;
+    private static final int LXOR = 0x83;
+    private static final int L2I = 0x88;
+    private static final int L2D = 0x8a;
+    private static final int D2L = 0x8f;
+    private static final int DCMPL = 0x97;
+    private static final int DCMPG = 0x98;
+    private static final int IFEQ = 0x99;
+    private static final int IFNE = 0x9a;
+    private static final int IFLT = 0x9b;
+    private static final int IFGE = 0x9c;
+    private static final int IFGT = 0x9d;
+    private static final int IFLE = 0x9e;
+    private static final int GOTO = 0xa7;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int CHECKCAST = 0xc0;
+
+    private final ConstantPool pool = new ConstantPool();
+    private final CodeBuffer code = new CodeBuffer();
+    private final List<RValue> nodes = new ArrayList<RValue>();
+    private final Map<Variable, Integer> variables = new IdentityHashMap<Variable, Integer>();
+    private int stack;
+    private int maxStack;
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * Compile the given tree.
+     *
+     * <p>If the tree can't be compiled, or there is nothing to gain from
+     * compiling it, the tree is returned as-is.</p>
+     *
+     * @param root the root of the tree, which should already be optimized
+     * @return a compiled tree or {@code root}
+     */
+    public static RValue compile(RValue root) {
+        if (root instanceof Constant || root instanceof Variable || root instanceof CompiledExpression) {
+            return root;
+        }
+
+        try {
+            return new ExpressionCompiler().generate(root);
+        } catch (Exception e) {
+            log.log(Level.FINE, "Failed to compile expression, using the interpreter instead", e);
+        } catch (LinkageError e) {
+            log.log(Level.FINE, "Failed to load compiled expression, using the interpreter instead", e);
+        } catch (StackOverflowError e) {
+            // The tree is walked recursively, which the interpreter copes
+            // with at depths that the generator does not
+            log.log(Level.FINE, "Expression is too deep to compile, using the interpreter instead");
+        }
+        return root;
+    }
+
+    private RValue generate(RValue root) throws Exception {
+        emit(root);
+        op(DRETURN, -2);
+
+        if (code.size() > MAX_CODE_LENGTH) {
+            throw new IllegalStateException("Expression is too large to compile");
+        }
+
+        String className = PACKAGE + "GeneratedExpression" + classCounter.incrementAndGet();
+        byte[] bytes = writeClass(className);
+
+        Variable[] variableArray = new Variable[variables.size()];
+        for (Map.Entry<Variable, Integer> entry : variables.entrySet()) {
+            variableArray[entry.getValue()] = entry.getKey();
+        }
+
+        Class<?> generated = new DefiningClassLoader(CompiledExpression.class.getClassLoader())
+                .define(className.replace('/', '.'), bytes);
+        return (RValue) generated
+                .getConstructor(RValue.class, RValue[].class, Variable[].class)
+                .newInstance(root, nodes.toArray(new RValue[nodes.size()]), variableArray);
+    }
+
+    // ------------------------------------------------------------------------
+    // Tree compilation
+    // ------------------------------------------------------------------------
+
+    private void emit(RValue node) {
+        if (node instanceof Constant) {
+            pushDouble(((Constant) node).getValue());
+        } else if (node instanceof Variable) {
+            loadVariable((Variable) node);
+            field(GETFIELD, VARIABLE, "value", "D", 1);
+        } else if (node instanceof Sequence) {
+            emitSequence((Sequence) node);
+        } else if (node instanceof Conditional) {
+            emitConditional((Conditional) node);
+        } else if (node instanceof Function && emitFunction((Function) node)) {
+            // compiled
+        } else {
+            emitInterpreted(node);
+        }
+    }
+
+    private void emitInterpreted(RValue node) {
+        loadNode(node);
+        code.u1(INVOKEINTERFACE);
+        code.u2(pool.interfaceMethod(RVALUE, "getValue", "()D"));
+        code.u1(1);
+        code.u1(0);
+        adjust(1);
+    }
+
+    private void emitSequence(Sequence sequence) {
+        RValue[] items = sequence.sequence;
+        if (items.length == 0) {
+            op(DCONST_0, 2);
+            return;
+        }
+        for (int i = 0; i < items.length; i++) {
+            emit(items[i]);
+            if (i < items.length - 1) {
+                op(POP2, -2);
+            }
+        }
+    }
+
+    private void emitConditional(Conditional conditional) {
+        Label elseLabel = new Label();
+        Label end = new Label();
+        emitTest(conditional.condition, IFLE, elseLabel);
+        emit(conditional.truePart);
+        jump(GOTO, end, 0);
+        adjust(-2);
+        elseLabel.mark(code);
+        if (conditional.falsePart == null) {
+            op(DCONST_0, 2);
+        } else {
+            emit(conditional.falsePart);
+        }
+        end.mark(code);
+    }
+
+    /**
+     * Emit code that compares {@code value} to zero and jumps if the
+     * comparison with the given opcode succeeds.
+     */
+    private void emitTest(RValue value, int opcode, Label target) {
+        emit(value);
+        op(DCONST_0, 2);
+        op(DCMPL, -3);
+        jump(opcode, target, -1);
+    }
+
+    private boolean emitFunction(Function function) {
+        Method method = function.method;
+        RValue[] args = function.args;
+        String name = method.getName();
+
+        if (method.getDeclaringClass() == Operators.class && emitOperator(name, args)) {
+            return true;
+        }
+
+        if (method.getDeclaringClass() == Functions.class && emitMathFunction(name, args)) {
+            return true;
+        }
+
+        // Call the function directly, but leave its arguments to the interpreter
+        int modifiers = method.getModifiers();
+        if (Modifier.isStatic(modifiers) && Modifier.isPublic(modifiers)
+                && Modifier.isPublic(method.getDeclaringClass().getModifiers())
+                && method.getReturnType() == double.class) {
+            Class<?>[] parameters = method.getParameterTypes();
+            StringBuilder desc = new StringBuilder("(");
+            for (int i = 0; i < parameters.length; i++) {
+                if (parameters[i] == RValue.class) {
+                    loadNode(args[i]);
+                    desc.append('L').append(RVALUE).append(';');
+                } else if (parameters[i] == LValue.class) {
+                    loadNode(args[i]);
+                    code.u1(CHECKCAST);
+                    code.u2(pool.classRef(LVALUE));
+                    desc.append('L').append(LVALUE).append(';');
+                } else {
+                    return fail("Unsupported parameter type " + parameters[i]);
+                }
+            }
+            desc.append(")D");
+            invokeStatic(method.getDeclaringClass().getName().replace('.', '/'), name, desc.toString(), parameters.length, 2);
+            return true;
+        }
+
+        return false;
+    }
+
+    private boolean emitOperator(String name, RValue[] args) {
+        if (args.length == 1) {
+            RValue x = args[0];
+            if (name.equals("neg")) {
+                emit(x);
+                op(DNEG, 0);
+            } else if (name.equals("not")) {
+                emitNot(x);
+            } else if (name.equals("inv")) {
+                emit(x);
+                op(D2L, 0);
+                op(LCONST_1, 2);
+                op(LNEG, 0);
+                op(LXOR, -2);
+                op(L2D, 0);
+            } else if (x instanceof Variable && (name.equals("inc") || name.equals("dec"))) {
+                loadVariable((Variable) x);
+                op(DUP, 1);
+                field(GETFIELD, VARIABLE, "value", "D", 1);
+                op(DCONST_1, 2);
+                op(name.equals("inc") ? DADD : DSUB, -2);
+                op(DUP2_X1, 2);
+                field(PUTFIELD, VARIABLE, "value", "D", -3);
+            } else if (x instanceof Variable && (name.equals("postinc") || name.equals("postdec"))) {
+                loadVariable((Variable) x);
+                op(DUP, 1);
+                field(GETFIELD, VARIABLE, "value", "D", 1);
+                op(DUP2_X1, 2);
+                op(DCONST_1, 2);
+                op(name.equals("postinc") ? DADD : DSUB, -2);
+                field(PUTFIELD, VARIABLE, "value", "D", -3);
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        if (args.length != 2) {
+            return false;
+        }
+
+        RValue lhs = args[0];
+        RValue rhs = args[1];
+
+        if (name.equals("add") || name.equals("sub") || name.equals("mul") || name.equals("div") || name.equals("mod")) {
+            emit(lhs);
+            emit(rhs);
+            op(arithmetic(name), -2);
+        } else if (name.equals("pow")) {
+            emit(lhs);
+            emit(rhs);
+            invokeStatic(MATH, "pow", "(DD)D", 0, -2);
+        } else if (name.equals("lth")) {
+            emitComparison(lhs, rhs, DCMPG, IFGE);
+        } else if (name.equals("gth")) {
+            emitComparison(lhs, rhs, DCMPL, IFLE);
+        } else if (name.equals("leq")) {
+            emitComparison(lhs, rhs, DCMPG, IFGT);
+        } else if (name.equals("geq")) {
+            emitComparison(lhs, rhs, DCMPL, IFLT);
+        } else if (name.equals("equ")) {
+            emitComparison(lhs, rhs, DCMPL, IFNE);
+        } else if (name.equals("neq")) {
+            emitComparison(lhs, rhs, DCMPL, IFEQ);
+        } else if (name.equals("and")) {
+            Label isFalse = new Label();
+            Label end = new Label();
+            emitTest(lhs, IFLE, isFalse);
+            emitTest(rhs, IFLE, isFalse);
+            op(DCONST_1, 2);
+            jump(GOTO, end, 0);
+            adjust(-2);
+            isFalse.mark(code);
+            op(DCONST_0, 2);
+            end.mark(code);
+        } else if (name.equals("or")) {
+            Label isTrue = new Label();
+            Label end = new Label();
+            emitTest(lhs, IFGT, isTrue);
+            emitTest(rhs, IFGT, isTrue);
+            op(DCONST_0, 2);
+            jump(GOTO, end, 0);
+            adjust(-2);
+            isTrue.mark(code);
+            op(DCONST_1, 2);
+            end.mark(code);
+        } else if (name.equals("shl") || name.equals("shr")) {
+            emit(lhs);
+            op(D2L, 0);
+            emit(rhs);
+            op(D2L, 0);
+            op(L2I, -1);
+            op(name.equals("shl") ? LSHL : LSHR, -1);
+            op(L2D, 0);
+        } else if (lhs instanceof Variable && name.equals("ass")) {
+            loadVariable((Variable) lhs);
+            emit(rhs);
+            op(DUP2_X1, 2);
+            field(PUTFIELD, VARIABLE, "value", "D", -3);
+        } else if (lhs instanceof Variable && name.length() == 4 && name.charAt(0) == 'a'
+                && (name.equals("aexp") || isArithmetic(name.substring(1)))) {
+            loadVariable((Variable) lhs);
+            op(DUP, 1);
+            field(GETFIELD, VARIABLE, "value", "D", 1);
+            emit(rhs);
+            if (name.equals("aexp")) {
+                invokeStatic(MATH, "pow", "(DD)D", 0, -2);
+            } else {
+                op(arithmetic(name.substring(1)), -2);
+            }
+            op(DUP2_X1, 2);
+            field(PUTFIELD, VARIABLE, "value", "D", -3);
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+
+    private boolean emitMathFunction(String name, RValue[] args) {
+        if (name.equals("ln") || name.equals("log")) {
+            name = "log";
+        } else if (name.equals("round")) {
+            if (args.length != 1) {
+                return false;
+            }
+            emit(args[0]);
+            invokeStatic(MATH, "round", "(D)J", 0, 0);
+            op(L2D, 0);
+            return true;
+        } else if (!MATH_FUNCTIONS.contains(name)) {
+            return false;
+        }
+
+        boolean binary = name.equals("atan2") || name.equals("min") || name.equals("max");
+        if (binary ? args.length < 2 || args.length > 3 || (args.length == 3 && name.equals("atan2")) : args.length != 1) {
+            return false;
+        }
+
+        for (RValue arg : args) {
+            emit(arg);
+        }
+
+        String desc = binary ? "(DD)D" : "(D)D";
+        int delta = binary ? -2 : 0;
+        if (args.length == 3) {
+            // min(a, min(b, c))
+            invokeStatic(MATH, name, desc, 0, delta);
+        }
+        invokeStatic(MATH, name, desc, 0, delta);
+        return true;
+    }
+
+    private void emitComparison(RValue lhs, RValue rhs, int compare, int jumpIfFalse) {
+        Label isFalse = new Label();
+        Label end = new Label();
+        emit(lhs);
+        emit(rhs);
+        op(compare, -3);
+        jump(jumpIfFalse, isFalse, -1);
+        op(DCONST_1, 2);
+        jump(GOTO, end, 0);
+        adjust(-2);
+        isFalse.mark(code);
+        op(DCONST_0, 2);
+        end.mark(code);
+    }
+
+    private void emitNot(RValue value) {
+        Label isFalse = new Label();
+        Label end = new Label();
+        emitTest(value, IFLE, isFalse);
+        op(DCONST_0, 2);
+        jump(GOTO, end, 0);
+        adjust(-2);
+        isFalse.mark(code);
+        op(DCONST_1, 2);
+        end.mark(code);
+    }
+
+    private static boolean isArithmetic(String name) {
+        return name.equals("add") || name.equals("sub") || name.equals("mul") || name.equals("div") || name.equals("mod");
+    }
+
+    private static int arithmetic(String name) {
+        if (name.equals("add")) {
+            return DADD;
+        } else if (name.equals("sub")) {
+            return DSUB;
+        } else if (name.equals("mul")) {
+            return DMUL;
+        } else if (name.equals("div")) {
+            return DDIV;
+        } else {
+            return DREM;
+        }
+    }
+
+    private static boolean fail(String message) {
+        throw new IllegalStateException(message);
+    }
+
+    // ------------------------------------------------------------------------
+    // Instructions
+    // ------------------------------------------------------------------------
+
+    private void adjust(int delta) {
+        stack += delta;
+        if (stack > maxStack) {
+            maxStack = stack;
+        }
+    }
+
+    private void op(int opcode, int delta) {
+        code.u1(opcode);
+        adjust(delta);
+    }
+
+    private void jump(int opcode, Label target, int delta) {
+        target.reference(code);
+        code.u1(opcode);
+        code.u2(0);
+        adjust(delta);
+    }
+
+    private void field(int opcode, String owner, String name, String desc, int delta) {
+        code.u1(opcode);
+        code.u2(pool.fieldRef(owner, name, desc));
+        adjust(delta);
+    }
+
+    private void invokeStatic(String owner, String name, String desc, int popped, int delta) {
+        code.u1(INVOKESTATIC);
+        code.u2(pool.methodRef(owner, name, desc));
+        adjust(delta - popped);
+    }
+
+    private void pushInt(int value) {
+        if (value <= 5) {
+            op(ICONST_0 + value, 1);
+        } else if (value <= Byte.MAX_VALUE) {
+            op(BIPUSH, 1);
+            code.u1(value);
+        } else if (value <= Short.MAX_VALUE) {
+            op(SIPUSH, 1);
+            code.u2(value);
+        } else {
+            fail("Too many nodes");
+        }
+    }
+
+    private void pushDouble(double value) {
+        if (Double.doubleToRawLongBits(value) == 0L) {
+            op(DCONST_0, 2);
+        } else if (value == 1.0) {
+            op(DCONST_1, 2);
+        } else {
+            op(LDC2_W, 2);
+            code.u2(pool.doubleConstant(value));
+        }
+    }
+
+    private void loadNode(RValue node) {
+        int index = nodes.size();
+        nodes.add(node);
+        op(ALOAD_0, 1);
+        field(GETFIELD, SUPER_CLASS, "nodes", "[L" + RVALUE + ";", 0);
+        pushInt(index);
+        op(AALOAD, -1);
+    }
+
+    private void loadVariable(Variable variable) {
+        Integer index = variables.get(variable);
+        if (index == null) {
+            index = variables.size();
+            variables.put(variable, index);
+        }
+        op(ALOAD_0, 1);
+        field(GETFIELD, SUPER_CLASS, "variables", "[L" + VARIABLE + ";", 0);
+        pushInt(index);
+        op(AALOAD, -1);
+    }
+
+    // ------------------------------------------------------------------------
+    // Class file
+    // ------------------------------------------------------------------------
+
+    private byte[] writeClass(String className) throws IOException {
+        int thisClass = pool.classRef(className);
+        int superClass = pool.classRef(SUPER_CLASS);
+        int codeName = pool.utf8("Code");
+        int constructorName = pool.utf8("<init>");
+        int constructorDesc = pool.utf8(CONSTRUCTOR_DESC);
+        int superConstructor = pool.methodRef(SUPER_CLASS, "<init>", CONSTRUCTOR_DESC);
+        int getValueName = pool.utf8("getValue");
+        int getValueDesc = pool.utf8("()D");
+
+        CodeBuffer constructor = new CodeBuffer();
+        constructor.u1(ALOAD_0);
+        constructor.u1(ALOAD_1);
+        constructor.u1(ALOAD_2);
+        constructor.u1(ALOAD_3);
+        constructor.u1(INVOKESPECIAL);
+        constructor.u2(superConstructor);
+        constructor.u1(RETURN);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(49);
+        pool.write(out);
+        out.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(0); // interfaces
+        out.writeShort(0); // fields
+        out.writeShort(2); // methods
+        writeMethod(out, 0x0001, constructorName, constructorDesc, codeName, 4, 4, constructor.toByteArray());
+        writeMethod(out, 0x0001 | 0x0010, getValueName, getValueDesc, codeName, maxStack, 1, code.toByteArray());
+        out.writeShort(0); // attributes
+        return bytes.toByteArray();
+    }
+
+    private static void writeMethod(DataOutputStream out, int access, int name, int desc, int codeName, int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(access);
+        out.writeShort(name);
+        out.writeShort(desc);
+        out.writeShort(1);
+        out.writeShort(codeName);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // attributes
+    }
+
+    /**
+     * A growable byte buffer that allows branch offsets to be patched.
+     */
+    private static final class CodeBuffer {
+        private byte[] data = new byte[256];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void u1(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = (byte) value;
+        }
+
+        void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+
+        void patch(int offset, int value) {
+            data[offset] = (byte) (value >> 8);
+            data[offset + 1] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    /**
+     * A branch target.
+     */
+    private static final class Label {
+        private final List<Integer> references = new ArrayList<Integer>();
+
+        /**
+         * Record a branch instruction about to be written at the current position.
+         */
+        void reference(CodeBuffer code) {
+            references.add(code.size());
+        }
+
+        void mark(CodeBuffer code) {
+            int target = code.size();
+            for (int instruction : references) {
+                int offset = target - instruction;
+                if (offset > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Branch offset too large");
+                }
+                code.patch(instruction + 1, offset);
+            }
+        }
+    }
+
+    /**
+     * The constant pool of the generated class.
+     */
+    private static final class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<String, Integer>();
+        private int count = 1;
+
+        int utf8(String value) {
+            Integer index = entries.get("U" + value);
+            if (index == null) {
+                try {
+                    out.writeByte(1);
+                    out.writeUTF(value);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                index = add("U" + value, 1);
+            }
+            return index;
+        }
+
+        int classRef(String name) {
+            Integer index = entries.get("C" + name);
+            if (index == null) {
+                int nameIndex = utf8(name);
+                write(7, nameIndex);
+                index = add("C" + name, 1);
+            }
+            return index;
+        }
+
+        int fieldRef(String owner, String name, String desc) {
+            return memberRef(9, owner, name, desc);
+        }
+
+        int methodRef(String owner, String name, String desc) {
+            return memberRef(10, owner, name, desc);
+        }
+
+        int interfaceMethod(String owner, String name, String desc) {
+            return memberRef(11, owner, name, desc);
+        }
+
+        int doubleConstant(double value) {
+            String key = "D" + Double.doubleToRawLongBits(value);
+            Integer index = entries.get(key);
+            if (index == null) {
+                try {
+                    out.writeByte(6);
+                    out.writeDouble(value);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                index = add(key, 2); // doubles take two slots
+            }
+            return index;
+        }
+
+        private int memberRef(int tag, String owner, String name, String desc) {
+            String key = tag + owner + "." + name + desc;
+            Integer index = entries.get(key);
+            if (index == null) {
+                int ownerIndex = classRef(owner);
+                int nameAndType = nameAndType(name, desc);
+                write(tag, ownerIndex, nameAndType);
+                index = add(key, 1);
+            }
+            return index;
+        }
+
+        private int nameAndType(String name, String desc) {
+            String key = "N" + name + desc;
+            Integer index = entries.get(key);
+            if (index == null) {
+                int nameIndex = utf8(name);
+                int descIndex = utf8(desc);
+                write(12, nameIndex, descIndex);
+                index = add(key, 1);
+            }
+            return index;
+        }
+
+        private void write(int tag, int... values) {
+            try {
+                out.writeByte(tag);
+                for (int value : values) {
+                    out.writeShort(value);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private int add(String key, int slots) {
+            int index = count;
+            entries.put(key, index);
+            count += slots;
+            return index;
+        }
+
+        void write(DataOutputStream target) throws IOException {
+            if (count > 0xFFFF) {
+                throw new IllegalStateException("Too many constants");
+            }
+            target.writeShort(count);
+            target.write(bytes.toByteArray());
+        }
+    }
+
+    /**
+     * Defines a single generated class.
+     */
+    private static final class DefiningClassLoader extends ClassLoader {
+        private DefiningClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.math;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+
+/**
+ * Packs block positions into single {@code long}s.
+ *
+ * <p>X and Z are stored as signed 26-bit integers (enough for the
+ * 30,000,000 block world border) and Y as a signed 12-bit integer.
+ * Positions outside of that range cannot be packed, which can be checked
+ * with {@link #canPack(int, int, int)}.</p>
+ */
+public final class BlockPositions {
+
+    public static final int MIN_XZ = -(1 << 25);
+    public static final int MAX_XZ = (1 << 25) - 1;
+    public static final int MIN_Y = -(1 << 11);
+    public static final int MAX_Y = (1 << 11) - 1;
+
+    private BlockPositions() {
+    }
+
+    /**
+     * Test whether the given position fits into a packed {@code long}.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position can be packed
+     */
+    public static boolean canPack(int x, int y, int z) {
+        return x >= MIN_XZ && x <= MAX_XZ
+                && z >= MIN_XZ && z <= MAX_XZ
+                && y >= MIN_Y && y <= MAX_Y;
+    }
+
+    /**
+     * Pack a position into a {@code long}.
+     *
+     * <p>The result is undefined if {@link #canPack(int, int, int)} returns
+     * false for the position.</p>
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return the packed position
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    /**
+     * Pack a position into a {@code long}.
+     *
+     * @param position the position
+     * @return the packed position
+     * @see #pack(int, int, int)
+     */
+    public static long pack(Vector position) {
+        return pack(position.getBlockX(), position.getBlockY(), position.getBlockZ());
+    }
+
+    /**
+     * Get the X coordinate of a packed position.
+     *
+     * @param packed the packed position
+     * @return the X coordinate
+     */
+    public static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    /**
+     * Get the Y coordinate of a packed position.
+     *
+     * @param packed the packed position
+     * @return the Y coordinate
+     */
+    public static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    /**
+     * Get the Z coordinate of a packed position.
+     *
+     * @param packed the packed position
+     * @return the Z coordinate
+     */
+    public static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    /**
+     * Unpack a position into a new {@link BlockVector}.
+     *
+     * @param packed the packed position
+     * @return a new vector
+     */
+    public static BlockVector unpack(long packed) {
+        return new BlockVector(unpackX(packed), unpackY(packed), unpackZ(packed));
+    }
+
+}
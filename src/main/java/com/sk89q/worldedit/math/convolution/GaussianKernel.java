@@ -24,7 +24,9 @@
 /**
  * A Gaussian Kernel generator (2D bellcurve).
  */
-public class GaussianKernel extends Kernel {
+public class GaussianKernel extends Kernel implements SeparableKernel {
+
+    private final float[] separableData;
 
     /**
      * Constructor of the kernel
@@ -34,6 +36,17 @@ public class GaussianKernel extends Kernel {
      */
     public GaussianKernel(int radius, double sigma) {
         super(radius * 2 + 1, radius * 2 + 1, createKernel(radius, sigma));
+        this.separableData = createSeparableKernel(radius, sigma);
+    }
+
+    @Override
+    public float[] getHorizontalData() {
+        return separableData.clone();
+    }
+
+    @Override
+    public float[] getVerticalData() {
+        return separableData.clone();
     }
 
     private static float[] createKernel(int radius, double sigma) {
@@ -51,4 +64,18 @@ private static float[] createKernel(int radius, double sigma) {
         return data;
     }
 
+    private static float[] createSeparableKernel(int radius, double sigma) {
+        int diameter = radius * 2 + 1;
+        float[] data = new float[diameter];
+
+        // The product of the value at x and the value at y is the 2D value
+        double sigma22 = 2 * sigma * sigma;
+        double constant = Math.sqrt(Math.PI * sigma22);
+        for (int x = -radius; x <= radius; ++x) {
+            data[x + radius] = (float) (Math.exp(-(x * x) / sigma22) / constant);
+        }
+
+        return data;
+    }
+
 }
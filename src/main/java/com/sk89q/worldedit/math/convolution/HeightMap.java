@@ -95,12 +95,7 @@ public HeightMap(EditSession session, Region region, boolean naturalOnly) {
     public int applyFilter(HeightMapFilter filter, int iterations) throws MaxChangedBlocksException {
         checkNotNull(filter);
 
-        int[] newData = new int[data.length];
-        System.arraycopy(data, 0, newData, 0, data.length);
-
-        for (int i = 0; i < iterations; ++i) {
-            newData = filter.filter(newData, width, height);
-        }
+        int[] newData = filter.filter(data.clone(), width, height, iterations);
 
         return apply(newData);
     }
@@ -126,7 +121,7 @@ public int apply(int[] data) throws MaxChangedBlocksException {
 
         int blocksChanged = 0;
 
-        // Apply heightmap
+        // Apply heightmap, only to the columns whose height changes
         for (int z = 0; z < height; ++z) {
             for (int x = 0; x < width; ++x) {
                 int index = z * width + x;
@@ -135,48 +130,54 @@ public int apply(int[] data) throws MaxChangedBlocksException {
                 // Clamp newHeight within the selection area
                 int newHeight = Math.min(maxY, data[index]);
 
+                if (newHeight == curHeight) {
+                    continue;
+                }
+
                 // Offset x,z to be 'real' coordinates
                 int xr = x + originX;
                 int zr = z + originZ;
 
+                // Every block is copied from the column as it was before, so
+                // read it once
+                BaseBlock[] column = new BaseBlock[Math.max(curHeight, newHeight) - originY + 1];
+                for (int y = 0; y < column.length; ++y) {
+                    column[y] = session.getBlock(new Vector(xr, originY + y, zr));
+                }
+
                 // We are keeping the topmost blocks so take that in account for the scale
                 double scale = (double) (curHeight - originY) / (double) (newHeight - originY);
 
                 // Depending on growing or shrinking we need to start at the bottom or top
                 if (newHeight > curHeight) {
                     // Set the top block of the column to be the same type (this might go wrong with rounding)
-                    BaseBlock existing = session.getBlock(new Vector(xr, curHeight, zr));
+                    BaseBlock existing = column[curHeight - originY];
 
                     // Skip water/lava
                     if (existing.getType() != BlockID.WATER && existing.getType() != BlockID.STATIONARY_WATER
                             && existing.getType() != BlockID.LAVA && existing.getType() != BlockID.STATIONARY_LAVA) {
-                        session.setBlock(new Vector(xr, newHeight, zr), existing);
-                        ++blocksChanged;
+                        blocksChanged += copy(column, existing, xr, newHeight, zr, originY);
 
                         // Grow -- start from 1 below top replacing airblocks
                         for (int y = newHeight - 1 - originY; y >= 0; --y) {
                             int copyFrom = (int) (y * scale);
-                            session.setBlock(new Vector(xr, originY + y, zr), session.getBlock(new Vector(xr, originY + copyFrom, zr)));
-                            ++blocksChanged;
+                            blocksChanged += copy(column, column[copyFrom], xr, originY + y, zr, originY);
                         }
                     }
-                } else if (curHeight > newHeight) {
+                } else {
                     // Shrink -- start from bottom
                     for (int y = 0; y < newHeight - originY; ++y) {
                         int copyFrom = (int) (y * scale);
-                        session.setBlock(new Vector(xr, originY + y, zr), session.getBlock(new Vector(xr, originY + copyFrom, zr)));
-                        ++blocksChanged;
+                        blocksChanged += copy(column, column[copyFrom], xr, originY + y, zr, originY);
                     }
 
                     // Set the top block of the column to be the same type
                     // (this could otherwise go wrong with rounding)
-                    session.setBlock(new Vector(xr, newHeight, zr), session.getBlock(new Vector(xr, curHeight, zr)));
-                    ++blocksChanged;
+                    blocksChanged += copy(column, column[curHeight - originY], xr, newHeight, zr, originY);
 
                     // Fill rest with air
                     for (int y = newHeight + 1; y <= curHeight; ++y) {
-                        session.setBlock(new Vector(xr, y, zr), fillerAir);
-                        ++blocksChanged;
+                        blocksChanged += copy(column, fillerAir, xr, y, zr, originY);
                     }
                 }
             }
@@ -187,4 +188,19 @@ public int apply(int[] data) throws MaxChangedBlocksException {
         return blocksChanged;
     }
 
+    /**
+     * Set a block in a column unless it is already there.
+     *
+     * @return 1 if the block was set, otherwise 0
+     */
+    private int copy(BaseBlock[] column, BaseBlock block, int x, int y, int z, int originY) throws MaxChangedBlocksException {
+        BaseBlock existing = column[y - originY];
+        if (block.equals(existing) && !block.hasNbtData() && !existing.hasNbtData()) {
+            return 0;
+        }
+
+        session.setBlock(new Vector(x, y, z), block);
+        return 1;
+    }
+
 }
@@ -19,18 +19,41 @@
 
 package com.sk89q.worldedit.math.convolution;
 
+import com.google.common.base.Throwables;
+
 import java.awt.image.Kernel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Allows applications of Kernels onto the region's height map.
  *
  * <p>Only used for smoothing (with a GaussianKernel).</p>
+ *
+ * <p>Kernels that implement {@link SeparableKernel} are applied as a
+ * horizontal and then a vertical pass, which gives the same result as the
+ * 2D convolution in fewer steps. The rows of each pass can be split
+ * across several threads.</p>
  */
 public class HeightMapFilter {
 
+    /**
+     * Height maps smaller than this many columns are always filtered on the
+     * calling thread.
+     */
+    private static final int MIN_PARALLEL_SIZE = 64 * 64;
+
     private Kernel kernel;
+    private int threads = 1;
 
     /**
      * Construct the HeightMapFilter object.
@@ -72,6 +95,25 @@ public void setKernel(Kernel kernel) {
         this.kernel = kernel;
     }
 
+    /**
+     * Get the number of threads that a separable kernel is applied with.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Set the number of threads that a separable kernel is applied with.
+     *
+     * @param threads the number of threads, where 1 uses only the calling thread
+     */
+    public void setThreads(int threads) {
+        checkArgument(threads >= 1, "threads >= 1 required");
+        this.threads = threads;
+    }
+
     /**
      * Filter with a 2D kernel
      *
@@ -82,7 +124,54 @@ public void setKernel(Kernel kernel) {
      * @return the modified height map
      */
     public int[] filter(int[] inData, int width, int height) {
+        return filter(inData, width, height, 1);
+    }
+
+    /**
+     * Filter with a 2D kernel several times.
+     *
+     * @param inData the data
+     * @param width the width
+     * @param height the height
+     * @param iterations the number of times to filter
+     * @return the modified height map
+     * @throws CancellationException if the thread is interrupted while waiting for the other threads
+     */
+    public int[] filter(int[] inData, int width, int height, int iterations) {
         checkNotNull(inData);
+        checkArgument(iterations >= 0, "iterations >= 0 required");
+
+        if (!(kernel instanceof SeparableKernel)) {
+            int[] data = inData;
+            for (int i = 0; i < iterations; ++i) {
+                data = filter2D(data, width, height);
+            }
+            return data;
+        }
+
+        SeparableKernel separable = (SeparableKernel) kernel;
+        SeparablePass pass = new SeparablePass(separable.getHorizontalData(), separable.getVerticalData(), width, height);
+        int[] data = inData;
+
+        if (threads <= 1 || width * height < MIN_PARALLEL_SIZE || iterations == 0) {
+            for (int i = 0; i < iterations; ++i) {
+                data = pass.filter(data);
+            }
+            return data;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, height));
+        try {
+            for (int i = 0; i < iterations; ++i) {
+                data = pass.filter(data, executor, threads);
+            }
+            return data;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int[] filter2D(int[] inData, int width, int height) {
 
         int index = 0;
         float[] matrix = kernel.getKernelData(null);
@@ -126,4 +215,112 @@ public int[] filter(int[] inData, int width, int height) {
         return outData;
     }
 
+    /**
+     * Applies a separable kernel as two one dimensional passes.
+     *
+     * <p>Positions outside of the height map are replaced with the position
+     * being filtered on the same axis, like the 2D filter does.</p>
+     */
+    private class SeparablePass {
+        private final float[] horizontal;
+        private final float[] vertical;
+        private final int kox = kernel.getXOrigin();
+        private final int koy = kernel.getYOrigin();
+        private final int width;
+        private final int height;
+        private final float[] rows;
+
+        private SeparablePass(float[] horizontal, float[] vertical, int width, int height) {
+            this.horizontal = horizontal;
+            this.vertical = vertical;
+            this.width = width;
+            this.height = height;
+            this.rows = new float[width * height];
+        }
+
+        private int[] filter(int[] inData) {
+            int[] outData = new int[inData.length];
+            filterRows(inData, 0, height);
+            filterColumns(outData, 0, height);
+            return outData;
+        }
+
+        private int[] filter(final int[] inData, ExecutorService executor, int threads) {
+            final int[] outData = new int[inData.length];
+            int step = (height + threads - 1) / threads;
+
+            List<Callable<Object>> rowTasks = new ArrayList<Callable<Object>>();
+            List<Callable<Object>> columnTasks = new ArrayList<Callable<Object>>();
+            for (int start = 0; start < height; start += step) {
+                final int from = start;
+                final int to = Math.min(height, start + step);
+                rowTasks.add(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        filterRows(inData, from, to);
+                        return null;
+                    }
+                });
+                columnTasks.add(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        filterColumns(outData, from, to);
+                        return null;
+                    }
+                });
+            }
+
+            // The vertical pass reads rows written by other tasks
+            invokeAll(executor, rowTasks);
+            invokeAll(executor, columnTasks);
+            return outData;
+        }
+
+        private void filterRows(int[] inData, int fromZ, int toZ) {
+            for (int z = fromZ; z < toZ; ++z) {
+                int offset = z * width;
+                for (int x = 0; x < width; ++x) {
+                    float sum = 0;
+                    for (int k = 0; k < horizontal.length; ++k) {
+                        int offsetX = x + k - kox;
+                        if (offsetX < 0 || offsetX >= width) {
+                            offsetX = x;
+                        }
+                        sum += horizontal[k] * inData[offset + offsetX];
+                    }
+                    rows[offset + x] = sum;
+                }
+            }
+        }
+
+        private void filterColumns(int[] outData, int fromZ, int toZ) {
+            for (int z = fromZ; z < toZ; ++z) {
+                for (int x = 0; x < width; ++x) {
+                    float sum = 0;
+                    for (int k = 0; k < vertical.length; ++k) {
+                        int offsetZ = z + k - koy;
+                        if (offsetZ < 0 || offsetZ >= height) {
+                            offsetZ = z;
+                        }
+                        sum += vertical[k] * rows[offsetZ * width + x];
+                    }
+                    outData[z * width + x] = (int) (sum + 0.5);
+                }
+            }
+        }
+    }
+
+    private static void invokeAll(ExecutorService executor, List<Callable<Object>> tasks) {
+        try {
+            for (Future<Object> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while filtering");
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
 }
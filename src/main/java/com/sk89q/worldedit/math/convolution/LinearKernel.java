@@ -20,14 +20,28 @@
 package com.sk89q.worldedit.math.convolution;
 
 import java.awt.image.Kernel;
+import java.util.Arrays;
 
 /**
  * A linear Kernel generator (all cells weight the same)
  */
-public class LinearKernel extends Kernel {
+public class LinearKernel extends Kernel implements SeparableKernel {
+
+    private final int diameter;
 
     public LinearKernel(int radius) {
         super(radius * 2 + 1, radius * 2 + 1, createKernel(radius));
+        this.diameter = radius * 2 + 1;
+    }
+
+    @Override
+    public float[] getHorizontalData() {
+        return createSeparableKernel(diameter);
+    }
+
+    @Override
+    public float[] getVerticalData() {
+        return createSeparableKernel(diameter);
     }
 
     private static float[] createKernel(int radius) {
@@ -39,4 +53,10 @@ private static float[] createKernel(int radius) {
         return data;
     }
 
+    private static float[] createSeparableKernel(int diameter) {
+        float[] data = new float[diameter];
+        Arrays.fill(data, 1.0f / diameter);
+        return data;
+    }
+
 }
@@ -0,0 +1,45 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.math.convolution;
+
+/**
+ * A kernel that is the outer product of a horizontal and a vertical
+ * one dimensional kernel, so that it can be applied as two passes of
+ * one dimensional convolution.
+ */
+public interface SeparableKernel {
+
+    /**
+     * Get the one dimensional kernel applied along the X axis, which is as
+     * long as the kernel is wide.
+     *
+     * @return the kernel data
+     */
+    float[] getHorizontalData();
+
+    /**
+     * Get the one dimensional kernel applied along the Z axis, which is as
+     * long as the kernel is high.
+     *
+     * @return the kernel data
+     */
+    float[] getVerticalData();
+
+}
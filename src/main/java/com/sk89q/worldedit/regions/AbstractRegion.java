@@ -50,6 +50,22 @@ public Iterator<BlockVector> iterator() {
         return new RegionIterator(this);
     }
 
+    /**
+     * Find the spans of a row by testing every position within the
+     * bounding box. Subclasses should override this if they can compute
+     * the spans directly.
+     */
+    @Override
+    public void getSpans(int y, int z, SpanList spans) {
+        Vector min = getMinimumPoint();
+        Vector max = getMaximumPoint();
+        if (y < min.getBlockY() || y > max.getBlockY() || z < min.getBlockZ() || z > max.getBlockZ()) {
+            spans.clear();
+            return;
+        }
+        SpanList.scan(this, y, z, min.getBlockX(), max.getBlockX(), spans);
+    }
+
     @Override
     public World getWorld() {
         return world;
@@ -299,6 +299,45 @@ public boolean contains(Vector position) {
         return containsRaw(position);
     }
 
+    @Override
+    public void getSpans(int y, int z, SpanList spans) {
+        if (!isDefined()) {
+            spans.clear();
+            return;
+        }
+
+        Vector min = getMinimumPoint();
+        Vector max = getMaximumPoint();
+        if (y < min.getBlockY() || y > max.getBlockY() || z < min.getBlockZ() || z > max.getBlockZ()) {
+            spans.clear();
+            return;
+        }
+
+        // Every triangle's plane bounds the row from one side
+        double low = Double.NEGATIVE_INFINITY;
+        double high = Double.POSITIVE_INFINITY;
+        for (Triangle triangle : triangles) {
+            Vector normal = triangle.getNormal();
+            double c = triangle.getDistance() - normal.getY() * y - normal.getZ() * z;
+            if (normal.getX() > 0) {
+                high = Math.min(high, c / normal.getX());
+            } else if (normal.getX() < 0) {
+                low = Math.max(low, c / normal.getX());
+            } else if (c < -1e-9) {
+                spans.clear();
+                return;
+            }
+        }
+
+        if (low > high + 1) {
+            spans.clear();
+            return;
+        }
+
+        double[] crossings = { low, high };
+        SpanList.fromCrossings(this, y, z, min.getBlockX(), max.getBlockX(), crossings, 2, spans);
+    }
+
     private boolean containsRaw(Vector pt) {
         if (lastTriangle != null && lastTriangle.above(pt)) {
             return false;
@@ -343,6 +343,16 @@ public boolean contains(Vector position) {
                 && z >= min.getBlockZ() && z <= max.getBlockZ();
     }
 
+    @Override
+    public void getSpans(int y, int z, SpanList spans) {
+        spans.clear();
+        Vector min = getMinimumPoint();
+        Vector max = getMaximumPoint();
+        if (y >= min.getBlockY() && y <= max.getBlockY() && z >= min.getBlockZ() && z <= max.getBlockZ()) {
+            spans.add(min.getBlockX(), max.getBlockX());
+        }
+    }
+
     @Override
     public Iterator<BlockVector> iterator() {
         return new Iterator<BlockVector>() {
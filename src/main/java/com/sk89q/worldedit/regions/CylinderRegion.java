@@ -313,6 +313,27 @@ public boolean contains(Vector position) {
         return position.toVector2D().subtract(center).divide(radius).lengthSq() <= 1;
     }
 
+    @Override
+    public void getSpans(int y, int z, SpanList spans) {
+        Vector min = getMinimumPoint();
+        Vector max = getMaximumPoint();
+        if (y < minY || y > maxY || z < min.getBlockZ() || z > max.getBlockZ()) {
+            spans.clear();
+            return;
+        }
+
+        // The row is a chord of the ellipse
+        double dz = (z - center.getZ()) / radius.getZ();
+        double rest = 1 - dz * dz;
+        if (rest < -1e-9) {
+            spans.clear();
+            return;
+        }
+        double half = radius.getX() * Math.sqrt(Math.max(rest, 0));
+        double[] crossings = { center.getX() - half, center.getX() + half };
+        SpanList.fromCrossings(this, y, z, min.getBlockX(), max.getBlockX(), crossings, 2, spans);
+    }
+
 
     /**
      * Sets the height of the cylinder to fit the specified Y.
@@ -210,6 +210,28 @@ public boolean contains(Vector position) {
         return position.subtract(center).divide(radius).lengthSq() <= 1;
     }
 
+    @Override
+    public void getSpans(int y, int z, SpanList spans) {
+        Vector min = getMinimumPoint();
+        Vector max = getMaximumPoint();
+        if (y < min.getBlockY() || y > max.getBlockY() || z < min.getBlockZ() || z > max.getBlockZ()) {
+            spans.clear();
+            return;
+        }
+
+        // The row is a chord of the ellipse at this Y and Z
+        double dy = (y - center.getY()) / radius.getY();
+        double dz = (z - center.getZ()) / radius.getZ();
+        double rest = 1 - dy * dy - dz * dz;
+        if (rest < -1e-9) {
+            spans.clear();
+            return;
+        }
+        double half = radius.getX() * Math.sqrt(Math.max(rest, 0));
+        double[] crossings = { center.getX() - half, center.getX() + half };
+        SpanList.fromCrossings(this, y, z, min.getBlockX(), max.getBlockX(), crossings, 2, spans);
+    }
+
     /**
      * Returns string representation in the format
      * "(centerX, centerY, centerZ) - (radiusX, radiusY, radiusZ)".
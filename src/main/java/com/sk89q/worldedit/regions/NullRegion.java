@@ -87,6 +87,11 @@ public boolean contains(Vector position) {
         return false;
     }
 
+    @Override
+    public void getSpans(int y, int z, SpanList spans) {
+        spans.clear();
+    }
+
     @Override
     public Set<Vector2D> getChunks() {
         return Collections.emptySet();
@@ -314,6 +314,37 @@ public boolean contains(Vector position) {
         return contains(points, minY, maxY, position);
     }
 
+    @Override
+    public void getSpans(int y, int z, SpanList spans) {
+        if (points.size() < 3 || y < minY || y > maxY || z < min.getBlockZ() || z > max.getBlockZ()) {
+            spans.clear();
+            return;
+        }
+
+        // Collect where the polygon's edges cross the row
+        int npoints = points.size();
+        double[] crossings = new double[npoints * 2];
+        int count = 0;
+        BlockVector2D last = points.get(npoints - 1);
+        for (BlockVector2D point : points) {
+            int x1 = last.getBlockX();
+            int z1 = last.getBlockZ();
+            int x2 = point.getBlockX();
+            int z2 = point.getBlockZ();
+            if (z >= Math.min(z1, z2) && z <= Math.max(z1, z2)) {
+                if (z1 == z2) {
+                    crossings[count++] = x1;
+                    crossings[count++] = x2;
+                } else {
+                    crossings[count++] = x1 + (double) (z - z1) * (x2 - x1) / (z2 - z1);
+                }
+            }
+            last = point;
+        }
+
+        SpanList.fromCrossings(this, y, z, min.getBlockX(), max.getBlockX(), crossings, count, spans);
+    }
+
     /**
      * Checks to see if a point is inside a region.
      *
@@ -118,6 +118,20 @@ public interface Region extends Iterable<BlockVector>, Cloneable {
      */
     public boolean contains(Vector position);
 
+    /**
+     * Find the runs of consecutive X coordinates that are in the region
+     * in the row at the given Y and Z coordinates.
+     *
+     * <p>The result is the same as testing every position of the row
+     * within the bounding box with {@link #contains(Vector)}, but
+     * regions can compute it without doing so.</p>
+     *
+     * @param y the Y coordinate of the row
+     * @param z the Z coordinate of the row
+     * @param spans the list to clear and fill with spans
+     */
+    public void getSpans(int y, int z, SpanList spans);
+
     /**
      * Get a list of chunks.
      *
@@ -134,6 +134,16 @@ public boolean contains(Vector position) {
         return false;
     }
 
+    @Override
+    public void getSpans(int y, int z, SpanList spans) {
+        spans.clear();
+        SpanList regionSpans = new SpanList();
+        for (Region region : regions) {
+            region.getSpans(y, z, regionSpans);
+            spans.union(regionSpans);
+        }
+    }
+
     @SuppressWarnings({"unchecked", "rawtypes"})
     @Override
     public Iterator<BlockVector> iterator() {
@@ -0,0 +1,269 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.regions;
+
+import com.sk89q.worldedit.Vector;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A sorted list of runs of consecutive X coordinates in one row of a
+ * region, as filled in by {@link Region#getSpans(int, int, SpanList)}.
+ *
+ * <p>Spans are inclusive on both ends, sorted by X, and never overlap or
+ * touch, so every span is followed by at least one X coordinate that is not
+ * in the region. A list is meant to be reused from row to row.</p>
+ */
+public class SpanList {
+
+    private int[] spans = new int[8];
+    private int size = 0;
+
+    /**
+     * Remove all spans.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Get the number of spans.
+     *
+     * @return the number of spans
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether there are no spans.
+     *
+     * @return true if there are no spans
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the lowest X coordinate of a span.
+     *
+     * @param index the index of the span
+     * @return the X coordinate
+     */
+    public int getMinX(int index) {
+        checkElementIndex(index, size);
+        return spans[index * 2];
+    }
+
+    /**
+     * Get the highest X coordinate of a span.
+     *
+     * @param index the index of the span
+     * @return the X coordinate
+     */
+    public int getMaxX(int index) {
+        checkElementIndex(index, size);
+        return spans[index * 2 + 1];
+    }
+
+    /**
+     * Get the total number of X coordinates in all spans.
+     *
+     * @return the number of X coordinates
+     */
+    public int getLength() {
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            length += spans[i * 2 + 1] - spans[i * 2] + 1;
+        }
+        return length;
+    }
+
+    /**
+     * Add a span after the existing spans. A span that touches the last
+     * span is merged with it.
+     *
+     * @param minX the lowest X coordinate
+     * @param maxX the highest X coordinate
+     * @throws IllegalArgumentException if the span is empty or starts before the last span ends
+     */
+    public void add(int minX, int maxX) {
+        checkArgument(minX <= maxX, "minX > maxX");
+        if (size > 0) {
+            int lastMax = spans[size * 2 - 1];
+            checkArgument(minX > lastMax, "spans must be added in order");
+            if (minX == lastMax + 1) {
+                spans[size * 2 - 1] = maxX;
+                return;
+            }
+        }
+        if (size * 2 == spans.length) {
+            spans = Arrays.copyOf(spans, spans.length * 2);
+        }
+        spans[size * 2] = minX;
+        spans[size * 2 + 1] = maxX;
+        size++;
+    }
+
+    /**
+     * Add the spans of another list to this one.
+     *
+     * @param other the other list
+     */
+    public void union(SpanList other) {
+        checkNotNull(other);
+        if (other.size == 0) {
+            return;
+        }
+        if (size == 0) {
+            spans = Arrays.copyOf(other.spans, Math.max(spans.length, other.size * 2));
+            size = other.size;
+            return;
+        }
+
+        int[] a = Arrays.copyOf(spans, size * 2);
+        int aSize = size;
+        int i = 0;
+        int j = 0;
+        size = 0;
+
+        while (i < aSize || j < other.size) {
+            int minX;
+            int maxX;
+            if (j >= other.size || (i < aSize && a[i * 2] <= other.spans[j * 2])) {
+                minX = a[i * 2];
+                maxX = a[i * 2 + 1];
+                i++;
+            } else {
+                minX = other.spans[j * 2];
+                maxX = other.spans[j * 2 + 1];
+                j++;
+            }
+
+            if (size > 0 && minX <= spans[size * 2 - 1] + 1) {
+                spans[size * 2 - 1] = Math.max(spans[size * 2 - 1], maxX);
+            } else {
+                add(minX, maxX);
+            }
+        }
+    }
+
+    /**
+     * Fill a list with the spans of a row by testing every position in the
+     * given range with {@link Region#contains(Vector)}.
+     *
+     * @param region the region
+     * @param y the Y coordinate of the row
+     * @param z the Z coordinate of the row
+     * @param minX the lowest X coordinate to test
+     * @param maxX the highest X coordinate to test
+     * @param spans the list to fill
+     */
+    public static void scan(Region region, int y, int z, int minX, int maxX, SpanList spans) {
+        spans.clear();
+        int start = 0;
+        boolean inside = false;
+        for (int x = minX; x <= maxX; x++) {
+            if (region.contains(new Vector(x, y, z))) {
+                if (!inside) {
+                    start = x;
+                    inside = true;
+                }
+            } else if (inside) {
+                spans.add(start, x - 1);
+                inside = false;
+            }
+        }
+        if (inside) {
+            spans.add(start, maxX);
+        }
+    }
+
+    /**
+     * Fill a list with the spans of a row, given the X coordinates where
+     * the boundary of the region crosses the row.
+     *
+     * <p>Whether a position is in the region can only change near a
+     * crossing, so only the positions around each crossing are tested with
+     * {@link Region#contains(Vector)}. Everything between two crossings is
+     * assumed to be like the last tested position. The result is therefore
+     * the same as {@link #scan(Region, int, int, int, int, SpanList)}, as
+     * long as the crossings are within one block of the true boundary.</p>
+     *
+     * @param region the region
+     * @param y the Y coordinate of the row
+     * @param z the Z coordinate of the row
+     * @param minX the lowest X coordinate to consider
+     * @param maxX the highest X coordinate to consider
+     * @param crossings the X coordinates where the boundary crosses the row
+     * @param count the number of crossings
+     * @param spans the list to fill
+     */
+    public static void fromCrossings(Region region, int y, int z, int minX, int maxX, double[] crossings, int count, SpanList spans) {
+        spans.clear();
+        if (minX > maxX) {
+            return;
+        }
+
+        int[] probes = new int[count * 4 + 2];
+        int n = 0;
+        probes[n++] = minX;
+        probes[n++] = maxX;
+        for (int i = 0; i < count; i++) {
+            double crossing = crossings[i];
+            if (Double.isNaN(crossing)) {
+                continue;
+            }
+            int base = (int) Math.floor(Math.max(minX - 2.0, Math.min(maxX + 2.0, crossing)));
+            for (int x = base - 1; x <= base + 2; x++) {
+                if (x >= minX && x <= maxX) {
+                    probes[n++] = x;
+                }
+            }
+        }
+        Arrays.sort(probes, 0, n);
+
+        int start = 0;
+        boolean inside = false;
+        for (int i = 0; i < n; i++) {
+            int x = probes[i];
+            if (i > 0 && x == probes[i - 1]) {
+                continue;
+            }
+            if (region.contains(new Vector(x, y, z))) {
+                if (!inside) {
+                    start = x;
+                    inside = true;
+                }
+            } else if (inside) {
+                spans.add(start, x - 1);
+                inside = false;
+            }
+        }
+        if (inside) {
+            spans.add(start, maxX);
+        }
+    }
+
+}
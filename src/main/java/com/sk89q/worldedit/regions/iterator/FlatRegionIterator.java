@@ -22,6 +22,7 @@
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.SpanList;
 
 import java.util.Iterator;
 
@@ -29,13 +30,14 @@
 
 public class FlatRegionIterator implements Iterator<Vector2D>  {
 
-    private Region region;
-    private int y;
-    private int minX;
-    private int nextX;
+    private final Region region;
+    private final SpanList spans = new SpanList();
+    private final int y;
+    private final int maxZ;
     private int nextZ;
-    private int maxX;
-    private int maxZ;
+    private int span;
+    private int nextX;
+    private boolean done = false;
 
     public FlatRegionIterator(Region region) {
         checkNotNull(region);
@@ -46,27 +48,25 @@ public FlatRegionIterator(Region region) {
         Vector max = region.getMaximumPoint();
 
         this.y = min.getBlockY();
-
-        this.minX = min.getBlockX();
-
-        this.nextX = minX;
         this.nextZ = min.getBlockZ();
-
-        this.maxX = max.getBlockX();
         this.maxZ = max.getBlockZ();
 
-        forward();
+        if (nextZ > maxZ) {
+            done = true;
+        } else {
+            region.getSpans(y, nextZ, spans);
+            if (spans.isEmpty()) {
+                forwardRow();
+            } else {
+                span = 0;
+                nextX = spans.getMinX(0);
+            }
+        }
     }
 
     @Override
     public boolean hasNext() {
-        return nextX != Integer.MIN_VALUE;
-    }
-
-    private void forward() {
-        while (hasNext() && !region.contains(new Vector(nextX, y, nextZ))) {
-            forwardOne();
-        }
+        return !done;
     }
 
     @Override
@@ -77,22 +77,35 @@ public Vector2D next() {
 
         Vector2D answer = new Vector2D(nextX, nextZ);
 
-        forwardOne();
-        forward();
+        if (nextX < spans.getMaxX(span)) {
+            nextX++;
+        } else if (span + 1 < spans.size()) {
+            span++;
+            nextX = spans.getMinX(span);
+        } else {
+            forwardRow();
+        }
 
         return answer;
     }
 
-    private void forwardOne() {
-        if (++nextX <= maxX) {
-            return;
-        }
-        nextX = minX;
-
-        if (++nextZ <= maxZ) {
-            return;
+    /**
+     * Move to the first position of the next row that is not empty.
+     */
+    private void forwardRow() {
+        while (true) {
+            if (++nextZ > maxZ) {
+                done = true;
+                return;
+            }
+
+            region.getSpans(y, nextZ, spans);
+            if (!spans.isEmpty()) {
+                span = 0;
+                nextX = spans.getMinX(0);
+                return;
+            }
         }
-        nextX = Integer.MIN_VALUE;
     }
 
     @Override
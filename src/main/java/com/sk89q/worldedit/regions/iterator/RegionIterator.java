@@ -22,49 +22,60 @@
 import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.SpanList;
 
 import java.util.Iterator;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Iterates the positions of a region row by row, using the spans from
+ * {@link Region#getSpans(int, int, SpanList)} so positions outside the
+ * region are never visited.
+ */
 public class RegionIterator implements Iterator<BlockVector> {
 
     private final Region region;
-    private final int maxX;
+    private final SpanList spans = new SpanList();
+    private final int minY;
     private final int maxY;
     private final int maxZ;
-    private final Vector min;
-    private int nextX;
     private int nextY;
     private int nextZ;
+    private int span;
+    private int nextX;
+    private boolean done = false;
 
     public RegionIterator(Region region) {
         checkNotNull(region);
 
         this.region = region;
 
+        Vector min = region.getMinimumPoint();
         Vector max = region.getMaximumPoint();
-        this.maxX = max.getBlockX();
+        this.minY = min.getBlockY();
         this.maxY = max.getBlockY();
         this.maxZ = max.getBlockZ();
 
-        this.min = region.getMinimumPoint();
-        this.nextX = min.getBlockX();
-        this.nextY = min.getBlockY();
+        this.nextY = minY;
         this.nextZ = min.getBlockZ();
 
-        forward();
+        if (nextY > maxY || nextZ > maxZ) {
+            done = true;
+        } else {
+            region.getSpans(nextY, nextZ, spans);
+            if (spans.isEmpty()) {
+                forwardRow();
+            } else {
+                span = 0;
+                nextX = spans.getMinX(0);
+            }
+        }
     }
 
     @Override
     public boolean hasNext() {
-        return nextX != Integer.MIN_VALUE;
-    }
-
-    private void forward() {
-        while (hasNext() && !region.contains(new BlockVector(nextX, nextY, nextZ))) {
-            forwardOne();
-        }
+        return !done;
     }
 
     @Override
@@ -73,27 +84,38 @@ public BlockVector next() {
 
         BlockVector answer = new BlockVector(nextX, nextY, nextZ);
 
-        forwardOne();
-        forward();
+        if (nextX < spans.getMaxX(span)) {
+            nextX++;
+        } else if (span + 1 < spans.size()) {
+            span++;
+            nextX = spans.getMinX(span);
+        } else {
+            forwardRow();
+        }
 
         return answer;
     }
 
-    private void forwardOne() {
-        if (++nextX <= maxX) {
-            return;
-        }
-        nextX = min.getBlockX();
-
-        if (++nextY <= maxY) {
-            return;
-        }
-        nextY = min.getBlockY();
-
-        if (++nextZ <= maxZ) {
-            return;
+    /**
+     * Move to the first position of the next row that is not empty.
+     */
+    private void forwardRow() {
+        while (true) {
+            if (++nextY > maxY) {
+                nextY = minY;
+                if (++nextZ > maxZ) {
+                    done = true;
+                    return;
+                }
+            }
+
+            region.getSpans(nextY, nextZ, spans);
+            if (!spans.isEmpty()) {
+                span = 0;
+                nextX = spans.getMinX(0);
+                return;
+            }
         }
-        nextX = Integer.MIN_VALUE;
     }
 
     @Override
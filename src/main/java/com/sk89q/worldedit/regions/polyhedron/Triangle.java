@@ -71,6 +71,27 @@ public Edge getEdge(int index) {
         return new Edge(vertices[index], vertices[index + 1]);
     }
 
+    /**
+     * Get the unit normal of the triangle's plane, which points out of
+     * the region.
+     *
+     * @return the normal
+     */
+    public Vector getNormal() {
+        return normal;
+    }
+
+    /**
+     * Get the distance of the triangle's plane from the origin, along
+     * the normal. Points with a greater dot product with the normal are
+     * above the triangle.
+     *
+     * @return the distance
+     */
+    public double getDistance() {
+        return b;
+    }
+
     /**
      * Returns whether the given point is above the plane the triangle is in.
      *
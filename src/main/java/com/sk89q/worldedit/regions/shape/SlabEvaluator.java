@@ -0,0 +1,273 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.regions.shape;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.internal.expression.ExpressionException;
+import com.sk89q.worldedit.regions.Region;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Evaluates a function for every block of a region on a pool of worker
+ * threads.
+ *
+ * <p>The region is iterated on the calling thread and split into slabs of
+ * consecutive positions. Every worker thread creates its own
+ * {@link Evaluator} once and uses it for all slabs it is given, so
+ * evaluators do not need to be thread-safe, but they must not touch the
+ * world. Results are handed to a {@link Receiver} on the calling thread in
+ * the region's iteration order, so they can be applied to an
+ * {@link com.sk89q.worldedit.EditSession} as usual.</p>
+ *
+ * <p>The worker threads are shared by all instances, and the size of the
+ * pool is set with {@link #setPoolSize(int)} when the configuration is
+ * loaded.</p>
+ *
+ * @param <T> the type of result
+ */
+public class SlabEvaluator<T> {
+
+    private static final int SLAB_SIZE = 16384;
+    private static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_POOL_SIZE, DEFAULT_POOL_SIZE, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("WorldEdit Expression Worker %d").build());
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private final int threads;
+
+    /**
+     * Create a new instance.
+     *
+     * @param threads the number of slabs of one evaluation to have worker
+     *                threads evaluate at once
+     */
+    public SlabEvaluator(int threads) {
+        checkArgument(threads > 0, "threads > 0 required");
+        this.threads = threads;
+    }
+
+    /**
+     * Evaluate every position in the given region.
+     *
+     * @param region the region
+     * @param factory creates an evaluator for each slab
+     * @param receiver receives each non-null result
+     * @throws ExpressionException thrown if an evaluator could not be created
+     * @throws MaxChangedBlocksException thrown by the receiver
+     */
+    public void evaluate(Region region, EvaluatorFactory<T> factory, Receiver<T> receiver) throws ExpressionException, MaxChangedBlocksException {
+        checkNotNull(region);
+        checkNotNull(factory);
+        checkNotNull(receiver);
+
+        Map<Thread, Evaluator<T>> evaluators = new ConcurrentHashMap<Thread, Evaluator<T>>();
+        Deque<Slab<T>> pending = new ArrayDeque<Slab<T>>();
+
+        try {
+            BlockVector[] positions = new BlockVector[SLAB_SIZE];
+            int count = 0;
+
+            for (BlockVector position : region) {
+                positions[count++] = position;
+
+                if (count == SLAB_SIZE) {
+                    submit(pending, new Slab<T>(positions, count, factory, evaluators));
+                    positions = new BlockVector[SLAB_SIZE];
+                    count = 0;
+
+                    // Bound the number of slabs held in memory and evaluated at once
+                    while (pending.size() >= threads) {
+                        complete(pending.removeFirst(), receiver);
+                    }
+                }
+            }
+
+            if (count > 0) {
+                submit(pending, new Slab<T>(Arrays.copyOf(positions, count), count, factory, evaluators));
+            }
+
+            while (!pending.isEmpty()) {
+                complete(pending.removeFirst(), receiver);
+            }
+        } finally {
+            // Left over if the receiver or an evaluator failed
+            for (Slab<T> slab : pending) {
+                slab.future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Set the number of threads in the pool that is shared by all
+     * evaluations.
+     *
+     * @param threads the number of threads
+     */
+    public static synchronized void setPoolSize(int threads) {
+        checkArgument(threads > 0, "threads > 0 required");
+
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else if (threads < executor.getMaximumPoolSize()) {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+    }
+
+    private void submit(Deque<Slab<T>> pending, Slab<T> slab) {
+        slab.future = executor.submit(slab);
+        pending.addLast(slab);
+    }
+
+    private void complete(Slab<T> slab, Receiver<T> receiver) throws ExpressionException, MaxChangedBlocksException {
+        Object[] results;
+        try {
+            results = slab.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for evaluation", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ExpressionException) {
+                throw (ExpressionException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new RuntimeException(cause);
+            }
+        }
+
+        for (int i = 0; i < slab.count; i++) {
+            @SuppressWarnings("unchecked")
+            T result = (T) results[i];
+            if (result != null) {
+                receiver.receive(slab.positions[i], result);
+            }
+        }
+    }
+
+    /**
+     * Evaluates positions of one slab.
+     *
+     * @param <T> the type of result
+     */
+    public interface Evaluator<T> {
+
+        /**
+         * Evaluate a position.
+         *
+         * @param position the position
+         * @return the result, or null to skip the position
+         * @throws ExpressionException thrown if evaluation fails
+         */
+        @Nullable
+        T evaluate(BlockVector position) throws ExpressionException;
+
+    }
+
+    /**
+     * Creates a new {@link Evaluator} for each worker thread.
+     *
+     * @param <T> the type of result
+     */
+    public interface EvaluatorFactory<T> {
+
+        /**
+         * Create a new evaluator. This is called from a worker thread.
+         *
+         * @return a new evaluator
+         * @throws ExpressionException thrown if the evaluator could not be created
+         */
+        Evaluator<T> create() throws ExpressionException;
+
+    }
+
+    /**
+     * Receives results on the calling thread.
+     *
+     * @param <T> the type of result
+     */
+    public interface Receiver<T> {
+
+        /**
+         * Receive the result for a position.
+         *
+         * @param position the position
+         * @param result the result
+         * @throws MaxChangedBlocksException thrown if too many blocks are changed
+         */
+        void receive(BlockVector position, T result) throws MaxChangedBlocksException;
+
+    }
+
+    private static final class Slab<T> implements Callable<Object[]> {
+        private final BlockVector[] positions;
+        private final int count;
+        private final EvaluatorFactory<T> factory;
+        private final Map<Thread, Evaluator<T>> evaluators;
+        private Future<Object[]> future;
+
+        private Slab(BlockVector[] positions, int count, EvaluatorFactory<T> factory, Map<Thread, Evaluator<T>> evaluators) {
+            this.positions = positions;
+            this.count = count;
+            this.factory = factory;
+            this.evaluators = evaluators;
+        }
+
+        @Override
+        public Object[] call() throws Exception {
+            Evaluator<T> evaluator = evaluators.get(Thread.currentThread());
+            if (evaluator == null) {
+                evaluator = factory.create();
+                evaluators.put(Thread.currentThread(), evaluator);
+            }
+            Object[] results = new Object[count];
+            for (int i = 0; i < count; i++) {
+                results[i] = evaluator.evaluate(positions[i]);
+            }
+            return results;
+        }
+    }
+
+}
@@ -27,6 +27,8 @@
 import com.sk89q.worldedit.function.operation.ForwardExtentCopy;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.registry.WorldData;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -84,6 +86,31 @@ public PasteBuilder ignoreAirBlocks(boolean ignoreAirBlocks) {
         return this;
     }
 
+    /**
+     * Get the bounding box of the blocks that the paste will change.
+     *
+     * @return the region
+     */
+    public Region getTargetRegion() {
+        Region region = clipboard.getRegion();
+        Vector min = region.getMinimumPoint().subtract(clipboard.getOrigin());
+        Vector max = region.getMaximumPoint().subtract(clipboard.getOrigin());
+        Vector targetMin = null;
+        Vector targetMax = null;
+
+        for (int i = 0; i < 8; i++) {
+            Vector corner = new Vector(
+                    (i & 1) == 0 ? min.getX() : max.getX(),
+                    (i & 2) == 0 ? min.getY() : max.getY(),
+                    (i & 4) == 0 ? min.getZ() : max.getZ());
+            Vector target = transform.apply(corner).add(to);
+            targetMin = targetMin == null ? target : Vector.getMinimum(targetMin, target);
+            targetMax = targetMax == null ? target : Vector.getMaximum(targetMax, target);
+        }
+
+        return new CuboidRegion(targetMin.floor(), targetMax.ceil());
+    }
+
     /**
      * Build the operation.
      *
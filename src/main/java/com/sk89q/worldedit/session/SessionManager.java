@@ -28,6 +28,9 @@
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.event.platform.ConfigurationLoadEvent;
+import com.sk89q.worldedit.history.changeset.ChangeSet;
+import com.sk89q.worldedit.history.changeset.DiskSpillingHistory;
+import com.sk89q.worldedit.history.changeset.PackedBlockHistory;
 import com.sk89q.worldedit.session.storage.JsonFileSessionStore;
 import com.sk89q.worldedit.session.storage.SessionStore;
 import com.sk89q.worldedit.session.storage.VoidStore;
@@ -66,6 +69,7 @@ public class SessionManager {
     private final WorldEdit worldEdit;
     private final Map<UUID, SessionHolder> sessions = new HashMap<UUID, SessionHolder>();
     private SessionStore store = new VoidStore();
+    private @Nullable File historyDir;
 
     /**
      * Create a new session manager.
@@ -191,6 +195,53 @@ public synchronized LocalSession get(SessionOwner owner) {
         return session;
     }
 
+    /**
+     * Create a new {@link ChangeSet} to record the history of an edit made
+     * by the given owner.
+     *
+     * <p>If history spilling is enabled in the configuration, the returned
+     * change set writes large edits to a compressed file in a
+     * per-owner directory.</p>
+     *
+     * @param owner the owner, or null if there is none
+     * @return a new change set
+     */
+    public ChangeSet createChangeSet(@Nullable SessionOwner owner) {
+        File dir = historyDir;
+        int threshold = worldEdit.getConfiguration().historySpillThreshold;
+
+        if (owner != null && dir != null && threshold > 0) {
+            return new DiskSpillingHistory(new File(dir, getKey(owner).toString()), threshold);
+        } else {
+            return new PackedBlockHistory();
+        }
+    }
+
+    /**
+     * Delete history files left behind by a previous run. History is
+     * not restored after a restart.
+     *
+     * @param dir the history directory
+     */
+    private void purgeHistory(File dir) {
+        File[] owners = dir.listFiles();
+        if (owners == null) {
+            return;
+        }
+
+        for (File ownerDir : owners) {
+            File[] files = ownerDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (!file.delete()) {
+                        log.log(Level.WARNING, "Failed to delete stale history file " + file.getPath());
+                    }
+                }
+            }
+            ownerDir.delete();
+        }
+    }
+
     /**
      * Save a map of sessions to disk.
      *
@@ -258,19 +309,26 @@ protected UUID getKey(SessionKey key) {
     }
 
     /**
-     * Remove the session for the given owner if one exists.
+     * Remove the session for the given owner if one exists, releasing
+     * its history.
      *
      * @param owner the owner
      */
     public synchronized void remove(SessionOwner owner) {
         checkNotNull(owner);
-        sessions.remove(getKey(owner));
+        SessionHolder holder = sessions.remove(getKey(owner));
+        if (holder != null) {
+            holder.session.clearHistory();
+        }
     }
 
     /**
-     * Remove all sessions.
+     * Remove all sessions, releasing their history.
      */
     public synchronized void clear() {
+        for (SessionHolder holder : sessions.values()) {
+            holder.session.clearHistory();
+        }
         sessions.clear();
     }
 
@@ -279,6 +337,12 @@ public void onConfigurationLoad(ConfigurationLoadEvent event) {
         LocalConfiguration config = event.getConfiguration();
         File dir = new File(config.getWorkingDirectory(), "sessions");
         store = new JsonFileSessionStore(dir);
+
+        // Only purge once, because change sets from before a reload are still in use
+        if (historyDir == null) {
+            historyDir = new File(config.getWorkingDirectory(), "history");
+            purgeHistory(historyDir);
+        }
     }
 
     /**
@@ -322,6 +386,7 @@ public void run() {
                             }
 
                             it.remove();
+                            stored.session.clearHistory();
                         }
                     }
                 }
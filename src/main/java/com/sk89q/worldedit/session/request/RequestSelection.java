@@ -23,6 +23,7 @@
 import com.sk89q.worldedit.regions.NullRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.regions.RegionOperationException;
+import com.sk89q.worldedit.regions.SpanList;
 import com.sk89q.worldedit.world.World;
 
 import java.util.Iterator;
@@ -113,6 +114,11 @@ public boolean contains(Vector position) {
         return getRegion().contains(position);
     }
 
+    @Override
+    public void getSpans(int y, int z, SpanList spans) {
+        getRegion().getSpans(y, z, spans);
+    }
+
     @Override
     public Set<Vector2D> getChunks() {
         return getRegion().getChunks();
@@ -24,6 +24,7 @@
 import com.sk89q.util.StringUtil;
 import com.sk89q.worldedit.LocalConfiguration;
 import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.internal.expression.Expression;
 import com.sk89q.worldedit.world.snapshot.SnapshotRepository;
 
 import java.io.File;
@@ -33,6 +34,7 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
@@ -105,13 +107,24 @@ public void load() {
         navigationWandMaxDistance = getInt("nav-wand-distance", navigationWandMaxDistance);
         navigationUseGlass = getBool("nav-use-glass", navigationUseGlass);
         scriptTimeout = getInt("scripting-timeout", scriptTimeout);
+        Expression.setCompilerEnabled(getBool("compile-expressions", true));
+        operationTickTime = Math.max(-1, getInt("scheduling-tick-time", operationTickTime));
+        operationTickBlocks = Math.max(-1, getInt("scheduling-tick-blocks", operationTickBlocks));
+        expressionThreads = Math.max(0, getInt("scheduling-expression-threads", expressionThreads));
+        snapshotThreads = Math.max(0, getInt("scheduling-snapshot-threads", snapshotThreads));
+        filterThreads = Math.max(0, getInt("scheduling-filter-threads", filterThreads));
+        chunkPreloadAhead = Math.max(0, getInt("scheduling-chunk-preload-ahead", chunkPreloadAhead));
+        commandThreads = Math.max(0, getInt("scheduling-command-threads", commandThreads));
+        asyncCommands = getStringSet("scheduling-async-commands", defaultAsyncCommands);
         saveDir = getString("schematic-save-dir", saveDir);
+        offHeapClipboards = getBool("clipboard-off-heap", offHeapClipboards);
         scriptsDir = getString("craftscript-dir", scriptsDir);
         butcherDefaultRadius = getInt("butcher-default-radius", butcherDefaultRadius);
         butcherMaxRadius = getInt("butcher-max-radius", butcherMaxRadius);
         allowSymlinks = getBool("allow-symbolic-links", allowSymlinks);
 
         LocalSession.MAX_HISTORY_SIZE = Math.max(15, getInt("history-size", 15));
+        historySpillThreshold = Math.max(-1, getInt("history-spill-threshold", historySpillThreshold));
 
         String snapshotsDir = getString("snapshots-dir", "");
         if (!snapshotsDir.isEmpty()) {
@@ -249,4 +262,28 @@ protected Set<Integer> getIntSet(String key, int[] def) {
         }
     }
 
+    /**
+     * Get a set of strings from a comma-separated list.
+     *
+     * @param key the key
+     * @param def the default value
+     * @return the value
+     */
+    protected Set<String> getStringSet(String key, String[] def) {
+        String val = properties.getProperty(key);
+        if (val == null) {
+            properties.setProperty(key, StringUtil.joinString(def, ",", 0));
+            return new HashSet<String>(Arrays.asList(def));
+        } else {
+            Set<String> set = new HashSet<String>();
+            for (String part : val.split(",")) {
+                part = part.trim();
+                if (!part.isEmpty()) {
+                    set.add(part);
+                }
+            }
+            return set;
+        }
+    }
+
 }
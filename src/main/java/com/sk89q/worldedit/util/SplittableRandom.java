@@ -0,0 +1,142 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A fast, seedable random number generator that can be split into
+ * independent generators, one for each thread that needs random numbers.
+ *
+ * <p>Numbers are generated with the SplitMix64 algorithm. Unlike
+ * {@link Random}, an instance is not safe for use by several threads at
+ * once; call {@link #split()} to create a generator for each thread instead.
+ * A generator created with the same seed and split in the same order
+ * returns the same sequence of numbers.</p>
+ */
+public class SplittableRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+    private static final AtomicLong defaultSeed = new AtomicLong(System.nanoTime() ^ System.currentTimeMillis());
+
+    private long seed;
+    private long gamma;
+
+    /**
+     * Create a new generator with the given seed.
+     *
+     * @param seed the seed
+     */
+    public SplittableRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Create a new generator with a seed that is unlikely to be
+     * used by any other generator.
+     */
+    public SplittableRandom() {
+        this(mix64(defaultSeed.getAndAdd(2 * GOLDEN_GAMMA)), GOLDEN_GAMMA);
+    }
+
+    private SplittableRandom(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Create a new generator that returns numbers independent of this one,
+     * advancing the state of this generator.
+     *
+     * @return a new generator
+     */
+    public SplittableRandom split() {
+        return new SplittableRandom(mix64(nextSeed()), mixGamma(nextSeed()));
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        // Called by the constructor of Random before fields are initialized
+        this.seed = seed;
+        this.gamma = GOLDEN_GAMMA;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) nextLong();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        checkArgument(bound > 0, "bound must be positive");
+        // Multiply the upper 31 bits by the bound, which has negligible bias
+        // for the bounds used in practice and needs no division
+        return (int) (((nextLong() >>> 33) * bound) >>> 31);
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    @Override
+    public float nextFloat() {
+        return (nextLong() >>> 40) * (1.0f / (1 << 24));
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec63L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+
+}
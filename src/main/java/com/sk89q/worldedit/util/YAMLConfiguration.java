@@ -22,10 +22,12 @@
 import com.sk89q.util.yaml.YAMLProcessor;
 import com.sk89q.worldedit.LocalConfiguration;
 import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.internal.expression.Expression;
 import com.sk89q.worldedit.session.SessionManager;
 import com.sk89q.worldedit.world.snapshot.SnapshotRepository;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -102,12 +104,24 @@ public void load() {
 
         scriptTimeout = config.getInt("scripting.timeout", scriptTimeout);
         scriptsDir = config.getString("scripting.dir", scriptsDir);
+        Expression.setCompilerEnabled(config.getBoolean("scripting.compile-expressions", true));
 
         saveDir = config.getString("saving.dir", saveDir);
+        offHeapClipboards = config.getBoolean("clipboard.off-heap", offHeapClipboards);
+
+        operationTickTime = Math.max(-1, config.getInt("scheduling.tick-time", operationTickTime));
+        operationTickBlocks = Math.max(-1, config.getInt("scheduling.tick-blocks", operationTickBlocks));
+        expressionThreads = Math.max(0, config.getInt("scheduling.expression-threads", expressionThreads));
+        snapshotThreads = Math.max(0, config.getInt("scheduling.snapshot-threads", snapshotThreads));
+        filterThreads = Math.max(0, config.getInt("scheduling.filter-threads", filterThreads));
+        chunkPreloadAhead = Math.max(0, config.getInt("scheduling.chunk-preload-ahead", chunkPreloadAhead));
+        commandThreads = Math.max(0, config.getInt("scheduling.command-threads", commandThreads));
+        asyncCommands = new HashSet<String>(config.getStringList("scheduling.async-commands", Arrays.asList(defaultAsyncCommands)));
 
         allowSymlinks = config.getBoolean("files.allow-symbolic-links", false);
         LocalSession.MAX_HISTORY_SIZE = Math.max(0, config.getInt("history.size", 15));
         SessionManager.EXPIRATION_GRACE = config.getInt("history.expiration", 10) * 60 * 1000;
+        historySpillThreshold = Math.max(-1, config.getInt("history.spill-threshold", historySpillThreshold));
 
         showHelpInfo = config.getBoolean("show-help-on-first-use", true);
 
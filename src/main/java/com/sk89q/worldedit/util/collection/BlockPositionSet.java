@@ -0,0 +1,124 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import com.sk89q.worldedit.math.BlockPositions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A set of block positions stored as one bitset per 16x16x16 chunk section.
+ *
+ * <p>Each section that contains at least one position costs 512 bytes,
+ * which is far smaller than a hash set of vectors for dense sets such as
+ * the positions visited by a flood fill. Positions are limited to the
+ * range supported by {@link BlockPositions}.</p>
+ */
+public class BlockPositionSet {
+
+    private static final int SECTION_WORDS = 4096 / 64;
+
+    private final Map<Long, long[]> sections = new HashMap<Long, long[]>();
+    private long lastKey;
+    private long[] lastSection;
+    private int size;
+
+    /**
+     * Add a position to the set.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position was not already in the set
+     */
+    public boolean add(int x, int y, int z) {
+        long[] section = getSection(x, y, z, true);
+        int index = localIndex(x, y, z);
+        long bit = 1L << index;
+        int word = index >>> 6;
+        if ((section[word] & bit) != 0) {
+            return false;
+        }
+        section[word] |= bit;
+        size++;
+        return true;
+    }
+
+    /**
+     * Test whether a position is in the set.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position is in the set
+     */
+    public boolean contains(int x, int y, int z) {
+        long[] section = getSection(x, y, z, false);
+        if (section == null) {
+            return false;
+        }
+        int index = localIndex(x, y, z);
+        return (section[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Get the number of positions in the set.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all positions.
+     */
+    public void clear() {
+        sections.clear();
+        lastSection = null;
+        size = 0;
+    }
+
+    private long[] getSection(int x, int y, int z, boolean create) {
+        long key = BlockPositions.pack(x >> 4, y >> 4, z >> 4);
+        if (lastSection != null && lastKey == key) {
+            return lastSection;
+        }
+
+        long[] section = sections.get(key);
+        if (section == null) {
+            if (!create) {
+                return null;
+            }
+            section = new long[SECTION_WORDS];
+            sections.put(key, section);
+        }
+
+        lastKey = key;
+        lastSection = section;
+        return section;
+    }
+
+    private static int localIndex(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
+
+}
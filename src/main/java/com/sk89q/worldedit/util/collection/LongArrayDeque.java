@@ -0,0 +1,116 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A first-in, first-out queue of primitive {@code long}s backed by a
+ * growable ring buffer.
+ */
+public class LongArrayDeque {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private long[] elements;
+    private int head;
+    private int size;
+
+    /**
+     * Create a new queue.
+     */
+    public LongArrayDeque() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new queue.
+     *
+     * @param capacity the initial capacity
+     */
+    public LongArrayDeque(int capacity) {
+        elements = new long[Math.max(1, capacity)];
+    }
+
+    /**
+     * Add a value to the tail of the queue.
+     *
+     * @param value the value
+     */
+    public void add(long value) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) % elements.length] = value;
+        size++;
+    }
+
+    /**
+     * Remove the value at the head of the queue.
+     *
+     * @return the value
+     * @throws NoSuchElementException thrown if the queue is empty
+     */
+    public long remove() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        long value = elements[head];
+        head = (head + 1) % elements.length;
+        size--;
+        return value;
+    }
+
+    /**
+     * Get the number of values in the queue.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return whether the queue is empty.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all values.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        long[] grown = new long[elements.length * 2];
+        int firstPart = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, grown, 0, firstPart);
+        System.arraycopy(elements, 0, grown, firstPart, size - firstPart);
+        elements = grown;
+        head = 0;
+    }
+
+}
@@ -0,0 +1,298 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.io;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.sk89q.worldedit.util.io.ParallelGZIPOutputStream.HEADER_LENGTH;
+import static com.sk89q.worldedit.util.io.ParallelGZIPOutputStream.MAX_BLOCK_SIZE;
+import static com.sk89q.worldedit.util.io.ParallelGZIPOutputStream.TRAILER_LENGTH;
+
+/**
+ * Decompresses gzip data, inflating the members written by
+ * {@link ParallelGZIPOutputStream} on several threads at once.
+ *
+ * <p>Other gzip data is read with a {@link GZIPInputStream}
+ * on the calling thread. Members are inflated on a pool of daemon threads
+ * that is shared by all streams, so a stream that is never closed does not
+ * keep any threads alive.</p>
+ */
+public class ParallelGZIPInputStream extends InputStream {
+
+    /**
+     * The largest member that is read, which leaves room for a block that
+     * deflate could not make any smaller.
+     */
+    private static final int MAX_MEMBER_SIZE = MAX_BLOCK_SIZE + (MAX_BLOCK_SIZE >> 8) + HEADER_LENGTH + TRAILER_LENGTH;
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("WorldEdit Inflater %d").build());
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private final DataInputStream in;
+    private final int threads;
+    private InputStream delegate;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+    private boolean eof = false;
+    private byte[] block = new byte[0];
+    private int position = 0;
+
+    /**
+     * Create a new stream that uses one thread per available processor.
+     *
+     * @param in the input stream
+     * @throws IOException thrown on I/O error
+     */
+    public ParallelGZIPInputStream(InputStream in) throws IOException {
+        this(in, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a new stream.
+     *
+     * @param in the input stream
+     * @param threads the number of members to decompress at once
+     * @throws IOException thrown on I/O error
+     */
+    public ParallelGZIPInputStream(InputStream in, int threads) throws IOException {
+        checkNotNull(in);
+        checkArgument(threads > 0, "threads must be > 0");
+        this.threads = threads;
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        this.in = new DataInputStream(buffered);
+
+        buffered.mark(HEADER_LENGTH);
+        byte[] header = new byte[HEADER_LENGTH];
+        int read = 0;
+        while (read < HEADER_LENGTH) {
+            int n = buffered.read(header, read, HEADER_LENGTH - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        buffered.reset();
+
+        if (read != HEADER_LENGTH || !isBlockHeader(header)) {
+            delegate = new GZIPInputStream(buffered);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (delegate != null) {
+            return delegate.read();
+        }
+        if (!nextBlock()) {
+            return -1;
+        }
+        return block[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (delegate != null) {
+            return delegate.read(b, off, len);
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextBlock()) {
+            return -1;
+        }
+        int n = Math.min(len, block.length - position);
+        System.arraycopy(block, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (delegate != null) {
+            return delegate.available();
+        }
+        return block.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Future<byte[]> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+        if (delegate != null) {
+            delegate.close();
+        } else {
+            in.close();
+        }
+    }
+
+    /**
+     * Make sure that there is data left in the current block, moving
+     * to the next block if necessary.
+     *
+     * @return false if the end of the stream has been reached
+     * @throws IOException thrown on I/O error
+     */
+    private boolean nextBlock() throws IOException {
+        while (position == block.length) {
+            fill();
+            if (pending.isEmpty()) {
+                return false;
+            }
+            Future<byte[]> future = pending.removeFirst();
+            try {
+                block = future.get();
+                position = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while decompressing");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Failed to decompress", e.getCause());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read members and queue them for decompression until enough are
+     * pending or the end of the input has been reached.
+     *
+     * @throws IOException thrown on I/O error
+     */
+    private void fill() throws IOException {
+        while (!eof && pending.size() < threads * 2) {
+            byte[] header = new byte[HEADER_LENGTH];
+            int first = in.read();
+            if (first < 0) {
+                eof = true;
+                break;
+            }
+            header[0] = (byte) first;
+            in.readFully(header, 1, HEADER_LENGTH - 1);
+            if (!isBlockHeader(header)) {
+                throw new IOException("Unexpected gzip member in a block-compressed stream");
+            }
+
+            int size = readInt(header, 16);
+            if (size < HEADER_LENGTH + TRAILER_LENGTH || size > MAX_MEMBER_SIZE) {
+                throw new IOException("Invalid gzip member size: " + size);
+            }
+            byte[] member = new byte[size - HEADER_LENGTH];
+            in.readFully(member);
+            pending.add(executor.submit(new Decompressor(member)));
+        }
+    }
+
+    /**
+     * Return whether the given bytes start a member written by
+     * {@link ParallelGZIPOutputStream}.
+     *
+     * @param header the header
+     * @return true if it is a block header
+     */
+    private static boolean isBlockHeader(byte[] header) {
+        return (header[0] & 0xFF) == 0x1f && (header[1] & 0xFF) == 0x8b && header[2] == 8
+                && header[3] == 4 && header[10] == 8 && header[11] == 0
+                && header[12] == 'W' && header[13] == 'E' && header[14] == 4 && header[15] == 0;
+    }
+
+    private static int readInt(byte[] b, int off) {
+        return (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8 | (b[off + 2] & 0xFF) << 16 | (b[off + 3] & 0xFF) << 24;
+    }
+
+    /**
+     * Inflates the body and checks the trailer of one member.
+     */
+    private static class Decompressor implements Callable<byte[]> {
+        private final byte[] member;
+
+        private Decompressor(byte[] member) {
+            this.member = member;
+        }
+
+        @Override
+        public byte[] call() throws IOException {
+            int length = member.length;
+            int crc = readInt(member, length - TRAILER_LENGTH);
+            int size = readInt(member, length - 4);
+            if (size < 0 || size > MAX_BLOCK_SIZE) {
+                throw new IOException("Invalid gzip member length: " + size);
+            }
+
+            byte[] data = new byte[size];
+            Inflater inflater = new Inflater(true);
+            try {
+                // The trailer is passed too, as nowrap mode may read a byte past the end
+                inflater.setInput(member, 0, length);
+                int n = 0;
+                while (n < size && !inflater.finished()) {
+                    int inflated = inflater.inflate(data, n, size - n);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new EOFException("Truncated gzip member");
+                    }
+                    n += inflated;
+                }
+                if (n != size || (!inflater.finished() && inflater.inflate(new byte[1]) > 0)) {
+                    throw new IOException("Gzip member length does not match its trailer");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt gzip member", e);
+            } finally {
+                inflater.end();
+            }
+
+            CRC32 check = new CRC32();
+            check.update(data);
+            if ((int) check.getValue() != crc) {
+                throw new IOException("Gzip member CRC does not match");
+            }
+            return data;
+        }
+    }
+
+}
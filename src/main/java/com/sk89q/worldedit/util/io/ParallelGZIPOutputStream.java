@@ -0,0 +1,256 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compresses data as a series of gzip members, each holding one block of
+ * the input, that are compressed on several threads at once.
+ *
+ * <p>Concatenated gzip members form a valid gzip file, so the output can
+ * be read with any gzip decoder that supports multiple members, such as
+ * {@link java.util.zip.GZIPInputStream} on Java 7 and later. Every member
+ * records its own compressed size in an extra header field so that
+ * {@link ParallelGZIPInputStream} can find the members without inflating
+ * them and decompress them on several threads as well.</p>
+ */
+public class ParallelGZIPOutputStream extends OutputStream {
+
+    /**
+     * The default number of uncompressed bytes in each member.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    /**
+     * The largest number of uncompressed bytes in each member.
+     */
+    public static final int MAX_BLOCK_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The length of the header written for every member.
+     */
+    static final int HEADER_LENGTH = 20;
+
+    /**
+     * The length of the trailer written for every member.
+     */
+    static final int TRAILER_LENGTH = 8;
+
+    private final OutputStream out;
+    private final int blockSize;
+    private final int maxPending;
+    private final ExecutorService executor;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+    private byte[] buffer;
+    private int count = 0;
+    private boolean closed = false;
+
+    /**
+     * Create a new stream that uses one thread per available processor.
+     *
+     * @param out the output stream
+     */
+    public ParallelGZIPOutputStream(OutputStream out) {
+        this(out, Runtime.getRuntime().availableProcessors(), DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Create a new stream.
+     *
+     * @param out the output stream
+     * @param threads the number of threads to compress with
+     * @param blockSize the number of uncompressed bytes in each member
+     */
+    public ParallelGZIPOutputStream(OutputStream out, int threads, int blockSize) {
+        checkNotNull(out);
+        checkArgument(threads > 0, "threads must be > 0");
+        checkArgument(blockSize > 0, "blockSize must be > 0");
+        checkArgument(blockSize <= MAX_BLOCK_SIZE, "blockSize must be <= " + MAX_BLOCK_SIZE);
+        this.out = out;
+        this.blockSize = blockSize;
+        this.maxPending = threads * 2;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.buffer = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == blockSize) {
+            submit();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkNotNull(b);
+        while (len > 0) {
+            if (count == blockSize) {
+                submit();
+            }
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Compress the buffered data and write out everything that has been
+     * compressed so far.
+     *
+     * @throws IOException thrown on I/O error
+     */
+    @Override
+    public void flush() throws IOException {
+        if (count > 0) {
+            submit();
+        }
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            executor.shutdownNow();
+            out.close();
+        }
+    }
+
+    /**
+     * Queue the buffered data for compression, first writing out
+     * members if too many are pending.
+     *
+     * @throws IOException thrown on I/O error
+     */
+    private void submit() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (pending.size() >= maxPending) {
+            writeNext();
+        }
+        pending.add(executor.submit(new Compressor(buffer, count)));
+        buffer = new byte[blockSize];
+        count = 0;
+    }
+
+    private void writeNext() throws IOException {
+        Future<byte[]> future = pending.removeFirst();
+        try {
+            out.write(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress", e.getCause());
+        }
+    }
+
+    /**
+     * Compresses one block into a complete gzip member.
+     */
+    private static class Compressor implements Callable<byte[]> {
+        private final byte[] data;
+        private final int length;
+
+        private Compressor(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+
+        @Override
+        public byte[] call() throws Exception {
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                deflater.setInput(data, 0, length);
+                deflater.finish();
+
+                // Stored blocks grow by at most 5 bytes per 16 KB
+                byte[] member = new byte[HEADER_LENGTH + length + (length >> 12) + 64 + TRAILER_LENGTH];
+                int size = HEADER_LENGTH;
+                while (!deflater.finished()) {
+                    if (size == member.length - TRAILER_LENGTH) {
+                        byte[] larger = new byte[member.length * 2];
+                        System.arraycopy(member, 0, larger, 0, size);
+                        member = larger;
+                    }
+                    size += deflater.deflate(member, size, member.length - TRAILER_LENGTH - size);
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(data, 0, length);
+                size = writeInt(member, size, (int) crc.getValue());
+                size = writeInt(member, size, length);
+
+                // Header with an extra field holding the size of the member
+                member[0] = (byte) 0x1f;
+                member[1] = (byte) 0x8b;
+                member[2] = 8; // Deflate
+                member[3] = 4; // FEXTRA
+                member[9] = (byte) 0xff; // Unknown OS
+                member[10] = 8; // XLEN
+                member[12] = 'W';
+                member[13] = 'E';
+                member[14] = 4; // LEN
+                writeInt(member, 16, size);
+
+                byte[] result = new byte[size];
+                System.arraycopy(member, 0, result, 0, size);
+                return result;
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    private static int writeInt(byte[] b, int off, int value) {
+        b[off] = (byte) value;
+        b[off + 1] = (byte) (value >>> 8);
+        b[off + 2] = (byte) (value >>> 16);
+        b[off + 3] = (byte) (value >>> 24);
+        return off + 4;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.metrics;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reads the number of bytes that the current thread has allocated, on JVMs
+ * that support it.
+ */
+public final class Allocations {
+
+    private static volatile boolean supported = true;
+
+    private Allocations() {
+    }
+
+    /**
+     * Get the number of bytes that the current thread has allocated so far.
+     *
+     * @return the number of bytes, or -1 if unsupported
+     */
+    public static long getAllocatedBytes() {
+        if (!supported) {
+            return -1;
+        }
+        try {
+            long bytes = HotSpot.getAllocatedBytes();
+            if (bytes < 0) {
+                supported = false;
+            }
+            return bytes;
+        } catch (LinkageError e) {
+            // Not a HotSpot JVM
+            supported = false;
+            return -1;
+        }
+    }
+
+    /**
+     * Kept separate so that the JVM specific classes are only loaded when
+     * they are used.
+     */
+    private static class HotSpot {
+        private static long getAllocatedBytes() {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+                if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                    return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+                }
+            }
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.metrics;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Aggregates the metrics of every run of one command.
+ *
+ * <p>Instances are not thread safe.</p>
+ */
+public class CommandMetrics {
+
+    private final String name;
+    private final Histogram time = new Histogram();
+    private final Histogram changed = new Histogram();
+    private long reads;
+    private long writes;
+    private long chunks;
+    private long allocated;
+    private long allocationSamples;
+
+    /**
+     * Create a new instance.
+     *
+     * @param name the name of the command
+     */
+    public CommandMetrics(String name) {
+        checkNotNull(name);
+        this.name = name;
+    }
+
+    /**
+     * Record one run of the command.
+     *
+     * @param edit the metrics of the command's edit, or null if it had none
+     * @param time the time taken, in nanoseconds
+     * @param allocated the number of bytes allocated, or -1 if unknown
+     * @param changed the number of blocks changed
+     */
+    public void add(EditMetrics edit, long time, long allocated, long changed) {
+        this.time.add(Math.max(0, time) / 1000);
+        this.changed.add(Math.max(0, changed));
+
+        if (allocated >= 0) {
+            this.allocated += allocated;
+            allocationSamples++;
+        }
+
+        if (edit != null) {
+            LayerMetrics top = edit.getTopLayer();
+            if (top != null) {
+                reads += top.getReads();
+                writes += top.getWrites();
+            }
+            chunks += edit.getChunks();
+        }
+    }
+
+    /**
+     * Get the name of the command.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the distribution of the time taken by each run, in microseconds.
+     *
+     * @return the histogram
+     */
+    public Histogram getTime() {
+        return time;
+    }
+
+    /**
+     * Get the distribution of the number of blocks changed by each run.
+     *
+     * @return the histogram
+     */
+    public Histogram getChanged() {
+        return changed;
+    }
+
+    /**
+     * Get the number of blocks read by the command's edits.
+     *
+     * @return the number of reads
+     */
+    public long getReads() {
+        return reads;
+    }
+
+    /**
+     * Get the number of blocks written by the command's edits.
+     *
+     * @return the number of writes
+     */
+    public long getWrites() {
+        return writes;
+    }
+
+    /**
+     * Get the number of chunks that the command's edits moved through.
+     *
+     * @return the number of chunks
+     */
+    public long getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Get the average number of bytes allocated per run.
+     *
+     * @return the number of bytes, or -1 if unknown
+     */
+    public long getAverageAllocated() {
+        return allocationSamples == 0 ? -1 : allocated / allocationSamples;
+    }
+
+}
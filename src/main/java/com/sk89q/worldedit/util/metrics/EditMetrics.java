@@ -0,0 +1,85 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the metrics of the extent chain of one edit.
+ *
+ * <p>Layers are added from the bottom of the chain (closest to the world)
+ * to the top. Instances are not thread safe.</p>
+ */
+public class EditMetrics {
+
+    private final List<LayerMetrics> layers = new ArrayList<LayerMetrics>();
+    private long chunks;
+
+    /**
+     * Add a layer on top of the layers added so far.
+     *
+     * @param name the name of the layer
+     * @return the metrics of the layer
+     */
+    public LayerMetrics addLayer(String name) {
+        LayerMetrics layer = new LayerMetrics(name);
+        layers.add(layer);
+        return layer;
+    }
+
+    /**
+     * Get the layers, from the bottom of the chain to the top.
+     *
+     * @return a list of layers
+     */
+    public List<LayerMetrics> getLayers() {
+        return Collections.unmodifiableList(layers);
+    }
+
+    /**
+     * Get the top layer, through which all calls enter the chain.
+     *
+     * @return the top layer, or null if there are no layers
+     */
+    public LayerMetrics getTopLayer() {
+        return layers.isEmpty() ? null : layers.get(layers.size() - 1);
+    }
+
+    /**
+     * Get the number of chunks that the edit moved through.
+     *
+     * @return the number of chunks
+     */
+    public long getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Set the number of chunks that the edit moved through.
+     *
+     * @param chunks the number of chunks
+     */
+    public void setChunks(long chunks) {
+        this.chunks = chunks;
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.metrics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Records the distribution of non-negative values in buckets whose bounds
+ * are powers of two.
+ *
+ * <p>Percentiles are reported as the upper bound of the bucket that they
+ * fall in, so they are accurate to within a factor of two. Instances are
+ * not thread safe.</p>
+ */
+public class Histogram {
+
+    private final long[] buckets = new long[64];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Record a value.
+     *
+     * @param value the value, which must not be negative
+     */
+    public void add(long value) {
+        checkArgument(value >= 0, "value >= 0");
+        buckets[64 - Long.numberOfLeadingZeros(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Get the number of recorded values.
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the sum of the recorded values.
+     *
+     * @return the sum
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Get the largest recorded value.
+     *
+     * @return the largest value, or 0 if there are none
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the mean of the recorded values.
+     *
+     * @return the mean, or 0 if there are none
+     */
+    public double getMean() {
+        return count == 0 ? 0 : sum / (double) count;
+    }
+
+    /**
+     * Get an upper bound of a percentile of the recorded values.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the upper bound, or 0 if there are no values
+     */
+    public long getPercentile(double percentile) {
+        checkArgument(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                long bound = i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                return Math.min(bound, max);
+            }
+        }
+        return max;
+    }
+
+}
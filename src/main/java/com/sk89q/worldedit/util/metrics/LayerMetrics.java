@@ -0,0 +1,157 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.metrics;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Counts the calls made into one layer of an extent chain and the time
+ * spent in them.
+ *
+ * <p>Times are inclusive: they include the time spent in the layers
+ * below. Instances are not thread safe.</p>
+ */
+public class LayerMetrics {
+
+    private final String name;
+    private long reads;
+    private long readTime;
+    private long writes;
+    private long writeTime;
+    private long commitTime;
+
+    /**
+     * Create a new instance.
+     *
+     * @param name the name of the layer
+     */
+    public LayerMetrics(String name) {
+        checkNotNull(name);
+        this.name = name;
+    }
+
+    /**
+     * Get the name of the layer.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Record a read.
+     *
+     * @param time the time taken, in nanoseconds
+     */
+    public void addRead(long time) {
+        reads++;
+        readTime += time;
+    }
+
+    /**
+     * Record a write of one or more blocks.
+     *
+     * @param blocks the number of blocks
+     * @param time the time taken, in nanoseconds
+     */
+    public void addWrite(int blocks, long time) {
+        writes += blocks;
+        writeTime += time;
+    }
+
+    /**
+     * Record time spent committing buffered changes.
+     *
+     * @param time the time taken, in nanoseconds
+     */
+    public void addCommit(long time) {
+        commitTime += time;
+    }
+
+    /**
+     * Add the counts of another instance to this one.
+     *
+     * @param other the other instance
+     */
+    public void add(LayerMetrics other) {
+        reads += other.reads;
+        readTime += other.readTime;
+        writes += other.writes;
+        writeTime += other.writeTime;
+        commitTime += other.commitTime;
+    }
+
+    /**
+     * Get the number of blocks read.
+     *
+     * @return the number of reads
+     */
+    public long getReads() {
+        return reads;
+    }
+
+    /**
+     * Get the time spent reading blocks, in nanoseconds.
+     *
+     * @return the time
+     */
+    public long getReadTime() {
+        return readTime;
+    }
+
+    /**
+     * Get the number of blocks written.
+     *
+     * @return the number of blocks
+     */
+    public long getWrites() {
+        return writes;
+    }
+
+    /**
+     * Get the time spent writing blocks, in nanoseconds.
+     *
+     * @return the time
+     */
+    public long getWriteTime() {
+        return writeTime;
+    }
+
+    /**
+     * Get the time spent committing buffered changes, in nanoseconds.
+     *
+     * @return the time
+     */
+    public long getCommitTime() {
+        return commitTime;
+    }
+
+    /**
+     * Get the total time spent in this layer and the layers below it, in
+     * nanoseconds.
+     *
+     * @return the time
+     */
+    public long getTotalTime() {
+        return readTime + writeTime + commitTime;
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.metrics;
+
+import javax.annotation.Nullable;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Aggregates the metrics of edits per command and per layer of the
+ * extent chain.
+ *
+ * <p>Layer times are recorded inclusively, so the time spent in a layer
+ * itself is found by subtracting the total time of the layer below it. Reports
+ * list layers from the bottom of the chain (the world) to the top.</p>
+ */
+public class MetricsRegistry implements MetricsRegistryMBean {
+
+    /**
+     * The name under which the registry is registered with JMX.
+     */
+    public static final String OBJECT_NAME = "com.sk89q.worldedit:type=Metrics";
+
+    private static final Logger log = Logger.getLogger(MetricsRegistry.class.getCanonicalName());
+
+    private final Map<String, LayerMetrics> layers = new LinkedHashMap<String, LayerMetrics>();
+    private final Map<String, CommandMetrics> commands = new TreeMap<String, CommandMetrics>();
+    private volatile boolean enabled;
+    private long commandCount;
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Record one run of a command.
+     *
+     * @param command the name of the command
+     * @param edit the metrics of the command's edit, or null if it had none
+     * @param time the time taken, in nanoseconds
+     * @param allocated the number of bytes allocated, or -1 if unknown
+     * @param changed the number of blocks changed
+     */
+    public synchronized void record(String command, @Nullable EditMetrics edit, long time, long allocated, long changed) {
+        checkNotNull(command);
+
+        CommandMetrics metrics = commands.get(command);
+        if (metrics == null) {
+            metrics = new CommandMetrics(command);
+            commands.put(command, metrics);
+        }
+        metrics.add(edit, time, allocated, changed);
+        commandCount++;
+
+        if (edit != null) {
+            for (LayerMetrics layer : edit.getLayers()) {
+                LayerMetrics total = layers.get(layer.getName());
+                if (total == null) {
+                    total = new LayerMetrics(layer.getName());
+                    layers.put(layer.getName(), total);
+                }
+                total.add(layer);
+            }
+        }
+    }
+
+    /**
+     * Get a copy of the metrics of each layer, from the bottom of the
+     * chain to the top.
+     *
+     * @return a list of layers
+     */
+    public synchronized List<LayerMetrics> getLayers() {
+        List<LayerMetrics> copy = new ArrayList<LayerMetrics>();
+        for (LayerMetrics layer : layers.values()) {
+            LayerMetrics snapshot = new LayerMetrics(layer.getName());
+            snapshot.add(layer);
+            copy.add(snapshot);
+        }
+        return copy;
+    }
+
+    @Override
+    public synchronized long getCommandCount() {
+        return commandCount;
+    }
+
+    @Override
+    public synchronized long getBlocksRead() {
+        long reads = 0;
+        for (CommandMetrics metrics : commands.values()) {
+            reads += metrics.getReads();
+        }
+        return reads;
+    }
+
+    @Override
+    public synchronized long getBlocksWritten() {
+        long writes = 0;
+        for (CommandMetrics metrics : commands.values()) {
+            writes += metrics.getWrites();
+        }
+        return writes;
+    }
+
+    @Override
+    public synchronized String[] getLayerReport() {
+        List<String> lines = new ArrayList<String>();
+        long belowTime = 0;
+        for (LayerMetrics layer : layers.values()) {
+            // A buffering layer passes its writes on when it is committed,
+            // so only the totals of the two layers can be compared
+            long self = Math.max(0, layer.getTotalTime() - belowTime);
+            lines.add(String.format("%-24s %9.1f ms (%.1f ms with the layers below: read %.1f, write %.1f, commit %.1f) %d reads, %d writes",
+                    layer.getName(), toMillis(self), toMillis(layer.getTotalTime()),
+                    toMillis(layer.getReadTime()), toMillis(layer.getWriteTime()), toMillis(layer.getCommitTime()),
+                    layer.getReads(), layer.getWrites()));
+            belowTime = layer.getTotalTime();
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    @Override
+    public synchronized String[] getCommandReport() {
+        List<String> lines = new ArrayList<String>();
+        for (CommandMetrics metrics : commands.values()) {
+            Histogram time = metrics.getTime();
+            long allocated = metrics.getAverageAllocated();
+            lines.add(String.format("%-16s x%d p50 %.1f ms, p90 %.1f ms, max %.1f ms; avg %.0f blocks, %s; %d reads, %d writes, %d chunks",
+                    metrics.getName(), time.getCount(),
+                    time.getPercentile(50) / 1000.0, time.getPercentile(90) / 1000.0, time.getMax() / 1000.0,
+                    metrics.getChanged().getMean(),
+                    allocated >= 0 ? (allocated / 1024) + " KiB allocated" : "allocations unknown",
+                    metrics.getReads(), metrics.getWrites(), metrics.getChunks()));
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    @Override
+    public synchronized void reset() {
+        layers.clear();
+        commands.clear();
+        commandCount = 0;
+    }
+
+    /**
+     * Register this registry with the platform's JMX server.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException ignored) {
+            // Registered before, such as on a reload
+        } catch (Exception e) {
+            log.log(Level.WARNING, "Failed to register WorldEdit's metrics with JMX", e);
+        }
+    }
+
+    /**
+     * Remove this registry from the platform's JMX server.
+     */
+    public void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (InstanceNotFoundException ignored) {
+        } catch (Exception e) {
+            log.log(Level.WARNING, "Failed to unregister WorldEdit's metrics from JMX", e);
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.metrics;
+
+/**
+ * The management interface of {@link MetricsRegistry}.
+ */
+public interface MetricsRegistryMBean {
+
+    /**
+     * Return whether metrics are collected.
+     *
+     * @return true if enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Set whether metrics are collected.
+     *
+     * @param enabled true to enable
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Get the number of commands that have been recorded.
+     *
+     * @return the number of commands
+     */
+    long getCommandCount();
+
+    /**
+     * Get the number of blocks that recorded edits have read.
+     *
+     * @return the number of blocks
+     */
+    long getBlocksRead();
+
+    /**
+     * Get the number of blocks that recorded edits have written.
+     *
+     * @return the number of blocks
+     */
+    long getBlocksWritten();
+
+    /**
+     * Get one line for every layer of the extent chain, describing the
+     * time spent in it.
+     *
+     * @return the lines
+     */
+    String[] getLayerReport();
+
+    /**
+     * Get one line for every recorded command.
+     *
+     * @return the lines
+     */
+    String[] getCommandReport();
+
+    /**
+     * Forget everything that has been recorded.
+     */
+    void reset();
+
+}
@@ -19,16 +19,19 @@
 
 package com.sk89q.worldedit.world;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.sk89q.worldedit.BlockVector2D;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.BaseItemStack;
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.blocks.BlockType;
 import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.function.mask.BlockMask;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.operation.Operation;
@@ -76,6 +79,22 @@ public final boolean setBlock(Vector pt, BaseBlock block) throws WorldEditExcept
         return setBlock(pt, block, true);
     }
 
+    @Override
+    public final int setBlocks(BlockBatch batch) throws WorldEditException {
+        return setBlocks(batch, true);
+    }
+
+    @Override
+    public int setBlocks(BlockBatch batch, boolean notifyAndLight) throws WorldEditException {
+        int changed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (setBlock(batch.toVector(i), batch.getBlock(i), notifyAndLight)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
     @Override
     public int getMaxY() {
         return getMaximumPoint().getBlockY();
@@ -168,6 +187,11 @@ public boolean generateTallRedwoodTree(EditSession editSession, Vector pt) throw
     public void checkLoadedChunk(Vector pt) {
     }
 
+    @Override
+    public @Nullable ListenableFuture<?> loadChunkAsync(Vector2D chunk) {
+        return null;
+    }
+
     @Override
     public void fixAfterFastMode(Iterable<BlockVector2D> chunks) {
     }
@@ -19,14 +19,17 @@
 
 package com.sk89q.worldedit.world;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.sk89q.worldedit.BlockVector2D;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.BaseItemStack;
 import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extent.BlockBatch;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.regions.Region;
@@ -34,6 +37,8 @@
 import com.sk89q.worldedit.util.TreeGenerator.TreeType;
 import com.sk89q.worldedit.world.registry.WorldData;
 
+import javax.annotation.Nullable;
+
 /**
  * Represents a world (dimension).
  */
@@ -112,6 +117,19 @@ public interface World extends Extent {
      */
     boolean setBlock(Vector position, BaseBlock block, boolean notifyAndLight) throws WorldEditException;
 
+    /**
+     * Similar to {@link Extent#setBlocks(BlockBatch)} but a
+     * {@code notifyAndLight} parameter indicates whether adjacent blocks
+     * should be notified that changes have been made and lighting operations
+     * should be executed.
+     *
+     * @param batch the batch of changes
+     * @param notifyAndLight true to to notify and light
+     * @return the number of blocks that were probably changed (may not be accurate)
+     * @see #setBlock(Vector, BaseBlock, boolean)
+     */
+    int setBlocks(BlockBatch batch, boolean notifyAndLight) throws WorldEditException;
+
     /**
      * @deprecated Use {@link #setBlock(Vector, BaseBlock)}
      */
@@ -228,6 +246,21 @@ public interface World extends Extent {
      */
     void checkLoadedChunk(Vector position);
 
+    /**
+     * Request that a chunk be loaded, or generated if it does not exist,
+     * in the background.
+     *
+     * <p>This must be called from the main thread. The returned future
+     * completes once the chunk has been loaded. Platforms that cannot load
+     * chunks in the background return null, in which case the chunk has
+     * to be loaded with {@link #checkLoadedChunk(Vector)} instead.</p>
+     *
+     * @param chunk the chunk coordinates
+     * @return a future, or null if the chunk cannot be loaded in the background
+     */
+    @Nullable
+    ListenableFuture<?> loadChunkAsync(Vector2D chunk);
+
     /**
      * Fix the given chunks after fast mode was used.
      *
@@ -24,29 +24,48 @@
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.Vector2D;
-import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.DataException;
+import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.chunk.Chunk;
 import com.sk89q.worldedit.world.storage.ChunkStore;
 import com.sk89q.worldedit.world.storage.MissingChunkException;
-import com.sk89q.worldedit.world.storage.MissingWorldException;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * A snapshot restore operation.
+ *
+ * <p>Only the set of affected chunks is computed up front; the positions
+ * within each chunk are walked when that chunk is applied. When more than
+ * one thread is configured, chunks are read and decoded on worker threads
+ * ahead of time, while the decoded blocks are still applied to the
+ * {@link EditSession} on the calling thread in order.</p>
  */
 public class SnapshotRestore {
 
-    private final Map<BlockVector2D, ArrayList<Vector>> neededChunks = new LinkedHashMap<BlockVector2D, ArrayList<Vector>>();
+    private final Set<BlockVector2D> neededChunks = new LinkedHashSet<BlockVector2D>();
     private final ChunkStore chunkStore;
     private final EditSession editSession;
+    private final Region region;
+    private final boolean cuboid;
+    private int threads = 1;
     private ArrayList<Vector2D> missingChunks;
     private ArrayList<Vector2D> errorChunks;
     private String lastErrorMessage;
@@ -61,8 +80,10 @@ public class SnapshotRestore {
     public SnapshotRestore(ChunkStore chunkStore, EditSession editSession, Region region) {
         this.chunkStore = chunkStore;
         this.editSession = editSession;
+        this.region = region;
+        this.cuboid = region instanceof CuboidRegion;
 
-        if (region instanceof CuboidRegion) {
+        if (cuboid) {
             findNeededCuboidChunks(region);
         } else {
             findNeededChunks(region);
@@ -78,14 +99,14 @@ private void findNeededCuboidChunks(Region region) {
         Vector min = region.getMinimumPoint();
         Vector max = region.getMaximumPoint();
 
-        // First, we need to group points by chunk so that we only need
-        // to keep one chunk in memory at any given moment
-        for (int x = min.getBlockX(); x <= max.getBlockX(); ++x) {
-            for (int y = min.getBlockY(); y <= max.getBlockY(); ++y) {
-                for (int z = min.getBlockZ(); z <= max.getBlockZ(); ++z) {
-                    Vector pos = new Vector(x, y, z);
-                    checkAndAddBlock(pos);
-                }
+        int minChunkX = min.getBlockX() >> ChunkStore.CHUNK_SHIFTS;
+        int maxChunkX = max.getBlockX() >> ChunkStore.CHUNK_SHIFTS;
+        int minChunkZ = min.getBlockZ() >> ChunkStore.CHUNK_SHIFTS;
+        int maxChunkZ = max.getBlockZ() >> ChunkStore.CHUNK_SHIFTS;
+
+        for (int x = minChunkX; x <= maxChunkX; ++x) {
+            for (int z = minChunkZ; z <= maxChunkZ; ++z) {
+                neededChunks.add(new BlockVector2D(x, z));
             }
         }
     }
@@ -96,25 +117,22 @@ private void findNeededCuboidChunks(Region region) {
      * @param region The {@link Region} to iterate
      */
     private void findNeededChunks(Region region) {
-        // First, we need to group points by chunk so that we only need
-        // to keep one chunk in memory at any given moment
-        for (Vector pos : region) {
-            checkAndAddBlock(pos);
-        }
-    }
+        int lastX = 0;
+        int lastZ = 0;
+        boolean first = true;
 
-    private void checkAndAddBlock(Vector pos) {
-        if (editSession.getMask() != null && !editSession.getMask().test(pos))
-            return;
-
-        BlockVector2D chunkPos = ChunkStore.toChunk(pos);
+        for (Vector pos : region) {
+            int x = pos.getBlockX() >> ChunkStore.CHUNK_SHIFTS;
+            int z = pos.getBlockZ() >> ChunkStore.CHUNK_SHIFTS;
 
-        // Unidentified chunk
-        if (!neededChunks.containsKey(chunkPos)) {
-            neededChunks.put(chunkPos, new ArrayList<Vector>());
+            // Consecutive positions are usually in the same chunk
+            if (first || x != lastX || z != lastZ) {
+                neededChunks.add(new BlockVector2D(x, z));
+                lastX = x;
+                lastZ = z;
+                first = false;
+            }
         }
-
-        neededChunks.get(chunkPos).add(pos);
     }
 
     /**
@@ -126,6 +144,27 @@ public int getChunksAffected() {
         return neededChunks.size();
     }
 
+    /**
+     * Get the number of threads used to read chunks.
+     *
+     * @return the number of threads, where 1 means no worker threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Set the number of threads used to read chunks. With more than one
+     * thread, up to twice as many chunks as there are threads are read
+     * ahead of the chunk that is currently being applied.
+     *
+     * @param threads the number of threads, where 1 means no worker threads
+     */
+    public void setThreads(int threads) {
+        checkArgument(threads >= 1, "threads must be >= 1");
+        this.threads = threads;
+    }
+
     /**
      * Restores to world.
      *
@@ -136,35 +175,151 @@ public void restore() throws MaxChangedBlocksException {
         missingChunks = new ArrayList<Vector2D>();
         errorChunks = new ArrayList<Vector2D>();
 
-        // Now let's start restoring!
-        for (Map.Entry<BlockVector2D, ArrayList<Vector>> entry : neededChunks.entrySet()) {
-            BlockVector2D chunkPos = entry.getKey();
-            Chunk chunk;
+        editSession.preloadChunks(neededChunks);
 
-            try {
-                chunk = chunkStore.getChunk(chunkPos, editSession.getWorld());
-                // Good, the chunk could be at least loaded
+        if (threads <= 1 || neededChunks.size() <= 1) {
+            for (BlockVector2D chunkPos : neededChunks) {
+                Chunk chunk;
+                try {
+                    chunk = loadChunk(chunkPos);
+                } catch (Exception e) {
+                    handleError(chunkPos, e);
+                    continue;
+                }
+                apply(chunkPos, chunk);
+            }
+        } else {
+            restoreInParallel();
+        }
+    }
+
+    /**
+     * Restore while reading chunks on worker threads.
+     *
+     * @throws MaxChangedBlocksException
+     */
+    private void restoreInParallel() throws MaxChangedBlocksException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<PendingChunk> pending = new ArrayDeque<PendingChunk>();
+        Iterator<BlockVector2D> it = neededChunks.iterator();
+        int prefetch = threads * 2;
+
+        try {
+            while (true) {
+                while (pending.size() < prefetch && it.hasNext()) {
+                    final BlockVector2D chunkPos = it.next();
+                    Future<Chunk> future = executor.submit(new Callable<Chunk>() {
+                        @Override
+                        public Chunk call() throws Exception {
+                            return loadChunk(chunkPos);
+                        }
+                    });
+                    pending.addLast(new PendingChunk(chunkPos, future));
+                }
+
+                PendingChunk next = pending.pollFirst();
+                if (next == null) {
+                    break;
+                }
+
+                Chunk chunk;
+                try {
+                    chunk = next.future.get();
+                } catch (ExecutionException e) {
+                    handleError(next.position, e.getCause());
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                apply(next.position, chunk);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Read a chunk from the chunk store.
+     *
+     * @param position the chunk position
+     * @return the chunk
+     * @throws DataException thrown on data error
+     * @throws IOException thrown on I/O error
+     */
+    private Chunk loadChunk(BlockVector2D position) throws DataException, IOException {
+        World world = editSession.getWorld();
+        if (chunkStore.isThreadSafe()) {
+            return chunkStore.getChunk(position, world);
+        } else {
+            synchronized (chunkStore) {
+                return chunkStore.getChunk(position, world);
+            }
+        }
+    }
+
+    /**
+     * Record a chunk that could not be read.
+     *
+     * @param position the chunk position
+     * @param e the error
+     */
+    private void handleError(BlockVector2D position, Throwable e) {
+        if (e instanceof MissingChunkException) {
+            missingChunks.add(position);
+        } else if (e instanceof DataException || e instanceof IOException) {
+            errorChunks.add(position);
+            lastErrorMessage = e.getMessage();
+        } else if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        } else {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Copy the blocks of a chunk that are within the region.
+     *
+     * @param chunkPos the chunk position
+     * @param chunk the chunk
+     * @throws MaxChangedBlocksException
+     */
+    private void apply(BlockVector2D chunkPos, Chunk chunk) throws MaxChangedBlocksException {
+        Vector min = region.getMinimumPoint();
+        Vector max = region.getMaximumPoint();
+        Mask mask = editSession.getMask();
+
+        int baseX = chunkPos.getBlockX() << ChunkStore.CHUNK_SHIFTS;
+        int baseZ = chunkPos.getBlockZ() << ChunkStore.CHUNK_SHIFTS;
+        int minX = Math.max(min.getBlockX(), baseX);
+        int maxX = Math.min(max.getBlockX(), baseX + 15);
+        int minY = min.getBlockY();
+        int maxY = max.getBlockY();
+        int minZ = Math.max(min.getBlockZ(), baseZ);
+        int maxZ = Math.min(max.getBlockZ(), baseZ + 15);
+
+        for (int x = minX; x <= maxX; ++x) {
+            for (int y = minY; y <= maxY; ++y) {
+                for (int z = minZ; z <= maxZ; ++z) {
+                    Vector pos = new Vector(x, y, z);
+
+                    if (!cuboid && !region.contains(pos)) {
+                        continue;
+                    }
+
+                    if (mask != null && !mask.test(pos)) {
+                        continue;
+                    }
 
-                // Now just copy blocks!
-                for (Vector pos : entry.getValue()) {
                     try {
-                        BaseBlock block = chunk.getBlock(pos);
-                        editSession.setBlock(pos, block);
+                        editSession.setBlock(pos, chunk.getBlock(pos));
                     } catch (DataException e) {
                         // this is a workaround: just ignore for now
                     }
                 }
-            } catch (MissingChunkException me) {
-                missingChunks.add(chunkPos);
-            } catch (MissingWorldException me) {
-                errorChunks.add(chunkPos);
-                lastErrorMessage = me.getMessage();
-            } catch (DataException de) {
-                errorChunks.add(chunkPos);
-                lastErrorMessage = de.getMessage();
-            } catch (IOException ioe) {
-                errorChunks.add(chunkPos);
-                lastErrorMessage = ioe.getMessage();
             }
         }
     }
@@ -208,4 +363,17 @@ public String getLastErrorMessage() {
         return lastErrorMessage;
     }
 
+    /**
+     * A chunk that is being read on a worker thread.
+     */
+    private static class PendingChunk {
+        private final BlockVector2D position;
+        private final Future<Chunk> future;
+
+        private PendingChunk(BlockVector2D position, Future<Chunk> future) {
+            this.position = position;
+            this.future = future;
+        }
+    }
+
 }
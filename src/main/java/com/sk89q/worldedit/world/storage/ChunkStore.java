@@ -20,6 +20,7 @@
 package com.sk89q.worldedit.world.storage;
 
 import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTPathFilter;
 import com.sk89q.jnbt.Tag;
 import com.sk89q.worldedit.BlockVector2D;
 import com.sk89q.worldedit.Vector;
@@ -44,6 +45,15 @@ public abstract class ChunkStore {
      */
     public static final int CHUNK_SHIFTS = 4;
 
+    /**
+     * The tags, relative to the root tag of a chunk, that are needed to
+     * create a {@link Chunk}.
+     */
+    protected static final NBTPathFilter CHUNK_FILTER = new NBTPathFilter(
+            "Level.xPos", "Level.zPos", "Level.TileEntities",
+            "Level.Sections.Y", "Level.Sections.Blocks", "Level.Sections.Data", "Level.Sections.Add",
+            "Level.Blocks", "Level.Data");
+
     /**
      * Convert a position to a chunk.
      *
@@ -67,6 +77,23 @@ public static BlockVector2D toChunk(Vector position) {
      */
     public abstract CompoundTag getChunkTag(Vector2D position, World world) throws DataException, IOException;
 
+    /**
+     * Get the tag for a chunk, which must contain at least the tags
+     * selected by the given filter. Other tags may be left out.
+     *
+     * <p>The default implementation returns the full tag.</p>
+     *
+     * @param position the position of the chunk
+     * @param world the world
+     * @param filter a filter relative to the root tag of the chunk
+     * @return tag
+     * @throws DataException thrown on data error
+     * @throws IOException thrown on I/O error
+     */
+    protected CompoundTag getChunkTag(Vector2D position, World world, NBTPathFilter filter) throws DataException, IOException {
+        return getChunkTag(position, world);
+    }
+
     /**
      * Get a chunk at a location.
      *
@@ -77,7 +104,7 @@ public static BlockVector2D toChunk(Vector position) {
      * @throws IOException thrown on I/O error
      */
     public Chunk getChunk(Vector2D position, World world) throws DataException, IOException {
-        CompoundTag tag = getChunkTag(position, world);
+        CompoundTag tag = getChunkTag(position, world, CHUNK_FILTER);
         Map<String, Tag> tags = tag.getValue();
         if (tags.containsKey("Sections")) {
             return new AnvilChunk(world, tag);
@@ -86,6 +113,17 @@ public Chunk getChunk(Vector2D position, World world) throws DataException, IOEx
         return new OldChunk(world, tag);
     }
 
+    /**
+     * Returns whether {@link #getChunkTag(Vector2D, World)} and
+     * {@link #getChunk(Vector2D, World)} may be called from several
+     * threads at the same time.
+     *
+     * @return true if the chunk store is thread safe
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
     /**
      * Close resources.
      *
@@ -42,8 +42,30 @@ public FileMcRegionChunkStore(File path) {
         this.path = path;
     }
 
+    @Override
+    protected McRegionReader createReader(String filename, String worldname) throws DataException, IOException {
+        return new MappedMcRegionReader(findFile(filename));
+    }
+
     @Override
     protected InputStream getInputStream(String name, String world) throws IOException, DataException {
+        try {
+            return new FileInputStream(findFile(name));
+        } catch (FileNotFoundException e) {
+            throw new MissingChunkException();
+        }
+    }
+
+    /**
+     * Find the region file with the given name, accepting either file
+     * extension.
+     *
+     * @param name the name of the region file
+     * @return the file
+     * @throws MissingChunkException thrown if the file does not exist
+     * @throws FileNotFoundException thrown if the region folder does not exist
+     */
+    private File findFile(String name) throws MissingChunkException, FileNotFoundException {
         Pattern ext = Pattern.compile(".*\\.mc[ra]$"); // allow either file extension, both work the same
         File file = null;
         File[] files = new File(path, "region").listFiles();
@@ -61,12 +83,10 @@ protected InputStream getInputStream(String name, String world) throws IOExcepti
             }
         }
 
-        try {
-            if (file == null) throw new FileNotFoundException();
-            return new FileInputStream(file);
-        } catch (FileNotFoundException e) {
+        if (file == null) {
             throw new MissingChunkException();
         }
+        return file;
     }
 
     @Override
@@ -20,12 +20,14 @@
 package com.sk89q.worldedit.world.storage;
 
 import com.sk89q.jnbt.CompoundTag;
-import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NBTPathFilter;
+import com.sk89q.jnbt.NBTStreamReader;
 import com.sk89q.jnbt.Tag;
 import com.sk89q.worldedit.*;
 import com.sk89q.worldedit.world.DataException;
 import com.sk89q.worldedit.world.World;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -71,6 +73,24 @@ public static String getFilename(Vector2D position) {
 
     @Override
     public CompoundTag getChunkTag(Vector2D position, World world) throws DataException, IOException {
+        return readChunkTag(position, null);
+    }
+
+    @Override
+    protected CompoundTag getChunkTag(Vector2D position, World world, NBTPathFilter filter) throws DataException, IOException {
+        return readChunkTag(position, filter);
+    }
+
+    /**
+     * Read the 'Level' tag of a chunk.
+     *
+     * @param position the position of the chunk
+     * @param filter a filter relative to the root tag, or null to read every tag
+     * @return tag
+     * @throws DataException thrown on data error
+     * @throws IOException thrown on I/O error
+     */
+    private CompoundTag readChunkTag(Vector2D position, @Nullable NBTPathFilter filter) throws DataException, IOException {
         int x = position.getBlockX();
         int z = position.getBlockZ();
 
@@ -80,11 +100,12 @@ public CompoundTag getChunkTag(Vector2D position, World world) throws DataExcept
                 + "." + Integer.toString(z, 36) + ".dat";
 
         InputStream stream = getInputStream(folder1, folder2, filename);
-        NBTInputStream nbt = new NBTInputStream(
-                new GZIPInputStream(stream));
+        NBTStreamReader nbt = new NBTStreamReader(
+                new GZIPInputStream(stream), filter);
         Tag tag;
 
         try {
+            nbt.next();
             tag = nbt.readTag();
             if (!(tag instanceof CompoundTag)) {
                 throw new ChunkStoreException("CompoundTag expected for chunk; got "
@@ -0,0 +1,241 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world.storage;
+
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.world.DataException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reader for a MCRegion file on disk that memory-maps the file.
+ *
+ * <p>Unlike {@link McRegionReader}, chunks can be read in any order, the
+ * header is parsed only once, and deflated chunks are inflated straight
+ * from the mapped region using a single reused {@link Inflater}.</p>
+ */
+public class MappedMcRegionReader extends McRegionReader {
+
+    private static final int INPUT_WINDOW = 8192;
+
+    private MappedByteBuffer buffer;
+    private final Inflater inflater = new Inflater();
+    private final byte[] window = new byte[INPUT_WINDOW];
+
+    /**
+     * Construct the reader.
+     *
+     * @param file the region file
+     * @throws DataException thrown if the file is not a valid region file
+     * @throws IOException thrown on I/O error
+     */
+    public MappedMcRegionReader(File file) throws DataException, IOException {
+        checkNotNull(file);
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size < SECTOR_BYTES) {
+                throw new DataException("MCRegion file " + file.getName() + " is missing its header");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new DataException("MCRegion file " + file.getName() + " is too large");
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            raf.close();
+        }
+
+        offsets = new int[SECTOR_INTS];
+        for (int i = 0; i < SECTOR_INTS; ++i) {
+            offsets[i] = buffer.getInt(i * 4);
+        }
+    }
+
+    @Override
+    public synchronized InputStream getChunkInputStream(Vector2D position) throws IOException, DataException {
+        if (buffer == null) {
+            throw new IOException("The reader has been closed");
+        }
+
+        int x = position.getBlockX() & 31;
+        int z = position.getBlockZ() & 31;
+
+        int offset = getOffset(x, z);
+
+        // The chunk hasn't been generated
+        if (offset == 0) {
+            throw new DataException("The chunk at " + x + "," + z + " is not generated");
+        }
+
+        int sectorNumber = offset >>> 8;
+        int numSectors = offset & 0xFF;
+        long start = (long) sectorNumber * SECTOR_BYTES;
+
+        if (start + CHUNK_HEADER_SIZE > buffer.capacity()) {
+            throw new DataException("MCRegion file does not contain " + x + "," + z + " in full");
+        }
+
+        int length = buffer.getInt((int) start);
+
+        if (length <= 0 || length > SECTOR_BYTES * numSectors) {
+            throw new DataException("MCRegion chunk at "
+                    + x + "," + z + " has an invalid length of " + length);
+        }
+
+        if (start + 4 + length > buffer.capacity()) {
+            throw new DataException("MCRegion file does not contain " + x + "," + z + " in full");
+        }
+
+        byte version = buffer.get((int) start + 4);
+        int dataStart = (int) start + CHUNK_HEADER_SIZE;
+        int dataLength = length - 1;
+
+        if (version == VERSION_GZIP) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(dataStart);
+            slice.limit(dataStart + dataLength);
+            return new GZIPInputStream(new ByteBufferInputStream(slice.slice()));
+        } else if (version == VERSION_DEFLATE) {
+            return new ByteArrayInputStream(inflate(dataStart, dataLength, x, z));
+        } else {
+            throw new DataException("MCRegion chunk at "
+                    + x + "," + z + " has an unsupported version of " + version);
+        }
+    }
+
+    /**
+     * Inflate a zlib stream stored in the mapped file.
+     *
+     * @param start the start of the compressed data
+     * @param length the length of the compressed data
+     * @param x the chunk X coordinate within the region
+     * @param z the chunk Z coordinate within the region
+     * @return the inflated data
+     * @throws DataException thrown if the data is corrupt
+     */
+    private byte[] inflate(int start, int length, int x, int z) throws DataException {
+        ByteBuffer source = buffer.duplicate();
+        source.position(start);
+        source.limit(start + length);
+
+        // Chunks usually compress to around a quarter of their size
+        byte[] out = new byte[Math.max(length * 4, 1024)];
+        int written = 0;
+
+        inflater.reset();
+        try {
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    // Inflater only accepts arrays on this Java version, so
+                    // the mapped data is fed through a small reused window
+                    int n = Math.min(window.length, source.remaining());
+                    if (n == 0) {
+                        throw new DataException("MCRegion chunk at " + x + "," + z + " is truncated");
+                    }
+                    source.get(window, 0, n);
+                    inflater.setInput(window, 0, n);
+                }
+
+                if (written == out.length) {
+                    byte[] grown = new byte[out.length * 2];
+                    System.arraycopy(out, 0, grown, 0, written);
+                    out = grown;
+                }
+
+                int n = inflater.inflate(out, written, out.length - written);
+                if (n == 0 && inflater.needsDictionary()) {
+                    throw new DataException("MCRegion chunk at " + x + "," + z + " requires a preset dictionary");
+                }
+                written += n;
+            }
+        } catch (DataFormatException e) {
+            throw new DataException("MCRegion chunk at " + x + "," + z + " is corrupt: " + e.getMessage());
+        }
+
+        if (written == out.length) {
+            return out;
+        }
+        byte[] result = new byte[written];
+        System.arraycopy(out, 0, result, 0, written);
+        return result;
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        // Mapped buffers are unmapped when they are garbage collected
+        buffer = null;
+        inflater.end();
+    }
+
+    /**
+     * An input stream over the remaining bytes of a buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return buffer.remaining();
+        }
+    }
+
+}
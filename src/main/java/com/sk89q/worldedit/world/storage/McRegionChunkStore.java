@@ -20,12 +20,14 @@
 package com.sk89q.worldedit.world.storage;
 
 import com.sk89q.jnbt.CompoundTag;
-import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NBTPathFilter;
+import com.sk89q.jnbt.NBTStreamReader;
 import com.sk89q.jnbt.Tag;
 import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.world.DataException;
 import com.sk89q.worldedit.world.World;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
@@ -50,31 +52,74 @@ public static String getFilename(Vector2D position) {
 
     protected McRegionReader getReader(Vector2D pos, String worldname) throws DataException, IOException {
         String filename = getFilename(pos);
-        if (curFilename != null) {
-            if (curFilename.equals(filename)) {
-                return cachedReader;
-            } else {
-                try {
-                    cachedReader.close();
-                } catch (IOException ignored) {
-                }
+        if (curFilename != null && curFilename.equals(filename)) {
+            return cachedReader;
+        }
+        if (cachedReader != null) {
+            try {
+                cachedReader.close();
+            } catch (IOException ignored) {
             }
+            cachedReader = null;
+            curFilename = null;
+        }
+        cachedReader = createReader(filename, worldname);
+        // Stream-based readers can only seek forward, so they are not reused
+        if (cachedReader.isRandomAccess()) {
+            curFilename = filename;
         }
-        InputStream stream = getInputStream(filename, worldname);
-        cachedReader = new McRegionReader(stream);
-        //curFilename = filename;
         return cachedReader;
     }
 
+    /**
+     * Create a new reader for the given region file.
+     *
+     * @param filename the name of the region file
+     * @param worldname the world name
+     * @return a reader
+     * @throws DataException thrown if the region file is invalid
+     * @throws IOException thrown on I/O error
+     */
+    protected McRegionReader createReader(String filename, String worldname) throws DataException, IOException {
+        return new McRegionReader(getInputStream(filename, worldname));
+    }
+
     @Override
     public CompoundTag getChunkTag(Vector2D position, World world) throws DataException, IOException {
-        McRegionReader reader = getReader(position, world.getName());
+        return readChunkTag(position, world, null);
+    }
 
-        InputStream stream = reader.getChunkInputStream(position);
-        NBTInputStream nbt = new NBTInputStream(stream);
+    @Override
+    protected CompoundTag getChunkTag(Vector2D position, World world, NBTPathFilter filter) throws DataException, IOException {
+        return readChunkTag(position, world, filter);
+    }
+
+    /**
+     * Read the 'Level' tag of a chunk.
+     *
+     * @param position the position of the chunk
+     * @param world the world
+     * @param filter a filter relative to the root tag, or null to read every tag
+     * @return tag
+     * @throws DataException thrown on data error
+     * @throws IOException thrown on I/O error
+     */
+    private CompoundTag readChunkTag(Vector2D position, World world, @Nullable NBTPathFilter filter) throws DataException, IOException {
+        InputStream stream;
+
+        // Only finding the chunk needs the lock; the returned stream does
+        // not depend on the reader, so NBT can be parsed concurrently
+        synchronized (this) {
+            McRegionReader reader = getReader(position, world.getName());
+            stream = reader.getChunkInputStream(position);
+        }
+
+        // Skipped tags are never allocated
+        NBTStreamReader nbt = new NBTStreamReader(stream, filter);
         Tag tag;
 
         try {
+            nbt.next();
             tag = nbt.readTag();
             if (!(tag instanceof CompoundTag)) {
                 throw new ChunkStoreException("CompoundTag expected for chunk; got " + tag.getClass().getName());
@@ -116,9 +161,16 @@ public CompoundTag getChunkTag(Vector2D position, World world) throws DataExcept
     protected abstract InputStream getInputStream(String name, String worldName) throws IOException, DataException;
 
     @Override
-    public void close() throws IOException {
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
         if (cachedReader != null) {
             cachedReader.close();
+            cachedReader = null;
+            curFilename = null;
         }
     }
 
@@ -97,6 +97,13 @@ public McRegionReader(InputStream stream) throws DataException, IOException {
         readHeader();
     }
 
+    /**
+     * Construct a reader that does not read from a stream. Subclasses
+     * are responsible for populating {@link #offsets}.
+     */
+    protected McRegionReader() {
+    }
+
     /**
      * Read the header.
      * 
@@ -175,7 +182,7 @@ public synchronized InputStream getChunkInputStream(Vector2D position) throws IO
      * @param z the Z coordinate
      * @return the offset
      */
-    private int getOffset(int x, int z) {
+    protected int getOffset(int x, int z) {
         return offsets[x + z * 32];
     }
 
@@ -190,6 +197,16 @@ public boolean hasChunk(int x, int z) {
         return getOffset(x, z) != 0;
     }
 
+    /**
+     * Returns whether chunks can be read in any order without re-opening
+     * the underlying source, meaning that the reader can be kept and reused.
+     *
+     * @return true if chunks can be read in any order
+     */
+    public boolean isRandomAccess() {
+        return false;
+    }
+
     /**
      * Close the stream.
      */
@@ -0,0 +1,193 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.jnbt;
+
+import com.sk89q.jnbt.NBTStreamReader.Event;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link NBTStreamReader}.
+ */
+public class NBTStreamReaderTest {
+
+    private static CompoundTag compound(String name, Tag... tags) {
+        Map<String, Tag> map = new HashMap<String, Tag>();
+        for (Tag tag : tags) {
+            map.put(tag.getName(), tag);
+        }
+        return new CompoundTag(name, map);
+    }
+
+    private static byte[] createChunk() throws IOException {
+        List<Tag> sections = new ArrayList<Tag>();
+        for (int y = 0; y < 3; y++) {
+            sections.add(compound("",
+                    new ByteTag("Y", (byte) y),
+                    new ByteArrayTag("Blocks", new byte[] { (byte) y, 1, 2 }),
+                    new ByteArrayTag("SkyLight", new byte[2048]),
+                    new ByteArrayTag("Data", new byte[] { 4 })));
+        }
+        List<Tag> entities = new ArrayList<Tag>();
+        entities.add(compound("", new StringTag("id", "Pig"), new ListTag("Pos", DoubleTag.class,
+                Arrays.<Tag>asList(new DoubleTag("", 1), new DoubleTag("", 2), new DoubleTag("", 3)))));
+        List<Tag> tileEntities = new ArrayList<Tag>();
+        tileEntities.add(compound("", new StringTag("id", "Sign"), new IntTag("x", 5)));
+
+        CompoundTag root = compound("",
+                compound("Level",
+                        new IntTag("xPos", 3),
+                        new IntTag("zPos", -7),
+                        new LongTag("LastUpdate", 123456789L),
+                        new IntArrayTag("HeightMap", new int[256]),
+                        new ListTag("Sections", CompoundTag.class, sections),
+                        new ListTag("Entities", CompoundTag.class, entities),
+                        new ListTag("TileEntities", CompoundTag.class, tileEntities)));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NBTOutputStream out = new NBTOutputStream(bytes);
+        out.writeTag(root);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testUnfilteredMatchesInputStream() throws IOException {
+        byte[] data = createChunk();
+        CompoundTag expected = (CompoundTag) new NBTInputStream(new ByteArrayInputStream(data)).readTag();
+
+        NBTStreamReader reader = new NBTStreamReader(new ByteArrayInputStream(data));
+        assertEquals(Event.START_COMPOUND, reader.next());
+        CompoundTag actual = (CompoundTag) reader.readTag();
+        assertEquals(Event.END_DOCUMENT, reader.next());
+
+        CompoundTag expectedLevel = (CompoundTag) expected.getValue().get("Level");
+        CompoundTag actualLevel = (CompoundTag) actual.getValue().get("Level");
+        assertEquals(expectedLevel.getValue().keySet(), actualLevel.getValue().keySet());
+        assertEquals(123456789L, actualLevel.getLong("LastUpdate"));
+        assertEquals(3, actualLevel.getList("Sections").size());
+        assertEquals(3, ((ListTag) ((CompoundTag) actualLevel.getList("Entities").get(0)).getValue().get("Pos")).getValue().size());
+    }
+
+    @Test
+    public void testPullEvents() throws IOException {
+        NBTStreamReader reader = new NBTStreamReader(new ByteArrayInputStream(createChunk()));
+        assertEquals(Event.START_COMPOUND, reader.next());
+        assertEquals(Event.START_COMPOUND, reader.next());
+        assertEquals("Level", reader.getName());
+        assertEquals(2, reader.getDepth());
+
+        int sections = 0;
+        Event event;
+        while ((event = reader.next()) != Event.END_COMPOUND) {
+            if (event == Event.START_LIST && reader.getName().equals("Sections")) {
+                assertEquals(NBTConstants.TYPE_COMPOUND, reader.getListType());
+                assertEquals(3, reader.getListLength());
+                while (reader.next() != Event.END_LIST) {
+                    while (reader.next() != Event.END_COMPOUND) {
+                        if ("Blocks".equals(reader.getName())) {
+                            byte[] blocks = new byte[3];
+                            reader.getByteArray(blocks);
+                            assertEquals(sections, blocks[0]);
+                        }
+                    }
+                    sections++;
+                }
+            } else if (event == Event.VALUE && reader.getName().equals("zPos")) {
+                assertEquals(-7, reader.getInt());
+            } else {
+                reader.skip();
+            }
+        }
+        assertEquals(3, sections);
+        assertEquals(Event.END_COMPOUND, reader.next());
+        assertEquals(Event.END_DOCUMENT, reader.next());
+    }
+
+    @Test
+    public void testFilter() throws IOException {
+        NBTPathFilter filter = new NBTPathFilter("Level.xPos", "Level.Sections.Blocks", "Level.Sections.Y", "Level.TileEntities");
+        NBTStreamReader reader = new NBTStreamReader(new ByteArrayInputStream(createChunk()), filter);
+        reader.next();
+        CompoundTag root = (CompoundTag) reader.readTag();
+        assertEquals(Event.END_DOCUMENT, reader.next());
+
+        assertEquals(1, root.getValue().size());
+        CompoundTag level = (CompoundTag) root.getValue().get("Level");
+        assertEquals(3, level.getValue().size());
+        assertEquals(3, level.getInt("xPos"));
+        assertFalse(level.containsKey("Entities"));
+        assertFalse(level.containsKey("HeightMap"));
+
+        List<Tag> sections = level.getList("Sections");
+        assertEquals(3, sections.size());
+        for (int y = 0; y < 3; y++) {
+            CompoundTag section = (CompoundTag) sections.get(y);
+            assertEquals(2, section.getValue().size());
+            assertEquals(y, section.getByte("Y"));
+            assertArrayEquals(new byte[] { (byte) y, 1, 2 }, section.getByteArray("Blocks"));
+            assertNull(section.getValue().get("SkyLight"));
+        }
+
+        // Everything below an included path is kept
+        CompoundTag sign = (CompoundTag) level.getList("TileEntities").get(0);
+        assertEquals("Sign", sign.getString("id"));
+        assertEquals(5, sign.getInt("x"));
+        assertTrue(sign.containsKey("id"));
+    }
+
+    @Test
+    public void testFilterKeepsEmptyList() throws IOException {
+        CompoundTag chunk = compound("",
+                compound("Level",
+                        new IntTag("xPos", 3),
+                        new ListTag("Sections", EndTag.class, new ArrayList<Tag>()),
+                        new ListTag("Entities", EndTag.class, new ArrayList<Tag>())));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NBTOutputStream out = new NBTOutputStream(bytes);
+        out.writeTag(chunk);
+        out.close();
+
+        NBTPathFilter filter = new NBTPathFilter("Level.xPos", "Level.Sections.Blocks", "Level.Sections.Y");
+        NBTStreamReader reader = new NBTStreamReader(new ByteArrayInputStream(bytes.toByteArray()), filter);
+        reader.next();
+        CompoundTag root = (CompoundTag) reader.readTag();
+
+        CompoundTag level = (CompoundTag) root.getValue().get("Level");
+        assertTrue(level.containsKey("Sections"));
+        assertEquals(0, level.getList("Sections").size());
+        assertFalse(level.containsKey("Entities"));
+    }
+
+}
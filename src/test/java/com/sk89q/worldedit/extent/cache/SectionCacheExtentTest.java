@@ -0,0 +1,118 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.cache;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BlockBatch;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link SectionCacheExtent}.
+ */
+public class SectionCacheExtentTest {
+
+    private static class CountingExtent extends AbstractDelegateExtent {
+        private int reads;
+
+        private CountingExtent(Extent extent) {
+            super(extent);
+        }
+
+        @Override
+        public BaseBlock getLazyBlock(Vector position) {
+            reads++;
+            return super.getLazyBlock(position);
+        }
+
+        @Override
+        public int setBlocks(BlockBatch batch) throws WorldEditException {
+            return getExtent().setBlocks(batch);
+        }
+    }
+
+    private CountingExtent counting;
+
+    @Before
+    public void setUp() throws WorldEditException {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(new CuboidRegion(new Vector(0, 0, 0), new Vector(47, 15, 15)));
+        for (int x = 0; x < 48; x++) {
+            clipboard.setBlock(new Vector(x, 3, 4), new BaseBlock(BlockID.STONE, x % 16));
+        }
+        counting = new CountingExtent(clipboard);
+    }
+
+    @Test
+    public void testRepeatedReads() {
+        SectionCacheExtent cache = new SectionCacheExtent(counting);
+        for (int i = 0; i < 3; i++) {
+            for (int x = 0; x < 48; x++) {
+                BaseBlock block = cache.getLazyBlock(new Vector(x, 3, 4));
+                assertEquals(BlockID.STONE, block.getType());
+                assertEquals(x % 16, block.getData());
+            }
+        }
+        assertEquals(48, counting.reads);
+        assertEquals(96, cache.getHits());
+        assertEquals(3, cache.getCachedSections());
+    }
+
+    @Test
+    public void testEviction() {
+        SectionCacheExtent cache = new SectionCacheExtent(counting, 2);
+        cache.getLazyBlock(new Vector(0, 3, 4));
+        cache.getLazyBlock(new Vector(16, 3, 4));
+        cache.getLazyBlock(new Vector(0, 3, 4));
+        cache.getLazyBlock(new Vector(32, 3, 4));
+        assertEquals(2, cache.getCachedSections());
+        assertEquals(3, counting.reads);
+
+        cache.getLazyBlock(new Vector(0, 3, 4));
+        assertEquals(3, counting.reads);
+        cache.getLazyBlock(new Vector(16, 3, 4));
+        assertEquals(4, counting.reads);
+    }
+
+    @Test
+    public void testWritesInvalidate() throws WorldEditException {
+        SectionCacheExtent cache = new SectionCacheExtent(counting);
+        Vector position = new Vector(5, 3, 4);
+        assertEquals(BlockID.STONE, cache.getLazyBlock(position).getType());
+
+        cache.setBlock(position, new BaseBlock(BlockID.GLASS));
+        assertEquals(BlockID.GLASS, cache.getLazyBlock(position).getType());
+
+        BlockBatch batch = new BlockBatch(0, 0, 0);
+        batch.add(5, 3, 4, new BaseBlock(BlockID.DIRT));
+        cache.setBlocks(batch);
+        assertEquals(BlockID.DIRT, cache.getLazyBlock(position).getType());
+        assertEquals(3, counting.reads);
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests {@link PaletteClipboard}.
+ */
+public class PaletteClipboardTest {
+
+    private static final CuboidRegion REGION = new CuboidRegion(new Vector(-5, 10, 3), new Vector(14, 29, 22));
+
+    private static int typeAt(int x, int y, int z) {
+        return (x * 31 + y * 17 + z * 7) % 300;
+    }
+
+    private void testRoundTrip(boolean direct) throws WorldEditException {
+        PaletteClipboard clipboard = new PaletteClipboard(REGION, direct);
+        assertEquals(BlockID.AIR, clipboard.getBlock(new Vector(0, 15, 5)).getType());
+
+        for (int x = -5; x <= 14; x++) {
+            for (int y = 10; y <= 29; y++) {
+                for (int z = 3; z <= 22; z++) {
+                    clipboard.setBlock(new Vector(x, y, z), new BaseBlock(typeAt(x, y, z), (x + z) & 15));
+                }
+            }
+        }
+        assertEquals(16, clipboard.getBitsPerBlock());
+
+        for (int x = -5; x <= 14; x++) {
+            for (int y = 10; y <= 29; y++) {
+                for (int z = 3; z <= 22; z++) {
+                    BaseBlock block = clipboard.getBlock(new Vector(x, y, z));
+                    assertEquals(typeAt(x, y, z), block.getType());
+                    assertEquals((x + z) & 15, block.getData());
+                }
+            }
+        }
+
+        assertFalse(clipboard.setBlock(new Vector(15, 10, 3), new BaseBlock(BlockID.STONE)));
+        assertEquals(BlockID.AIR, clipboard.getBlock(new Vector(15, 10, 3)).getType());
+    }
+
+    @Test
+    public void testHeap() throws WorldEditException {
+        testRoundTrip(false);
+    }
+
+    @Test
+    public void testDirect() throws WorldEditException {
+        testRoundTrip(true);
+    }
+
+    @Test
+    public void testPaletteGrowsWithContent() throws WorldEditException {
+        PaletteClipboard clipboard = new PaletteClipboard(REGION);
+        clipboard.setBlock(new Vector(0, 10, 3), new BaseBlock(BlockID.STONE));
+        assertEquals(1, clipboard.getBitsPerBlock());
+        clipboard.setBlock(new Vector(1, 10, 3), new BaseBlock(BlockID.DIRT));
+        assertEquals(2, clipboard.getBitsPerBlock());
+        assertEquals(3, clipboard.getPaletteSize());
+        assertEquals(BlockID.STONE, clipboard.getBlock(new Vector(0, 10, 3)).getType());
+        assertEquals(BlockID.DIRT, clipboard.getBlock(new Vector(1, 10, 3)).getType());
+    }
+
+    @Test
+    public void testNbtAndUnusualBlocks() throws WorldEditException {
+        PaletteClipboard clipboard = new PaletteClipboard(REGION);
+        Map<String, Tag> values = new HashMap<String, Tag>();
+        values.put("id", new StringTag("id", "Chest"));
+        BaseBlock chest = new BaseBlock(BlockID.CHEST, 2, new CompoundTag("", values));
+        Vector position = new Vector(2, 12, 4);
+
+        clipboard.setBlock(position, chest);
+        BaseBlock block = clipboard.getBlock(position);
+        assertEquals(BlockID.CHEST, block.getType());
+        assertEquals(2, block.getData());
+        assertNotNull(block.getNbtData());
+
+        clipboard.setBlock(position, new BaseBlock(BlockID.STONE));
+        assertNull(clipboard.getBlock(position).getNbtData());
+
+        clipboard.setBlock(position, new BaseBlock(BlockID.STONE, -1));
+        assertEquals(-1, clipboard.getBlock(position).getData());
+    }
+
+}
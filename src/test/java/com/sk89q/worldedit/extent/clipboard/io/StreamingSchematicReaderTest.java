@@ -0,0 +1,113 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.google.common.io.ByteStreams;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTOutputStream;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.extent.clipboard.PaletteClipboard;
+import com.sk89q.worldedit.math.transform.Identity;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.world.registry.LegacyWorldData;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests {@link StreamingSchematicReader}.
+ */
+public class StreamingSchematicReaderTest {
+
+    private static final Vector MIN = new Vector(100, 20, -40);
+    private static final Vector MAX = new Vector(104, 29, -38); // 5 x 10 x 3, an odd area
+
+    private static int typeAt(Vector position) {
+        int i = position.getBlockX() * 7 + position.getBlockY() * 13 + position.getBlockZ() * 3;
+        return (i & 3) == 0 ? BlockID.AIR : 1 + Math.abs(i) % 600;
+    }
+
+    private static byte[] createSchematic() throws IOException, WorldEditException {
+        PaletteClipboard clipboard = new PaletteClipboard(new CuboidRegion(MIN, MAX));
+        clipboard.setOrigin(MIN.add(2, 0, 1));
+        for (int x = MIN.getBlockX(); x <= MAX.getBlockX(); x++) {
+            for (int y = MIN.getBlockY(); y <= MAX.getBlockY(); y++) {
+                for (int z = MIN.getBlockZ(); z <= MAX.getBlockZ(); z++) {
+                    Vector position = new Vector(x, y, z);
+                    clipboard.setBlock(position, new BaseBlock(typeAt(position), Math.abs(y) % 16));
+                }
+            }
+        }
+
+        Map<String, Tag> values = new HashMap<String, Tag>();
+        values.put("id", new StringTag("id", "Chest"));
+        clipboard.setBlock(MIN.add(1, 6, 2), new BaseBlock(BlockID.CHEST, 3, new CompoundTag("", values)));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SchematicWriter writer = new SchematicWriter(new NBTOutputStream(new GZIPOutputStream(bytes)));
+        writer.write(clipboard, LegacyWorldData.getInstance());
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testPasteInSlabs() throws IOException, WorldEditException {
+        StreamingSchematicReader reader = new StreamingSchematicReader(ByteStreams.newInputStreamSupplier(createSchematic()));
+        reader.setSlabVolume(20); // A single layer of 15 blocks per slab
+        assertEquals(MIN.add(2, 0, 1), reader.getOrigin());
+
+        Vector to = new Vector(0, 64, 0);
+        Vector shift = to.subtract(reader.getOrigin());
+        BlockArrayClipboard target = new BlockArrayClipboard(new CuboidRegion(MIN.add(shift), MAX.add(shift)));
+        reader.paste(target, LegacyWorldData.getInstance(), new Identity(), to, false);
+
+        for (int x = MIN.getBlockX(); x <= MAX.getBlockX(); x++) {
+            for (int y = MIN.getBlockY(); y <= MAX.getBlockY(); y++) {
+                for (int z = MIN.getBlockZ(); z <= MAX.getBlockZ(); z++) {
+                    Vector position = new Vector(x, y, z);
+                    BaseBlock block = target.getBlock(position.add(shift));
+                    if (position.equals(MIN.add(1, 6, 2))) {
+                        assertEquals(BlockID.CHEST, block.getType());
+                        assertNotNull(block.getNbtData());
+                    } else {
+                        assertEquals(position.toString(), typeAt(position), block.getType());
+                        assertEquals(Math.abs(y) % 16, block.getData());
+                        assertNull(block.getNbtData());
+                    }
+                }
+            }
+        }
+    }
+
+}
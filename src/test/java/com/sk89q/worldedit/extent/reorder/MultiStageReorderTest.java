@@ -0,0 +1,143 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.reorder;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link MultiStageReorder}.
+ */
+public class MultiStageReorderTest {
+
+    private static class RecordingExtent extends AbstractDelegateExtent {
+        private final List<Vector> positions = new ArrayList<Vector>();
+        private final List<Integer> types = new ArrayList<Integer>();
+
+        private RecordingExtent(Extent extent) {
+            super(extent);
+        }
+
+        @Override
+        public boolean setBlock(Vector location, BaseBlock block) throws WorldEditException {
+            positions.add(location.toBlockVector());
+            types.add(block.getType());
+            return super.setBlock(location, block);
+        }
+    }
+
+    private RecordingExtent recording;
+    private MultiStageReorder reorder;
+
+    @Before
+    public void setUp() {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(new CuboidRegion(new Vector(-40, 0, -40), new Vector(40, 31, 40)));
+        recording = new RecordingExtent(clipboard);
+        reorder = new MultiStageReorder(recording, true);
+    }
+
+    @Test
+    public void testPackRoundTrip() {
+        int[] values = { 0, 1, 15, 16, -1, -16, -17, 30000000, -30000000 };
+        for (int x : values) {
+            for (int z : values) {
+                for (int y : new int[] { 0, 255, -1, -64 }) {
+                    assertTrue(BlockStage.fits(x, y, z));
+                    long key = BlockStage.pack(x, y, z);
+                    assertEquals(x, BlockStage.getX(key));
+                    assertEquals(y, BlockStage.getY(key));
+                    assertEquals(z, BlockStage.getZ(key));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStagesAndDuplicates() throws WorldEditException {
+        reorder.setBlock(new Vector(3, 5, 3), new BaseBlock(BlockID.TORCH, 5));
+        reorder.setBlock(new Vector(20, 4, 3), new BaseBlock(BlockID.STONE));
+        reorder.setBlock(new Vector(3, 4, 3), new BaseBlock(BlockID.STONE));
+        reorder.setBlock(new Vector(3, 4, 3), new BaseBlock(BlockID.DIRT));
+        reorder.setBlock(new Vector(-5, 4, 3), new BaseBlock(BlockID.STONE));
+        assertEquals(0, recording.positions.size());
+
+        Operations.completeBlindly(reorder.commit());
+
+        assertEquals(4, recording.positions.size());
+        assertEquals(BlockID.TORCH, (int) recording.types.get(3));
+        assertEquals(new Vector(3, 5, 3), recording.positions.get(3));
+
+        // Only the last change to a position is kept
+        int dirt = recording.types.indexOf(BlockID.DIRT);
+        assertEquals(new Vector(3, 4, 3), recording.positions.get(dirt));
+        assertEquals(1, countOf(recording.types, BlockID.DIRT));
+        assertEquals(BlockID.DIRT, reorder.getBlock(new Vector(3, 4, 3)).getType());
+
+        // Blocks of the first stage are placed in chunk order
+        assertEquals(new Vector(-5, 4, 3), recording.positions.get(0));
+        assertEquals(new Vector(20, 4, 3), recording.positions.get(2));
+    }
+
+    @Test
+    public void testAttachedBlocksPlacedLast() throws WorldEditException {
+        reorder.setBlock(new Vector(0, 2, 0), new BaseBlock(BlockID.WOODEN_DOOR, 8));
+        reorder.setBlock(new Vector(0, 1, 0), new BaseBlock(BlockID.WOODEN_DOOR, 0));
+        reorder.setBlock(new Vector(0, 0, 0), new BaseBlock(BlockID.STONE));
+        reorder.setBlock(new Vector(1, 1, 0), new BaseBlock(BlockID.SIGN_POST, 0));
+
+        Operations.completeBlindly(reorder.commit());
+
+        assertEquals(4, recording.positions.size());
+        assertEquals(BlockID.STONE, (int) recording.types.get(0));
+        assertEquals(3, countOf(recording.types.subList(1, 4), BlockID.WOODEN_DOOR) + countOf(recording.types.subList(1, 4), BlockID.SIGN_POST));
+        assertTrue(recording.positions.indexOf(new Vector(0, 1, 0)) > 0);
+        assertTrue(recording.positions.indexOf(new Vector(0, 2, 0)) > 0);
+
+        // The stages are cleared after committing
+        Operations.completeBlindly(reorder.commit());
+        assertEquals(4, recording.positions.size());
+    }
+
+    private static int countOf(List<Integer> types, int type) {
+        int count = 0;
+        for (int t : types) {
+            if (t == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
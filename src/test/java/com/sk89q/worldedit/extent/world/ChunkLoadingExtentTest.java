@@ -0,0 +1,178 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.world;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.function.operation.OperationScheduler;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.world.NullWorld;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link ChunkLoadingExtent}.
+ */
+public class ChunkLoadingExtentTest {
+
+    private static class RecordingWorld extends NullWorld {
+        private final List<Vector2D> loaded = new ArrayList<Vector2D>();
+        private final List<SettableFuture<Object>> futures = new ArrayList<SettableFuture<Object>>();
+        private boolean async;
+
+        @Override
+        @Nullable
+        public ListenableFuture<?> loadChunkAsync(Vector2D chunk) {
+            if (!async) {
+                return null;
+            }
+            SettableFuture<Object> future = SettableFuture.create();
+            loaded.add(chunk);
+            futures.add(future);
+            return future;
+        }
+
+        @Override
+        public void checkLoadedChunk(Vector position) {
+            BlockVector2D chunk = new BlockVector2D(position.getBlockX() >> 4, position.getBlockZ() >> 4);
+            if (!loaded.contains(chunk)) {
+                loaded.add(chunk);
+            }
+        }
+    }
+
+    private RecordingWorld world;
+    private ChunkLoadingExtent extent;
+    private OperationScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        world = new RecordingWorld();
+        extent = new ChunkLoadingExtent(new NullExtent(), world);
+        scheduler = new OperationScheduler();
+        scheduler.setTickTime(-1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testCountsDistinctChunks() throws WorldEditException {
+        BaseBlock stone = new BaseBlock(BlockID.STONE);
+
+        // Going back and forth between two chunks only counts them once
+        for (int i = 0; i < 4; i++) {
+            extent.setBlock(new Vector(5, 5, 0), stone);
+            extent.setBlock(new Vector(20, 5, 0), stone);
+        }
+        extent.setBlock(new Vector(-1, 5, -1), stone);
+
+        assertEquals(3, extent.getChunkCount());
+    }
+
+    @Test
+    public void testPreloadDisabled() {
+        extent.preload(new CuboidRegion(new Vector(0, 0, 0), new Vector(100, 10, 0)), scheduler);
+        scheduler.run();
+
+        assertEquals(0, scheduler.getPendingCount());
+        assertTrue(world.loaded.isEmpty());
+    }
+
+    @Test
+    public void testLoadsAheadOfEdit() throws WorldEditException {
+        extent.setPreloadAhead(3);
+        extent.preload(new CuboidRegion(new Vector(-16, 0, 0), new Vector(143, 10, 31)), scheduler);
+
+        // 10 columns along X, 2 along Z, loaded in Z and then X order
+        scheduler.run();
+        assertEquals(3, world.loaded.size());
+        assertEquals(new BlockVector2D(-1, 0), world.loaded.get(0));
+        assertEquals(new BlockVector2D(0, 0), world.loaded.get(1));
+        assertEquals(new BlockVector2D(1, 0), world.loaded.get(2));
+
+        // Nothing more is loaded until the edit moves on
+        scheduler.run();
+        assertEquals(3, world.loaded.size());
+
+        extent.getBlock(new Vector(20, 5, 0));
+        scheduler.run();
+        assertEquals(6, world.loaded.size());
+        assertEquals(new BlockVector2D(4, 0), world.loaded.get(5));
+
+        // Chunks that the edit has skipped are not loaded, and a chunk that
+        // is not ready yet is loaded right away
+        extent.setBlock(new Vector(130, 5, 20), new BaseBlock(BlockID.STONE));
+        scheduler.run();
+        assertEquals(7, world.loaded.size());
+        assertEquals(new BlockVector2D(8, 1), world.loaded.get(6));
+        assertEquals(0, scheduler.getPendingCount());
+    }
+
+    @Test
+    public void testLoadsWithinTickBudget() {
+        extent.setPreloadAhead(8);
+        extent.preload(new CuboidRegion(new Vector(0, 0, 0), new Vector(159, 10, 0)), scheduler);
+
+        // Each chunk loaded on the main thread takes as long as reading a section
+        scheduler.setTickSteps(2 * 4096);
+        scheduler.run();
+        assertEquals(2, world.loaded.size());
+        scheduler.run();
+        assertEquals(4, world.loaded.size());
+    }
+
+    @Test
+    public void testCommitCancelsRequests() throws WorldEditException {
+        world.async = true;
+        extent.setPreloadAhead(4);
+        extent.preload(new CuboidRegion(new Vector(0, 0, 0), new Vector(159, 10, 0)), scheduler);
+        scheduler.run();
+        world.futures.get(0).set(null);
+
+        extent.commit();
+        scheduler.run();
+
+        assertEquals(4, world.futures.size());
+        assertTrue(world.futures.get(0).isDone() && !world.futures.get(0).isCancelled());
+        for (int i = 1; i < 4; i++) {
+            assertTrue(world.futures.get(i).isCancelled());
+        }
+
+        // Writes after the commit no longer request chunks
+        extent.getBlock(new Vector(100, 5, 0));
+        scheduler.run();
+        assertEquals(4, world.futures.size());
+        assertEquals(0, scheduler.getPendingCount());
+    }
+
+}
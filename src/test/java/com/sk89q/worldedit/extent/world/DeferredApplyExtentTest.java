@@ -0,0 +1,269 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.world;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.BlockBatch;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.OperationScheduler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link DeferredApplyExtent}.
+ */
+public class DeferredApplyExtentTest {
+
+    /**
+     * Stores blocks and records whether it was used from another thread.
+     */
+    private static class MainThreadExtent extends NullExtent {
+        private final Thread mainThread = Thread.currentThread();
+        private final Map<BlockVector, BaseBlock> blocks = new HashMap<BlockVector, BaseBlock>();
+        private final List<BlockVector> order = new ArrayList<BlockVector>();
+        private final Set<Integer> chunksRead = Collections.synchronizedSet(new HashSet<Integer>());
+        private volatile boolean usedOffThread;
+        private boolean committed;
+
+        private void check() {
+            if (Thread.currentThread() != mainThread) {
+                usedOffThread = true;
+            }
+        }
+
+        @Override
+        public Vector getMinimumPoint() {
+            return new Vector(-1000, 0, -1000);
+        }
+
+        @Override
+        public Vector getMaximumPoint() {
+            return new Vector(1000, 255, 1000);
+        }
+
+        @Override
+        public BaseBlock getBlock(Vector position) {
+            check();
+            chunksRead.add(position.getBlockX() >> 4);
+            BaseBlock block = blocks.get(position.toBlockVector());
+            return block != null ? block : new BaseBlock(BlockID.AIR);
+        }
+
+        @Override
+        public boolean setBlock(Vector position, BaseBlock block) throws WorldEditException {
+            check();
+            blocks.put(position.toBlockVector(), block);
+            order.add(position.toBlockVector());
+            return true;
+        }
+
+        @Override
+        public int setBlocks(BlockBatch batch) throws WorldEditException {
+            for (int i = 0; i < batch.size(); i++) {
+                setBlock(batch.toVector(i), batch.getBlock(i));
+            }
+            return batch.size();
+        }
+
+        @Override
+        public Operation commit() {
+            check();
+            committed = true;
+            return null;
+        }
+    }
+
+    private MainThreadExtent world;
+    private DeferredApplyExtent extent;
+    private OperationScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        world = new MainThreadExtent();
+        extent = new DeferredApplyExtent(world);
+        scheduler = new OperationScheduler();
+    }
+
+    private void runUntil(ListenableFuture<?> future, Thread worker) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!future.isDone() || worker.isAlive()) {
+            scheduler.run();
+            Thread.sleep(1);
+            assertTrue("Timed out", System.nanoTime() < deadline);
+        }
+    }
+
+    @Test
+    public void testPassThrough() throws WorldEditException {
+        extent.setBlock(new Vector(1, 2, 3), new BaseBlock(BlockID.STONE));
+        assertEquals(BlockID.STONE, world.getBlock(new Vector(1, 2, 3)).getType());
+        assertFalse(extent.isDeferred());
+    }
+
+    @Test
+    public void testAppliedOnMainThread() throws Exception {
+        world.setBlock(new Vector(5, 64, 5), new BaseBlock(BlockID.DIRT));
+        ListenableFuture<Operation> future = extent.deferTo(scheduler);
+
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final int[] read = new int[2];
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    read[0] = extent.getBlock(new Vector(5, 64, 5)).getType();
+                    for (int x = 0; x < 40; x++) {
+                        extent.setBlock(new Vector(x, 64, 0), new BaseBlock(BlockID.STONE));
+                    }
+                    read[1] = extent.getBlock(new Vector(20, 64, 0)).getType();
+                    extent.finish();
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        });
+        worker.start();
+        runUntil(future, worker);
+
+        assertEquals(null, failure.get());
+        assertFalse(world.usedOffThread);
+        assertEquals(BlockID.DIRT, read[0]);
+        assertEquals(BlockID.STONE, read[1]);
+        assertEquals(41, world.blocks.size());
+        assertEquals(BlockID.STONE, world.getBlock(new Vector(39, 64, 0)).getType());
+        assertEquals(40, extent.getAppliedCount());
+        assertEquals(0, extent.getQueuedCount());
+        assertTrue(world.committed);
+    }
+
+    @Test
+    public void testWriteOrderKept() throws Exception {
+        ListenableFuture<Operation> future = extent.deferTo(scheduler);
+
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    extent.setBlock(new Vector(0, 64, 0), new BaseBlock(BlockID.STONE));
+                    extent.setBlock(new Vector(16, 64, 0), new BaseBlock(BlockID.STONE));
+                    extent.setBlock(new Vector(1, 64, 0), new BaseBlock(BlockID.TORCH));
+                    extent.finish();
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        });
+        worker.start();
+        runUntil(future, worker);
+
+        assertEquals(null, failure.get());
+        assertEquals(Arrays.asList(new BlockVector(0, 64, 0), new BlockVector(16, 64, 0), new BlockVector(1, 64, 0)), world.order);
+    }
+
+    @Test
+    public void testReadAhead() throws Exception {
+        ListenableFuture<Operation> future = extent.deferTo(scheduler);
+
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int x = 0; x < 48; x += 16) {
+                        extent.getBlock(new Vector(x, 64, 0));
+                    }
+                    extent.finish();
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        });
+        worker.start();
+        runUntil(future, worker);
+
+        assertEquals(null, failure.get());
+        assertTrue(world.chunksRead.contains(6));
+        assertFalse(world.chunksRead.contains(7));
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        ListenableFuture<Operation> future = extent.deferTo(scheduler);
+
+        final CountDownLatch written = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    extent.setBlock(new Vector(0, 64, 0), new BaseBlock(BlockID.STONE));
+                    written.countDown();
+                    cancelled.await();
+                    extent.setBlock(new Vector(1, 64, 0), new BaseBlock(BlockID.STONE));
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        });
+        worker.start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!written.await(1, TimeUnit.MILLISECONDS)) {
+            scheduler.run();
+            assertTrue("Timed out", System.nanoTime() < deadline);
+        }
+
+        extent.cancel();
+        cancelled.countDown();
+        runUntil(future, worker);
+
+        assertTrue(failure.get() instanceof CancellationException);
+        assertTrue(future.isCancelled());
+        assertTrue(extent.isCancelled());
+        assertTrue(world.blocks.isEmpty());
+        assertFalse(world.committed);
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.block;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link ColumnGravity}.
+ */
+public class ColumnGravityTest {
+
+    private static class CountingExtent extends AbstractDelegateExtent {
+        private int writes;
+
+        private CountingExtent(BlockArrayClipboard clipboard) {
+            super(clipboard);
+        }
+
+        @Override
+        public boolean setBlock(Vector location, BaseBlock block) throws WorldEditException {
+            writes++;
+            return super.setBlock(location, block);
+        }
+    }
+
+    private BlockArrayClipboard clipboard;
+    private CountingExtent extent;
+
+    @Before
+    public void setUp() {
+        clipboard = new BlockArrayClipboard(new CuboidRegion(new Vector(0, 0, 0), new Vector(3, 15, 3)));
+        extent = new CountingExtent(clipboard);
+    }
+
+    private int typeAt(int y) {
+        return clipboard.getBlock(new Vector(1, y, 1)).getType();
+    }
+
+    @Test
+    public void testBlocksFallInOrder() throws WorldEditException {
+        clipboard.setBlock(new Vector(1, 2, 1), new BaseBlock(BlockID.STONE));
+        clipboard.setBlock(new Vector(1, 7, 1), new BaseBlock(BlockID.SAND));
+        clipboard.setBlock(new Vector(1, 8, 1), new BaseBlock(BlockID.DIRT));
+        clipboard.setBlock(new Vector(1, 12, 1), new BaseBlock(BlockID.GLASS));
+
+        ColumnGravity gravity = new ColumnGravity(extent, 1, 10);
+        assertTrue(gravity.apply(new Vector2D(1, 1)));
+
+        assertEquals(BlockID.STONE, typeAt(1));
+        assertEquals(BlockID.SAND, typeAt(2));
+        assertEquals(BlockID.DIRT, typeAt(3));
+        for (int y = 4; y <= 10; y++) {
+            assertEquals(BlockID.AIR, typeAt(y));
+        }
+
+        // Outside of the column
+        assertEquals(BlockID.GLASS, typeAt(12));
+
+        assertEquals(5, gravity.getAffected());
+        assertEquals(5, extent.writes);
+    }
+
+    @Test
+    public void testOnlyChangedCellsAreWritten() throws WorldEditException {
+        for (int y = 0; y < 4; y++) {
+            clipboard.setBlock(new Vector(1, y, 1), new BaseBlock(BlockID.STONE));
+        }
+        for (int y = 5; y < 9; y++) {
+            clipboard.setBlock(new Vector(1, y, 1), new BaseBlock(BlockID.STONE));
+        }
+
+        ColumnGravity gravity = new ColumnGravity(extent, 0, 15);
+        gravity.apply(new Vector2D(1, 1));
+
+        // Only the gap is filled and the top block removed
+        assertEquals(2, extent.writes);
+        for (int y = 0; y < 8; y++) {
+            assertEquals(BlockID.STONE, typeAt(y));
+        }
+        assertEquals(BlockID.AIR, typeAt(8));
+
+        // Nothing left to fall
+        assertFalse(gravity.apply(new Vector2D(1, 1)));
+        assertEquals(2, extent.writes);
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.mask;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link CompiledBlockMask} and {@link Masks#compile(Mask)}.
+ */
+public class CompiledBlockMaskTest {
+
+    private static final int SIZE = 8;
+
+    private BlockArrayClipboard extent;
+
+    @Before
+    public void setUp() throws WorldEditException {
+        extent = new BlockArrayClipboard(new CuboidRegion(new Vector(0, 0, 0), new Vector(SIZE - 1, SIZE - 1, SIZE - 1)));
+        int[] types = { BlockID.AIR, BlockID.STONE, BlockID.CLOTH, BlockID.LONG_GRASS, BlockID.LOG, BlockID.GLASS };
+        int i = 0;
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                for (int z = 0; z < SIZE; z++) {
+                    extent.setBlock(new Vector(x, y, z), new BaseBlock(types[i % types.length], (i / types.length) % 16));
+                    i++;
+                }
+            }
+        }
+    }
+
+    private void assertSameResults(Mask mask) {
+        Mask compiled = Masks.compile(mask);
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                for (int z = 0; z < SIZE; z++) {
+                    Vector position = new Vector(x, y, z);
+                    assertEquals(position.toString(), mask.test(position), compiled.test(position));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBlockMask() {
+        Mask mask = new BlockMask(extent, new BaseBlock(BlockID.STONE, 3), new BaseBlock(BlockID.CLOTH, -1));
+        assertTrue(Masks.compile(mask) instanceof CompiledBlockMask);
+        assertSameResults(mask);
+    }
+
+    @Test
+    public void testFuzzyBlockMask() {
+        Mask mask = new FuzzyBlockMask(extent, new BaseBlock(BlockID.LOG, -1), new BaseBlock(BlockID.GLASS, 2));
+        assertTrue(Masks.compile(mask) instanceof CompiledBlockMask);
+        assertSameResults(mask);
+    }
+
+    @Test
+    public void testSubclassNotCompiled() {
+        Mask mask = new BlockMask(extent, new BaseBlock(BlockID.STONE, -1)) {
+            @Override
+            public boolean test(Vector vector) {
+                return vector.getBlockY() > 2 && super.test(vector);
+            }
+        };
+        assertSame(mask, Masks.compile(mask));
+        assertSame(mask, Masks.compile(new MaskIntersection(mask)));
+    }
+
+    @Test
+    public void testExistingAndSolid() {
+        assertSameResults(new ExistingBlockMask(extent));
+        assertSameResults(new SolidBlockMask(extent));
+    }
+
+    @Test
+    public void testCombinations() {
+        Mask stone = new BlockMask(extent, new BaseBlock(BlockID.STONE, -1));
+        Mask wool = new BlockMask(extent, new BaseBlock(BlockID.CLOTH, 5));
+        Mask region = new RegionMask(new CuboidRegion(new Vector(0, 0, 0), new Vector(3, 3, 3)));
+
+        Mask intersection = new MaskIntersection(new ExistingBlockMask(extent), Masks.negate(stone));
+        assertTrue(Masks.compile(intersection) instanceof CompiledBlockMask);
+        assertSameResults(intersection);
+
+        assertSameResults(new MaskUnion(stone, wool, region));
+        assertSameResults(new MaskIntersection(new SolidBlockMask(extent), region));
+        assertSameResults(Masks.negate(new MaskUnion(stone, wool)));
+        assertSameResults(new OffsetMask(new MaskUnion(stone, wool), new Vector(0, -1, 0)));
+        assertSameResults(new MaskIntersection());
+    }
+
+    @Test
+    public void testCompileIsIdempotent() {
+        Mask compiled = Masks.compile(new SolidBlockMask(extent));
+        assertSame(compiled, Masks.compile(compiled));
+    }
+
+}
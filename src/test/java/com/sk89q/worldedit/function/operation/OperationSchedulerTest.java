@@ -0,0 +1,126 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.visitor.RegionVisitor;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link OperationScheduler}.
+ */
+public class OperationSchedulerTest {
+
+    private static class CountingFunction implements RegionFunction {
+        private int count;
+
+        @Override
+        public boolean apply(Vector position) throws WorldEditException {
+            count++;
+            return true;
+        }
+    }
+
+    @Test
+    public void testVisitorYields() throws Exception {
+        CountingFunction function = new CountingFunction();
+        RegionVisitor visitor = new RegionVisitor(new CuboidRegion(new Vector(0, 0, 0), new Vector(9, 9, 9)), function);
+
+        Operation next = visitor.resume(new LimitedRunContext(-1, TimeUnit.MILLISECONDS, 100));
+        assertEquals(visitor, next);
+        assertEquals(100, function.count);
+
+        Operations.complete(next);
+        assertEquals(1000, function.count);
+        assertEquals(1000, visitor.getAffected());
+    }
+
+    @Test
+    public void testSchedulerSpreadsAcrossTicks() throws Exception {
+        CountingFunction function = new CountingFunction();
+        RegionVisitor visitor = new RegionVisitor(new CuboidRegion(new Vector(0, 0, 0), new Vector(9, 9, 9)), function);
+
+        OperationScheduler scheduler = new OperationScheduler();
+        scheduler.setTickTime(-1, TimeUnit.MILLISECONDS);
+        scheduler.setTickSteps(300);
+        ListenableFuture<Operation> future = scheduler.submit(new OperationQueue(visitor));
+
+        int ticks = 0;
+        while (!future.isDone()) {
+            scheduler.run();
+            ticks++;
+            assertTrue(ticks < 100);
+        }
+
+        assertTrue(ticks > 1);
+        assertEquals(1000, function.count);
+        assertEquals(0, scheduler.getPendingCount());
+    }
+
+    @Test
+    public void testWaitingOperationYieldsTick() throws Exception {
+        final int[] resumed = new int[1];
+        OperationScheduler scheduler = new OperationScheduler();
+        scheduler.submit(new Operation() {
+            @Override
+            public Operation resume(RunContext run) throws WorldEditException {
+                resumed[0]++;
+                return this;
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+
+        scheduler.run();
+        assertEquals(1, resumed[0]);
+        scheduler.run();
+        assertEquals(2, resumed[0]);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        CountingFunction function = new CountingFunction();
+        RegionVisitor visitor = new RegionVisitor(new CuboidRegion(new Vector(0, 0, 0), new Vector(9, 9, 9)), function);
+
+        OperationScheduler scheduler = new OperationScheduler();
+        scheduler.setTickSteps(10);
+        ListenableFuture<Operation> future = scheduler.submit(visitor);
+        scheduler.run();
+        future.cancel(false);
+        scheduler.run();
+
+        assertTrue(function.count < 1000);
+        assertFalse(function.count == 0);
+        assertEquals(0, scheduler.getPendingCount());
+    }
+
+}
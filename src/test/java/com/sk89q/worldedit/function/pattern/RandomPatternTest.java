@@ -0,0 +1,85 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.pattern;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.util.SplittableRandom;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link RandomPattern}.
+ */
+public class RandomPatternTest {
+
+    private static final int SAMPLES = 200000;
+
+    private static RandomPattern createPattern(SplittableRandom random, double... chances) {
+        RandomPattern pattern = new RandomPattern(random);
+        for (int i = 0; i < chances.length; i++) {
+            pattern.add(new BlockPattern(new BaseBlock(i + 1)), chances[i]);
+        }
+        return pattern;
+    }
+
+    @Test
+    public void testDistribution() {
+        double[] chances = { 5, 3, 0, 12, 0.5, 79.5 };
+        RandomPattern pattern = createPattern(new SplittableRandom(42), chances);
+
+        int[] counts = new int[chances.length];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[pattern.apply(Vector.ZERO).getType() - 1]++;
+        }
+
+        assertEquals(0, counts[2]);
+        for (int i = 0; i < chances.length; i++) {
+            double expected = chances[i] / 100 * SAMPLES;
+            assertTrue("pattern " + i + ": " + counts[i], Math.abs(counts[i] - expected) < SAMPLES * 0.005);
+        }
+    }
+
+    @Test
+    public void testSeededPatternsAreReproducible() {
+        RandomPattern first = createPattern(new SplittableRandom(1234), 1, 2, 3, 4);
+        RandomPattern second = createPattern(new SplittableRandom(1234), 1, 2, 3, 4);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(first.apply(Vector.ZERO).getType(), second.apply(Vector.ZERO).getType());
+        }
+    }
+
+    @Test
+    public void testAddAfterApply() {
+        RandomPattern pattern = createPattern(new SplittableRandom(7), 1);
+        assertEquals(1, pattern.apply(Vector.ZERO).getType());
+        pattern.add(new BlockPattern(new BaseBlock(2)), 1000000);
+        int seen = 0;
+        for (int i = 0; i < 100; i++) {
+            if (pattern.apply(Vector.ZERO).getType() == 2) {
+                seen++;
+            }
+        }
+        assertTrue(seen > 90);
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.visitor;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.function.block.BlockDistribution;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.EllipsoidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Countable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link DistributionVisitor}.
+ */
+public class DistributionVisitorTest {
+
+    private BlockArrayClipboard clipboard;
+
+    @Before
+    public void setUp() throws WorldEditException {
+        clipboard = new BlockArrayClipboard(new CuboidRegion(new Vector(-20, 0, -20), new Vector(20, 40, 20)));
+        for (Vector position : clipboard.getRegion()) {
+            int x = position.getBlockX();
+            int y = position.getBlockY();
+            if (y < 10) {
+                clipboard.setBlock(position, new BaseBlock(BlockID.STONE));
+            } else if (y < 20) {
+                clipboard.setBlock(position, new BaseBlock(BlockID.CLOTH, (x & 3)));
+            }
+        }
+    }
+
+    @Test
+    public void testCuboid() {
+        Region region = new CuboidRegion(new Vector(-20, 0, -20), new Vector(20, 40, 20));
+        DistributionVisitor visitor = new DistributionVisitor(region, clipboard, MoreExecutors.sameThreadExecutor());
+        Operations.completeBlindly(visitor);
+
+        assertTrue(visitor.isDone());
+        assertEquals(visitor.getSectionCount(), visitor.getSectionsRead());
+        assertNaive(region, visitor.getDistribution());
+    }
+
+    @Test
+    public void testEllipsoid() {
+        Region region = new EllipsoidRegion(new Vector(-3, 17, 2), new Vector(14, 9, 11));
+        DistributionVisitor visitor = new DistributionVisitor(region, clipboard, MoreExecutors.sameThreadExecutor());
+        Operations.completeBlindly(visitor);
+
+        assertNaive(region, visitor.getDistribution());
+    }
+
+    @Test
+    public void testWorkerThread() throws WorldEditException {
+        Region region = new EllipsoidRegion(new Vector(0, 15, 0), new Vector(19, 15, 19));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            DistributionVisitor visitor = new DistributionVisitor(region, clipboard, executor);
+            Operation operation = visitor;
+            while (operation != null) {
+                operation = operation.resume(new RunContext());
+            }
+            assertEquals(1.0, visitor.getProgress(), 0);
+            assertNaive(region, visitor.getDistribution());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCountMatching() {
+        Region region = new CuboidRegion(new Vector(0, 0, 0), new Vector(3, 19, 0));
+        DistributionVisitor visitor = new DistributionVisitor(region, clipboard, MoreExecutors.sameThreadExecutor());
+        Operations.completeBlindly(visitor);
+        BlockDistribution distribution = visitor.getDistribution();
+
+        assertEquals(40, distribution.getCount(BlockID.STONE));
+        assertEquals(40, distribution.getCount(BlockID.CLOTH));
+        assertEquals(10, distribution.getCount(BlockID.CLOTH, 2));
+        BaseBlock anyCloth = new BaseBlock(BlockID.CLOTH, -1);
+        BaseBlock redCloth = new BaseBlock(BlockID.CLOTH, 2);
+        assertEquals(40, distribution.getCount(new HashSet<BaseBlock>(Arrays.asList(anyCloth, redCloth))));
+        assertEquals(10, distribution.getCount(Collections.singleton(redCloth)));
+    }
+
+    private void assertNaive(Region region, BlockDistribution distribution) {
+        BlockDistribution expected = new BlockDistribution();
+        for (Vector position : region) {
+            BaseBlock block = clipboard.getBlock(position);
+            expected.add(block.getType(), block.getData());
+        }
+
+        assertEquals(expected.getTotal(), distribution.getTotal());
+        List<Countable<BaseBlock>> expectedList = expected.getDistributionWithData();
+        List<Countable<BaseBlock>> actualList = distribution.getDistributionWithData();
+        assertEquals(expectedList.size(), actualList.size());
+        for (int i = 0; i < expectedList.size(); i++) {
+            assertEquals(expectedList.get(i).getID(), actualList.get(i).getID());
+            assertEquals(expectedList.get(i).getAmount(), actualList.get(i).getAmount());
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.visitor;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.mask.RegionMask;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link RecursiveVisitor} and {@link BreadthFirstSearch}.
+ */
+public class RecursiveVisitorTest {
+
+    private static class CollectingFunction implements RegionFunction {
+        private final Set<Vector> visited = new HashSet<Vector>();
+
+        @Override
+        public boolean apply(Vector position) throws WorldEditException {
+            assertTrue("visited twice: " + position, visited.add(position));
+            return true;
+        }
+    }
+
+    @Test
+    public void testFillsRegionAcrossSections() throws WorldEditException {
+        CuboidRegion region = new CuboidRegion(new Vector(-20, -3, -20), new Vector(20, 40, 5));
+        CollectingFunction function = new CollectingFunction();
+        RecursiveVisitor visitor = new RecursiveVisitor(new RegionMask(region), function);
+        visitor.visit(new Vector(0, 0, 0));
+        Operations.complete(visitor);
+
+        assertEquals(region.getArea(), visitor.getAffected());
+        assertEquals(region.getArea(), function.visited.size());
+        for (Vector position : function.visited) {
+            assertTrue(region.contains(position));
+        }
+    }
+
+    @Test
+    public void testNonRisingDirections() throws WorldEditException {
+        CuboidRegion region = new CuboidRegion(new Vector(0, 0, 0), new Vector(9, 9, 9));
+        CollectingFunction function = new CollectingFunction();
+        NonRisingVisitor visitor = new NonRisingVisitor(new RegionMask(region), function);
+        visitor.visit(new Vector(0, 4, 0));
+        Operations.complete(visitor);
+
+        assertEquals(10 * 10 * 5, visitor.getAffected());
+    }
+
+}
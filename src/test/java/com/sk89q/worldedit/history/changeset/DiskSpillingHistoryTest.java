@@ -0,0 +1,98 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.history.changeset;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link DiskSpillingHistory}.
+ */
+public class DiskSpillingHistoryTest {
+
+    private static File createTempDir() throws IOException {
+        File dir = File.createTempFile("history", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    @Test
+    public void testSpillAndReplay() throws IOException {
+        File dir = createTempDir();
+        DiskSpillingHistory history = new DiskSpillingHistory(dir, 10);
+
+        Map<String, Tag> values = new HashMap<String, Tag>();
+        values.put("Text1", new StringTag("Text1", "hello"));
+        BaseBlock sign = new BaseBlock(63, 4, new CompoundTag(values));
+
+        for (int i = 0; i < 25; i++) {
+            BaseBlock current = i == 3 ? sign : new BaseBlock(1, i % 16);
+            history.add(new BlockChange(new BlockVector(i, 64, 100000000 + i), new BaseBlock(0), current));
+        }
+
+        assertEquals(25, history.size());
+        assertEquals(20, history.getSpilledCount());
+        assertNotNull(history.getFile());
+        assertTrue(history.getFile().length() > 0);
+
+        Iterator<Change> forward = history.forwardIterator();
+        for (int i = 0; i < 25; i++) {
+            BlockChange change = (BlockChange) forward.next();
+            assertEquals(new BlockVector(i, 64, 100000000 + i), change.getPosition());
+            if (i == 3) {
+                assertEquals("hello", ((StringTag) change.getCurrent().getNbtData().getValue().get("Text1")).getValue());
+            } else {
+                assertEquals(i % 16, change.getCurrent().getData());
+            }
+        }
+        assertFalse(forward.hasNext());
+
+        Iterator<Change> backward = history.backwardIterator();
+        for (int i = 24; i >= 0; i--) {
+            assertEquals(new BlockVector(i, 64, 100000000 + i), ((BlockChange) backward.next()).getPosition());
+        }
+        assertFalse(backward.hasNext());
+
+        File file = history.getFile();
+        history.close();
+        assertFalse(file.exists());
+        assertTrue(dir.delete());
+    }
+
+}
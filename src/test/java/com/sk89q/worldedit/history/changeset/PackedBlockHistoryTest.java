@@ -0,0 +1,103 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.history.changeset;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.math.BlockPositions;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests {@link PackedBlockHistory}.
+ */
+public class PackedBlockHistoryTest {
+
+    @Test
+    public void testPackPositions() {
+        int[][] positions = {
+                { 0, 0, 0 }, { -1, -1, -1 }, { 30000000, 255, -30000000 },
+                { BlockPositions.MIN_XZ, BlockPositions.MIN_Y, BlockPositions.MAX_XZ },
+                { BlockPositions.MAX_XZ, BlockPositions.MAX_Y, BlockPositions.MIN_XZ } };
+        for (int[] p : positions) {
+            long packed = BlockPositions.pack(p[0], p[1], p[2]);
+            assertEquals(p[0], BlockPositions.unpackX(packed));
+            assertEquals(p[1], BlockPositions.unpackY(packed));
+            assertEquals(p[2], BlockPositions.unpackZ(packed));
+        }
+    }
+
+    @Test
+    public void testIterationOrder() {
+        PackedBlockHistory history = new PackedBlockHistory();
+        for (int i = 0; i < 100; i++) {
+            history.add(new BlockChange(new BlockVector(i, i % 256, -i), new BaseBlock(0), new BaseBlock(i % 4096, i % 16)));
+        }
+        assertEquals(100, history.size());
+
+        Iterator<Change> forward = history.forwardIterator();
+        for (int i = 0; i < 100; i++) {
+            BlockChange change = (BlockChange) forward.next();
+            assertEquals(new BlockVector(i, i % 256, -i), change.getPosition());
+            assertEquals(0, change.getPrevious().getId());
+            assertEquals(i % 4096, change.getCurrent().getId());
+            assertEquals(i % 16, change.getCurrent().getData());
+        }
+        assertFalse(forward.hasNext());
+
+        Iterator<Change> backward = history.backwardIterator();
+        for (int i = 99; i >= 0; i--) {
+            BlockChange change = (BlockChange) backward.next();
+            assertEquals(new BlockVector(i, i % 256, -i), change.getPosition());
+        }
+        assertFalse(backward.hasNext());
+    }
+
+    @Test
+    public void testUnpackableBlocks() {
+        PackedBlockHistory history = new PackedBlockHistory();
+        BaseBlock withNbt = new BaseBlock(63, 0, new CompoundTag(new HashMap<String, Tag>()));
+        BaseBlock wildcard = new BaseBlock(1, -1);
+        BaseBlock highest = new BaseBlock(BaseBlock.MAX_ID, BaseBlock.MAX_DATA);
+        history.add(new BlockChange(new BlockVector(1, 2, 3), withNbt, wildcard));
+        history.add(new BlockChange(new BlockVector(1, 2, 4), new BaseBlock(0), highest));
+        history.add(new BlockChange(new BlockVector(100000000, 2, 3), new BaseBlock(0), new BaseBlock(1)));
+        assertEquals(3, history.size());
+
+        Iterator<Change> forward = history.forwardIterator();
+        assertEquals(new BlockVector(100000000, 2, 3), ((BlockChange) forward.next()).getPosition());
+        BlockChange first = (BlockChange) forward.next();
+        assertSame(withNbt, first.getPrevious());
+        assertSame(wildcard, first.getCurrent());
+        assertSame(highest, ((BlockChange) forward.next()).getCurrent());
+        assertFalse(forward.hasNext());
+    }
+
+}
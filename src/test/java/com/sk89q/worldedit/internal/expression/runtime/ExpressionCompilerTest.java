@@ -0,0 +1,99 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression.runtime;
+
+import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.internal.expression.ExpressionException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link ExpressionCompiler}.
+ */
+public class ExpressionCompilerTest {
+
+    private static final String[] EXPRESSIONS = {
+            "x + y * z - x / (y + 1) % 3",
+            "x ^ 2 + -y",
+            "x < y", "x > y", "x <= y", "x >= y", "x == y", "x != y", "x ~= y",
+            "x > 0 && y > 0", "x > 0 || y > 0", "!x", "~x", "x << 2", "x >> 1",
+            "sin(x) + cos(y) * tan(z) + sqrt(abs(x)) + atan2(y, x) + ln(abs(y) + 1) + round(z)",
+            "min(x, y) + max(x, y, z) + min(x, y, z) + floor(x / 3) + ceil(y / 3) + rint(z / 2)",
+            "a = x; a += y; a *= 2; a -= 1; a /= 3; a %= 5; a ^= 2; a",
+            "a = x; ++a; --a; b = ++a; c = --a; a + b + c",
+            "if (x > y) { a = 1 } else { a = 2 } a",
+            "x > y ? x : y",
+            "a = 0; for (i = 0; i < 5; ++i) { a += x } a",
+            "a = 0; while (a < 10) { a += 3 } a",
+            "randint(1) + x",
+            "a = megabuf(x); a + 1"
+    };
+
+    @Test
+    public void testCompiledTree() throws Exception {
+        Variable x = new Variable(2);
+        RValue tree = new Conditional(0,
+                Operators.getOperator(0, "gth", x, new Constant(0, 1)),
+                Operators.getOperator(0, "mul", x, new Constant(0, 10)),
+                new Constant(0, -1));
+        RValue compiled = ExpressionCompiler.compile(tree);
+        assertTrue(compiled instanceof CompiledExpression);
+        assertEquals(20, compiled.getValue(), 0);
+        x.value = 0;
+        assertEquals(-1, compiled.getValue(), 0);
+    }
+
+    @Test
+    public void testDeepTreeNotCompiled() throws Exception {
+        RValue tree = new Variable(1);
+        for (int i = 0; i < 200000; i++) {
+            tree = Operators.getOperator(0, "add", tree, new Constant(0, 1));
+        }
+        assertSame(tree, ExpressionCompiler.compile(tree));
+    }
+
+    @Test
+    public void testMatchesInterpreter() throws ExpressionException {
+        double[][] inputs = { { 1, 2, 3 }, { -4.5, 0, 7.25 }, { 0, 0, 0 }, { 100, -100, 0.5 }, { Double.NaN, 1, 2 } };
+
+        boolean enabled = Expression.isCompilerEnabled();
+        try {
+            for (String source : EXPRESSIONS) {
+                for (double[] input : inputs) {
+                    Expression.setCompilerEnabled(false);
+                    Expression interpreted = Expression.compile(source, "x", "y", "z");
+                    interpreted.optimize();
+
+                    Expression.setCompilerEnabled(true);
+                    Expression compiled = Expression.compile(source, "x", "y", "z");
+                    compiled.optimize();
+
+                    assertEquals(source, interpreted.evaluate(input), compiled.evaluate(input), 0);
+                }
+            }
+        } finally {
+            Expression.setCompilerEnabled(enabled);
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.math.convolution;
+
+import org.junit.Test;
+
+import java.awt.image.Kernel;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link HeightMapFilter}.
+ */
+public class HeightMapFilterTest {
+
+    private static int[] createHeightMap(int width, int height) {
+        Random random = new Random(42);
+        int[] data = new int[width * height];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = 40 + random.nextInt(40);
+        }
+        return data;
+    }
+
+    /**
+     * Get the same kernel without its separable form.
+     */
+    private static Kernel asPlainKernel(Kernel kernel) {
+        return new Kernel(kernel.getWidth(), kernel.getHeight(), kernel.getKernelData(null));
+    }
+
+    private static void assertMostlyEqual(int[] expected, int[] actual) {
+        // Summing in a different order may round the odd value differently
+        int different = 0;
+        for (int i = 0; i < expected.length; i++) {
+            assertTrue(Math.abs(expected[i] - actual[i]) <= 1);
+            if (expected[i] != actual[i]) {
+                different++;
+            }
+        }
+        assertTrue(different <= expected.length / 100);
+    }
+
+    @Test
+    public void testSeparableMatches2D() {
+        int width = 37;
+        int height = 23;
+        int[] data = createHeightMap(width, height);
+
+        Kernel[] kernels = { new GaussianKernel(5, 1.0), new GaussianKernel(2, 3.0), new LinearKernel(3) };
+        for (Kernel kernel : kernels) {
+            int[] expected = new HeightMapFilter(asPlainKernel(kernel)).filter(data, width, height, 3);
+            int[] actual = new HeightMapFilter(kernel).filter(data, width, height, 3);
+            assertMostlyEqual(expected, actual);
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSerial() {
+        int width = 150;
+        int height = 97;
+        int[] data = createHeightMap(width, height);
+
+        HeightMapFilter filter = new HeightMapFilter(new GaussianKernel(5, 1.0));
+        int[] expected = filter.filter(data, width, height, 4);
+        filter.setThreads(4);
+        int[] actual = filter.filter(data, width, height, 4);
+
+        assertArrayEquals(expected, actual);
+    }
+
+}
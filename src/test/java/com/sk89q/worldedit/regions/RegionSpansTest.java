@@ -0,0 +1,141 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.regions;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.world.World;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that {@link Region#getSpans(int, int, SpanList)} agrees with
+ * {@link Region#contains(Vector)}.
+ */
+public class RegionSpansTest {
+
+    private static void assertSpansMatch(Region region) {
+        Vector min = region.getMinimumPoint();
+        Vector max = region.getMaximumPoint();
+        SpanList expected = new SpanList();
+        SpanList actual = new SpanList();
+        int total = 0;
+
+        for (int z = min.getBlockZ() - 1; z <= max.getBlockZ() + 1; z++) {
+            for (int y = min.getBlockY() - 1; y <= max.getBlockY() + 1; y++) {
+                if (y < min.getBlockY() || y > max.getBlockY() || z < min.getBlockZ() || z > max.getBlockZ()) {
+                    expected.clear();
+                } else {
+                    SpanList.scan(region, y, z, min.getBlockX(), max.getBlockX(), expected);
+                }
+                region.getSpans(y, z, actual);
+                assertEquals(region + " at y=" + y + ", z=" + z, toString(expected), toString(actual));
+                total += actual.getLength();
+            }
+        }
+
+        int iterated = 0;
+        for (BlockVector position : region) {
+            assertTrue(region.contains(position));
+            iterated++;
+        }
+        assertEquals(total, iterated);
+    }
+
+    private static String toString(SpanList spans) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < spans.size(); i++) {
+            builder.append('[').append(spans.getMinX(i)).append(',').append(spans.getMaxX(i)).append(']');
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testEllipsoid() {
+        assertSpansMatch(new EllipsoidRegion((World) null, new Vector(0, 64, 0), new Vector(7, 5, 9)));
+        assertSpansMatch(new EllipsoidRegion((World) null, new Vector(3, 10, -4), new Vector(0, 0, 0)));
+        assertSpansMatch(new EllipsoidRegion((World) null, new Vector(0.5, 10, 0.5), new Vector(12.5, 3, 2)));
+    }
+
+    @Test
+    public void testCylinder() {
+        assertSpansMatch(new CylinderRegion(new Vector(5, 0, -5), new Vector2D(10, 4), 0, 3));
+        assertSpansMatch(new CylinderRegion(new Vector(0, 0, 0), new Vector2D(0.5, 0.5), 2, 2));
+    }
+
+    @Test
+    public void testPolygon() {
+        // A thin diagonal strip and a concave shape with a horizontal edge
+        assertSpansMatch(new Polygonal2DRegion((World) null, Arrays.asList(
+                new BlockVector2D(0, 0), new BlockVector2D(2, 0), new BlockVector2D(60, 40), new BlockVector2D(58, 40)), 0, 2));
+        assertSpansMatch(new Polygonal2DRegion((World) null, Arrays.asList(
+                new BlockVector2D(0, 0), new BlockVector2D(20, 0), new BlockVector2D(20, 20),
+                new BlockVector2D(10, 5), new BlockVector2D(0, 20)), 0, 1));
+
+        Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            BlockVector2D[] points = new BlockVector2D[3 + random.nextInt(5)];
+            for (int j = 0; j < points.length; j++) {
+                points[j] = new BlockVector2D(random.nextInt(40) - 20, random.nextInt(40) - 20);
+            }
+            assertSpansMatch(new Polygonal2DRegion((World) null, Arrays.asList(points), 0, 0));
+        }
+    }
+
+    @Test
+    public void testConvexPolyhedron() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10; i++) {
+            ConvexPolyhedralRegion region = new ConvexPolyhedralRegion((World) null);
+            for (int j = 0; j < 8; j++) {
+                region.addVertex(new BlockVector(random.nextInt(30), random.nextInt(30), random.nextInt(30)));
+            }
+            assertSpansMatch(region);
+        }
+    }
+
+    @Test
+    public void testIntersection() {
+        assertSpansMatch(new RegionIntersection(
+                new CuboidRegion(new Vector(0, 0, 0), new Vector(5, 5, 5)),
+                new EllipsoidRegion((World) null, new Vector(12, 3, 3), new Vector(4, 4, 4))));
+    }
+
+    @Test
+    public void testUnion() {
+        SpanList a = new SpanList();
+        a.add(0, 2);
+        a.add(10, 12);
+        SpanList b = new SpanList();
+        b.add(3, 4);
+        b.add(8, 9);
+        b.add(20, 20);
+        a.union(b);
+        assertEquals("[0,4][8,12][20,20]", toString(a));
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.regions.shape;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.internal.expression.ExpressionException;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link SlabEvaluator}.
+ */
+public class SlabEvaluatorTest {
+
+    @Test
+    public void testResultsInIterationOrder() throws Exception {
+        CuboidRegion region = new CuboidRegion(new Vector(0, 0, 0), new Vector(63, 31, 63));
+        final List<BlockVector> received = new ArrayList<BlockVector>();
+        final AtomicInteger created = new AtomicInteger();
+
+        SlabEvaluator.setPoolSize(4);
+        new SlabEvaluator<Integer>(4).evaluate(region, new SlabEvaluator.EvaluatorFactory<Integer>() {
+            @Override
+            public SlabEvaluator.Evaluator<Integer> create() throws ExpressionException {
+                created.incrementAndGet();
+                final Expression expression = Expression.compile("(x + y + z) % 2 == 0", "x", "y", "z");
+                expression.optimize();
+                return new SlabEvaluator.Evaluator<Integer>() {
+                    @Override
+                    public Integer evaluate(BlockVector position) throws ExpressionException {
+                        return expression.evaluate(position.getX(), position.getY(), position.getZ()) > 0 ? 1 : null;
+                    }
+                };
+            }
+        }, new SlabEvaluator.Receiver<Integer>() {
+            @Override
+            public void receive(BlockVector position, Integer result) {
+                received.add(position);
+            }
+        });
+
+        Iterator<BlockVector> it = received.iterator();
+        for (BlockVector position : region) {
+            if ((position.getBlockX() + position.getBlockY() + position.getBlockZ()) % 2 == 0) {
+                assertEquals(position, it.next());
+            }
+        }
+        assertFalse(it.hasNext());
+
+        // 8 slabs, but an evaluator is only created once per worker thread
+        assertTrue(created.get() <= 4);
+    }
+
+    @Test
+    public void testParallelizable() throws ExpressionException {
+        assertTrue(Expression.compile("sin(x) * perlin(1, x, y, z, 0.1, 4, 0.5) < y", "x", "y", "z").isParallelizable());
+        assertFalse(Expression.compile("query(x, y, z, 0, 0)", "x", "y", "z").isParallelizable());
+        assertFalse(Expression.compile("megabuf(1)", "x", "y", "z").isParallelizable());
+    }
+
+}
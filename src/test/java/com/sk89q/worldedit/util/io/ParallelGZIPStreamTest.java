@@ -0,0 +1,109 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.io;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Tests {@link ParallelGZIPOutputStream} and {@link ParallelGZIPInputStream}.
+ */
+public class ParallelGZIPStreamTest {
+
+    private static byte[] createData(int length) {
+        byte[] data = new byte[length];
+        Random random = new Random(123);
+        for (int i = 0; i < length; i++) {
+            // Compressible but not trivially so
+            data[i] = (byte) (random.nextInt(8) + (i / 1000));
+        }
+        return data;
+    }
+
+    private static byte[] compressBlocked(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream out = new ParallelGZIPOutputStream(bytes, 3, 10000);
+        out.write(data, 0, 12345);
+        for (int i = 12345; i < 12400; i++) {
+            out.write(data[i]);
+        }
+        out.write(data, 12400, data.length - 12400);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try {
+            return ByteStreams.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testReadableAsGzip() throws IOException {
+        byte[] data = createData(123456);
+        byte[] compressed = compressBlocked(data);
+        assertArrayEquals(data, readAll(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void testParallelRoundTrip() throws IOException {
+        byte[] data = createData(123456);
+        byte[] compressed = compressBlocked(data);
+        assertArrayEquals(data, readAll(new ParallelGZIPInputStream(new ByteArrayInputStream(compressed), 2)));
+    }
+
+    @Test
+    public void testReadsOrdinaryGzip() throws IOException {
+        byte[] data = createData(50000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream out = new GZIPOutputStream(bytes);
+        out.write(data);
+        out.close();
+        assertArrayEquals(data, readAll(new ParallelGZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+    }
+
+    @Test(expected = IOException.class)
+    public void testDetectsCorruption() throws IOException {
+        byte[] compressed = compressBlocked(createData(30000));
+        compressed[compressed.length - 9] ^= 0x55; // Last byte of the last member's body
+        readAll(new ParallelGZIPInputStream(new ByteArrayInputStream(compressed), 2));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOversizedMember() throws IOException {
+        byte[] compressed = compressBlocked(createData(30000));
+        compressed[19] = 0x7f; // High byte of the first member's size
+        readAll(new ParallelGZIPInputStream(new ByteArrayInputStream(compressed), 2));
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.metrics;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.extent.metric.TimingExtent;
+import com.sk89q.worldedit.extent.reorder.MultiStageReorder;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link MetricsRegistry}, {@link Histogram} and
+ * {@link TimingExtent}.
+ */
+public class MetricsRegistryTest {
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(50));
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.add(i);
+        }
+        histogram.add(0);
+
+        assertEquals(101, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(100, histogram.getMax());
+        assertEquals(63, histogram.getPercentile(50));
+        assertEquals(100, histogram.getPercentile(100));
+        assertEquals(0, histogram.getPercentile(0));
+    }
+
+    @Test
+    public void testLayers() throws WorldEditException {
+        EditMetrics edit = new EditMetrics();
+        Extent extent = new BlockArrayClipboard(new CuboidRegion(new Vector(0, 0, 0), new Vector(31, 15, 31)));
+        extent = new TimingExtent(extent, edit.addLayer("bottom"));
+        extent = new MultiStageReorder(extent, true);
+        extent = new TimingExtent(extent, edit.addLayer("reorder"));
+
+        for (int x = 0; x < 20; x++) {
+            extent.setBlock(new Vector(x, 1, 1), new BaseBlock(BlockID.STONE));
+            extent.getBlock(new Vector(x, 1, 1));
+        }
+
+        LayerMetrics bottom = edit.getLayers().get(0);
+        LayerMetrics top = edit.getTopLayer();
+        assertEquals(20, top.getWrites());
+        assertEquals(20, top.getReads());
+        assertEquals(0, bottom.getWrites()); // Still buffered
+
+        Operations.completeBlindly(extent.commit());
+        assertEquals(20, bottom.getWrites());
+        assertTrue(top.getCommitTime() >= bottom.getCommitTime());
+
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.record("/set", edit, 2000000, 1024, 20);
+        registry.record("/set", edit, 4000000, -1, 20);
+        registry.record("/pos1", null, 1000, -1, 0);
+
+        assertEquals(3, registry.getCommandCount());
+        assertEquals(40, registry.getBlocksWritten());
+        assertEquals(40, registry.getBlocksRead());
+
+        List<LayerMetrics> layers = registry.getLayers();
+        assertEquals(2, layers.size());
+        assertEquals("bottom", layers.get(0).getName());
+        assertEquals(40, layers.get(0).getWrites());
+
+        assertEquals(2, registry.getLayerReport().length);
+        String[] commands = registry.getCommandReport();
+        assertEquals(2, commands.length);
+        assertTrue(commands[0].startsWith("/pos1"));
+        assertTrue(commands[1].contains("x2"));
+        assertTrue(commands[1].contains("1 KiB allocated"));
+
+        registry.reset();
+        assertEquals(0, registry.getCommandCount());
+        assertEquals(0, registry.getLayerReport().length);
+    }
+
+    @Test
+    public void testBufferingLayerSelfTime() {
+        EditMetrics edit = new EditMetrics();
+        LayerMetrics bottom = edit.addLayer("bottom");
+        LayerMetrics buffer = edit.addLayer("buffer");
+
+        // The buffer takes 1 ms to queue writes, and then passes them on
+        // when committed, which takes 8 ms in the layer below
+        buffer.addWrite(10, 1000000);
+        bottom.addWrite(10, 8000000);
+        buffer.addCommit(10000000);
+
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.record("/set", edit, 11000000, -1, 10);
+
+        String[] report = registry.getLayerReport();
+        assertEquals(2, report.length);
+        assertTrue(report[0].matches("bottom +8\\.0 ms .*"));
+        assertTrue(report[1].matches("buffer +3\\.0 ms .*"));
+    }
+
+}
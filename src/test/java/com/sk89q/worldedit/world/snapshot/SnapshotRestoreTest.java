@@ -0,0 +1,162 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world.snapshot;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.DataException;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.chunk.Chunk;
+import com.sk89q.worldedit.world.storage.ChunkStore;
+import com.sk89q.worldedit.world.storage.MissingChunkException;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests {@link SnapshotRestore}.
+ */
+public class SnapshotRestoreTest {
+
+    /**
+     * A chunk store whose blocks encode their position, with one chunk
+     * missing and one chunk that fails to load.
+     */
+    private static class FakeChunkStore extends ChunkStore {
+        @Override
+        public CompoundTag getChunkTag(Vector2D position, World world) throws DataException, IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Chunk getChunk(Vector2D position, World world) throws DataException, IOException {
+            if (position.getBlockX() == 1 && position.getBlockZ() == 1) {
+                throw new MissingChunkException();
+            }
+            if (position.getBlockX() == 2 && position.getBlockZ() == 0) {
+                throw new IOException("broken");
+            }
+            return new Chunk() {
+                @Override
+                public int getBlockID(Vector position) {
+                    return (position.getBlockX() & 15) + 1;
+                }
+
+                @Override
+                public int getBlockData(Vector position) {
+                    return position.getBlockZ() & 15;
+                }
+
+                @Override
+                public BaseBlock getBlock(Vector position) {
+                    return new BaseBlock(getBlockID(position), getBlockData(position));
+                }
+            };
+        }
+
+        @Override
+        public boolean isValid() {
+            return true;
+        }
+    }
+
+    private static List<Vector> restore(Region region, int threads, SnapshotRestore[] out) throws Exception {
+        final List<Vector> changed = new ArrayList<Vector>();
+        EditSession editSession = mock(EditSession.class);
+        doAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                Vector position = (Vector) invocation.getArguments()[0];
+                BaseBlock block = (BaseBlock) invocation.getArguments()[1];
+                assertEquals((position.getBlockX() & 15) + 1, block.getType());
+                assertEquals(position.getBlockZ() & 15, block.getData());
+                changed.add(position);
+                return true;
+            }
+        }).when(editSession).setBlock(any(Vector.class), any(BaseBlock.class));
+
+        SnapshotRestore restore = new SnapshotRestore(new FakeChunkStore(), editSession, region);
+        restore.setThreads(threads);
+        restore.restore();
+        out[0] = restore;
+        return changed;
+    }
+
+    @Test
+    public void testCuboid() throws Exception {
+        Region region = new CuboidRegion(new Vector(-3, 10, -3), new Vector(40, 12, 20));
+        SnapshotRestore[] out = new SnapshotRestore[1];
+
+        List<Vector> serial = restore(region, 1, out);
+        assertEquals(4 * 3, out[0].getChunksAffected());
+        assertEquals(1, out[0].getMissingChunks().size());
+        assertEquals(new BlockVector2D(1, 1), out[0].getMissingChunks().get(0));
+        assertEquals(1, out[0].getErrorChunks().size());
+        assertEquals("broken", out[0].getLastErrorMessage());
+        assertFalse(out[0].hadTotalFailure());
+
+        // Every block except those in the two failed chunks
+        int failed = 16 * 5 * 3 + 9 * 16 * 3;
+        assertEquals(44 * 3 * 24 - failed, serial.size());
+
+        List<Vector> parallel = restore(region, 4, out);
+        assertEquals(serial, parallel);
+        assertEquals(1, out[0].getMissingChunks().size());
+        assertEquals(1, out[0].getErrorChunks().size());
+    }
+
+    @Test
+    public void testNonCuboid() throws Exception {
+        Region region = new CylinderRegion(new Vector(16, 0, 16), new Vector2D(5, 5), 0, 1);
+        SnapshotRestore[] out = new SnapshotRestore[1];
+
+        List<Vector> changed = restore(region, 3, out);
+        assertEquals(4, out[0].getChunksAffected());
+        for (Vector position : changed) {
+            assertTrue(region.contains(position));
+        }
+        int expected = 0;
+        for (Vector position : region) {
+            if (position.getBlockX() < 16 || position.getBlockZ() < 16) {
+                expected++;
+            }
+        }
+        assertEquals(expected, changed.size());
+    }
+
+}
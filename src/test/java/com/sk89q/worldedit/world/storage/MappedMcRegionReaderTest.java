@@ -0,0 +1,162 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world.storage;
+
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.world.DataException;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link MappedMcRegionReader}.
+ */
+public class MappedMcRegionReaderTest {
+
+    private static byte[] createData(int seed, int size) {
+        Random random = new Random(seed);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            // Compressible but not trivially so
+            data[i] = (byte) (random.nextInt(8) + (i & 0x30));
+        }
+        return data;
+    }
+
+    private static byte[] compress(byte[] data, int version) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (version == McRegionReader.VERSION_GZIP) {
+            GZIPOutputStream out = new GZIPOutputStream(bytes);
+            out.write(data);
+            out.close();
+        } else {
+            DeflaterOutputStream out = new DeflaterOutputStream(bytes);
+            out.write(data);
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static File createRegionFile(byte[][] chunks, int[] versions) throws IOException {
+        File file = File.createTempFile("r.0.0", ".mca");
+        file.deleteOnExit();
+
+        int[] offsets = new int[McRegionReader.SECTOR_INTS];
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int sector = 1;
+        for (int i = 0; i < chunks.length; i++) {
+            byte[] compressed = compress(chunks[i], versions[i]);
+            int sectors = (compressed.length + McRegionReader.CHUNK_HEADER_SIZE) / McRegionReader.SECTOR_BYTES + 1;
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeInt(compressed.length + 1);
+            out.writeByte(versions[i]);
+            out.write(compressed);
+            out.write(new byte[sectors * McRegionReader.SECTOR_BYTES - compressed.length - McRegionReader.CHUNK_HEADER_SIZE]);
+            // Store chunks in reverse order on disk to exercise seeking backwards
+            offsets[(chunks.length - 1 - i) * 33] = sector << 8 | sectors;
+            sector += sectors;
+        }
+
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            body.writeTo(out);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testReadsChunksInAnyOrder() throws IOException, DataException {
+        byte[][] chunks = { createData(1, 100), createData(2, 20000), createData(3, 70000) };
+        int[] versions = { McRegionReader.VERSION_DEFLATE, McRegionReader.VERSION_GZIP, McRegionReader.VERSION_DEFLATE };
+        File file = createRegionFile(chunks, versions);
+
+        MappedMcRegionReader reader = new MappedMcRegionReader(file);
+        try {
+            assertTrue(reader.isRandomAccess());
+            assertFalse(reader.hasChunk(5, 5));
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 0; i < chunks.length; i++) {
+                    int index = chunks.length - 1 - i;
+                    byte[] read = readFully(reader.getChunkInputStream(new Vector2D(index, index)));
+                    assertArrayEquals(chunks[i], read);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        // The stream-based reader must agree, reading in file order
+        McRegionReader streamReader = new McRegionReader(new FileInputStream(file));
+        try {
+            for (int i = 0; i < chunks.length; i++) {
+                int index = chunks.length - 1 - i;
+                byte[] read = readFully(streamReader.getChunkInputStream(new Vector2D(index, index)));
+                assertTrue(Arrays.equals(chunks[i], read));
+            }
+        } finally {
+            streamReader.close();
+        }
+    }
+
+    @Test
+    public void testMissingChunk() throws IOException, DataException {
+        File file = createRegionFile(new byte[][] { createData(1, 10) }, new int[] { McRegionReader.VERSION_DEFLATE });
+        MappedMcRegionReader reader = new MappedMcRegionReader(file);
+        try {
+            reader.getChunkInputStream(new Vector2D(3, 4));
+            fail("Expected a DataException");
+        } catch (DataException ignored) {
+        } finally {
+            reader.close();
+        }
+    }
+
+}